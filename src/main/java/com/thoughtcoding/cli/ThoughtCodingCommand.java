@@ -4,7 +4,12 @@ import com.thoughtcoding.core.AgentLoop;
 import com.thoughtcoding.core.DirectCommandExecutor;
 import com.thoughtcoding.core.ThoughtCodingContext;
 import com.thoughtcoding.model.ChatMessage;
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.service.LangChainService;
+import com.thoughtcoding.service.PerformanceMonitor;
 import com.thoughtcoding.service.SessionService;
+import com.thoughtcoding.tools.exec.CommandExecutorTool;
+import com.thoughtcoding.tools.exec.JobManager;
 import com.thoughtcoding.ui.ThoughtCodingUI;
 import com.thoughtcoding.config.MCPConfig;
 import com.thoughtcoding.config.MCPServerConfig;
@@ -105,8 +110,7 @@ public class ThoughtCodingCommand implements Callable<Integer> {
 
             // 处理列表会话
             if (listSessions) {
-                List<String> sessions = sessionService.listSessions();
-                ui.displaySessionList(sessions);
+                ui.displaySessionList(sessionService.listSessionEntries());
                 return 0;
             }
 
@@ -170,6 +174,8 @@ public class ThoughtCodingCommand implements Callable<Integer> {
             // 单次对话模式
             if (prompt != null) {
                 try {
+                    // 单次对话需要完整的工具集，等待 MCP 服务器就绪
+                    context.awaitMCPReady();
 
                     // 显示用户输入
                     ChatMessage userMessage = new ChatMessage("user", prompt);
@@ -248,6 +254,7 @@ public class ThoughtCodingCommand implements Callable<Integer> {
 
     private Integer startInteractiveMode(AgentLoop agentLoop, ThoughtCodingUI ui) {
         ui.displayInfo("Entering interactive mode. Type 'exit' to quit, 'help' for commands.");
+        ui.setInterruptHandler(this::handleInterrupt);
 
         while (true) {
             try {
@@ -294,6 +301,24 @@ public class ThoughtCodingCommand implements Callable<Integer> {
                     continue;
                 }
 
+                // 🔥 模型列表和按模型的调用统计
+                if (trimmedInput.equalsIgnoreCase("/models")) {
+                    showModels();
+                    continue;
+                }
+
+                // 🔥 性能统计：token、工具调用、前缀缓存命中率和会话写入队列
+                if (trimmedInput.equalsIgnoreCase("/stats")) {
+                    showStats();
+                    continue;
+                }
+
+                // 🔥 后台任务：/jobs、/jobs tail <id>、/jobs kill <id>
+                if (trimmedInput.equals("/jobs") || trimmedInput.startsWith("/jobs ")) {
+                    handleJobsCommand(trimmedInput);
+                    continue;
+                }
+
                 // 🔥 MCP 相关命令 - 直接在这里处理
                 if (trimmedInput.startsWith("/mcp")) {
                     handleMCPCommand(trimmedInput);
@@ -490,6 +515,7 @@ public class ThoughtCodingCommand implements Callable<Integer> {
         ThoughtCodingUI ui = context.getUi();
         try {
             //Command从Context获取服务
+            flushPendingSessions();
             String latestSessionId = context.getSessionService().getLatestSessionId();
             if (latestSessionId != null) {
                 List<ChatMessage> history = context.getSessionService().loadSession(latestSessionId);
@@ -515,12 +541,22 @@ public class ThoughtCodingCommand implements Callable<Integer> {
         }
     }
 
+    /**
+     * 🔥 读取会话前等待后台写入完成，保证读到本进程刚保存的内容
+     */
+    private void flushPendingSessions() {
+        if (context.getSessionPersister() != null) {
+            context.getSessionPersister().flush();
+        }
+    }
+
     /**
      * 在交互模式中加载指定会话
      */
     private void handleLoadSession(String sessionId, AgentLoop currentAgentLoop) {
         ThoughtCodingUI ui = context.getUi();
         try {
+            flushPendingSessions();
             List<ChatMessage> history = context.getSessionService().loadSession(sessionId);
             currentAgentLoop.loadHistory(history);
             currentSessionId = sessionId;
@@ -543,6 +579,26 @@ public class ThoughtCodingCommand implements Callable<Integer> {
         }
     }
 
+    /**
+     * 🛑 Ctrl-C：正在执行命令时结束命令的进程树；正在生成时立即取消生成（保留已生成的部分），否则与默认行为一样退出程序
+     */
+    private void handleInterrupt() {
+        boolean commandCancelled = directCommandExecutor.cancelRunning();
+        if (context.getToolRegistry().getTool("command_executor") instanceof CommandExecutorTool) {
+            commandCancelled |= ((CommandExecutorTool) context.getToolRegistry().getTool("command_executor")).cancelRunning();
+        }
+        if (commandCancelled) {
+            return;
+        }
+        if (context.getAiService() instanceof com.thoughtcoding.service.LangChainService
+                && ((com.thoughtcoding.service.LangChainService) context.getAiService()).isGenerating()) {
+            stopCurrentGeneration();
+            return;
+        }
+        context.getUi().close();
+        System.exit(130);
+    }
+
     /**
      * 🛑 停止当前的 AI 生成
      */
@@ -568,6 +624,117 @@ public class ThoughtCodingCommand implements Callable<Integer> {
         }
     }
 
+    /**
+     * 🔥 显示性能统计行：最近一次输入的耗时、累计 token 和工具调用、前缀缓存命中率，以及会话写入的队列深度和耗时
+     */
+    private void showStats() {
+        PerformanceMonitor.PerformanceData data = context.getPerformanceMonitor().snapshot();
+        if (context.getSessionPersister() != null) {
+            data = data.withSessionStats(context.getSessionPersister().getStats());
+        }
+        context.getUi().displayPerformanceInfo(data);
+    }
+
+    /**
+     * 🔥 显示配置的模型、默认/轻量标记、已构建的客户端和按模型的调用统计
+     */
+    private void showModels() {
+        ThoughtCodingUI ui = context.getUi();
+        AppConfig appConfig = context.getAppConfig();
+        if (appConfig.getModels() == null || appConfig.getModels().isEmpty()) {
+            ui.displayWarning("No models configured");
+            return;
+        }
+
+        Set<String> loaded = context.getAiService() instanceof LangChainService
+                ? ((LangChainService) context.getAiService()).getLoadedModels()
+                : Set.of();
+        Map<String, PerformanceMonitor.ModelUsage> usage = context.getPerformanceMonitor().getModelUsage();
+        String lightModel = appConfig.getAi().getLightModel();
+
+        StringBuilder sb = new StringBuilder("🤖 Models:\n");
+        for (Map.Entry<String, AppConfig.ModelConfig> entry : appConfig.getModels().entrySet()) {
+            String key = entry.getKey();
+            sb.append("  ").append(key).append(" (").append(entry.getValue().getName()).append(")");
+            if (key.equals(appConfig.getDefaultModel())) {
+                sb.append(" [default]");
+            }
+            if (key.equals(lightModel)) {
+                sb.append(" [light]");
+            }
+            if (loaded.contains(key)) {
+                sb.append(" [loaded]");
+            }
+            PerformanceMonitor.ModelUsage modelUsage = usage.get(key);
+            if (modelUsage != null) {
+                sb.append("\n      ").append(modelUsage);
+            }
+            sb.append("\n");
+        }
+        ui.displayInfo(sb.toString().trim());
+    }
+
+    /**
+     * 🔥 后台任务命令：列出任务、查看任务输出末尾、结束任务
+     */
+    private void handleJobsCommand(String input) {
+        ThoughtCodingUI ui = context.getUi();
+        JobManager jobManager = context.getJobManager();
+        if (jobManager == null) {
+            ui.displayWarning("后台任务不可用");
+            return;
+        }
+
+        String[] parts = input.trim().split("\\s+");
+        if (parts.length == 1) {
+            List<JobManager.Job> jobs = jobManager.list();
+            if (jobs.isEmpty()) {
+                ui.displayInfo("没有后台任务。以 & 结尾的直接命令（如 mvn test &）会在后台执行");
+                return;
+            }
+            StringBuilder sb = new StringBuilder("⚙️  Jobs:\n");
+            jobs.forEach(job -> sb.append("  ").append(job.describe()).append("\n"));
+            ui.displayInfo(sb.toString().trim());
+            return;
+        }
+
+        if (parts.length < 3 || !(parts[1].equals("tail") || parts[1].equals("kill"))) {
+            ui.displayWarning("用法: /jobs | /jobs tail <id> [行数] | /jobs kill <id>");
+            return;
+        }
+        int id;
+        int lines = 40;
+        try {
+            id = Integer.parseInt(parts[2].replace("#", ""));
+            if (parts.length > 3) {
+                lines = Integer.parseInt(parts[3]);
+            }
+        } catch (NumberFormatException e) {
+            ui.displayWarning("无效的任务编号: " + parts[2]);
+            return;
+        }
+        JobManager.Job job = jobManager.get(id);
+        if (job == null) {
+            ui.displayWarning("没有任务 #" + id);
+            return;
+        }
+
+        if (parts[1].equals("kill")) {
+            if (jobManager.kill(id)) {
+                ui.displaySuccess("🛑 已结束任务 #" + id + ": " + job.getCommand());
+            } else {
+                ui.displayInfo("任务 #" + id + " 已经结束: " + job.describe());
+            }
+            return;
+        }
+
+        ui.displayInfo(job.describe());
+        String tail = job.tail(lines, 64 * 1024);
+        for (String line : tail.split("\n", -1)) {
+            ui.displayToolOutput(line);
+        }
+    }
+
     private void showHelp() {
         context.getUi().displayInfo("""
                         🚀 可用命令：
@@ -580,12 +747,16 @@ public class ThoughtCodingCommand implements Callable<Integer> {
                                                                   /list         查看所有会话
                                                                   /clear        清空屏幕
                                                                   /help         显示帮助信息
+                                                                  /models       查看模型和调用统计
+                                                                  /stats        查看性能统计和会话写入队列
+                                                                  /jobs         查看后台任务（tail <id> 查看输出，kill <id> 结束）
                                                                \s
                                                                 🔧 直接命令：
                                                                   java version  直接执行Java命令
                                                                   git status    直接执行Git命令
                                                                   pwd, ls, etc. 系统命令直接执行
                                                                   /commands     查看所有支持直接执行的命令
+                                                                  mvn test &    以 & 结尾在后台执行
                                                                \s
                                                                 🔧 MCP 命令：
                                                                   /mcp list             列出MCP工具
@@ -155,6 +155,22 @@ public class AppConfig {
         public void setMaxTokens(Integer maxTokens) {
             this.maxTokens = maxTokens;
         }
+
+        public Double getTopP() {
+            return topP;
+        }
+
+        public void setTopP(Double topP) {
+            this.topP = topP;
+        }
+
+        public Integer getTimeout() {
+            return timeout != null ? timeout : 60;
+        }
+
+        public void setTimeout(Integer timeout) {
+            this.timeout = timeout;
+        }
     }
 
     @Data
@@ -234,6 +250,18 @@ public class AppConfig {
         @JsonProperty("allowedLanguages")
         private String[] allowedLanguages = {"java", "python", "javascript"};
 
+        @JsonProperty("maxResults")
+        private Integer maxResults = 200; // grep_search 单次返回的最大匹配数
+
+        @JsonProperty("useIndex")
+        private boolean useIndex = false; // grep_search 使用后台构建的三元组索引
+
+        @JsonProperty("outputBufferKb")
+        private Integer outputBufferKb = 32; // command_executor 保留输出开头和结尾各多少 KB，中间部分省略
+
+        @JsonProperty("jobTimeoutSeconds")
+        private Integer jobTimeoutSeconds = 3600; // 后台任务的超时时间（秒），0 表示不限制
+
         // Getters and Setters
         public boolean isEnabled() {
             return enabled;
@@ -274,6 +302,38 @@ public class AppConfig {
         public void setAllowedLanguages(String[] allowedLanguages) {
             this.allowedLanguages = allowedLanguages;
         }
+
+        public Integer getMaxResults() {
+            return maxResults;
+        }
+
+        public void setMaxResults(Integer maxResults) {
+            this.maxResults = maxResults;
+        }
+
+        public boolean isUseIndex() {
+            return useIndex;
+        }
+
+        public void setUseIndex(boolean useIndex) {
+            this.useIndex = useIndex;
+        }
+
+        public Integer getOutputBufferKb() {
+            return outputBufferKb;
+        }
+
+        public void setOutputBufferKb(Integer outputBufferKb) {
+            this.outputBufferKb = outputBufferKb;
+        }
+
+        public Integer getJobTimeoutSeconds() {
+            return jobTimeoutSeconds;
+        }
+
+        public void setJobTimeoutSeconds(Integer jobTimeoutSeconds) {
+            this.jobTimeoutSeconds = jobTimeoutSeconds;
+        }
     }
 
     /**
@@ -284,6 +344,27 @@ public class AppConfig {
         @JsonProperty("autoProcessToolResults")
         private boolean autoProcessToolResults = false; // 默认false：工具执行后直接显示结果，不再反馈给AI
 
+        @JsonProperty("maxAgentSteps")
+        private int maxAgentSteps = 8; // 自主模式下每次输入最多的模型调用轮数
+
+        @JsonProperty("maxAgentTokens")
+        private int maxAgentTokens = 20000; // 自主模式下每次输入累计的用户消息、响应和工具结果 token 上限
+
+        @JsonProperty("maxAgentSeconds")
+        private int maxAgentSeconds = 300; // 自主模式下每次输入的最长耗时（秒）
+
+        @JsonProperty("tokenizer")
+        private String tokenizer = "bpe"; // Token 统计方式：bpe（cl100k_base 词表）或 estimate（字符估算）
+
+        @JsonProperty("promptCaching")
+        private boolean promptCaching = false; // true：固定系统提示词前缀并按块截断历史，便于命中提供方的前缀缓存
+
+        @JsonProperty("nativeToolCalling")
+        private boolean nativeToolCalling = false; // true：通过模型的 function calling 接口传递工具定义，不再解析文本标记
+
+        @JsonProperty("lightModel")
+        private String lightModel; // 轻量任务（生成提交信息等）使用的小模型，未配置时使用 defaultModel
+
         public boolean isAutoProcessToolResults() {
             return autoProcessToolResults;
         }
@@ -291,5 +372,61 @@ public class AppConfig {
         public void setAutoProcessToolResults(boolean autoProcessToolResults) {
             this.autoProcessToolResults = autoProcessToolResults;
         }
+
+        public int getMaxAgentSteps() {
+            return maxAgentSteps;
+        }
+
+        public void setMaxAgentSteps(int maxAgentSteps) {
+            this.maxAgentSteps = maxAgentSteps;
+        }
+
+        public int getMaxAgentTokens() {
+            return maxAgentTokens;
+        }
+
+        public void setMaxAgentTokens(int maxAgentTokens) {
+            this.maxAgentTokens = maxAgentTokens;
+        }
+
+        public int getMaxAgentSeconds() {
+            return maxAgentSeconds;
+        }
+
+        public void setMaxAgentSeconds(int maxAgentSeconds) {
+            this.maxAgentSeconds = maxAgentSeconds;
+        }
+
+        public String getTokenizer() {
+            return tokenizer;
+        }
+
+        public void setTokenizer(String tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        public boolean isPromptCaching() {
+            return promptCaching;
+        }
+
+        public void setPromptCaching(boolean promptCaching) {
+            this.promptCaching = promptCaching;
+        }
+
+        public boolean isNativeToolCalling() {
+            return nativeToolCalling;
+        }
+
+        public void setNativeToolCalling(boolean nativeToolCalling) {
+            this.nativeToolCalling = nativeToolCalling;
+        }
+
+        public String getLightModel() {
+            return lightModel;
+        }
+
+        public void setLightModel(String lightModel) {
+            this.lightModel = lightModel;
+        }
     }
 }
\ No newline at end of file
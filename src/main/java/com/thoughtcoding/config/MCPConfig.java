@@ -23,6 +23,28 @@ public class MCPConfig {
     @JsonProperty("connectionTimeout")
     private int connectionTimeout = 30;
 
+    // 🔥 工具列表命中缓存时推迟到第一次调用再启动服务器
+    @JsonProperty("lazyStart")
+    private boolean lazyStart = true;
+
+    // 🔥 进程池：健康检查间隔（秒）、空闲回收时间（秒，0 不回收）、连续重启上限
+    @JsonProperty("healthCheckInterval")
+    private int healthCheckInterval = 30;
+
+    @JsonProperty("idleTimeout")
+    private int idleTimeout = 600;
+
+    @JsonProperty("maxRestarts")
+    private int maxRestarts = 5;
+
+    // 🔥 工具调用默认超时（秒），服务器可通过 toolTimeouts 按工具覆盖
+    @JsonProperty("toolTimeout")
+    private int toolTimeout = 30;
+
+    // 🔥 写入对话历史的工具结果最大字符数，0 表示不限制
+    @JsonProperty("maxResultChars")
+    private int maxResultChars = 20000;
+
     @JsonProperty("servers")
     private List<MCPServerConfig> servers = new ArrayList<>();
 
@@ -51,6 +73,54 @@ public class MCPConfig {
         this.connectionTimeout = connectionTimeout;
     }
 
+    public boolean isLazyStart() {
+        return lazyStart;
+    }
+
+    public void setLazyStart(boolean lazyStart) {
+        this.lazyStart = lazyStart;
+    }
+
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(int healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getMaxRestarts() {
+        return maxRestarts;
+    }
+
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = maxRestarts;
+    }
+
+    public int getToolTimeout() {
+        return toolTimeout;
+    }
+
+    public void setToolTimeout(int toolTimeout) {
+        this.toolTimeout = toolTimeout;
+    }
+
+    public int getMaxResultChars() {
+        return maxResultChars;
+    }
+
+    public void setMaxResultChars(int maxResultChars) {
+        this.maxResultChars = maxResultChars;
+    }
+
     public List<MCPServerConfig> getServers() {
         return servers;
     }
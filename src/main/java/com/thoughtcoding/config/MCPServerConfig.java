@@ -5,7 +5,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * MCP 服务器配置类
@@ -26,6 +28,37 @@ public class MCPServerConfig {
     @JsonProperty("args")
     private List<String> args = new ArrayList<>();
 
+    // 🔥 按工具名配置调用超时（秒），未配置的工具使用 mcp.toolTimeout
+    @JsonProperty("toolTimeouts")
+    private Map<String, Integer> toolTimeouts = new HashMap<>();
+
+    // 🔥 传输方式：stdio（本地子进程，默认）、http（Streamable HTTP）、ssh（在远程主机上执行 command）
+    @JsonProperty("transport")
+    private String transport = "stdio";
+
+    // http：服务器地址和附加请求头（如 Authorization）
+    @JsonProperty("url")
+    private String url;
+
+    @JsonProperty("headers")
+    private Map<String, String> headers = new HashMap<>();
+
+    // ssh：远程主机、端口、用户和私钥；默认按 ~/.ssh/known_hosts 校验主机密钥
+    @JsonProperty("host")
+    private String host;
+
+    @JsonProperty("port")
+    private int port = 22;
+
+    @JsonProperty("user")
+    private String user;
+
+    @JsonProperty("identityFile")
+    private String identityFile;
+
+    @JsonProperty("strictHostKeyChecking")
+    private boolean strictHostKeyChecking = true;
+
     // Lombok @Data 应该自动生成这些方法，但为了确保兼容性，手动添加
     public String getName() {
         return name;
@@ -58,5 +91,84 @@ public class MCPServerConfig {
     public void setArgs(List<String> args) {
         this.args = args;
     }
+
+    public Map<String, Integer> getToolTimeouts() {
+        return toolTimeouts;
+    }
+
+    public void setToolTimeouts(Map<String, Integer> toolTimeouts) {
+        this.toolTimeouts = toolTimeouts;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getIdentityFile() {
+        return identityFile;
+    }
+
+    public void setIdentityFile(String identityFile) {
+        this.identityFile = identityFile;
+    }
+
+    public boolean isStrictHostKeyChecking() {
+        return strictHostKeyChecking;
+    }
+
+    public void setStrictHostKeyChecking(boolean strictHostKeyChecking) {
+        this.strictHostKeyChecking = strictHostKeyChecking;
+    }
+
+    /**
+     * 是否为本地子进程（stdio）传输
+     */
+    public boolean isStdio() {
+        return transport == null || transport.isBlank() || "stdio".equalsIgnoreCase(transport);
+    }
 }
 
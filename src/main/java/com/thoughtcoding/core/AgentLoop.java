@@ -1,14 +1,26 @@
 package com.thoughtcoding.core;
 
+import com.thoughtcoding.config.AppConfig;
 import com.thoughtcoding.model.ChatMessage;
 import com.thoughtcoding.model.ToolCall;
 import com.thoughtcoding.model.ToolExecution;
 import com.thoughtcoding.model.ToolResult;
 import com.thoughtcoding.service.PerformanceMonitor;
+import com.thoughtcoding.service.SessionPersister;
 import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.tools.exec.CommandExecutorTool;
+import com.thoughtcoding.tools.exec.JobsTool;
+import com.thoughtcoding.util.JsonUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 在ThoughtCodingCommand中管理AI交互的核心循环
@@ -31,6 +43,19 @@ public class AgentLoop {
     private final ToolExecutionConfirmation confirmation;  // 🔥 新增：交互式确认组件
     private final OptionManager optionManager;  // 🔥 新增：选项管理器
 
+    // 🔥 只读工具调用的并发上限（有界线程池，空闲线程自动回收）
+    private static final int MAX_PARALLEL_TOOLS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // 终端上显示的工具输出行数上限，完整输出仍写入历史
+    private static final int MAX_DISPLAY_LINES = 40;
+    private static final Set<String> READ_ONLY_FILE_COMMANDS = Set.of("read", "list", "info");
+    private static final String[] READ_ONLY_MCP_PREFIXES = {"read", "list", "get", "search", "find", "query", "describe"};
+    private final ThreadPoolExecutor toolExecutor;
+
+    // 🔥 自主模式下，工具执行后反馈给 AI 的续写提示
+    private static final String AGENT_CONTINUE_PROMPT =
+        "请根据上面的工具执行结果继续完成任务。如果任务已经完成，请直接给出总结，不要再调用工具。";
+    private boolean autonomousRun = false;  // 当前输入是否处于自主多步模式
+
     public AgentLoop(ThoughtCodingContext context, String sessionId, String modelName) {
         this.context = context;
         this.sessionId = sessionId;
@@ -46,8 +71,20 @@ public class AgentLoop {
         // 🔥 创建选项管理器
         this.optionManager = new OptionManager();
 
+        // 🔥 创建只读工具调用的执行器
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.toolExecutor = new ThreadPoolExecutor(MAX_PARALLEL_TOOLS, MAX_PARALLEL_TOOLS,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "tool-exec-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.toolExecutor.allowCoreThreadTimeOut(true);
+
         // 设置消息和工具调用处理器
         context.getAiService().setMessageHandler(this::handleMessage);
+        // 🔥 流式 token 直接交给 UI 的渲染线程，网络回调线程不做终端 I/O
+        context.getAiService().setStreamHandler(context.getUi()::appendAIStream);
         context.getAiService().setToolCallHandler(this::handleToolCall);
     }
 
@@ -70,7 +107,12 @@ public class AgentLoop {
             }
 
             // 重置待处理的工具调用
-            pendingToolCall = null;
+            pendingToolCalls.clear();
+
+            // 🔥 预算从用户输入开始计算：第一轮响应的 token 和流式输出时间也计入
+            AppConfig.AIConfig aiConfig = context.getAppConfig().getAi();
+            int runStart = history.size();
+            long deadline = System.currentTimeMillis() + aiConfig.getMaxAgentSeconds() * 1000L;
 
             // 添加用户消息到历史
             ChatMessage userMessage = new ChatMessage("user", input);
@@ -78,21 +120,89 @@ public class AgentLoop {
 
             // 流式处理AI响应
             context.getAiService().streamingChat(input, history, modelName);
+            finishStreaming();
+
+            autonomousRun = aiConfig.isAutoProcessToolResults();
 
             // 🔥 AI 响应完成后，执行待处理的工具调用
-            executePendingToolCall();
+            boolean toolsExecuted = executePendingToolCalls();
 
-            // 保存会话
-            context.getSessionService().saveSession(sessionId, history);
+            // 🔥 自主模式：把工具结果反馈给 AI，直到任务完成或预算耗尽
+            if (toolsExecuted && autonomousRun) {
+                runAgentSteps(aiConfig, runStart, deadline);
+            }
+
+            // 保存会话（后台异步写入，不阻塞下一次输入）
+            saveSession();
 
         } catch (Exception e) {
             context.getUi().displayError("Error processing input: " + e.getMessage());
         } finally {
+            autonomousRun = false;
             // 结束性能监控
             monitor.stop();
         }
     }
 
+    /**
+     * 🔥 保存会话：有异步持久化器时交给后台线程，否则同步写入
+     */
+    private void saveSession() {
+        SessionPersister persister = context.getSessionPersister();
+        if (persister != null) {
+            persister.submit(sessionId, history);
+        } else {
+            context.getSessionService().saveSession(sessionId, history);
+        }
+    }
+
+    /**
+     * 🔥 自主多步执行：重新调用模型处理工具结果，受步数、token 和耗时三项预算约束
+     *
+     * @param runStart 本次输入（用户消息）在历史记录中的起始位置，用于统计累计 token
+     * @param deadline 本次输入的时间预算截止时间（从收到用户输入开始计算）
+     */
+    private void runAgentSteps(AppConfig.AIConfig aiConfig, int runStart, long deadline) {
+        int maxSteps = Math.max(1, aiConfig.getMaxAgentSteps());
+        int usedTokens = 0;
+        int counted = runStart;
+        int step = 1;
+
+        while (true) {
+            // 增量统计本次输入新增的响应和工具结果
+            for (; counted < history.size(); counted++) {
+                usedTokens += context.getContextManager().countTokens(history.get(counted));
+            }
+
+            if (step >= maxSteps) {
+                context.getUi().displayWarning("⚠️  已达到自主模式最大步数 (" + maxSteps + ")，暂停执行");
+                break;
+            }
+            if (usedTokens >= aiConfig.getMaxAgentTokens()) {
+                context.getUi().displayWarning("⚠️  已达到自主模式 token 预算 (" + usedTokens + "/"
+                    + aiConfig.getMaxAgentTokens() + ")，暂停执行");
+                break;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                context.getUi().displayWarning("⚠️  已达到自主模式时间预算 (" + aiConfig.getMaxAgentSeconds() + "s)，暂停执行");
+                break;
+            }
+
+            step++;
+            context.getUi().displayInfo("\n🔄 自主模式：第 " + step + "/" + maxSteps + " 步");
+
+            // 工具结果已在历史中，直接发起下一轮请求
+            pendingToolCalls.clear();
+            context.getAiService().streamingChat(AGENT_CONTINUE_PROMPT, history, modelName);
+            finishStreaming();
+
+            // AI 不再调用工具（或用户取消），说明任务已完成
+            if (!executePendingToolCalls()) {
+                break;
+            }
+        }
+    }
+
     /**
      * 🔥 处理用户的选项选择
      */
@@ -114,12 +224,23 @@ public class AgentLoop {
     }
 
     private void handleMessage(ChatMessage message) {
-        // 显示AI消息（用于流式输出的实时显示）
+        // 显示完整的AI消息（错误提示等）；流式 token 经由 setStreamHandler 直接交给 UI
         context.getUi().displayAIMessage(message);
 
-        // 🔥 尝试从 AI 响应中提取选项
-        if (message.isAssistantMessage()) {
-            boolean hasOptions = optionManager.extractOptionsFromResponse(message.getContent());
+        // 注意：不在这里添加到历史记录
+        // LangChainService 会在流式输出完成后，将完整的AI响应添加到历史记录
+        // 这样可以避免历史记录中出现大量零散的 token 消息
+    }
+
+    /**
+     * 🔥 一轮流式响应结束：等待剩余输出写到终端，再从完整响应中提取选项
+     */
+    private void finishStreaming() {
+        context.getUi().flushAIStream();
+
+        ChatMessage last = history.isEmpty() ? null : history.get(history.size() - 1);
+        if (last != null && last.isAssistantMessage()) {
+            boolean hasOptions = optionManager.extractOptionsFromResponse(last.getContent());
 
             if (hasOptions) {
                 // AI 提供了选项，显示提示信息
@@ -127,84 +248,223 @@ public class AgentLoop {
                     optionManager.getCurrentOptions().size() + "）来选择你想要的操作");
             }
         }
-
-        // 注意：不在这里添加到历史记录
-        // LangChainService 会在流式输出完成后，将完整的AI响应添加到历史记录
-        // 这样可以避免历史记录中出现大量零散的 token 消息
     }
 
-    // 用于缓存工具调用，等待 AI 响应完成后再执行
-    private ToolCall pendingToolCall = null;
+    // 用于缓存本轮的工具调用（按调用顺序），等待 AI 响应完成后再执行
+    private final List<ToolCall> pendingToolCalls = new ArrayList<>();
 
     private void handleToolCall(ToolCall toolCall) {
         // 🔥 不再显示工具调用通知（已在流式输出中显示）
         // context.getUi().displayToolCall(toolCall);
 
         // 🔥 缓存工具调用，不立即执行（等待 AI 流式输出完成）
-        this.pendingToolCall = toolCall;
+        this.pendingToolCalls.add(toolCall);
     }
 
     /**
      * 🔥 在 AI 响应完成后执行待处理的工具调用
+     * 单个调用沿用原有的 3 选项确认，多个调用整批只确认一次
+     *
+     * @return 是否有工具被执行
      */
-    public void executePendingToolCall() {
-        if (pendingToolCall == null) {
-            return;
+    public boolean executePendingToolCalls() {
+        if (pendingToolCalls.isEmpty()) {
+            return false;
         }
 
-        try {
-            // 非流式触发的工具调用，需要显示完整的确认框
-            ToolExecution execution = new ToolExecution(
-                pendingToolCall.getToolName(),
-                pendingToolCall.getDescription() != null ? pendingToolCall.getDescription() : "执行工具操作",
-                pendingToolCall.getParameters(),
-                true
-            );
-
-            // 🔥 使用新的智能 3 选项确认系统
-            ToolExecutionConfirmation.ActionType action = confirmation.askConfirmationWithOptions(execution);
-
-            // 提取文件名用于总结
-            String fileName = extractFileName(pendingToolCall);
-
-            switch (action) {
-                case CREATE_ONLY:
-                    // 用户选择：执行操作
-                    boolean success = executeToolCall(pendingToolCall);
-                    // 🔥 只有执行成功时才显示成功总结
-                    if (success) {
-                        displayOperationSummary(pendingToolCall, action);
-                    }
-                    break;
-
-                case CREATE_AND_RUN:
-                    // 用户选择：执行并运行/查看详情
-                    boolean executed = executeToolCall(pendingToolCall);
-
-                    // 只有执行成功时才继续
-                    if (executed) {
-                        // 根据工具类型执行额外操作
-                        if (pendingToolCall.getToolName().equals("write_file")) {
-                            // 自动执行编译和运行
-                            executeCompileAndRun(pendingToolCall);
-                        } else {
-                            // 其他工具：显示详情
+        List<ToolCall> batch = new ArrayList<>(pendingToolCalls);
+        // 清空待处理的工具调用
+        pendingToolCalls.clear();
+
+        if (batch.size() == 1) {
+            return executeSingleToolCall(batch.get(0));
+        }
+        return executeToolCallBatch(batch);
+    }
+
+    /**
+     * 执行单个工具调用（智能 3 选项确认）
+     *
+     * @return 工具是否被执行
+     */
+    private boolean executeSingleToolCall(ToolCall pendingToolCall) {
+        // 非流式触发的工具调用，需要显示完整的确认框
+        ToolExecution execution = new ToolExecution(
+            pendingToolCall.getToolName(),
+            pendingToolCall.getDescription() != null ? pendingToolCall.getDescription() : "执行工具操作",
+            pendingToolCall.getParameters(),
+            true
+        );
+
+        // 🔥 使用新的智能 3 选项确认系统
+        ToolExecutionConfirmation.ActionType action = confirmation.askConfirmationWithOptions(execution);
+
+        // 提取文件名用于总结
+        String fileName = extractFileName(pendingToolCall);
+
+        switch (action) {
+            case CREATE_ONLY:
+                // 用户选择：执行操作
+                boolean success = executeToolCall(pendingToolCall);
+                // 🔥 只有执行成功时才显示成功总结（自主模式下由 AI 继续处理，不显示总结）
+                if (success && !autonomousRun) {
+                    displayOperationSummary(pendingToolCall, action);
+                }
+                return true;
+
+            case CREATE_AND_RUN:
+                // 用户选择：执行并运行/查看详情
+                boolean executed = executeToolCall(pendingToolCall);
+
+                // 只有执行成功时才继续
+                if (executed) {
+                    // 根据工具类型执行额外操作
+                    if (pendingToolCall.getToolName().equals("write_file")) {
+                        // 自动执行编译和运行
+                        executeCompileAndRun(pendingToolCall);
+                    } else {
+                        // 其他工具：显示详情
+                        if (!autonomousRun) {
                             displayOperationSummary(pendingToolCall, action);
                         }
                     }
-                    break;
-
-                case DISCARD:
-                    // 用户选择：丢弃
-                    context.getUi().displayWarning("⏭️  操作已取消");
-                    // 🔥 根据工具类型显示取消总结
-                    displayCancelSummary(pendingToolCall);
-                    break;
+                }
+                return true;
+
+            case DISCARD:
+                // 用户选择：丢弃
+                context.getUi().displayWarning("⏭️  操作已取消");
+                // 🔥 根据工具类型显示取消总结
+                displayCancelSummary(pendingToolCall);
+                return false;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 🔥 执行一批工具调用
+     * 连续的只读调用并发执行，其余调用按顺序串行执行；结果按调用顺序显示并写入历史
+     *
+     * @return 是否有工具被执行
+     */
+    private boolean executeToolCallBatch(List<ToolCall> batch) {
+        List<ToolExecution> executions = new ArrayList<>();
+        List<Boolean> readOnly = new ArrayList<>();
+        for (ToolCall toolCall : batch) {
+            executions.add(new ToolExecution(toolCall.getToolName(), toolCall.getDescription(),
+                toolCall.getParameters(), true));
+            readOnly.add(isReadOnly(toolCall));
+        }
+
+        ToolExecutionConfirmation.BatchAction action = confirmation.askBatchConfirmation(executions, readOnly);
+
+        List<ToolCall> selected = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (action == ToolExecutionConfirmation.BatchAction.EXECUTE_ALL
+                || (action == ToolExecutionConfirmation.BatchAction.READ_ONLY && readOnly.get(i))) {
+                selected.add(batch.get(i));
             }
-        } finally {
-            // 清空待处理的工具调用
-            pendingToolCall = null;
         }
+
+        if (selected.isEmpty()) {
+            context.getUi().displayWarning("⏭️  操作已取消");
+            context.getUi().getTerminal().writer().println();
+            context.getUi().getTerminal().writer().println("⏺ 操作已取消，" + batch.size() + " 个工具调用均未执行。");
+            context.getUi().getTerminal().writer().println();
+            context.getUi().getTerminal().writer().flush();
+            return false;
+        }
+
+        int succeeded = 0;
+        int index = 0;
+        while (index < selected.size()) {
+            ToolCall toolCall = selected.get(index);
+            if (!isReadOnly(toolCall)) {
+                displayToolCallHeader(toolCall);
+                if (recordToolOutcome(toolCall, runTool(toolCall))) {
+                    succeeded++;
+                }
+                index++;
+                continue;
+            }
+
+            // 连续的只读调用提交到执行器并发执行
+            List<CompletableFuture<ToolOutcome>> futures = new ArrayList<>();
+            int end = index;
+            while (end < selected.size() && isReadOnly(selected.get(end))) {
+                ToolCall readCall = selected.get(end);
+                futures.add(CompletableFuture.supplyAsync(() -> runTool(readCall), toolExecutor));
+                end++;
+            }
+
+            // 按调用顺序收集结果
+            for (int i = 0; i < futures.size(); i++) {
+                ToolCall readCall = selected.get(index + i);
+                displayToolCallHeader(readCall);
+                if (recordToolOutcome(readCall, futures.get(i).join())) {
+                    succeeded++;
+                }
+            }
+            index = end;
+        }
+
+        context.getUi().getTerminal().writer().println();
+        context.getUi().getTerminal().writer().println("⏺ 完成！共执行 " + selected.size() + " 个工具调用，成功 "
+            + succeeded + " 个" + (selected.size() < batch.size()
+                ? "，跳过 " + (batch.size() - selected.size()) + " 个" : "") + "。");
+        if (!autonomousRun) {
+            context.getUi().getTerminal().writer().println();
+            context.getUi().getTerminal().writer().println("需要我帮你做其他什么吗？");
+            context.getUi().getTerminal().writer().println();
+        }
+        context.getUi().getTerminal().writer().println();
+        context.getUi().getTerminal().writer().flush();
+        return true;
+    }
+
+    /**
+     * 显示批量执行中每个工具调用的标题行
+     */
+    private void displayToolCallHeader(ToolCall toolCall) {
+        String target = extractCommand(toolCall);
+        if (toolCall.getParameters() != null && toolCall.getParameters().get("path") != null) {
+            target = (target != null ? target + " " : "") + toolCall.getParameters().get("path");
+        }
+        context.getUi().displayInfo("⏺ " + toolCall.getToolName() + "(" + (target != null ? target : "") + ")");
+    }
+
+    /**
+     * 🔥 判断工具调用是否为只读操作（可安全并发执行）
+     */
+    private boolean isReadOnly(ToolCall toolCall) {
+        String toolName = toolCall.getToolName();
+        if ("grep_search".equals(toolName)) {
+            return true;
+        }
+        if ("jobs".equals(toolName)) {
+            return JobsTool.isReadOnlyAction(toolCall.getParameters().get("action"));
+        }
+        if ("file_manager".equals(toolName)) {
+            String command = extractCommand(toolCall);
+            return command != null && READ_ONLY_FILE_COMMANDS.contains(command.toLowerCase(Locale.ROOT));
+        }
+
+        BaseTool tool = context.getToolRegistry().getTool(toolName);
+        if (tool == null || tool.getCategory() == null
+            || !tool.getCategory().toLowerCase(Locale.ROOT).startsWith("mcp")) {
+            return false;
+        }
+        // MCP 工具：根据工具名判断是否为读取类操作
+        String simpleName = toolName.substring(Math.max(toolName.lastIndexOf('/'), toolName.lastIndexOf(':')) + 1)
+            .toLowerCase(Locale.ROOT);
+        for (String prefix : READ_ONLY_MCP_PREFIXES) {
+            if (simpleName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -518,7 +778,14 @@ public class AgentLoop {
             // 直接传入原始命令即可
             ToolResult result = commandTool.execute(command);
 
-            if (result.isSuccess()) {
+            if (isOutputStreamed(commandTool)) {
+                // 🔥 输出已经实时显示，只显示摘要行
+                if (result.isSuccess()) {
+                    context.getUi().displayInfo("  ⎿ " + CommandExecutorTool.brief(result));
+                } else {
+                    context.getUi().displayError("  ⎿ 执行失败: " + CommandExecutorTool.brief(result));
+                }
+            } else if (result.isSuccess()) {
                 // 显示命令输出
                 String output = result.getOutput();
                 if (output != null && !output.trim().isEmpty()) {
@@ -542,80 +809,111 @@ public class AgentLoop {
         }
     }
 
+    /**
+     * 工具执行结果：result 为 null 且 exception 为 null 表示工具不存在
+     */
+    private record ToolOutcome(ToolResult result, Exception exception) {}
+
     /**
      * 🔥 实际执行工具调用
      * @return 是否执行成功
      */
     private boolean executeToolCall(ToolCall toolCall) {
-        try {
-            // 🔥 简化输出：只显示简短的执行提示
-            // context.getUi().displayInfo("⚙️  正在执行: " + toolCall.getToolName() + "...");
+        return recordToolOutcome(toolCall, runTool(toolCall));
+    }
 
+    /**
+     * 🔥 调用工具本身，不涉及界面和历史记录（可在执行器线程中运行）
+     */
+    private ToolOutcome runTool(ToolCall toolCall) {
+        try {
             // 从工具注册表获取工具
             BaseTool tool = context.getToolRegistry().getTool(toolCall.getToolName());
-
             if (tool == null) {
-                context.getUi().displayError("❌ 工具不存在: " + toolCall.getToolName());
-
-                // 🔥 将错误添加到历史，让 AI 知道工具执行失败
-                ChatMessage errorMessage = new ChatMessage("system",
-                    "Tool execution failed: Tool '" + toolCall.getToolName() + "' not found.");
-                history.add(errorMessage);
-
-                return false;
+                return new ToolOutcome(null, null);
             }
 
             // 执行工具
             String arguments = convertParametersToJson(toolCall.getParameters());
-            ToolResult result = tool.execute(arguments);
-
-            // 🔥 显示执行结果
-            if (result.isSuccess()) {
-                context.getUi().displaySuccess("✅ 完成");
+            return new ToolOutcome(tool.execute(arguments), null);
+        } catch (Exception e) {
+            return new ToolOutcome(null, e);
+        }
+    }
 
-                // 🔥 显示工具输出内容（如果有）
-                String output = result.getOutput();
-                if (output != null && !output.trim().isEmpty()) {
-                    // 使用分行显示，确保输出清晰
-                    String[] lines = output.trim().split("\n");
-                    for (String line : lines) {
-                        context.getUi().getTerminal().writer().println("  " + line);
-                    }
-                    context.getUi().getTerminal().writer().flush();
-                }
+    /**
+     * 🔥 显示工具执行结果并写入历史记录（必须在主线程按调用顺序调用）
+     * @return 是否执行成功
+     */
+    private boolean recordToolOutcome(ToolCall toolCall, ToolOutcome outcome) {
+        if (outcome.exception() != null) {
+            context.getUi().displayError("❌ 执行异常: " + outcome.exception().getMessage());
 
-                // 🔥 关键修复：将工具执行结果添加到历史记录中
-                // 这样 AI 在下一轮对话中就能看到工具的执行结果
-                ChatMessage toolResultMessage = new ChatMessage("system",
-                    formatToolResultForHistory(toolCall, result));
-                history.add(toolResultMessage);
+            // 🔥 将异常也添加到历史
+            ChatMessage exceptionMessage = new ChatMessage("system",
+                "Tool execution exception: " + outcome.exception().getMessage());
+            history.add(exceptionMessage);
+            return false;
+        }
 
-                return true;
-            } else {
-                context.getUi().displayError("❌ 失败: " + result.getError());
+        if (outcome.result() == null) {
+            context.getUi().displayError("❌ 工具不存在: " + toolCall.getToolName());
 
-                // 🔥 将错误信息也添加到历史
-                ChatMessage errorMessage = new ChatMessage("system",
-                    "Tool execution failed: " + result.getError());
-                history.add(errorMessage);
+            // 🔥 将错误添加到历史，让 AI 知道工具执行失败
+            ChatMessage errorMessage = new ChatMessage("system",
+                "Tool execution failed: Tool '" + toolCall.getToolName() + "' not found.");
+            history.add(errorMessage);
+            return false;
+        }
 
-                return false;
+        ToolResult result = outcome.result();
+        boolean streamed = isOutputStreamed(context.getToolRegistry().getTool(toolCall.getToolName()));
+
+        // 🔥 显示执行结果
+        if (result.isSuccess()) {
+            // 🔥 显示工具输出内容（如果有）；输出已经实时显示过的工具只显示摘要行
+            String output = result.getOutput();
+            context.getUi().displaySuccess(streamed ? "✅ 完成 " + CommandExecutorTool.brief(result) : "✅ 完成");
+            if (!streamed && output != null && !output.trim().isEmpty()) {
+                // 使用分行显示，确保输出清晰；过长的输出只显示开头部分
+                String[] lines = output.trim().split("\n", MAX_DISPLAY_LINES + 1);
+                int shown = Math.min(lines.length, MAX_DISPLAY_LINES);
+                for (int i = 0; i < shown; i++) {
+                    context.getUi().getTerminal().writer().println("  " + lines[i]);
+                }
+                if (lines.length > MAX_DISPLAY_LINES) {
+                    long remaining = lines[MAX_DISPLAY_LINES].chars().filter(c -> c == '\n').count() + 1;
+                    context.getUi().getTerminal().writer().println("  … (" + remaining + " more lines)");
+                }
+                context.getUi().getTerminal().writer().flush();
             }
 
-        } catch (Exception e) {
-            context.getUi().displayError("❌ 执行异常: " + e.getMessage());
+            // 🔥 关键修复：将工具执行结果添加到历史记录中
+            // 这样 AI 在下一轮对话中就能看到工具的执行结果
+            ChatMessage toolResultMessage = new ChatMessage("system",
+                formatToolResultForHistory(toolCall, result));
+            history.add(toolResultMessage);
 
-            // 🔥 将异常也添加到历史
-            ChatMessage exceptionMessage = new ChatMessage("system",
-                "Tool execution exception: " + e.getMessage());
-            history.add(exceptionMessage);
+            return true;
+        } else {
+            context.getUi().displayError("❌ 失败: " + (streamed ? CommandExecutorTool.brief(result) : result.getError()));
+
+            // 🔥 将错误信息也添加到历史
+            ChatMessage errorMessage = new ChatMessage("system",
+                "Tool execution failed: " + result.getError());
+            history.add(errorMessage);
 
-            // 调试时可以取消注释
-            // e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * 工具输出是否已经在执行过程中实时显示
+     */
+    private boolean isOutputStreamed(BaseTool tool) {
+        return tool instanceof CommandExecutorTool && ((CommandExecutorTool) tool).isStreamingOutput();
+    }
+
     /**
      * 🔥 格式化工具执行结果，用于添加到历史记录
      * 让 AI 能够理解工具的执行结果
@@ -655,8 +953,8 @@ public class AgentLoop {
         }
 
         try {
-            // 使用 Jackson 将参数转换为 JSON
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(parameters);
+            // 🔥 使用共享的 ObjectMapper，工具调度热路径上不再每次创建
+            return JsonUtils.getWireMapper().writeValueAsString(parameters);
         } catch (Exception e) {
             // 降级：简单的 JSON 拼接
             StringBuilder json = new StringBuilder("{");
@@ -1,10 +1,14 @@
 package com.thoughtcoding.core;
 
+import com.thoughtcoding.service.AIService;
 import com.thoughtcoding.tools.exec.CommandExecutorTool;
+import com.thoughtcoding.tools.exec.JobManager;
+import com.thoughtcoding.tools.exec.ProcessRunner;
 import com.thoughtcoding.ui.ThoughtCodingUI;
 import com.thoughtcoding.model.ToolResult;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 /**
@@ -24,6 +28,9 @@ public class DirectCommandExecutor {
     // 自然语言命令映射
     private static final Map<Pattern, String> NATURAL_LANGUAGE_COMMANDS = new HashMap<>();
 
+    private static final long GIT_TIMEOUT_MS = 10_000;
+    private static final int MAX_DIFF_BYTES = 12 * 1024;  // 生成 commit message 时最多提供的 diff 大小
+
     // 需要确认的敏感命令
     private static final Set<String> CONFIRM_REQUIRED_COMMANDS = Set.of(
             "rm -rf", "git push --force", "docker rm", "docker rmi",
@@ -201,10 +208,22 @@ public class DirectCommandExecutor {
     public DirectCommandExecutor(ThoughtCodingContext context) {
         this.context = context;
         this.ui = context.getUi();
-        this.commandExecutor = new CommandExecutorTool(context.getAppConfig());
+        this.commandExecutor = new CommandExecutorTool(context.getAppConfig(), context.getJobManager());
+        if (ui != null) {
+            this.commandExecutor.setOutputListener(ui::displayToolOutput);  // 🔥 命令输出实时显示
+        }
         this.projectContext = new ProjectContext(System.getProperty("user.dir"));
     }
 
+    /**
+     * 🛑 结束正在执行的直接命令（Ctrl-C）
+     *
+     * @return 是否有命令被结束
+     */
+    public boolean cancelRunning() {
+        return commandExecutor.cancelRunning();
+    }
+
     /**
      * 判断输入是否应该直接执行
      */
@@ -213,7 +232,7 @@ public class DirectCommandExecutor {
             return false;
         }
 
-        String trimmedInput = input.trim();
+        String trimmedInput = stripBackground(input.trim());
 
         // 🔥 优先检查：排除应该由 MCP/AI 处理的请求
         if (shouldUseMCP(trimmedInput)) {
@@ -317,7 +336,9 @@ public class DirectCommandExecutor {
      * 执行直接命令
      */
     public boolean executeDirectCommand(String input) {
-        String trimmedInput = input.trim();
+        // 🔥 以 & 结尾的命令（如 "mvn test &"）作为后台任务执行，不阻塞输入
+        boolean background = isBackground(input.trim());
+        String trimmedInput = stripBackground(input.trim());
         String command = null;
 
         // 先尝试自然语言匹配
@@ -363,12 +384,13 @@ public class DirectCommandExecutor {
 
         // 处理需要用户输入的命令
         if (command.equals("git commit") && !command.contains("-m")) {
-            String message = ui.readInput("📝 请输入 commit message: ");
-            if (message == null || message.trim().isEmpty()) {
-                ui.displayWarning("⚠️  未提供 commit message，操作已取消");
+            String message = readCommitMessage(false);
+            if (message == null) {
                 return false;
             }
-            command = "git commit -m \"" + message + "\"";
+            // 🔥 commit message 可能来自模型，不经过 shell 执行（提交很快，始终在前台执行）
+            executeCommand(gitCommit(message));
+            return true;
         }
 
         // 检查是否需要确认
@@ -380,37 +402,161 @@ public class DirectCommandExecutor {
         }
 
         // 执行命令
-        executeCommand(command);
+        if (background) {
+            startBackgroundJob(command);
+        } else {
+            executeCommand(command);
+        }
         return true;
     }
 
+    /**
+     * 🔥 在后台执行命令，输出写入任务的 spool 文件，用 /jobs 查看
+     */
+    private void startBackgroundJob(String command) {
+        try {
+            JobManager.Job job = commandExecutor.startJob(command);
+            ui.displaySuccess("🚀 后台任务 #" + job.getId() + " 已启动: " + command
+                    + "（/jobs 查看状态，/jobs tail " + job.getId() + " 查看输出）");
+        } catch (Exception e) {
+            ui.displayError("❌ 后台任务启动失败: " + e.getMessage());
+        }
+    }
+
+    private static boolean isBackground(String input) {
+        return input.endsWith("&") && !input.endsWith("&&");
+    }
+
+    private static String stripBackground(String input) {
+        return isBackground(input) ? input.substring(0, input.length() - 1).trim() : input;
+    }
+
+    /**
+     * 📝 读取 commit message；留空时由轻量模型（ai.lightModel）根据当前修改生成建议
+     *
+     * @param includeUnstaged 随后会执行 git add .，生成时包含未暂存的修改
+     * @return commit message；用户取消或无法生成时返回 null
+     */
+    private String readCommitMessage(boolean includeUnstaged) {
+        String message = ui.readInput("📝 请输入 commit message（留空自动生成）: ");
+        if (message != null && !message.trim().isEmpty()) {
+            return message.trim();
+        }
+
+        String suggested = suggestCommitMessage(includeUnstaged);
+        if (suggested == null) {
+            ui.displayWarning("⚠️  未提供 commit message，操作已取消");
+            return null;
+        }
+        ui.displayInfo("💡 建议的 commit message: " + suggested);
+        String confirm = ui.readInput("使用这条 commit message 吗? (Y/n): ");
+        if (confirm != null && confirm.trim().toLowerCase().startsWith("n")) {
+            ui.displayWarning("⚠️  未提供 commit message，操作已取消");
+            return null;
+        }
+        return suggested;
+    }
+
+    private String suggestCommitMessage(boolean includeUnstaged) {
+        AIService aiService = context.getAiService();
+        if (aiService == null) {
+            return null;
+        }
+        String changes = readGitOutput("git", "status", "--short")
+                + "\n" + readGitOutput("git", "diff", includeUnstaged ? "HEAD" : "--cached");
+        if (changes.isBlank()) {
+            return null;
+        }
+        ui.displayInfo("✍️  正在生成 commit message...");
+        return cleanCommitMessage(aiService.completeLight(commitMessagePrompt(changes)));
+    }
+
+    /**
+     * 静默执行 git 命令（不显示输出），失败时返回空字符串
+     */
+    private String readGitOutput(String... command) {
+        try {
+            ProcessRunner.Result result = new ProcessRunner(GIT_TIMEOUT_MS, MAX_DIFF_BYTES, 1024, null)
+                    .run(new ProcessBuilder(command)
+                            .directory(new java.io.File(System.getProperty("user.dir")))
+                            .redirectErrorStream(true));
+            return result.getExitCode() == 0 ? result.getOutput() : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * git commit 的参数列表：message 作为单个参数传给 git，不会被 shell 解释
+     */
+    static List<String> gitCommit(String message) {
+        return List.of("git", "commit", "-m", message);
+    }
+
+    /**
+     * 用于显示的命令行，包含空白或引号的参数加上引号
+     */
+    static String displayCommand(List<String> command) {
+        StringBuilder sb = new StringBuilder();
+        for (String arg : command) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(arg.isEmpty() || arg.matches(".*[\\s\"'].*")
+                    ? "\"" + arg.replace("\"", "\\\"") + "\"" : arg);
+        }
+        return sb.toString();
+    }
+
+    static String commitMessagePrompt(String changes) {
+        return "Write a one-line git commit message (imperative mood, at most 72 characters) "
+                + "for the following changes. Reply with the message only.\n\n" + changes;
+    }
+
+    /**
+     * 取模型回复的第一行非空文本，去掉引号和代码标记；双引号替换为单引号
+     */
+    static String cleanCommitMessage(String generated) {
+        if (generated == null) {
+            return null;
+        }
+        for (String line : generated.split("\\R")) {
+            String message = line.trim();
+            if (message.isEmpty() || message.startsWith("```")) {
+                continue;
+            }
+            message = message.replaceAll("^[`\"']+|[`\"']+$", "").replace('"', '\'').trim();
+            return message.isEmpty() ? null : message;
+        }
+        return null;
+    }
+
     /**
      * 执行批量操作
      */
     private boolean executeBatchOperation(String batchName) {
         ui.displayInfo("🚀 执行批量操作: " + batchName);
 
-        List<String> commands = new ArrayList<>();
+        // 🔥 每一步都是参数列表，不经过 shell，commit message 中的 $(...)、反引号不会被执行
+        List<List<String>> commands = new ArrayList<>();
         switch (batchName) {
             case "git_commit_push":
-                String message1 = ui.readInput("📝 请输入 commit message: ");
-                if (message1 == null || message1.trim().isEmpty()) {
-                    ui.displayWarning("⚠️  未提供 commit message，操作已取消");
+                String message1 = readCommitMessage(false);
+                if (message1 == null) {
                     return false;
                 }
-                commands.add("git commit -m \"" + message1 + "\"");
-                commands.add("git push");
+                commands.add(gitCommit(message1));
+                commands.add(List.of("git", "push"));
                 break;
 
             case "git_add_commit_push":
-                String message2 = ui.readInput("📝 请输入 commit message: ");
-                if (message2 == null || message2.trim().isEmpty()) {
-                    ui.displayWarning("⚠️  未提供 commit message，操作已取消");
+                String message2 = readCommitMessage(true);
+                if (message2 == null) {
                     return false;
                 }
-                commands.add("git add .");
-                commands.add("git commit -m \"" + message2 + "\"");
-                commands.add("git push");
+                commands.add(List.of("git", "add", "."));
+                commands.add(gitCommit(message2));
+                commands.add(List.of("git", "push"));
                 break;
 
             default:
@@ -421,7 +567,7 @@ public class DirectCommandExecutor {
         // 显示将要执行的命令
         ui.displayWarning("⚠️  即将执行以下命令:");
         for (int i = 0; i < commands.size(); i++) {
-            ui.displayInfo("  " + (i + 1) + ". " + commands.get(i));
+            ui.displayInfo("  " + (i + 1) + ". " + displayCommand(commands.get(i)));
         }
 
         String confirm = ui.readInput("确认执行吗? (y/N): ");
@@ -432,18 +578,15 @@ public class DirectCommandExecutor {
 
         // 执行所有命令
         for (int i = 0; i < commands.size(); i++) {
-            String cmd = commands.get(i);
-            ui.displayInfo("📍 执行步骤 " + (i + 1) + "/" + commands.size() + ": " + cmd);
+            List<String> cmd = commands.get(i);
+            ui.displayInfo("📍 执行步骤 " + (i + 1) + "/" + commands.size() + ": " + displayCommand(cmd));
 
             ToolResult result = commandExecutor.execute(cmd);
 
             if (result.isSuccess()) {
-                ui.displaySuccess("✅ 步骤 " + (i + 1) + " 成功");
-                if (result.getOutput() != null && !result.getOutput().isEmpty()) {
-                    ui.displayInfo("输出:\n" + result.getOutput());
-                }
+                ui.displaySuccess("✅ 步骤 " + (i + 1) + " 成功 " + CommandExecutorTool.brief(result));
             } else {
-                ui.displayError("❌ 步骤 " + (i + 1) + " 失败: " + result.getError());
+                ui.displayError("❌ 步骤 " + (i + 1) + " 失败: " + CommandExecutorTool.brief(result));
                 ui.displayWarning("⚠️  批量操作在步骤 " + (i + 1) + " 中断");
                 return false;
             }
@@ -457,22 +600,25 @@ public class DirectCommandExecutor {
      * 执行单个命令
      */
     private void executeCommand(String command) {
+        showResult(() -> commandExecutor.execute(command));
+    }
+
+    /**
+     * 按参数列表执行单个命令，不经过 shell
+     */
+    private void executeCommand(List<String> command) {
+        showResult(() -> commandExecutor.execute(command));
+    }
+
+    private void showResult(Supplier<ToolResult> execution) {
         try {
-            ToolResult result = commandExecutor.execute(command);
+            ToolResult result = execution.get();
 
             if (result.isSuccess()) {
-                // 只显示命令输出结果
-                if (result.getOutput() != null && !result.getOutput().isEmpty()) {
-                    ui.displayInfo(result.getOutput());
-                }
-
-                // 显示执行时间
-                if (result.getExecutionTime() > 0) {
-                    ui.displayInfo("⏱️  执行时间: " + result.getExecutionTime() + "ms");
-                }
+                // 🔥 输出已经实时显示，这里只显示摘要行（退出码、耗时、输出量）
+                ui.displayInfo("⏱️  " + CommandExecutorTool.brief(result));
             } else {
-                String errorMsg = result.getError() != null ? result.getError() : result.getOutput();
-                ui.displayError("❌ 命令执行失败: " + errorMsg);
+                ui.displayError("❌ 命令执行失败: " + CommandExecutorTool.brief(result));
             }
 
         } catch (Exception e) {
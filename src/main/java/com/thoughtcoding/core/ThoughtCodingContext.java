@@ -5,14 +5,19 @@ import com.thoughtcoding.config.ConfigManager;
 import com.thoughtcoding.config.MCPConfig;
 import com.thoughtcoding.mcp.MCPService;
 import com.thoughtcoding.mcp.MCPToolManager;
+import com.thoughtcoding.mcp.transport.MCPTransportFactory;
 import com.thoughtcoding.service.AIService;
 import com.thoughtcoding.service.ContextManager;
 import com.thoughtcoding.service.LangChainService;
 import com.thoughtcoding.service.PerformanceMonitor;
+import com.thoughtcoding.service.SessionPersister;
 import com.thoughtcoding.service.SessionService;
 import com.thoughtcoding.tools.*;
 import com.thoughtcoding.tools.exec.CodeExecutorTool;
 import com.thoughtcoding.tools.exec.CommandExecutorTool;
+import com.thoughtcoding.tools.exec.JobManager;
+import com.thoughtcoding.tools.exec.JobsTool;
+import com.thoughtcoding.tools.file.EditFileTool;
 import com.thoughtcoding.tools.file.FileManagerTool;
 import com.thoughtcoding.tools.search.GrepSearchTool;
 import com.thoughtcoding.ui.ThoughtCodingUI;
@@ -21,6 +26,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 上下文初始化过程
@@ -36,6 +47,7 @@ public class ThoughtCodingContext {
     private final MCPConfig mcpConfig;
     private final AIService aiService;
     private final SessionService sessionService;
+    private final SessionPersister sessionPersister;
     private final ToolRegistry toolRegistry;
     private final ThoughtCodingUI ui;
     private final PerformanceMonitor performanceMonitor;
@@ -47,17 +59,26 @@ public class ThoughtCodingContext {
     // 🔥 新增上下文管理器
     private final ContextManager contextManager;
 
+    // 🔥 启动时 MCP 服务器连接完成的信号
+    private final CompletableFuture<Void> mcpReady;
+
+    // 🔥 后台任务管理器
+    private final JobManager jobManager;
+
     private ThoughtCodingContext(Builder builder) {
         this.appConfig = builder.appConfig;
         this.mcpConfig = builder.mcpConfig;
         this.aiService = builder.aiService;
         this.sessionService = builder.sessionService;
+        this.sessionPersister = builder.sessionPersister;
         this.toolRegistry = builder.toolRegistry;
         this.ui = builder.ui;
         this.performanceMonitor = builder.performanceMonitor;
         this.mcpService = builder.mcpService;
         this.mcpToolManager = builder.mcpToolManager;
         this.contextManager = builder.contextManager;
+        this.mcpReady = builder.mcpReady;
+        this.jobManager = builder.jobManager;
     }
 
     public static ThoughtCodingContext initialize() {
@@ -74,15 +95,26 @@ public class ThoughtCodingContext {
 
         // 🔥 创建 MCP 服务
         MCPService mcpService = new MCPService(toolRegistry);
+        mcpService.configurePool(mcpConfig.getHealthCheckInterval(), mcpConfig.getIdleTimeout(),
+                mcpConfig.getMaxRestarts());
+        mcpService.configureTools(mcpConfig.getToolTimeout(), mcpConfig.getMaxResultChars());
         MCPToolManager mcpToolManager = new MCPToolManager(mcpService, mcpConfig);
 
         // 注册内置工具 - 传递整个 AppConfig 对象
         if (appConfig.getTools().getFileManager().isEnabled()) {
             toolRegistry.register(new FileManagerTool(appConfig));
+            toolRegistry.register(new EditFileTool(appConfig));
         }
 
+        // 🔥 后台任务管理器：长时间运行的命令在后台执行，退出时结束仍在运行的任务
+        JobManager jobManager = new JobManager();
+        jobManager.installShutdownHook();
+
+        CommandExecutorTool commandExecutorTool = null;
         if (appConfig.getTools().getCommandExec().isEnabled()) {
-            toolRegistry.register(new CommandExecutorTool(appConfig));
+            commandExecutorTool = new CommandExecutorTool(appConfig, jobManager);
+            toolRegistry.register(commandExecutorTool);
+            toolRegistry.register(new JobsTool(appConfig, jobManager));
         }
 
         if (appConfig.getTools().getCodeExecutor().isEnabled()) {
@@ -94,18 +126,23 @@ public class ThoughtCodingContext {
         }
 
         // 🔥 初始化 MCP 服务（如果启用）
-        if (mcpConfig != null && mcpConfig.isEnabled()) {
-            initializeMCPTools(mcpConfig, mcpService, toolRegistry);
-        }
+        CompletableFuture<Void> mcpReady = initializeMCPTools(mcpConfig, mcpService, toolRegistry);
 
         // 服务层初始化
         ContextManager contextManager = new ContextManager(appConfig);  // 🔥 创建上下文管理器
-        AIService aiService = new LangChainService(appConfig, toolRegistry, contextManager);  // 🔥 注入 contextManager
-        SessionService sessionService = new SessionService();
         PerformanceMonitor performanceMonitor = new PerformanceMonitor();
+        AIService aiService = new LangChainService(appConfig, toolRegistry, contextManager, performanceMonitor);  // 🔥 注入 contextManager
+        SessionService sessionService = new SessionService();
+        SessionPersister sessionPersister = new SessionPersister(sessionService);  // 🔥 会话异步写入
+        sessionPersister.installShutdownHook();
 
         // UI层初始化
         ThoughtCodingUI ui = new ThoughtCodingUI();
+        mcpService.setProgressListener((toolName, progress) -> ui.displayToolProgress(toolName, progress.toString()));
+        if (commandExecutorTool != null) {
+            commandExecutorTool.setOutputListener(ui::displayToolOutput);  // 🔥 命令输出实时显示
+        }
+        jobManager.setCompletionListener(job -> ui.displayNotice("🔔 后台任务结束: " + job.describe()));
 
         // 构建上下文（核心层初始化）
         return new Builder()
@@ -113,55 +150,89 @@ public class ThoughtCodingContext {
                 .mcpConfig(mcpConfig)
                 .aiService(aiService)
                 .sessionService(sessionService)
+                .sessionPersister(sessionPersister)
                 .toolRegistry(toolRegistry)
                 .ui(ui)
                 .performanceMonitor(performanceMonitor)
                 .mcpService(mcpService)
                 .mcpToolManager(mcpToolManager)
                 .contextManager(contextManager)  // 🔥 添加 contextManager
+                .mcpReady(mcpReady)
+                .jobManager(jobManager)
                 .build();
     }
 
     /**
      * 🔥 初始化 MCP 工具
+     * 所有启用的服务器同时启动，每个服务器就绪后由 MCPService 立即把工具注册到 ToolRegistry，不阻塞启动流程
+     *
+     * @return 所有服务器连接完成（成功或失败）时完成的 future
      */
-    public static void initializeMCPTools(MCPConfig mcpConfig, MCPService mcpService, ToolRegistry toolRegistry) {
+    public static CompletableFuture<Void> initializeMCPTools(MCPConfig mcpConfig, MCPService mcpService,
+                                                             ToolRegistry toolRegistry) {
         // 🔥 简化输出：只在最后显示汇总信息
 
-        if (mcpConfig != null && mcpConfig.isEnabled()) {
-            int totalTools = 0;
-            int successServers = 0;
-            List<String> connectedServers = new ArrayList<>();
-
-            for (var serverConfig : mcpConfig.getServers()) {
-                if (serverConfig.isEnabled()) {
-                    try {
-                        // 静默连接，不输出中间过程
-                        var tools = mcpService.connectToServer(
-                                serverConfig.getName(),
-                                serverConfig.getCommand(),
-                                serverConfig.getArgs()
-                        );
-
-                        if (!tools.isEmpty()) {
-                            // 注册工具（静默）
-                            for (var tool : tools) {
-                                toolRegistry.register(tool);
-                            }
-                            totalTools += tools.size();
-                            successServers++;
-                            connectedServers.add(serverConfig.getName());
-                        }
-                    } catch (Exception e) {
-                        System.err.println("❌ 无法连接到 " + serverConfig.getName() + ": " + e.getMessage());
-                    }
-                }
+        if (mcpConfig == null || !mcpConfig.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        AtomicInteger totalTools = new AtomicInteger();
+        List<String> connectedServers = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> connections = new ArrayList<>();
+
+        for (var serverConfig : mcpConfig.getEnabledServers()) {
+            mcpService.setToolTimeouts(serverConfig.getName(), serverConfig.getToolTimeouts());
+            // 🔥 HTTP/SSH 服务器通过传输工厂连接，command 换成连接描述用作缓存键
+            if (!serverConfig.isStdio()) {
+                int connectTimeoutMs = (int) TimeUnit.SECONDS.toMillis(mcpConfig.getConnectionTimeout());
+                mcpService.setTransportFactory(serverConfig.getName(),
+                        () -> MCPTransportFactory.create(serverConfig, connectTimeoutMs));
             }
+            String target = MCPTransportFactory.describe(serverConfig);
+            // 静默连接，不输出中间过程
+            // 🔥 延迟启动时命中缓存的服务器只注册工具，不启动进程
+            CompletableFuture<List<BaseTool>> tools = mcpConfig.isLazyStart()
+                    ? mcpService.registerServerAsync(serverConfig.getName(), target,
+                            serverConfig.getArgs(), mcpConfig.getConnectionTimeout())
+                    : mcpService.connectToServerAsync(serverConfig.getName(), target,
+                            serverConfig.getArgs(), mcpConfig.getConnectionTimeout());
+            CompletableFuture<Void> connection = tools.thenAccept(serverTools -> {
+                if (!serverTools.isEmpty()) {
+                    totalTools.addAndGet(serverTools.size());
+                    connectedServers.add(serverConfig.getName());
+                }
+            }).exceptionally(e -> {
+                System.err.println("❌ 无法连接到 " + serverConfig.getName() + ": " + e.getMessage());
+                return null;
+            });
+            connections.add(connection);
+        }
 
-            // 🔥 输出汇总信息，包含已连接的 MCP 工具名称
-            if (successServers > 0) {
-                System.out.println("✅ 已加载 " + totalTools + " 个工具，已连接 MCP: " + String.join(", ", connectedServers));
+        // 🔥 输出汇总信息，包含已连接的 MCP 工具名称
+        return CompletableFuture.allOf(connections.toArray(new CompletableFuture[0])).thenRun(() -> {
+            if (!connectedServers.isEmpty()) {
+                System.out.println("✅ 已加载 " + totalTools.get() + " 个工具，已连接 MCP: "
+                        + String.join(", ", connectedServers));
             }
+        });
+    }
+
+    /**
+     * 🔥 等待启动时的 MCP 服务器连接完成（单次提示、列出工具等需要完整工具集的场景）
+     */
+    public void awaitMCPReady() {
+        if (mcpReady == null || mcpReady.isDone()) {
+            return;
+        }
+        int timeoutSeconds = mcpConfig != null ? mcpConfig.getConnectionTimeout() : 30;
+        try {
+            mcpReady.get(timeoutSeconds + 5L, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("⚠️ 等待 MCP 服务器超时，部分工具可能不可用");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // 单个服务器的失败已经单独输出
         }
     }
 
@@ -176,12 +247,9 @@ public class ThoughtCodingContext {
 
         try {
             // 🔥 直接传递三个参数，不再创建 Map
-            var tools = mcpService.connectToServer(serverName, command, args);
+            int timeoutSeconds = mcpConfig != null ? mcpConfig.getConnectionTimeout() : 30;
+            var tools = mcpService.connectToServer(serverName, command, args, timeoutSeconds);
             if (!tools.isEmpty()) {
-                // 注册工具（静默）
-                for (var tool : tools) {
-                    toolRegistry.register(tool);
-                }
                 System.out.println("✓ 成功连接 MCP 服务器: " + serverName +
                         " (" + tools.size() + " 个工具)");
                 return true;
@@ -206,12 +274,6 @@ public class ThoughtCodingContext {
         try {
             var toolNames = java.util.Arrays.asList(toolsList.split(","));
             var tools = mcpToolManager.connectPredefinedTools(toolNames);
-            if (!tools.isEmpty()) {
-                // 注册工具（静默）
-                for (var tool : tools) {
-                    toolRegistry.register(tool);
-                }
-            }
             System.out.println("✓ 已连接 " + tools.size() + " 个预定义 MCP 工具");
             return !tools.isEmpty();
         } catch (Exception e) {
@@ -238,12 +300,13 @@ public class ThoughtCodingContext {
             System.out.println("MCP 服务未初始化");
             return;
         }
+        awaitMCPReady();
 
-        var servers = mcpService.getConnectedServers();
+        var servers = mcpService.getServerStatuses();
         var tools = mcpService.getMCPTools();
 
         System.out.println("MCP 服务器 (" + servers.size() + " 个):");
-        servers.forEach(server -> System.out.println("  - " + server));
+        servers.forEach(status -> System.out.println("  - " + status));
 
         System.out.println("MCP 工具 (" + tools.size() + " 个):");
         tools.forEach((name, tool) ->
@@ -269,6 +332,7 @@ public class ThoughtCodingContext {
     public MCPConfig getMcpConfig() { return mcpConfig; }
     public AIService getAiService() { return aiService; }
     public SessionService getSessionService() { return sessionService; }
+    public SessionPersister getSessionPersister() { return sessionPersister; }
     public ToolRegistry getToolRegistry() { return toolRegistry; }
 
     // 🔥 新增 contextManager Getter
@@ -279,6 +343,7 @@ public class ThoughtCodingContext {
     // 🔥 新增 MCP 相关 Getter
     public MCPService getMcpService() { return mcpService; }
     public MCPToolManager getMcpToolManager() { return mcpToolManager; }
+    public JobManager getJobManager() { return jobManager; }
     public boolean isMCPEnabled() {
         return mcpConfig != null && mcpConfig.isEnabled();
     }
@@ -292,6 +357,7 @@ public class ThoughtCodingContext {
         private MCPConfig mcpConfig;
         private AIService aiService;
         private SessionService sessionService;
+        private SessionPersister sessionPersister;
         private ToolRegistry toolRegistry;
         private ThoughtCodingUI ui;
         private PerformanceMonitor performanceMonitor;
@@ -300,6 +366,8 @@ public class ThoughtCodingContext {
         private MCPToolManager mcpToolManager;
         // 🔥 新增上下文管理器字段
         private ContextManager contextManager;
+        private CompletableFuture<Void> mcpReady;
+        private JobManager jobManager;
 
         public Builder appConfig(AppConfig appConfig) {
             this.appConfig = appConfig;
@@ -321,6 +389,11 @@ public class ThoughtCodingContext {
             return this;
         }
 
+        public Builder sessionPersister(SessionPersister sessionPersister) {
+            this.sessionPersister = sessionPersister;
+            return this;
+        }
+
         public Builder toolRegistry(ToolRegistry toolRegistry) {
             this.toolRegistry = toolRegistry;
             return this;
@@ -353,6 +426,16 @@ public class ThoughtCodingContext {
             return this;
         }
 
+        public Builder mcpReady(CompletableFuture<Void> mcpReady) {
+            this.mcpReady = mcpReady;
+            return this;
+        }
+
+        public Builder jobManager(JobManager jobManager) {
+            this.jobManager = jobManager;
+            return this;
+        }
+
         public ThoughtCodingContext build() {
             return new ThoughtCodingContext(this);
         }
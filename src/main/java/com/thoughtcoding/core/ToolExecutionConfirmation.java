@@ -4,6 +4,8 @@ import com.thoughtcoding.model.ToolExecution;
 import com.thoughtcoding.ui.ThoughtCodingUI;
 import org.jline.reader.LineReader;
 
+import java.util.List;
+
 /**
  * 工具执行确认组件
  * 实现类似 Claude Code 的交互式确认功能
@@ -27,6 +29,15 @@ public class ToolExecutionConfirmation {
         DISCARD                // 丢弃
     }
 
+    /**
+     * 批量工具调用的选项类型
+     */
+    public enum BatchAction {
+        EXECUTE_ALL,           // 全部执行
+        READ_ONLY,             // 仅执行只读操作
+        DISCARD                // 全部取消
+    }
+
     /**
      * 询问用户是否执行工具调用（智能 3 选项版本）
      */
@@ -112,6 +123,89 @@ public class ToolExecutionConfirmation {
         return ActionType.DISCARD;
     }
 
+    /**
+     * 🔥 询问用户是否执行一批工具调用（整批只确认一次）
+     *
+     * @param executions 按调用顺序排列的工具调用
+     * @param readOnly   每个工具调用是否为只读操作
+     */
+    public BatchAction askBatchConfirmation(List<ToolExecution> executions, List<Boolean> readOnly) {
+        if (autoApproveMode) {
+            ui.displayInfo("🤖 [自动批准模式] 批量执行 " + executions.size() + " 个工具调用");
+            return BatchAction.EXECUTE_ALL;
+        }
+
+        ui.getTerminal().writer().println();
+        ui.getTerminal().writer().println("本轮共有 " + executions.size() + " 个工具调用：");
+        for (int i = 0; i < executions.size(); i++) {
+            ToolExecution execution = executions.get(i);
+            String target = extractCommand(execution);
+            if (target == null) {
+                target = extractFileName(execution);
+            }
+            ui.getTerminal().writer().println("  " + (i + 1) + ". " + execution.toolName()
+                + (target != null ? " " + target : "")
+                + (readOnly.get(i) ? "" : "  ⚠️ 会修改环境"));
+        }
+        ui.getTerminal().writer().println();
+        ui.getTerminal().writer().println("你想要继续吗？");
+        ui.getTerminal().writer().println();
+        ui.getTerminal().writer().println("❯ 1. 是的，全部执行");
+        ui.getTerminal().writer().println("  2. 仅执行只读操作");
+        ui.getTerminal().writer().println("  3. 全部取消");
+        ui.getTerminal().writer().println();
+        ui.getTerminal().writer().flush();
+
+        int retryCount = 0;
+        int maxRetries = 3;
+
+        while (retryCount < maxRetries) {
+            try {
+                String response = lineReader.readLine("\n请选择 [1/2/3]: ");
+
+                retryCount++;
+
+                if (response == null) {
+                    if (retryCount < maxRetries) {
+                        ui.displayWarning("⚠️  输入读取失败，正在重试... (" + retryCount + "/" + maxRetries + ")");
+                        Thread.sleep(100);
+                        continue;
+                    } else {
+                        ui.displayError("❌ 输入读取失败次数过多，操作已取消");
+                        return BatchAction.DISCARD;
+                    }
+                }
+
+                switch (response.trim()) {
+                    case "1":
+                        ui.displayInfo("✅ 你选择了：全部执行");
+                        return BatchAction.EXECUTE_ALL;
+                    case "2":
+                        ui.displayInfo("✅ 你选择了：仅执行只读操作");
+                        return BatchAction.READ_ONLY;
+                    case "3":
+                        ui.displayWarning("⏭️  你选择了：全部取消");
+                        return BatchAction.DISCARD;
+                    default:
+                        ui.displayError("❌ 无效输入，请输入 1、2 或 3");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ui.displayError("❌ 操作被中断");
+                return BatchAction.DISCARD;
+            } catch (Exception e) {
+                retryCount++;
+                if (retryCount >= maxRetries) {
+                    ui.displayError("❌ 读取输入失败: " + e.getMessage());
+                    return BatchAction.DISCARD;
+                }
+                ui.displayWarning("⚠️  读取输入异常，正在重试... (" + retryCount + "/" + maxRetries + ")");
+            }
+        }
+
+        return BatchAction.DISCARD;
+    }
+
     /**
      * 显示智能选项
      */
@@ -1,85 +1,121 @@
 package com.thoughtcoding.mcp;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.thoughtcoding.config.AppConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.thoughtcoding.mcp.model.*;
-import lombok.extern.slf4j.Slf4j;
+import com.thoughtcoding.mcp.transport.MCPTransport;
+import com.thoughtcoding.mcp.transport.StdioMCPTransport;
+import com.thoughtcoding.mcp.transport.StreamMCPTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * MCP客户端，管理与单个MCP服务器的连接和通信
+ *
+ * 🔥 多路复用的 JSON-RPC 协议层（底层连接见 MCPTransport）：
+ * 1. 传输层每收到一条消息只做一次流式解析（见 MCPMessageCodec）
+ * 2. 响应按请求 ID 分发给对应的 CompletableFuture，允许同时有多个请求在途
+ * 3. 服务器通知（没有 ID）分发给通知监听器；服务器发来的请求（如 ping）直接应答
  */
 public class MCPClient {
     private static final Logger log = LoggerFactory.getLogger(MCPClient.class); // 应该是 MCPClient.class
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private Process process;
-    private BufferedReader reader;
-    private BufferedWriter writer;
+    private static final long INITIALIZE_TIMEOUT_MS = 15000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 3000;
+    public static final long DEFAULT_CALL_TOOL_TIMEOUT_MS = 30000;
+    private static final String PROGRESS_NOTIFICATION = "notifications/progress";
+
+    private volatile MCPTransport transport;
     private final Map<String, MCPTool> availableTools = new ConcurrentHashMap<>();
-    private boolean initialized = false;
+    private final Map<String, CompletableFuture<MCPResponse>> pendingRequests = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, JsonNode>> notificationListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Consumer<MCPProgress>> progressListeners = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+    private volatile long listToolsTimeoutMs = INITIALIZE_TIMEOUT_MS;
+    private volatile boolean initialized = false;
+    private volatile boolean closed = false;
+    private volatile String serverVersion;
+    private volatile Runnable disconnectListener;
     private final String serverName;
 
     public MCPClient(String serverName) {
         this.serverName = serverName;
     }
 
-    public boolean connect(String fullCommand, List<String> args) {
-        try {
-            // 分割完整命令为命令和参数，并去除引号
-            String[] parts = fullCommand.split("\\s+");
-            String command = parts[0].replace("\"", "");  // 去除引号
-
-            List<String> commandList = new ArrayList<>();
-            commandList.add(command);
-
-            // 添加命令的其他部分作为参数，并去除引号
-            for (int i = 1; i < parts.length; i++) {
-                String arg = parts[i].replace("\"", "");  // 去除引号
-                commandList.add(arg);
-            }
-
-            // 添加额外的参数
-            if (args != null && !args.isEmpty()) {
-                for (String arg : args) {
-                    commandList.add(arg.replace("\"", ""));  // 去除引号
-                }
-            }
-
-            log.debug("完整命令: {}", String.join(" ", commandList));
-            log.debug("工作目录: {}", System.getProperty("user.dir"));
-
-            ProcessBuilder pb = new ProcessBuilder(commandList);
-            pb.directory(new File(System.getProperty("user.dir")));
-            // 🔥 关键修复：不合并错误流，分开处理
-            pb.redirectErrorStream(false);
-
-            process = pb.start();
+    /**
+     * 🔥 连接意外断开（进程退出、输出流关闭）时回调，主动 disconnect 不会触发
+     */
+    public void setDisconnectListener(Runnable listener) {
+        this.disconnectListener = listener;
+    }
 
-            // 🔥 启动错误流监控（只监控错误，不影响主输出）
-            startErrorMonitoring();
+    /**
+     * 🔥 注册服务器通知监听器（method, params）
+     */
+    public void addNotificationListener(BiConsumer<String, JsonNode> listener) {
+        notificationListeners.add(listener);
+    }
 
-            reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+    public boolean connect(String fullCommand, List<String> args) {
+        return connect(fullCommand, args, INITIALIZE_TIMEOUT_MS);
+    }
 
-            // 等待进程启动
-            log.debug("⏳ 等待 MCP 服务器启动...");
-            Thread.sleep(2000);
+    /**
+     * 🔥 启动服务器进程并完成握手；收到 initialize 响应即视为就绪，不再固定等待
+     *
+     * @param timeoutMs 等待 initialize 响应的最长时间
+     */
+    public boolean connect(String fullCommand, List<String> args, long timeoutMs) {
+        return connect(new StdioMCPTransport(serverName, fullCommand, args), timeoutMs);
+    }
 
-            if (!process.isAlive()) {
-                int exitCode = process.exitValue();
-                log.error("❌ MCP服务器进程退出，退出码: {}", exitCode);
-                return false;
+    /**
+     * 🔥 通过指定传输连接并完成握手；进程提前退出或连接断开时立即失败，无需等待超时
+     */
+    public boolean connect(MCPTransport transport, long timeoutMs) {
+        try {
+            if (start(transport, timeoutMs)) {
+                return true;
             }
+            disconnect();
+        } catch (Exception e) {
+            log.error("❌ 连接MCP服务器失败: {}", serverName, e);
+            disconnect();
+        }
+        return false;
+    }
 
-            log.debug("✅ MCP 进程已启动，开始协议初始化...");
+    /**
+     * 在已建立的输入输出流上启动读取线程并完成协议初始化
+     */
+    boolean start(InputStream in, OutputStream out) throws IOException {
+        return start(new StreamMCPTransport(serverName, in, out), INITIALIZE_TIMEOUT_MS);
+    }
+
+    /**
+     * @param initializeTimeoutMs initialize 和 tools/list 各自等待响应的最长时间
+     */
+    private boolean start(MCPTransport transport, long initializeTimeoutMs) throws IOException {
+        listToolsTimeoutMs = initializeTimeoutMs;
+        this.transport = transport;
+        closed = false;
+        transport.open(this::dispatch, this::onTransportClosed);
 
-            if (initializeProtocol()) {
+        try {
+            if (initializeProtocol(initializeTimeoutMs)) {
                 listTools();
                 initialized = true;
                 log.debug("✅ MCP客户端初始化成功: {} ({} 个工具)", serverName, availableTools.size());
@@ -87,46 +123,131 @@ public class MCPClient {
             } else {
                 log.error("❌ MCP 协议初始化失败");
             }
-
         } catch (Exception e) {
-            log.error("❌ 连接MCP服务器失败: {}", serverName, e);
+            log.error("❌ MCP 协议初始化失败: {}", serverName, e);
         }
         return false;
     }
 
     /**
-     * 🔥 只监控错误流，避免和主输入流冲突
+     * 连接结束：在途请求立即失败；非主动断开时通知监听器
      */
-    private void startErrorMonitoring() {
-        Thread errorThread = new Thread(() -> {
-            try (BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(process.getErrorStream()))) {
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    // 过滤 npm 无关的错误
-                    if (line.contains("npm ERR!") || line.contains("npm WARN") ||
-                            line.contains("node_cache") || line.contains("_cacache") ||
-                            line.contains("EPERM") || line.contains("operation not permitted")) {
-                        continue;
-                    }
+    private void onTransportClosed(IOException cause) {
+        failPendingRequests(new IOException("MCP进程已退出", cause));
+        Runnable listener = disconnectListener;
+        if (!closed && initialized && listener != null) {
+            listener.run();
+        }
+    }
+
+    private void dispatch(String line) {
+        if (line.isEmpty()) {
+            return;
+        }
 
-                    // 🔥 移除 MCP stderr 日志，保持输出简洁
-                    // 不再输出 MCP 服务器的标准错误流信息
+        MCPMessageCodec.Message message;
+        try {
+            message = MCPMessageCodec.decode(line);
+        } catch (Exception e) {
+            // 非 JSON 输出，或响应体损坏（此时对应请求会超时）
+            log.debug("⚠️ 忽略无法解析的输出 [{}]: {}", serverName, line);
+            return;
+        }
+        if (message == null) {
+            return;
+        }
+
+        if (message.isNotification()) {
+            if (PROGRESS_NOTIFICATION.equals(message.getMethod()) && dispatchProgress(message.getParams())) {
+                return;
+            }
+            // 服务器通知
+            for (BiConsumer<String, JsonNode> listener : notificationListeners) {
+                try {
+                    listener.accept(message.getMethod(), message.getParams());
+                } catch (Exception e) {
+                    log.warn("MCP 通知处理失败: {} - {}", message.getMethod(), e.getMessage());
                 }
-            } catch (Exception e) {
-                // 正常结束
             }
-        });
-        errorThread.setDaemon(true);
-        errorThread.setName("MCP-Error-" + serverName);
-        errorThread.start();
+            return;
+        }
+
+        if (message.isRequest()) {
+            // 服务器发来的请求
+            answerServerRequest(message.getId(), message.getMethod());
+            return;
+        }
+
+        if (!message.hasId()) {
+            return;
+        }
+
+        String id = message.getId().asText();
+        CompletableFuture<MCPResponse> future = pendingRequests.remove(id);
+        if (future == null) {
+            log.debug("⚠️ 收到未知请求 ID 的响应 [{}]: {}", serverName, id);
+            return;
+        }
+        future.complete(message.toResponse());
     }
 
-    private void startOutputMonitoring() {
-        // 🔥 已废弃：不再使用此方法，避免和 reader 冲突
+    /**
+     * 🔥 进度通知按 progressToken 交给发起调用时登记的监听器
+     *
+     * @return 是否找到对应的调用；找不到时按普通通知分发
+     */
+    private boolean dispatchProgress(JsonNode params) {
+        if (params == null || params.get("progressToken") == null) {
+            return false;
+        }
+        Consumer<MCPProgress> listener = progressListeners.get(params.get("progressToken").asText());
+        if (listener == null) {
+            return false;
+        }
+        JsonNode total = params.get("total");
+        JsonNode message = params.get("message");
+        try {
+            listener.accept(new MCPProgress(params.get("progressToken").asText(),
+                    params.path("progress").asDouble(),
+                    total != null && total.isNumber() ? total.asDouble() : null,
+                    message != null && !message.isNull() ? message.asText() : null));
+        } catch (Exception e) {
+            log.debug("进度通知处理失败 [{}]: {}", serverName, e.getMessage());
+        }
+        return true;
     }
 
-    private boolean initializeProtocol() throws IOException {
+    /**
+     * ping 返回空结果，其他方法返回 Method not found
+     */
+    private void answerServerRequest(JsonNode id, String method) {
+        ObjectNode reply = JsonNodeFactory.instance.objectNode();
+        reply.put("jsonrpc", "2.0");
+        reply.set("id", id);
+        if ("ping".equals(method)) {
+            reply.putObject("result");
+        } else {
+            ObjectNode error = reply.putObject("error");
+            error.put("code", -32601);
+            error.put("message", "Method not found: " + method);
+        }
+        try {
+            writeLine(MCPMessageCodec.encode(reply));
+        } catch (IOException e) {
+            log.debug("应答服务器请求失败 [{}]: {}", serverName, e.getMessage());
+        }
+    }
+
+    private void failPendingRequests(IOException cause) {
+        for (String id : new ArrayList<>(pendingRequests.keySet())) {
+            CompletableFuture<MCPResponse> future = pendingRequests.remove(id);
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private boolean initializeProtocol(long timeoutMs) throws IOException {
         try {
             // 🔥 使用 MCPRequest 类来确保 JSON 序列化正确
             Map<String, Object> params = new LinkedHashMap<>();
@@ -148,21 +269,22 @@ public class MCPClient {
 
             // 使用 MCPRequest 确保正确序列化
             MCPRequest request = new MCPRequest("initialize", params);
-            request.setId("1");  // 使用字符串 ID
-
-            String json = objectMapper.writeValueAsString(request);
-            log.debug("发送的JSON: {}", json);
-            writer.write(json);
-            writer.newLine();
-            writer.flush();
 
-            // 读取并记录所有输出，用于调试
             log.debug("等待MCP服务器响应...");
-            MCPResponse response = readResponse(15000);
+            MCPResponse response = request(request, timeoutMs);
 
             if (response != null) {
                 log.debug("收到初始化响应: {}", response);
                 if (response.getError() == null) {
+                    if (response.getResult() instanceof Map) {
+                        Object serverInfo = ((Map<String, Object>) response.getResult()).get("serverInfo");
+                        if (serverInfo instanceof Map) {
+                            Object version = ((Map<String, Object>) serverInfo).get("version");
+                            serverVersion = version != null ? version.toString() : null;
+                        }
+                    }
+                    // 协议要求初始化完成后发送 initialized 通知
+                    sendNotification("notifications/initialized", null);
                     log.debug("✅ MCP协议初始化成功");
                     return true;
                 } else {
@@ -178,11 +300,18 @@ public class MCPClient {
         }
     }
 
+    /**
+     * 🔥 重新获取工具列表（收到 tools/list_changed 通知后调用）
+     */
+    public List<MCPTool> refreshTools() throws IOException {
+        availableTools.clear();
+        listTools();
+        return getAvailableTools();
+    }
+
     private void listTools() throws IOException {
         MCPRequest request = new MCPRequest("tools/list", Map.of());
-        sendRequest(request);
-
-        MCPResponse response = readResponse(3000);
+        MCPResponse response = request(request, listToolsTimeoutMs);
         if (response != null && response.getResult() != null) {
             Map<String, Object> result = (Map<String, Object>) response.getResult();
             List<Map<String, Object>> toolsList = (List<Map<String, Object>>) result.get("tools");
@@ -190,7 +319,7 @@ public class MCPClient {
             if (toolsList != null) {
                 for (Map<String, Object> toolData : toolsList) {
                     try {
-                        MCPTool tool = objectMapper.convertValue(toolData, MCPTool.class);
+                        MCPTool tool = MCPMessageCodec.toTool(toolData);
                         availableTools.put(tool.getName(), tool);
                         log.debug("发现工具: {} - {}", tool.getName(), tool.getDescription());
                     } catch (Exception e) {
@@ -202,126 +331,175 @@ public class MCPClient {
     }
 
     public Object callTool(String toolName, Map<String, Object> arguments) throws IOException {
+        return awaitResponse(callToolAsync(toolName, arguments));
+    }
+
+    public Object callTool(String toolName, Map<String, Object> arguments, long timeoutMs,
+                           Consumer<MCPProgress> onProgress) throws IOException {
+        return awaitResponse(callToolAsync(toolName, arguments, timeoutMs, onProgress));
+    }
+
+    public CompletableFuture<Object> callToolAsync(String toolName, Map<String, Object> arguments) throws IOException {
+        return callToolAsync(toolName, arguments, DEFAULT_CALL_TOOL_TIMEOUT_MS, null);
+    }
+
+    /**
+     * 🔥 异步调用工具，同一服务器上可以同时有多个调用在途
+     *
+     * @param timeoutMs  等待结果的最长时间
+     * @param onProgress 不为 null 时在请求中携带 progressToken，服务器的进度通知在读取线程中回调
+     * @return 结果中的 content；结果标记 isError 时以 IOException 失败
+     */
+    public CompletableFuture<Object> callToolAsync(String toolName, Map<String, Object> arguments, long timeoutMs,
+                                                   Consumer<MCPProgress> onProgress) throws IOException {
         if (!initialized) {
             throw new IllegalStateException("MCP客户端未初始化");
         }
 
-        MCPRequest request = new MCPRequest(
-                "tools/call",
-                Map.of("name", toolName, "arguments", arguments)
-        );
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("name", toolName);
+        params.put("arguments", arguments != null ? arguments : Map.of());
+        String progressToken = null;
+        if (onProgress != null) {
+            progressToken = "progress-" + nextRequestId.getAndIncrement();
+            params.put("_meta", Map.of("progressToken", progressToken));
+            progressListeners.put(progressToken, onProgress);
+        }
 
-        sendRequest(request);
-        MCPResponse response = readResponse(30000);
+        CompletableFuture<MCPResponse> future;
+        try {
+            future = sendRequest(new MCPRequest("tools/call", params), timeoutMs);
+        } catch (IOException e) {
+            if (progressToken != null) {
+                progressListeners.remove(progressToken);
+            }
+            throw e;
+        }
+        if (progressToken != null) {
+            String token = progressToken;
+            future.whenComplete((response, error) -> progressListeners.remove(token));
+        }
 
-        if (response != null) {
+        return future.thenApply(response -> {
             if (response.getError() != null) {
-                throw new IOException("工具调用失败: " + response.getError().getMessage());
+                throw new CompletionException(new IOException("工具调用失败: " + response.getError().getMessage()));
             }
-            if (response.getResult() != null) {
-                Map<String, Object> result = (Map<String, Object>) response.getResult();
-                return result.get("content");
+            if (response.getResult() == null) {
+                throw new CompletionException(new IOException("工具调用无响应"));
             }
-        }
-
-        throw new IOException("工具调用无响应");
-    }
-
-    private void sendRequest(MCPRequest request) throws IOException {
-        String json = objectMapper.writeValueAsString(request);
-        writer.write(json);
-        writer.newLine();
-        writer.flush();
-        log.debug("发送MCP请求[{}]: {}", serverName, json);
+            Map<String, Object> result = (Map<String, Object>) response.getResult();
+            if (Boolean.TRUE.equals(result.get("isError"))) {
+                throw new CompletionException(new IOException("工具返回错误: "
+                        + MCPToolResultFormatter.format(result.get("content"), MCPToolResultFormatter.DEFAULT_MAX_CHARS)));
+            }
+            return result.get("content");
+        });
     }
 
-    private MCPResponse readResponse(long timeoutMs) throws IOException {
-        long startTime = System.currentTimeMillis();
-        int attemptCount = 0;
-
-        log.debug("⏳ 开始等待响应，超时时间: {}ms", timeoutMs);
-
-        while (System.currentTimeMillis() - startTime < timeoutMs) {
-            try {
-                attemptCount++;
+    /**
+     * 发送请求：先登记 future 再写出，响应由读取线程按 ID 完成；超时或完成后自动注销
+     */
+    private CompletableFuture<MCPResponse> sendRequest(MCPRequest request, long timeoutMs) throws IOException {
+        if (closed) {
+            throw new IOException("MCP连接已关闭: " + serverName);
+        }
 
-                // 检查进程状态
-                if (process != null && !process.isAlive()) {
-                    int exitCode = process.exitValue();
-                    log.error("❌ MCP进程已退出，退出码: {}", exitCode);
-                    throw new IOException("MCP进程异常退出");
-                }
+        String id = String.valueOf(nextRequestId.getAndIncrement());
+        request.setId(id);
+        CompletableFuture<MCPResponse> future = new CompletableFuture<>();
+        pendingRequests.put(id, future);
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> pendingRequests.remove(id));
 
-                // 非阻塞检查是否有数据可读
-                if (reader.ready()) {
-                    String line = reader.readLine();
-                    if (line != null) {
-                        line = line.trim();
-                        if (!line.isEmpty()) {
-                            log.debug("📨 收到数据 [尝试#{}]: {}", attemptCount, line);
-
-                            // 尝试解析为 JSON
-                            try {
-                                MCPResponse response = objectMapper.readValue(line, MCPResponse.class);
-                                log.debug("✅ 成功解析MCP响应 (耗时: {}ms)", System.currentTimeMillis() - startTime);
-                                return response;
-                            } catch (Exception e) {
-                                log.warn("⚠️ 响应不是有效JSON，继续等待: {}", line);
-                            }
-                        }
-                    }
-                } else {
-                    // 每500ms输出一次等待状态
-                    if (attemptCount % 5 == 0) {
-                        long elapsed = System.currentTimeMillis() - startTime;
-                        log.debug("⏳ 等待中... (已等待 {}ms / {}ms)", elapsed, timeoutMs);
-                    }
-                }
+        try {
+            String json = MCPMessageCodec.encode(request);
+            writeLine(json);
+            log.debug("发送MCP请求[{}]: {}", serverName, json);
+        } catch (IOException e) {
+            pendingRequests.remove(id);
+            throw e;
+        }
+        return future;
+    }
 
-                Thread.sleep(100);
+    private MCPResponse request(MCPRequest request, long timeoutMs) throws IOException {
+        return awaitResponse(sendRequest(request, timeoutMs));
+    }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("❌ 读取响应被中断");
-                throw new IOException("读取响应被中断");
+    private <T> T awaitResponse(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("读取响应被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new IOException("读取响应超时: " + serverName);
             }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
         }
+    }
 
-        // 超时
-        long totalTime = System.currentTimeMillis() - startTime;
-        log.error("❌ 读取响应超时！总等待时间: {}ms, 尝试次数: {}", totalTime, attemptCount);
-
-        // 尝试最后一次读取
+    /**
+     * 🔥 健康检查：发送 ping 并等待响应
+     */
+    public boolean ping(long timeoutMs) {
+        if (closed) {
+            return false;
+        }
         try {
-            if (reader.ready()) {
-                String line = reader.readLine();
-                if (line != null && !line.trim().isEmpty()) {
-                    log.error("❌ 超时前收到的最后数据: {}", line);
-                }
-            }
-        } catch (Exception e) {
-            // 忽略
+            MCPResponse response = request(new MCPRequest("ping", Map.of()), timeoutMs);
+            return response.getError() == null;
+        } catch (IOException e) {
+            log.debug("MCP ping 失败 [{}]: {}", serverName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 在途请求数（空闲回收时跳过仍有请求的服务器）
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    private void sendNotification(String method, Object params) throws IOException {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        if (params != null) {
+            notification.put("params", params);
         }
+        writeLine(MCPMessageCodec.encode((Object) notification));
+    }
 
-        throw new IOException("读取响应超时 (等待了 " + totalTime + "ms)");
+    private void writeLine(String json) throws IOException {
+        MCPTransport current = transport;
+        if (current == null) {
+            throw new IOException("MCP连接已关闭: " + serverName);
+        }
+        current.send(json);
     }
 
     public void disconnect() {
         try {
-            if (writer != null) {
-                MCPRequest request = new MCPRequest("shutdown", null);
-                sendRequest(request);
-                writer.close();
-            }
-            if (reader != null) {
-                reader.close();
-            }
-            if (process != null) {
-                process.destroy();
-                if (process.isAlive()) {
-                    process.destroyForcibly();
+            if (transport != null && !closed) {
+                try {
+                    // 不等待响应
+                    sendRequest(new MCPRequest("shutdown", null), SHUTDOWN_TIMEOUT_MS);
+                } catch (IOException e) {
+                    log.debug("发送 shutdown 失败（进程可能已退出）: {}", serverName);
                 }
             }
+            closed = true;
+            if (transport != null) {
+                transport.close();
+            }
+            failPendingRequests(new IOException("MCP连接已关闭"));
             initialized = false;
             availableTools.clear();
             log.info("MCP客户端已断开: {}", serverName);
@@ -335,7 +513,15 @@ public class MCPClient {
     }
 
     public boolean isConnected() {
-        return process != null && process.isAlive() && initialized;
+        MCPTransport current = transport;
+        return initialized && !closed && current != null && current.isOpen();
+    }
+
+    /**
+     * 服务器在 initialize 响应中报告的版本，未报告时为 null
+     */
+    public String getServerVersion() {
+        return serverVersion;
     }
 
     public String getServerName() {
@@ -0,0 +1,125 @@
+package com.thoughtcoding.mcp;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.thoughtcoding.mcp.model.MCPError;
+import com.thoughtcoding.mcp.model.MCPRequest;
+import com.thoughtcoding.mcp.model.MCPResponse;
+import com.thoughtcoding.mcp.model.MCPTool;
+import com.thoughtcoding.util.JsonUtils;
+
+import java.io.IOException;
+
+/**
+ * MCP JSON-RPC 消息编解码，所有客户端共享同一组线程安全的 ObjectWriter/ObjectReader
+ *
+ * 🔥 读取线程对每一行只做一次流式解析：
+ * 顶层字段用 JsonParser 逐个读取，result 直接绑定为 Map/List，
+ * 不再先构建整棵 JsonNode 树再 treeToValue 复制一遍；只有体积很小的 id 和通知的 params 保留为树
+ */
+public final class MCPMessageCodec {
+    private static final ObjectMapper MAPPER = JsonUtils.getWireMapper();
+    private static final ObjectWriter REQUEST_WRITER = MAPPER.writerFor(MCPRequest.class);
+    private static final ObjectReader RESULT_READER = MAPPER.readerFor(Object.class);
+    private static final ObjectReader ERROR_READER = MAPPER.readerFor(MCPError.class);
+
+    private MCPMessageCodec() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * 解码后的一条消息：响应、通知或服务器发来的请求
+     */
+    public static final class Message {
+        private JsonNode id;
+        private String method;
+        private JsonNode params;
+        private Object result;
+        private MCPError error;
+
+        public JsonNode getId() { return id; }
+        public String getMethod() { return method; }
+        public JsonNode getParams() { return params; }
+
+        public boolean hasId() {
+            return id != null && !id.isNull();
+        }
+
+        public boolean isNotification() {
+            return method != null && !hasId();
+        }
+
+        public boolean isRequest() {
+            return method != null && hasId();
+        }
+
+        public MCPResponse toResponse() {
+            MCPResponse response = new MCPResponse();
+            response.setJsonrpc("2.0");
+            response.setId(hasId() ? id.asText() : null);
+            response.setResult(result);
+            response.setError(error);
+            return response;
+        }
+    }
+
+    public static String encode(MCPRequest request) throws IOException {
+        return REQUEST_WRITER.writeValueAsString(request);
+    }
+
+    /**
+     * 编码通知、应答等不经过 MCPRequest 的消息
+     */
+    public static String encode(Object message) throws IOException {
+        return MAPPER.writeValueAsString(message);
+    }
+
+    /**
+     * @return 解码结果；不是 JSON 对象时返回 null
+     * @throws IOException 不是合法 JSON
+     */
+    public static Message decode(String line) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            Message message = new Message();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id":
+                        message.id = MAPPER.readTree(parser);
+                        break;
+                    case "method":
+                        message.method = parser.getValueAsString();
+                        break;
+                    case "params":
+                        message.params = MAPPER.readTree(parser);
+                        break;
+                    case "result":
+                        message.result = value == JsonToken.VALUE_NULL ? null : RESULT_READER.readValue(parser);
+                        break;
+                    case "error":
+                        message.error = value == JsonToken.VALUE_NULL ? null : ERROR_READER.readValue(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return message;
+        }
+    }
+
+    /**
+     * tools/list 中单个工具的 Map 转为 MCPTool
+     */
+    public static MCPTool toTool(Object toolData) {
+        return MAPPER.convertValue(toolData, MCPTool.class);
+    }
+}
@@ -0,0 +1,167 @@
+package com.thoughtcoding.mcp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtcoding.mcp.model.MCPTool;
+import com.thoughtcoding.util.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * MCP 工具列表的磁盘缓存，启动时直接用缓存注册工具，服务器进程推迟到第一次调用时再启动
+ *
+ * 🔥 缓存键：命令 + 参数 + 包版本
+ * 包版本取参数中固定的版本号（如 pkg@1.2.0）；未固定时读取当前目录 node_modules 中安装的版本；
+ * 都没有时为 "unpinned"，此时依赖服务器真正启动后刷新缓存以及 tools/list_changed 通知失效
+ */
+public class MCPSchemaCache {
+    private static final Logger log = LoggerFactory.getLogger(MCPSchemaCache.class);
+    private static final String UNPINNED = "unpinned";
+
+    private final Path cacheFile;
+    private final ObjectMapper objectMapper = JsonUtils.getWireMapper();
+    private final Map<String, CacheEntry> entries = new HashMap<>();
+
+    /**
+     * 单个服务器的缓存内容
+     */
+    public static class CacheEntry {
+        public String serverName;
+        public String command;
+        public List<String> args = new ArrayList<>();
+        public String packageVersion;
+        public String serverVersion;
+        public long cachedAt;
+        public List<MCPTool> tools = new ArrayList<>();
+    }
+
+    public MCPSchemaCache() {
+        this(Paths.get(System.getProperty("user.home"), ".thoughtcoding", "mcp-tools-cache.json"));
+    }
+
+    public MCPSchemaCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * @return 缓存的工具列表；未命中时返回 null
+     */
+    public synchronized List<MCPTool> get(String command, List<String> args) {
+        CacheEntry entry = entries.get(cacheKey(command, args));
+        return entry != null ? new ArrayList<>(entry.tools) : null;
+    }
+
+    public synchronized void put(String serverName, String command, List<String> args,
+                                 String serverVersion, List<MCPTool> tools) {
+        CacheEntry entry = new CacheEntry();
+        entry.serverName = serverName;
+        entry.command = command;
+        entry.args = args != null ? new ArrayList<>(args) : new ArrayList<>();
+        entry.packageVersion = resolvePackageVersion(args);
+        entry.serverVersion = serverVersion;
+        entry.cachedAt = System.currentTimeMillis();
+        entry.tools = new ArrayList<>(tools);
+        entries.put(cacheKey(command, args), entry);
+        save();
+    }
+
+    public synchronized void invalidate(String command, List<String> args) {
+        if (entries.remove(cacheKey(command, args)) != null) {
+            save();
+        }
+    }
+
+    String cacheKey(String command, List<String> args) {
+        StringBuilder key = new StringBuilder(command != null ? command.trim() : "");
+        if (args != null) {
+            for (String arg : args) {
+                key.append('\u0000').append(arg);
+            }
+        }
+        key.append('\u0000').append(resolvePackageVersion(args));
+        return sha256(key.toString());
+    }
+
+    /**
+     * 从 npx 风格的参数中找出包名并确定版本
+     */
+    String resolvePackageVersion(List<String> args) {
+        if (args == null) {
+            return UNPINNED;
+        }
+        for (String arg : args) {
+            if (arg == null || arg.isEmpty() || arg.startsWith("-")) {
+                continue;
+            }
+            // 第一个非选项参数视为包名，作用域包的 @ 在开头
+            int versionAt = arg.indexOf('@', arg.startsWith("@") ? 1 : 0);
+            if (versionAt > 0) {
+                return arg.substring(versionAt + 1);
+            }
+            return installedVersion(arg);
+        }
+        return UNPINNED;
+    }
+
+    private String installedVersion(String packageName) {
+        Path packageJson = Paths.get(System.getProperty("user.dir"), "node_modules")
+                .resolve(packageName).resolve("package.json");
+        if (!Files.isRegularFile(packageJson)) {
+            return UNPINNED;
+        }
+        try {
+            JsonNode version = objectMapper.readTree(packageJson.toFile()).get("version");
+            return version != null ? version.asText() : UNPINNED;
+        } catch (Exception e) {
+            return UNPINNED;
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try {
+            Map<String, CacheEntry> loaded = objectMapper.readValue(cacheFile.toFile(),
+                    new TypeReference<Map<String, CacheEntry>>() {});
+            entries.putAll(loaded);
+        } catch (Exception e) {
+            // 缓存损坏时当作空缓存，下次写入时覆盖
+            log.debug("忽略无法读取的 MCP 工具缓存: {}", e.getMessage());
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), entries);
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("写入 MCP 工具缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.thoughtcoding.mcp;
+
+/**
+ * MCP 服务器在进程池中的状态，由 MCPService 的监督线程维护，用于 /mcp list 展示
+ */
+public class MCPServerStatus {
+
+    public enum State {
+        LAZY,        // 工具来自缓存，进程尚未启动
+        RUNNING,     // 进程运行中
+        IDLE,        // 空闲超时已回收，下次调用时重新启动
+        RESTARTING,  // 崩溃或健康检查失败，等待退避后重启
+        FAILED       // 超过最大重启次数，等待下次调用时再尝试
+    }
+
+    private final String serverName;
+    private volatile State state;
+    private volatile int restartCount;
+    private volatile int consecutiveFailures;
+    private volatile boolean everStarted;
+    private volatile long lastUsed;
+    private volatile String lastError;
+
+    public MCPServerStatus(String serverName, State state) {
+        this.serverName = serverName;
+        this.state = state;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    public String getServerName() { return serverName; }
+    public State getState() { return state; }
+    public int getRestartCount() { return restartCount; }
+    public int getConsecutiveFailures() { return consecutiveFailures; }
+    public long getLastUsed() { return lastUsed; }
+    public String getLastError() { return lastError; }
+    public boolean isEverStarted() { return everStarted; }
+
+    void setState(State state) { this.state = state; }
+    void setLastError(String lastError) { this.lastError = lastError; }
+    void touch() { this.lastUsed = System.currentTimeMillis(); }
+
+    void markStarted() {
+        if (everStarted && (state == State.RESTARTING || state == State.FAILED)) {
+            restartCount++;
+        }
+        everStarted = true;
+        lastError = null;
+        state = State.RUNNING;
+        touch();
+    }
+
+    /**
+     * 健康检查通过后才清零连续失败次数，避免启动后立即崩溃的服务器无限重启
+     */
+    void recordHealthy() {
+        consecutiveFailures = 0;
+    }
+
+    int recordFailure(String error) {
+        lastError = error;
+        return ++consecutiveFailures;
+    }
+
+    @Override
+    public String toString() {
+        long idleSeconds = (System.currentTimeMillis() - lastUsed) / 1000;
+        StringBuilder text = new StringBuilder(String.format("%s [%s] 重启 %d 次, 空闲 %ds",
+                serverName, state, restartCount, idleSeconds));
+        if (lastError != null) {
+            text.append(", 最近错误: ").append(lastError);
+        }
+        return text.toString();
+    }
+}
@@ -1,28 +1,316 @@
 package com.thoughtcoding.mcp;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtcoding.mcp.model.MCPProgress;
 import com.thoughtcoding.mcp.model.MCPTool;
+import com.thoughtcoding.mcp.transport.MCPTransport;
 import com.thoughtcoding.model.ToolResult;
 import com.thoughtcoding.tools.BaseTool; // 使用你的 BaseTool 基类
 import com.thoughtcoding.tools.ToolRegistry;
+import com.thoughtcoding.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * MCP服务，管理与多个MCP服务器的连接和工具调用
+ *
+ * 🔥 延迟启动：工具列表命中 MCPSchemaCache 时只注册工具，服务器进程在第一次调用其工具时才启动；
+ * 服务器发出 notifications/tools/list_changed 时使缓存失效并重新注册工具
+ *
+ * 🔥 进程池监督：定期 ping 运行中的服务器，崩溃或无响应时按指数退避重启，
+ * 空闲超过 idleTimeout 的服务器被回收，下次调用时透明地重新启动
+ *
+ * 🔥 工具调用：超时按 服务器/工具 配置，进度通知实时转给进度监听器，写入历史的结果按 maxResultChars 截断
  */
 public class MCPService {
     private static final Logger log = LoggerFactory.getLogger(MCPService.class);
     private final Map<String, MCPClient> connectedServers = new ConcurrentHashMap<>();
     private final Map<String, BaseTool> mcpTools = new ConcurrentHashMap<>(); // 改为 BaseTool
     private final ToolRegistry toolRegistry;
+    private static final int DEFAULT_CONNECTION_TIMEOUT_SECONDS = 30;
+
+    // 🔥 服务器启动主要是等待子进程握手，每个服务器一个线程并行连接
+    private final AtomicInteger connectThreadCount = new AtomicInteger();
+    private final ExecutorService connectExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mcp-connect-" + connectThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final String TOOLS_LIST_CHANGED = "notifications/tools/list_changed";
+
+    private final MCPSchemaCache schemaCache;
+    private final Map<String, ServerSpec> serverSpecs = new ConcurrentHashMap<>();     // 启动参数，用于延迟启动
+    private final Map<String, Set<String>> serverToolNames = new ConcurrentHashMap<>();
+    private final Map<String, Object> spawnLocks = new ConcurrentHashMap<>();
+    private final Map<String, MCPServerStatus> statuses = new ConcurrentHashMap<>();
+
+    // 🔥 进程池监督
+    private static final long PING_TIMEOUT_MS = 5000;
+    private static final int MAX_BACKOFF_SECONDS = 60;
+    private int healthCheckIntervalSeconds = 30;
+    private int idleTimeoutSeconds = 600;
+    private int maxRestarts = 5;
+    private ScheduledFuture<?> healthCheckTask;
+    private volatile LongSupplier clock = System::currentTimeMillis;  // 判断空闲的当前时间，测试中可替换
+    private final ScheduledThreadPoolExecutor supervisor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "mcp-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 🔥 工具调用
+    private volatile int defaultToolTimeoutSeconds = (int) (MCPClient.DEFAULT_CALL_TOOL_TIMEOUT_MS / 1000);
+    private volatile int maxResultChars = MCPToolResultFormatter.DEFAULT_MAX_CHARS;
+    private final Map<String, Map<String, Integer>> toolTimeouts = new ConcurrentHashMap<>();
+    private volatile BiConsumer<String, MCPProgress> progressListener;
+    private final Map<String, Supplier<MCPTransport>> transportFactories = new ConcurrentHashMap<>();
+
+    /**
+     * 服务器启动参数
+     */
+    private static class ServerSpec {
+        final String command;
+        final List<String> args;
+        final int timeoutSeconds;
+
+        ServerSpec(String command, List<String> args, int timeoutSeconds) {
+            this.command = command;
+            this.args = args != null ? new ArrayList<>(args) : new ArrayList<>();
+            this.timeoutSeconds = timeoutSeconds;
+        }
+    }
 
     public MCPService(ToolRegistry toolRegistry) {
+        this(toolRegistry, new MCPSchemaCache());
+    }
+
+    public MCPService(ToolRegistry toolRegistry, MCPSchemaCache schemaCache) {
         this.toolRegistry = toolRegistry;
+        this.schemaCache = schemaCache;
+        supervisor.setRemoveOnCancelPolicy(true);  // 重新配置时取消的健康检查不留在队列中
+        scheduleHealthCheck();
+    }
+
+    /**
+     * 🔥 配置进程池
+     *
+     * @param healthCheckIntervalSeconds 健康检查间隔，0 表示不做定期检查
+     * @param idleTimeoutSeconds         空闲回收时间，0 表示不回收
+     * @param maxRestarts                连续重启失败的上限
+     */
+    public synchronized void configurePool(int healthCheckIntervalSeconds, int idleTimeoutSeconds, int maxRestarts) {
+        this.healthCheckIntervalSeconds = healthCheckIntervalSeconds;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.maxRestarts = maxRestarts;
+        scheduleHealthCheck();
+    }
+
+    /**
+     * 🔥 配置工具调用
+     *
+     * @param defaultToolTimeoutSeconds 未单独配置的工具的调用超时
+     * @param maxResultChars            写入历史的结果最大字符数，0 表示不限制
+     */
+    public void configureTools(int defaultToolTimeoutSeconds, int maxResultChars) {
+        this.defaultToolTimeoutSeconds = defaultToolTimeoutSeconds;
+        this.maxResultChars = maxResultChars;
+    }
+
+    /**
+     * 单个服务器中各工具的调用超时（秒），覆盖默认值
+     */
+    public void setToolTimeouts(String serverName, Map<String, Integer> timeouts) {
+        if (timeouts == null || timeouts.isEmpty()) {
+            toolTimeouts.remove(serverName);
+        } else {
+            toolTimeouts.put(serverName, new HashMap<>(timeouts));
+        }
+    }
+
+    /**
+     * 🔥 工具进度监听器（工具显示名, 进度），在 MCP 读取线程中回调，不能阻塞
+     */
+    public void setProgressListener(BiConsumer<String, MCPProgress> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * 🔥 服务器使用非 stdio 传输（HTTP、SSH）时注册传输工厂，每次启动或重启时创建新连接；
+     * 此时 connectToServer 的 command 只用于描述和缓存键
+     */
+    public void setTransportFactory(String serverName, Supplier<MCPTransport> factory) {
+        if (factory == null) {
+            transportFactories.remove(serverName);
+        } else {
+            transportFactories.put(serverName, factory);
+        }
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 监督线程中等待执行的任务数（定期健康检查和已安排的重启）
+     */
+    int pendingSupervisorTasks() {
+        return supervisor.getQueue().size();
+    }
+
+    long resolveToolTimeoutMs(String serverName, String toolName) {
+        Map<String, Integer> timeouts = toolTimeouts.get(serverName);
+        Integer seconds = timeouts != null ? timeouts.get(toolName) : null;
+        return TimeUnit.SECONDS.toMillis(seconds != null && seconds > 0 ? seconds : defaultToolTimeoutSeconds);
+    }
+
+    private synchronized void scheduleHealthCheck() {
+        if (healthCheckTask != null) {
+            healthCheckTask.cancel(false);
+            healthCheckTask = null;
+        }
+        if (healthCheckIntervalSeconds > 0) {
+            healthCheckTask = supervisor.scheduleWithFixedDelay(this::superviseServers,
+                    healthCheckIntervalSeconds, healthCheckIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 🔥 定期检查：回收空闲服务器，ping 其余没有调用在途的服务器
+     */
+    void superviseServers() {
+        long now = clock.getAsLong();
+        for (Map.Entry<String, MCPClient> entry : new ArrayList<>(clients.entrySet())) {
+            String serverName = entry.getKey();
+            MCPClient client = entry.getValue();
+            MCPServerStatus status = statuses.get(serverName);
+            if (status == null) {
+                continue;
+            }
+
+            try {
+                boolean busy = client.getPendingRequestCount() > 0;
+                boolean idle = idleTimeoutSeconds > 0 && !busy
+                        && now - status.getLastUsed() > TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+                if (idle) {
+                    reapIdleServer(serverName, client, status);
+                } else if (busy && client.isConnected()) {
+                    // 有调用在途时不 ping：单线程的服务器处理长调用期间无法应答 ping，不能因此当作崩溃
+                    log.debug("MCP 服务器有 {} 个请求在途，跳过健康检查: {}", client.getPendingRequestCount(), serverName);
+                } else if (client.isConnected() && client.ping(PING_TIMEOUT_MS)) {
+                    status.recordHealthy();
+                } else {
+                    onServerCrashed(serverName, client, "健康检查失败");
+                }
+            } catch (Exception e) {
+                log.warn("MCP 健康检查异常: {} - {}", serverName, e.getMessage());
+            }
+        }
+    }
+
+    private void reapIdleServer(String serverName, MCPClient client, MCPServerStatus status) {
+        synchronized (spawnLock(serverName)) {
+            if (clients.get(serverName) != client) {
+                return;
+            }
+            clients.remove(serverName);
+            connectedServers.remove(serverName);
+            status.setState(MCPServerStatus.State.IDLE);
+        }
+        client.disconnect();
+        log.info("MCP 服务器空闲超过 {}s，已回收: {}", idleTimeoutSeconds, serverName);
+    }
+
+    /**
+     * 🔥 服务器崩溃或无响应：清理连接并按退避时间安排重启
+     */
+    private void onServerCrashed(String serverName, MCPClient client, String reason) {
+        MCPServerStatus status;
+        synchronized (spawnLock(serverName)) {
+            if (clients.get(serverName) != client) {
+                return;  // 已被替换或移除
+            }
+            clients.remove(serverName);
+            connectedServers.remove(serverName);
+            status = statuses.get(serverName);
+        }
+        client.disconnect();
+        log.warn("MCP 服务器异常: {} - {}", serverName, reason);
+
+        if (status != null) {
+            status.recordFailure(reason);
+            scheduleRestart(serverName, status);
+        }
+    }
+
+    private void scheduleRestart(String serverName, MCPServerStatus status) {
+        if (!serverSpecs.containsKey(serverName)) {
+            return;  // 用户已主动断开
+        }
+        int failures = status.getConsecutiveFailures();
+        if (failures > maxRestarts) {
+            status.setState(MCPServerStatus.State.FAILED);
+            log.warn("MCP 服务器连续失败 {} 次，停止自动重启: {}", failures - 1, serverName);
+            return;
+        }
+
+        long delaySeconds = backoffSeconds(failures);
+        status.setState(MCPServerStatus.State.RESTARTING);
+        supervisor.schedule(() -> connectExecutor.execute(() -> restartServer(serverName, status)),
+                delaySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 第 failures 次连续失败后的重启等待时间：1s、2s、4s ... 最多 MAX_BACKOFF_SECONDS
+     */
+    static long backoffSeconds(int failures) {
+        return Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(30, Math.max(0, failures - 1)));
+    }
+
+    private void restartServer(String serverName, MCPServerStatus status) {
+        ServerSpec spec = serverSpecs.get(serverName);
+        if (spec == null || status.getState() != MCPServerStatus.State.RESTARTING) {
+            return;  // 已断开，或已被调用方重新启动
+        }
+
+        synchronized (spawnLock(serverName)) {
+            if (status.getState() != MCPServerStatus.State.RESTARTING) {
+                return;
+            }
+            connectToServer(serverName, spec.command, spec.args, spec.timeoutSeconds);
+            if (clients.containsKey(serverName)) {
+                log.info("MCP 服务器已重启: {} (第 {} 次)", serverName, status.getRestartCount());
+                return;
+            }
+        }
+        status.recordFailure("重启失败");
+        scheduleRestart(serverName, status);
+    }
+
+    private Object spawnLock(String serverName) {
+        return spawnLocks.computeIfAbsent(serverName, name -> new Object());
+    }
+
+    /**
+     * 🔥 所有已知服务器的进程池状态，按名称排序
+     */
+    public List<MCPServerStatus> getServerStatuses() {
+        List<MCPServerStatus> result = new ArrayList<>(statuses.values());
+        result.sort(Comparator.comparing(MCPServerStatus::getServerName));
+        return result;
     }
     // 添加 clients 映射
     private final Map<String, MCPClient> clients = new ConcurrentHashMap<>();
@@ -30,6 +318,44 @@ public class MCPService {
 
     // 🔥 新增3参数方法
     public List<BaseTool> connectToServer(String serverName, String command, List<String> args) {
+        return connectToServer(serverName, command, args, DEFAULT_CONNECTION_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * 🔥 在后台线程连接服务器，多个服务器可以同时启动
+     */
+    public CompletableFuture<List<BaseTool>> connectToServerAsync(String serverName, String command,
+                                                                  List<String> args, int timeoutSeconds) {
+        return CompletableFuture.supplyAsync(
+                () -> connectToServer(serverName, command, args, timeoutSeconds), connectExecutor);
+    }
+
+    /**
+     * 🔥 注册服务器：缓存命中时只返回缓存的工具，不启动进程；未命中时立即连接并写入缓存
+     */
+    public List<BaseTool> registerServer(String serverName, String command, List<String> args, int timeoutSeconds) {
+        List<MCPTool> cached = schemaCache.get(command, args);
+        if (cached == null) {
+            return connectToServer(serverName, command, args, timeoutSeconds);
+        }
+
+        serverSpecs.put(serverName, new ServerSpec(command, args, timeoutSeconds));
+        statuses.computeIfAbsent(serverName, name -> new MCPServerStatus(name, MCPServerStatus.State.LAZY));
+        log.debug("使用缓存的工具列表: {} ({} 个工具)，首次调用时启动服务器", serverName, cached.size());
+        return updateServerTools(serverName, cached);
+    }
+
+    public CompletableFuture<List<BaseTool>> registerServerAsync(String serverName, String command,
+                                                                 List<String> args, int timeoutSeconds) {
+        return CompletableFuture.supplyAsync(
+                () -> registerServer(serverName, command, args, timeoutSeconds), connectExecutor);
+    }
+
+    /**
+     * @param timeoutSeconds 等待服务器 initialize 响应的最长时间
+     */
+    public List<BaseTool> connectToServer(String serverName, String command, List<String> args, int timeoutSeconds) {
+        serverSpecs.put(serverName, new ServerSpec(command, args, timeoutSeconds));
         try {
             log.debug("启动MCP服务器: {} - {}", serverName, command);
             log.debug("参数: {}", args);
@@ -45,25 +371,39 @@ public class MCPService {
             }
 
             MCPClient client = new MCPClient(serverName);
-            boolean connected = client.connect(command, args);
+            client.addNotificationListener((method, params) -> {
+                if (TOOLS_LIST_CHANGED.equals(method)) {
+                    connectExecutor.execute(() -> refreshServerTools(serverName, client));
+                }
+            });
+            long timeoutMs = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+            Supplier<MCPTransport> transportFactory = transportFactories.get(serverName);
+            boolean connected = transportFactory != null
+                    ? client.connect(transportFactory.get(), timeoutMs)
+                    : client.connect(command, args, timeoutMs);
+            MCPServerStatus status = statuses.computeIfAbsent(serverName,
+                    name -> new MCPServerStatus(name, MCPServerStatus.State.LAZY));
 
             if (connected) {
                 // 🔥 保存到两个映射中
                 clients.put(serverName, client);
                 connectedServers.put(serverName, client);
+                status.markStarted();
+                // 进程意外退出时立即安排重启，不必等下一次健康检查（回调在读取线程中，转到其他线程处理）
+                client.setDisconnectListener(() -> connectExecutor.execute(
+                        () -> onServerCrashed(serverName, client, "进程退出")));
 
                 List<MCPTool> mcpToolList = client.getAvailableTools();
-                List<BaseTool> baseTools = convertToBaseTools(mcpToolList, serverName);
-
-                // 🔥 保存工具到 mcpTools 映射
-                for (int i = 0; i < mcpToolList.size(); i++) {
-                    String toolKey = mcpToolList.get(i).getName(); // 使用工具名称作为key
-                    mcpTools.put(toolKey, baseTools.get(i));
-                }
+                schemaCache.put(serverName, command, args, client.getServerVersion(), mcpToolList);
+                List<BaseTool> baseTools = updateServerTools(serverName, mcpToolList);
 
                 log.debug("✅ 成功连接MCP服务器: {} ({} 个工具)", serverName, baseTools.size());
                 return baseTools;
             } else {
+                if (status.getState() != MCPServerStatus.State.RESTARTING) {
+                    status.setState(MCPServerStatus.State.FAILED);
+                }
+                status.setLastError("连接失败");
                 log.debug("⚠️ 连接MCP服务器失败: {}", serverName);
                 return Collections.emptyList();
             }
@@ -73,6 +413,85 @@ public class MCPService {
         }
     }
 
+    /**
+     * 用新的工具列表替换该服务器的工具（mcpTools 映射和 ToolRegistry），返回新的工具
+     * 🔥 ToolRegistry 中一次性替换整个 MCP-<server> 分类，调度线程不会看到新旧混合的工具集
+     */
+    private List<BaseTool> updateServerTools(String serverName, List<MCPTool> mcpToolList) {
+        List<BaseTool> baseTools = convertToBaseTools(mcpToolList, serverName);
+
+        Set<String> previous = serverToolNames.getOrDefault(serverName, Collections.emptySet());
+        Set<String> current = new HashSet<>();
+        // 🔥 保存工具到 mcpTools 映射
+        for (BaseTool tool : baseTools) {
+            mcpTools.put(tool.getName(), tool); // 使用工具名称作为key
+            current.add(tool.getName());
+        }
+        for (String removed : previous) {
+            if (!current.contains(removed)) {
+                mcpTools.remove(removed);
+            }
+        }
+        serverToolNames.put(serverName, current);
+        toolRegistry.replaceCategory(toolCategory(serverName), baseTools);
+        return baseTools;
+    }
+
+    private static String toolCategory(String serverName) {
+        return "MCP-" + serverName;
+    }
+
+    /**
+     * 🔥 服务器通知工具列表变化：使缓存失效，重新获取并注册
+     */
+    private void refreshServerTools(String serverName, MCPClient client) {
+        try {
+            ServerSpec spec = serverSpecs.get(serverName);
+            if (spec != null) {
+                schemaCache.invalidate(spec.command, spec.args);
+            }
+            List<MCPTool> tools = client.refreshTools();
+            if (spec != null) {
+                schemaCache.put(serverName, spec.command, spec.args, client.getServerVersion(), tools);
+            }
+            updateServerTools(serverName, tools);
+            log.info("MCP 服务器 {} 的工具列表已更新 ({} 个工具)", serverName, tools.size());
+        } catch (Exception e) {
+            log.warn("刷新 MCP 工具列表失败: {} - {}", serverName, e.getMessage());
+        }
+    }
+
+    /**
+     * 🔥 返回可用的客户端；延迟启动的服务器在这里第一次启动
+     */
+    private MCPClient ensureConnected(String serverName) {
+        MCPClient client = clients.get(serverName);
+        if (client != null && client.isConnected()) {
+            return client;
+        }
+
+        synchronized (spawnLock(serverName)) {
+            client = clients.get(serverName);
+            if (client != null && client.isConnected()) {
+                return client;
+            }
+
+            ServerSpec spec = serverSpecs.get(serverName);
+            if (spec == null) {
+                throw new IllegalStateException("MCP服务器未连接: " + serverName);
+            }
+
+            log.info("首次调用，启动 MCP 服务器: {}", serverName);
+            // 缓存可能已过期，connectToServer 以服务器返回的工具列表为准重新注册
+            connectToServer(serverName, spec.command, spec.args, spec.timeoutSeconds);
+            client = clients.get(serverName);
+            if (client == null || !client.isConnected()) {
+                throw new IllegalStateException("MCP服务器启动失败: " + serverName);
+            }
+            return client;
+        }
+    }
+
     private List<BaseTool> convertToBaseTools(List<MCPTool> mcpTools, String serverName) {
         List<BaseTool> baseTools = new ArrayList<>();
         for (MCPTool mcpTool : mcpTools) {
@@ -83,7 +502,8 @@ public class MCPService {
                         // 🔥 修复：正确解析JSON参数
                         Map<String, Object> parameters = parseInputToParameters(input);
                         Object result = callTool(serverName, mcpTool.getName(), parameters);
-                        return success(result != null ? result.toString() : "执行成功");
+                        String output = MCPToolResultFormatter.format(result, maxResultChars);
+                        return success(output != null && !output.isEmpty() ? output : "执行成功");
                     } catch (Exception e) {
                         return error("工具执行失败: " + e.getMessage());
                     }
@@ -91,12 +511,14 @@ public class MCPService {
 
                 @Override
                 public String getCategory() {
-                    return "MCP-" + serverName;
+                    return toolCategory(serverName);
                 }
 
                 @Override
                 public boolean isEnabled() {
-                    return true;
+                    // 🔥 重启次数用尽（FAILED）的服务器不再提供工具；LAZY/IDLE 的服务器在调用时启动
+                    MCPServerStatus status = statuses.get(serverName);
+                    return status == null || status.getState() != MCPServerStatus.State.FAILED;
                 }
 
                 // 🔥 关键修复：暴露inputSchema给系统提示词（重写BaseTool方法）
@@ -123,8 +545,7 @@ public class MCPService {
         // 🔥 优先尝试解析JSON
         if (input.trim().startsWith("{")) {
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                Map<String, Object> parsed = mapper.readValue(input, Map.class);
+                Map<String, Object> parsed = JsonUtils.parseObject(input);
                 log.debug("✅ 成功解析JSON参数: {}", parsed);
                 return parsed;
             } catch (Exception e) {
@@ -139,11 +560,20 @@ public class MCPService {
 
     public Object callTool(String serverName, String toolName, Map<String, Object> arguments) {
         try {
-            MCPClient client = clients.get(serverName);
-            if (client == null) {
-                throw new IllegalStateException("MCP服务器未连接: " + serverName);
+            MCPClient client = ensureConnected(serverName);
+            MCPServerStatus status = statuses.get(serverName);
+            if (status != null) {
+                status.touch();
+            }
+            BiConsumer<String, MCPProgress> listener = progressListener;
+            try {
+                return client.callTool(toolName, arguments, resolveToolTimeoutMs(serverName, toolName),
+                        listener != null ? progress -> listener.accept(serverName + "/" + toolName, progress) : null);
+            } finally {
+                if (status != null) {
+                    status.touch();
+                }
             }
-            return client.callTool(toolName, arguments);
         } catch (Exception e) {
             log.error("调用工具失败: {}.{}", serverName, toolName, e);
             throw new RuntimeException("工具调用失败: " + e.getMessage(), e);
@@ -163,19 +593,20 @@ public class MCPService {
     }
 
     public void disconnectServer(String serverName) {
+        serverSpecs.remove(serverName);
+        statuses.remove(serverName);
+        clients.remove(serverName);
         MCPClient client = connectedServers.remove(serverName);
-        if (client != null) {
-            // 移除相关工具
-            mcpTools.entrySet().removeIf(entry -> {
-                boolean shouldRemove = entry.getKey().startsWith("mcp:" + serverName + "/");
-                if (shouldRemove) {
-                    // 根据你的 ToolRegistry 实现，可能需要不同的取消注册方法
-                    // 如果没有 unregister 方法，可能需要其他方式处理
-                    log.debug("移除MCP工具: {}", entry.getKey());
-                }
-                return shouldRemove;
-            });
 
+        // 移除相关工具
+        Set<String> toolNames = serverToolNames.remove(serverName);
+        if (toolNames != null) {
+            toolNames.forEach(mcpTools::remove);
+            log.debug("移除MCP工具: {}", toolNames);
+        }
+        toolRegistry.unregisterCategory(toolCategory(serverName));
+
+        if (client != null) {
             client.disconnect();
             log.debug("已断开MCP服务器: {}", serverName);
         }
@@ -187,11 +618,12 @@ public class MCPService {
 
     public List<BaseTool> getServerTools(String serverName) {
         List<BaseTool> tools = new ArrayList<>();
-        mcpTools.forEach((name, tool) -> {
-            if (name.startsWith("mcp:" + serverName + "/")) {
+        for (String name : serverToolNames.getOrDefault(serverName, Collections.emptySet())) {
+            BaseTool tool = mcpTools.get(name);
+            if (tool != null) {
                 tools.add(tool);
             }
-        });
+        }
         return tools;
     }
 
@@ -205,6 +637,8 @@ public class MCPService {
 
     public void shutdown() {
         log.info("关闭所有MCP连接...");
+        supervisor.shutdownNow();
+        connectExecutor.shutdownNow();
         new ArrayList<>(connectedServers.keySet()).forEach(this::disconnectServer);
     }
 }
\ No newline at end of file
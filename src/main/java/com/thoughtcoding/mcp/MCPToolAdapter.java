@@ -3,7 +3,7 @@ package com.thoughtcoding.mcp;
 import com.thoughtcoding.mcp.model.MCPTool;
 import com.thoughtcoding.model.ToolResult;
 import com.thoughtcoding.tools.BaseTool;
-import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
@@ -39,9 +39,10 @@ public class MCPToolAdapter extends BaseTool {
 
             long executionTime = System.currentTimeMillis() - startTime;
 
-            if (result != null) {
+            String output = MCPToolResultFormatter.format(result, MCPToolResultFormatter.DEFAULT_MAX_CHARS);
+            if (output != null && !output.isEmpty()) {
                 log.debug("MCP工具执行成功: {} 耗时: {}ms", getName(), executionTime);
-                return success(result.toString(), executionTime);
+                return success(output, executionTime);
             } else {
                 log.debug("MCP工具执行完成(无返回): {} 耗时: {}ms", getName(), executionTime);
                 return success("执行成功", executionTime);
@@ -68,9 +69,7 @@ public class MCPToolAdapter extends BaseTool {
         // 尝试解析JSON
         if (input.trim().startsWith("{")) {
             try {
-                com.fasterxml.jackson.databind.ObjectMapper mapper =
-                    new com.fasterxml.jackson.databind.ObjectMapper();
-                return mapper.readValue(input, Map.class);
+                return JsonUtils.parseObject(input);
             } catch (Exception e) {
                 log.debug("输入不是有效JSON，使用默认解析: {}", e.getMessage());
             }
@@ -6,6 +6,7 @@ import com.thoughtcoding.tools.BaseTool;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 
@@ -139,8 +140,11 @@ public class MCPToolManager {
         );
     }
 
+    /**
+     * 🔥 连接预定义工具：所有服务器同时启动，全部完成后返回
+     */
     public List<BaseTool> connectPredefinedTools(List<String> toolNames) {
-        List<BaseTool> connectedTools = new ArrayList<>();
+        Map<String, CompletableFuture<List<BaseTool>>> connections = new LinkedHashMap<>();
 
         for (String toolName : toolNames) {
             String trimmedName = toolName.trim();
@@ -153,24 +157,34 @@ public class MCPToolManager {
 
                 log.info("正在连接预定义工具: {} (命令: {}, 参数: {})", trimmedName, command, args);
 
-                List<BaseTool> tools = mcpService.connectToServer(serverName, command, args);
-                if (!tools.isEmpty()) {
-                    connectedTools.addAll(tools);
-                    dynamicServers.put(serverName, command);
-                    log.info("✅ 成功连接预定义工具: {} ({} 个工具)", trimmedName, tools.size());
-                } else {
-                    log.warn("⚠️ 连接预定义工具失败: {}", trimmedName);
-                }
+                connections.put(trimmedName, mcpService.connectToServerAsync(serverName, command, args,
+                        mcpConfig.getConnectionTimeout()).thenApply(tools -> {
+                    if (!tools.isEmpty()) {
+                        dynamicServers.put(serverName, command);
+                    }
+                    return tools;
+                }));
             } else {
                 log.warn("⚠️ 未知的预定义工具: {}", trimmedName);
             }
         }
 
+        List<BaseTool> connectedTools = new ArrayList<>();
+        connections.forEach((name, connection) -> {
+            List<BaseTool> tools = connection.join();
+            if (!tools.isEmpty()) {
+                connectedTools.addAll(tools);
+                log.info("✅ 成功连接预定义工具: {} ({} 个工具)", name, tools.size());
+            } else {
+                log.warn("⚠️ 连接预定义工具失败: {}", name);
+            }
+        });
+
         return connectedTools;
     }
 
     public List<BaseTool> connectCustomServer(String serverName, String command, List<String> args) { // 改为 BaseTool
-        List<BaseTool> tools = mcpService.connectToServer(serverName, command, args);
+        List<BaseTool> tools = mcpService.connectToServer(serverName, command, args, mcpConfig.getConnectionTimeout());
         if (!tools.isEmpty()) {
             dynamicServers.put(serverName, command);
         }
@@ -0,0 +1,93 @@
+package com.thoughtcoding.mcp;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 tools/call 返回的 content 列表转为写入历史的文本
+ *
+ * 🔥 文本项按顺序拼接，图片/音频只保留类型和大小，资源优先取内联文本；
+ * 超过 maxChars 的部分不再拼接，只在末尾注明原始长度，避免大结果整体进入对话历史
+ */
+public final class MCPToolResultFormatter {
+    public static final int DEFAULT_MAX_CHARS = 20000;
+
+    private MCPToolResultFormatter() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * @param content  tools/call 结果中的 content
+     * @param maxChars 保留的最大字符数，0 或负数表示不限制
+     * @return 文本；content 为空时返回 null
+     */
+    public static String format(Object content, int maxChars) {
+        if (content == null) {
+            return null;
+        }
+        int limit = maxChars > 0 ? maxChars : Integer.MAX_VALUE;
+        StringBuilder text = new StringBuilder();
+        long totalChars = 0;
+
+        Collection<?> items = content instanceof Collection ? (Collection<?>) content : List.of(content);
+        for (Object item : items) {
+            String part = formatItem(item);
+            if (part == null || part.isEmpty()) {
+                continue;
+            }
+            if (totalChars > 0) {
+                totalChars++;
+                if (text.length() < limit) {
+                    text.append('\n');
+                }
+            }
+            totalChars += part.length();
+            if (text.length() < limit) {
+                text.append(part, 0, Math.min(part.length(), limit - text.length()));
+            }
+        }
+
+        if (totalChars > limit) {
+            text.append("\n...[输出已截断，保留前 ").append(limit).append(" 个字符，共 ")
+                    .append(totalChars).append(" 个字符]");
+        }
+        return text.toString();
+    }
+
+    private static String formatItem(Object item) {
+        if (!(item instanceof Map)) {
+            return item != null ? item.toString() : null;
+        }
+        Map<?, ?> map = (Map<?, ?>) item;
+        String type = String.valueOf(map.get("type"));
+        switch (type) {
+            case "text":
+                return stringValue(map.get("text"));
+            case "image":
+            case "audio":
+                String data = stringValue(map.get("data"));
+                long bytes = data != null ? data.length() * 3L / 4 : 0;
+                return "[" + type + ": " + map.get("mimeType") + ", " + bytes + " bytes]";
+            case "resource":
+                Object resource = map.get("resource");
+                if (resource instanceof Map) {
+                    Object text = ((Map<?, ?>) resource).get("text");
+                    return text != null ? text.toString() : "[resource: " + ((Map<?, ?>) resource).get("uri") + "]";
+                }
+                return "[resource]";
+            case "resource_link":
+                return "[resource: " + map.get("uri") + "]";
+            default:
+                try {
+                    return MCPMessageCodec.encode((Object) map);
+                } catch (Exception e) {
+                    return map.toString();
+                }
+        }
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
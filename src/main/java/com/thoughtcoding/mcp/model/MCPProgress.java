@@ -0,0 +1,43 @@
+package com.thoughtcoding.mcp.model;
+
+/**
+ * MCP进度通知（notifications/progress），包含进度值、总量和说明
+ */
+public class MCPProgress {
+    private final String progressToken;
+    private final double progress;
+    private final Double total;
+    private final String message;
+
+    public MCPProgress(String progressToken, double progress, Double total, String message) {
+        this.progressToken = progressToken;
+        this.progress = progress;
+        this.total = total;
+        this.message = message;
+    }
+
+    public String getProgressToken() { return progressToken; }
+    public double getProgress() { return progress; }
+    public Double getTotal() { return total; }
+    public String getMessage() { return message; }
+
+    /**
+     * 例如 "3/10 正在索引文件"；没有总量时只显示当前进度
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(formatNumber(progress));
+        if (total != null) {
+            text.append('/').append(formatNumber(total));
+        }
+        if (message != null && !message.isEmpty()) {
+            text.append(' ').append(message);
+        }
+        return text.toString();
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -2,8 +2,6 @@ package com.thoughtcoding.mcp.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
-import java.util.Map;
-import java.util.UUID;
 
 /**
  * MCP请求模型，包含JSON-RPC版本、ID、方法和参数
@@ -24,8 +22,10 @@ public class MCPRequest {
 
     public MCPRequest() {}
 
+    /**
+     * ID 由 MCPClient 发送时按连接递增分配
+     */
     public MCPRequest(String method, Object params) {
-        this.id = UUID.randomUUID().toString();
         this.method = method;
         this.params = params;
     }
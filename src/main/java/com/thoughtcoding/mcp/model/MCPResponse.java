@@ -25,4 +25,9 @@ public class MCPResponse {
     public String getId() { return id; }
     public Object getResult() { return result; }
     public MCPError getError() { return error; }
+
+    public void setJsonrpc(String jsonrpc) { this.jsonrpc = jsonrpc; }
+    public void setId(String id) { this.id = id; }
+    public void setResult(Object result) { this.result = result; }
+    public void setError(MCPError error) { this.error = error; }
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package com.thoughtcoding.mcp.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.thoughtcoding.mcp.MCPMessageCodec;
+import com.thoughtcoding.util.JsonUtils;
+import okhttp3.*;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Streamable HTTP 传输：连接一个长期运行的远程 MCP 服务器，多个 CLI 实例可以共用，无需各自启动进程
+ *
+ * 🔥 协议要点：
+ * 1. 每条客户端消息一个 POST；响应是单个 JSON 或 SSE 流（流中可先有进度通知，最后是响应）
+ * 2. 服务器在 initialize 响应头 Mcp-Session-Id 中分配会话，之后的请求都带上该头，关闭时 DELETE 结束会话
+ * 3. 初始化后尝试打开 GET SSE 流接收服务器主动发送的通知（如 tools/list_changed），服务器不支持时忽略
+ * 4. HTTP 层失败转为对应请求 ID 的 JSON-RPC 错误响应，调用方立即得到失败而不是等到超时
+ *
+ * 所有 HTTP 服务器共享一个 OkHttpClient：共用连接池和调度线程，keep-alive 连接在请求之间复用
+ */
+public class HttpMCPTransport implements MCPTransport {
+    private static final Logger log = LoggerFactory.getLogger(HttpMCPTransport.class);
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String SESSION_HEADER = "Mcp-Session-Id";
+    private static final String EVENT_STREAM = "text/event-stream";
+    private static final int TRANSPORT_ERROR = -32000;
+
+    private static final AtomicInteger dispatcherThreadCount = new AtomicInteger();
+    private static final OkHttpClient SHARED_CLIENT = createSharedClient();
+
+    private final String name;
+    private final HttpUrl url;
+    private final Map<String, String> headers;
+    private final OkHttpClient client;
+    private final Set<Call> activeCalls = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closeNotified = new AtomicBoolean();
+    private final AtomicBoolean notificationStreamStarted = new AtomicBoolean();
+    private volatile String sessionId;
+    private volatile boolean closed = true;
+    private Consumer<String> onMessage;
+    private Consumer<IOException> onClose;
+
+    public HttpMCPTransport(String name, String url, Map<String, String> headers) {
+        this(name, url, headers, SHARED_CLIENT);
+    }
+
+    HttpMCPTransport(String name, String url, Map<String, String> headers, OkHttpClient client) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        if (parsed == null) {
+            throw new IllegalArgumentException("无效的 MCP 服务器地址: " + url);
+        }
+        this.name = name;
+        this.url = parsed;
+        this.headers = headers != null ? new HashMap<>(headers) : new HashMap<>();
+        this.client = client;
+    }
+
+    private static OkHttpClient createSharedClient() {
+        Dispatcher dispatcher = new Dispatcher(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-http-" + dispatcherThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        // 同一服务器上可能同时有多个工具调用在途，每个 SSE 响应占用一个连接
+        dispatcher.setMaxRequestsPerHost(32);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(8, 5, TimeUnit.MINUTES))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                // SSE 流可能长时间没有数据，等待时间由 MCPClient 的请求超时控制
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public void open(Consumer<String> onMessage, Consumer<IOException> onClose) {
+        this.onMessage = onMessage;
+        this.onClose = onClose;
+        this.closed = false;
+        this.closeNotified.set(false);
+    }
+
+    @Override
+    public void send(String message) throws IOException {
+        if (closed) {
+            throw new IOException("MCP连接已关闭: " + name);
+        }
+        Request request = newRequest()
+                .header("Accept", "application/json, " + EVENT_STREAM)
+                .post(RequestBody.create(message, JSON))
+                .build();
+
+        Call call = client.newCall(request);
+        activeCalls.add(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                activeCalls.remove(call);
+                if (!closed) {
+                    failRequest(message, "HTTP 请求失败: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    handleResponse(message, response);
+                } catch (IOException e) {
+                    if (!closed) {
+                        failRequest(message, "读取 HTTP 响应失败: " + e.getMessage());
+                    }
+                } finally {
+                    activeCalls.remove(call);
+                }
+            }
+        });
+    }
+
+    private Request.Builder newRequest() {
+        Request.Builder builder = new Request.Builder().url(url);
+        headers.forEach(builder::header);
+        String session = sessionId;
+        if (session != null) {
+            builder.header(SESSION_HEADER, session);
+        }
+        return builder;
+    }
+
+    private void handleResponse(String message, Response response) throws IOException {
+        String session = response.header(SESSION_HEADER);
+        if (session != null) {
+            sessionId = session;
+        }
+
+        if (response.code() == 202 || response.code() == 204) {
+            return;  // 通知和应答被接受，没有响应体
+        }
+        if (!response.isSuccessful()) {
+            failRequest(message, "HTTP " + response.code() + " " + response.message());
+            if (response.code() == 404 && sessionId != null) {
+                // 🔥 会话已过期，服务器要求重新初始化：关闭连接，由监督线程重连并重新 initialize
+                sessionId = null;  // 会话已不存在，不再发送 DELETE
+                close(new IOException("MCP 会话已过期 (HTTP 404)"));
+            }
+            return;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            return;
+        }
+        MediaType contentType = body.contentType();
+        if (contentType != null && EVENT_STREAM.equals(contentType.type() + "/" + contentType.subtype())) {
+            readEventStream(body.source());
+        } else {
+            deliverJson(body.string());
+        }
+        startNotificationStream();
+    }
+
+    /**
+     * 逐个事件读取 SSE 流：data 行拼接为一条消息，空行结束一个事件
+     */
+    private void readEventStream(BufferedSource source) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while (!closed && (line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    deliverJson(data.toString());
+                    data.setLength(0);
+                }
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+            }
+            // event、id、retry 字段和 ":" 开头的注释（心跳）不需要处理
+        }
+        if (data.length() > 0) {
+            deliverJson(data.toString());
+        }
+    }
+
+    private void deliverJson(String text) throws IOException {
+        String json = text.trim();
+        if (json.isEmpty() || onMessage == null) {
+            return;
+        }
+        if (json.startsWith("[")) {
+            // JSON-RPC 批量消息
+            for (JsonNode item : JsonUtils.getWireMapper().readTree(json)) {
+                onMessage.accept(item.toString());
+            }
+        } else {
+            onMessage.accept(json);
+        }
+    }
+
+    /**
+     * 🔥 初始化完成后打开 GET SSE 流，接收不属于任何请求的服务器通知；只尝试一次
+     */
+    private void startNotificationStream() {
+        if (sessionId == null || closed || !notificationStreamStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Request request = newRequest().header("Accept", EVENT_STREAM).get().build();
+        Call call = client.newCall(request);
+        activeCalls.add(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                activeCalls.remove(call);
+                log.debug("MCP 通知流结束 [{}]: {}", name, e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        readEventStream(response.body().source());
+                    } else {
+                        log.debug("MCP 服务器不提供通知流 [{}]: HTTP {}", name, response.code());
+                    }
+                } catch (IOException e) {
+                    log.debug("MCP 通知流结束 [{}]: {}", name, e.getMessage());
+                } finally {
+                    activeCalls.remove(call);
+                }
+            }
+        });
+    }
+
+    /**
+     * 把 HTTP 层的失败转为该请求的 JSON-RPC 错误响应；通知没有 ID，失败只记录日志
+     */
+    private void failRequest(String message, String error) {
+        log.debug("MCP HTTP 请求失败 [{}]: {}", name, error);
+        try {
+            MCPMessageCodec.Message sent = MCPMessageCodec.decode(message);
+            if (sent == null || !sent.hasId() || sent.getMethod() == null || onMessage == null) {
+                return;
+            }
+            ObjectNode reply = JsonNodeFactory.instance.objectNode();
+            reply.put("jsonrpc", "2.0");
+            reply.set("id", sent.getId());
+            ObjectNode errorNode = reply.putObject("error");
+            errorNode.put("code", TRANSPORT_ERROR);
+            errorNode.put("message", error);
+            onMessage.accept(MCPMessageCodec.encode(reply));
+        } catch (IOException e) {
+            log.debug("无法构造错误响应 [{}]: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() {
+        close(new IOException("MCP连接已关闭"));
+    }
+
+    private void close(IOException reason) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Call call : activeCalls) {
+            call.cancel();
+        }
+        activeCalls.clear();
+
+        String session = sessionId;
+        if (session != null) {
+            // 通知服务器结束会话，不等待结果
+            client.newCall(newRequest().delete().build()).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    // 忽略
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+            sessionId = null;
+        }
+
+        if (closeNotified.compareAndSet(false, true) && onClose != null) {
+            onClose.accept(reason);
+        }
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public String describe() {
+        return url.toString();
+    }
+}
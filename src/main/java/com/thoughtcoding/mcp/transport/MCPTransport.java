@@ -0,0 +1,37 @@
+package com.thoughtcoding.mcp.transport;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * MCP 传输层，负责把 JSON-RPC 消息送到服务器并把服务器发来的消息交给 MCPClient
+ *
+ * 🔥 实现：
+ * - StdioMCPTransport：启动本地子进程，通过标准输入输出逐行通信
+ * - SshMCPTransport：在远程主机上执行命令，通过 SSH exec 通道逐行通信
+ * - HttpMCPTransport：Streamable HTTP，每条消息一个 POST，响应为 JSON 或 SSE 流，共享连接池
+ */
+public interface MCPTransport {
+
+    /**
+     * 建立连接
+     *
+     * @param onMessage 每收到一条消息（一个完整的 JSON 文本）回调一次，在传输层自己的线程中调用
+     * @param onClose   连接结束（包括主动关闭）时回调一次，之后不再有消息
+     */
+    void open(Consumer<String> onMessage, Consumer<IOException> onClose) throws IOException;
+
+    /**
+     * 发送一条消息，多个线程可以同时调用
+     */
+    void send(String message) throws IOException;
+
+    boolean isOpen();
+
+    void close();
+
+    /**
+     * 用于日志和缓存键的连接描述，例如命令行或 URL
+     */
+    String describe();
+}
@@ -0,0 +1,58 @@
+package com.thoughtcoding.mcp.transport;
+
+import com.thoughtcoding.config.MCPServerConfig;
+
+import java.util.Locale;
+
+/**
+ * 根据服务器配置创建传输
+ */
+public final class MCPTransportFactory {
+
+    private MCPTransportFactory() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * @param connectTimeoutMs 建立连接（SSH 握手等）的超时时间
+     */
+    public static MCPTransport create(MCPServerConfig config, int connectTimeoutMs) {
+        switch (transportType(config)) {
+            case "http":
+                if (config.getUrl() == null || config.getUrl().isBlank()) {
+                    throw new IllegalArgumentException("HTTP 传输需要配置 url: " + config.getName());
+                }
+                return new HttpMCPTransport(config.getName(), config.getUrl(), config.getHeaders());
+            case "ssh":
+                if (config.getHost() == null || config.getHost().isBlank()) {
+                    throw new IllegalArgumentException("SSH 传输需要配置 host: " + config.getName());
+                }
+                return new SshMCPTransport(config.getName(), config.getHost(), config.getPort(), config.getUser(),
+                        config.getIdentityFile(), config.isStrictHostKeyChecking(), config.getCommand(),
+                        config.getArgs(), connectTimeoutMs);
+            case "stdio":
+                return new StdioMCPTransport(config.getName(), config.getCommand(), config.getArgs());
+            default:
+                throw new IllegalArgumentException("不支持的 MCP 传输方式: " + config.getTransport());
+        }
+    }
+
+    /**
+     * 连接目标的描述（stdio 为命令，http 为 URL，ssh 为主机和远程命令），用作工具缓存的键
+     */
+    public static String describe(MCPServerConfig config) {
+        switch (transportType(config)) {
+            case "http":
+                return config.getUrl();
+            case "ssh":
+                return "ssh://" + config.getUser() + "@" + config.getHost() + ":" + config.getPort()
+                        + " " + config.getCommand();
+            default:
+                return config.getCommand();
+        }
+    }
+
+    private static String transportType(MCPServerConfig config) {
+        return config.isStdio() ? "stdio" : config.getTransport().trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,113 @@
+package com.thoughtcoding.mcp.transport;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * SSH 传输：在远程主机上执行 MCP 服务器命令，通过 exec 通道的标准输入输出逐行通信
+ *
+ * 🔥 服务器进程跑在构建机上，本地不需要安装 node 等运行环境；
+ * 会话开启 keep-alive，网络中断时读取线程结束，由 MCPService 的监督逻辑重连
+ */
+public class SshMCPTransport extends StreamMCPTransport {
+    private static final int KEEP_ALIVE_INTERVAL_MS = 30000;
+
+    private final String host;
+    private final int port;
+    private final String user;
+    private final String identityFile;
+    private final boolean strictHostKeyChecking;
+    private final String remoteCommand;
+    private final int connectTimeoutMs;
+    private Session session;
+    private ChannelExec channel;
+
+    public SshMCPTransport(String name, String host, int port, String user, String identityFile,
+                           boolean strictHostKeyChecking, String command, List<String> args, int connectTimeoutMs) {
+        super(name);
+        this.host = host;
+        this.port = port > 0 ? port : 22;
+        this.user = user != null ? user : System.getProperty("user.name");
+        this.identityFile = identityFile;
+        this.strictHostKeyChecking = strictHostKeyChecking;
+        this.remoteCommand = buildRemoteCommand(command, args);
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    /**
+     * 命令原样保留（可以包含远程 shell 语法），参数逐个加单引号转义
+     */
+    static String buildRemoteCommand(String command, List<String> args) {
+        StringBuilder remote = new StringBuilder(command != null ? command.trim() : "");
+        if (args != null) {
+            for (String arg : args) {
+                remote.append(" '").append(arg.replace("'", "'\\''")).append('\'');
+            }
+        }
+        return remote.toString();
+    }
+
+    @Override
+    public void open(Consumer<String> onMessage, Consumer<IOException> onClose) throws IOException {
+        try {
+            JSch jsch = new JSch();
+            Path knownHosts = Paths.get(System.getProperty("user.home"), ".ssh", "known_hosts");
+            if (Files.isRegularFile(knownHosts)) {
+                jsch.setKnownHosts(knownHosts.toString());
+            }
+            if (identityFile != null && !identityFile.isBlank()) {
+                jsch.addIdentity(expandHome(identityFile));
+            }
+
+            session = jsch.getSession(user, host, port);
+            session.setConfig("StrictHostKeyChecking", strictHostKeyChecking ? "yes" : "no");
+            session.setServerAliveInterval(KEEP_ALIVE_INTERVAL_MS);
+            session.connect(connectTimeoutMs);
+
+            channel = (ChannelExec) session.openChannel("exec");
+            channel.setCommand(remoteCommand);
+            // 与本地进程一致，不输出服务器的标准错误
+            channel.setErrStream(OutputStream.nullOutputStream());
+            attach(channel.getInputStream(), channel.getOutputStream());
+            channel.connect(connectTimeoutMs);
+        } catch (JSchException e) {
+            closeResources();
+            throw new IOException("SSH 连接失败 " + describe() + ": " + e.getMessage(), e);
+        }
+        super.open(onMessage, onClose);
+    }
+
+    private static String expandHome(String path) {
+        return path.startsWith("~") ? System.getProperty("user.home") + path.substring(1) : path;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return super.isOpen() && channel != null && !channel.isClosed();
+    }
+
+    @Override
+    protected void closeResources() {
+        if (channel != null) {
+            channel.disconnect();
+        }
+        if (session != null) {
+            session.disconnect();
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "ssh://" + user + "@" + host + ":" + port + " " + remoteCommand;
+    }
+}
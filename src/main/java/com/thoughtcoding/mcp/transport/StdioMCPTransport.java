@@ -0,0 +1,131 @@
+package com.thoughtcoding.mcp.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 本地子进程传输：启动 MCP 服务器进程，通过标准输入输出逐行通信
+ */
+public class StdioMCPTransport extends StreamMCPTransport {
+    private static final Logger log = LoggerFactory.getLogger(StdioMCPTransport.class);
+
+    private final List<String> commandLine;
+    private Process process;
+
+    public StdioMCPTransport(String name, String fullCommand, List<String> args) {
+        super(name);
+        this.commandLine = buildCommandLine(fullCommand, args);
+    }
+
+    /**
+     * 分割完整命令为命令和参数，并去除引号
+     */
+    static List<String> buildCommandLine(String fullCommand, List<String> args) {
+        String[] parts = fullCommand.split("\\s+");
+        List<String> commandList = new ArrayList<>();
+        for (String part : parts) {
+            commandList.add(part.replace("\"", ""));  // 去除引号
+        }
+
+        // 添加额外的参数
+        if (args != null) {
+            for (String arg : args) {
+                commandList.add(arg.replace("\"", ""));  // 去除引号
+            }
+        }
+        return commandList;
+    }
+
+    @Override
+    public void open(Consumer<String> onMessage, Consumer<IOException> onClose) throws IOException {
+        log.debug("完整命令: {}", String.join(" ", commandLine));
+        log.debug("工作目录: {}", System.getProperty("user.dir"));
+
+        ProcessBuilder pb = new ProcessBuilder(commandLine);
+        pb.directory(new File(System.getProperty("user.dir")));
+        // 🔥 关键修复：不合并错误流，分开处理
+        pb.redirectErrorStream(false);
+
+        process = pb.start();
+
+        // 🔥 启动错误流监控（只监控错误，不影响主输出）
+        startErrorMonitoring();
+
+        attach(process.getInputStream(), process.getOutputStream());
+        super.open(onMessage, cause -> {
+            logExit();
+            onClose.accept(cause);
+        });
+    }
+
+    private void logExit() {
+        if (isClosed() || process == null) {
+            return;
+        }
+        try {
+            if (process.waitFor(200, TimeUnit.MILLISECONDS)) {
+                log.error("❌ MCP服务器进程退出: {}，退出码: {}", name, process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 🔥 只监控错误流，避免和主输入流冲突
+     */
+    private void startErrorMonitoring() {
+        Process monitored = process;
+        Thread errorThread = new Thread(() -> {
+            try (BufferedReader errorReader = new BufferedReader(
+                    new InputStreamReader(monitored.getErrorStream()))) {
+                String line;
+                while ((line = errorReader.readLine()) != null) {
+                    // 过滤 npm 无关的错误
+                    if (line.contains("npm ERR!") || line.contains("npm WARN") ||
+                            line.contains("node_cache") || line.contains("_cacache") ||
+                            line.contains("EPERM") || line.contains("operation not permitted")) {
+                        continue;
+                    }
+
+                    // 🔥 移除 MCP stderr 日志，保持输出简洁
+                    // 不再输出 MCP 服务器的标准错误流信息
+                }
+            } catch (Exception e) {
+                // 正常结束
+            }
+        });
+        errorThread.setDaemon(true);
+        errorThread.setName("MCP-Error-" + name);
+        errorThread.start();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return super.isOpen() && process != null && process.isAlive();
+    }
+
+    @Override
+    protected void closeResources() {
+        if (process != null) {
+            process.destroy();
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    @Override
+    public String describe() {
+        return String.join(" ", commandLine);
+    }
+}
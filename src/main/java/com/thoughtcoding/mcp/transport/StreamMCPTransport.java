@@ -0,0 +1,132 @@
+package com.thoughtcoding.mcp.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 基于一对输入输出流的逐行传输，stdio 和 SSH 共用
+ *
+ * 🔥 每个连接一个读取线程阻塞读取每一行；读取线程读到 EOF 后自己关闭 reader
+ * （readLine 阻塞时从其他线程关闭 reader 会死锁），主动关闭时先关写端再由子类结束进程/通道
+ */
+public class StreamMCPTransport implements MCPTransport {
+    private static final Logger log = LoggerFactory.getLogger(StreamMCPTransport.class);
+    private static final long READER_JOIN_TIMEOUT_MS = 1000;
+
+    protected final String name;
+    private BufferedReader reader;
+    private BufferedWriter writer;
+    private Thread readerThread;
+    private volatile boolean closed = false;
+
+    public StreamMCPTransport(String name, InputStream in, OutputStream out) {
+        this(name);
+        attach(in, out);
+    }
+
+    protected StreamMCPTransport(String name) {
+        this.name = name;
+    }
+
+    protected void attach(InputStream in, OutputStream out) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void open(Consumer<String> onMessage, Consumer<IOException> onClose) throws IOException {
+        if (reader == null || writer == null) {
+            throw new IOException("传输未连接: " + name);
+        }
+        closed = false;
+        readerThread = new Thread(() -> {
+            IOException cause = null;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty()) {
+                        onMessage.accept(line);
+                    }
+                }
+            } catch (IOException e) {
+                cause = e;
+                if (!closed) {
+                    log.debug("MCP 读取线程结束: {} - {}", name, e.getMessage());
+                }
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                    // 忽略
+                }
+                onClose.accept(cause != null ? cause : new IOException("MCP进程已退出"));
+            }
+        });
+        readerThread.setDaemon(true);
+        readerThread.setName("MCP-Reader-" + name);
+        readerThread.start();
+    }
+
+    /**
+     * 多个线程可能同时发送请求，整行写出需要互斥
+     */
+    @Override
+    public void send(String message) throws IOException {
+        if (closed || writer == null) {
+            throw new IOException("MCP连接已关闭: " + name);
+        }
+        synchronized (writer) {
+            writer.write(message);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed && readerThread != null && readerThread.isAlive();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (writer != null) {
+            synchronized (writer) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                    // 对端可能已退出
+                }
+            }
+        }
+        closeResources();
+        // 对端结束后读取线程读到 EOF 自行结束
+        if (readerThread != null && readerThread != Thread.currentThread()) {
+            try {
+                readerThread.join(READER_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 关闭写端之后调用，子类在这里结束进程或通道
+     */
+    protected void closeResources() {
+    }
+
+    protected boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String describe() {
+        return name;
+    }
+}
@@ -13,7 +13,24 @@ public interface AIService {
     List<ChatMessage> chat(String input, List<ChatMessage> history, String modelName);
     List<ChatMessage> streamingChat(String input, List<ChatMessage> history, String modelName);
     void setMessageHandler(Consumer<ChatMessage> handler);
+
+    /**
+     * 流式输出的增量文本处理器；设置后 token 不再包装为 ChatMessage 交给 messageHandler
+     */
+    default void setStreamHandler(Consumer<CharSequence> handler) {
+    }
+
     void setToolCallHandler(Consumer<ToolCall> handler);
+
+    /**
+     * 轻量任务（提交信息等）的一次性生成，不输出到终端，不写入历史
+     *
+     * @return 生成的文本；不支持或失败时返回 null
+     */
+    default String completeLight(String prompt) {
+        return null;
+    }
+
     boolean validateModel(String modelName);
     List<String> getAvailableModels();
 }
\ No newline at end of file
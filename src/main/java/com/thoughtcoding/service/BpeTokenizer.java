@@ -0,0 +1,56 @@
+package com.thoughtcoding.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BPE 分词器
+ *
+ * 使用 cl100k_base 词表（随 jtokkit 以类路径资源提供），与 OpenAI 兼容接口的计数方式一致。
+ * 词表约 1.7MB，首次计数时才加载；加载失败时退回估算分词器。
+ */
+public class BpeTokenizer implements Tokenizer {
+    private static final Logger log = LoggerFactory.getLogger(BpeTokenizer.class);
+
+    private final Tokenizer fallback = new EstimatingTokenizer();
+    private volatile Encoding encoding;
+    private volatile boolean loadFailed = false;
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        Encoding enc = getEncoding();
+        if (enc == null) {
+            return fallback.countTokens(text);
+        }
+        // 特殊 token 按普通文本计数，避免用户内容中的 <|endoftext|> 抛异常
+        return enc.countTokensOrdinary(text);
+    }
+
+    @Override
+    public String getName() {
+        return "bpe";
+    }
+
+    private Encoding getEncoding() {
+        if (encoding == null && !loadFailed) {
+            synchronized (this) {
+                if (encoding == null && !loadFailed) {
+                    try {
+                        encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+                    } catch (Exception e) {
+                        loadFailed = true;
+                        log.warn("加载 BPE 词表失败，改用估算分词: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+        return encoding;
+    }
+}
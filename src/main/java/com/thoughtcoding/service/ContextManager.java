@@ -6,15 +6,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 上下文管理器
  * 负责管理对话历史的长度，防止 Token 超限
  *
- * 支持两种策略：
+ * 支持以下策略：
  * 1. 滑动窗口：保留最近 N 轮对话
  * 2. Token 控制：根据 Token 数量动态截断
+ * 3. 缓存友好：按块截断，保持发送给模型的前缀在多轮之间不变
  */
 public class ContextManager {
     private static final Logger log = LoggerFactory.getLogger(ContextManager.class);
@@ -25,20 +29,44 @@ public class ContextManager {
     private static final int DEFAULT_MAX_HISTORY_TURNS = 10;  // 保留10轮（20条消息）
     private static final int DEFAULT_MAX_CONTEXT_TOKENS = 3000;  // 为历史预留3000 tokens
     private static final int DEFAULT_RESERVE_TOKENS = 1000;  // 为响应预留1000 tokens
+    private static final int TOKEN_CACHE_SIZE = 10000;  // 按消息 ID 缓存的 Token 数上限
 
     // 策略枚举
     public enum Strategy {
         SLIDING_WINDOW,  // 滑动窗口
         TOKEN_BASED,     // 基于 Token
-        HYBRID           // 混合策略
+        HYBRID,          // 混合策略
+        CACHE_FRIENDLY   // 缓存友好（前缀稳定）
     }
 
     private Strategy strategy = Strategy.TOKEN_BASED;  // 默认使用 Token 控制
     private int maxHistoryTurns = DEFAULT_MAX_HISTORY_TURNS;
     private int maxContextTokens = DEFAULT_MAX_CONTEXT_TOKENS;
 
+    // 🔥 分词器与按消息 ID 的 Token 缓存：历史消息只分词一次
+    private final Tokenizer tokenizer;
+    private final Map<String, Integer> tokenCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                    return size() > TOKEN_CACHE_SIZE;
+                }
+            });
+
+    // 🔥 预先构建的系统提示词（同一工作目录下字节完全一致）
+    private volatile ChatMessage projectContextMessage;
+    private volatile String projectContextCwd;
+
+    // 🔥 缓存友好策略的截断锚点：发送历史从这条消息开始，只在超出预算时按块前移
+    private String cacheAnchorId;
+
     public ContextManager(AppConfig appConfig) {
+        this(appConfig, Tokenizer.create(appConfig != null ? appConfig.getAi().getTokenizer() : null));
+    }
+
+    public ContextManager(AppConfig appConfig, Tokenizer tokenizer) {
         this.appConfig = appConfig;
+        this.tokenizer = tokenizer;
         loadConfiguration();
     }
 
@@ -46,8 +74,10 @@ public class ContextManager {
      * 从配置加载参数
      */
     private void loadConfiguration() {
-        // TODO: 从 config.yaml 读取配置
-        // 目前使用默认值
+        // 🔥 启用提示词缓存时使用前缀稳定的截断策略，其余参数目前使用默认值
+        if (appConfig != null && appConfig.getAi().isPromptCaching()) {
+            strategy = Strategy.CACHE_FRIENDLY;
+        }
         // 🔥 移除初始化日志，保持输出简洁
     }
 
@@ -75,6 +105,9 @@ public class ContextManager {
             case HYBRID:
                 result = applyHybridStrategy(fullHistory);
                 break;
+            case CACHE_FRIENDLY:
+                result = applyCacheFriendlyLimit(fullHistory);
+                break;
             default:
                 result = fullHistory;
         }
@@ -89,15 +122,34 @@ public class ContextManager {
      * 🔥 新增：构建固定的项目上下文消息
      * 这个上下文会在每次 AI 调用时注入，永远不会被截断
      *
+     * 内容只依赖工作目录，构建一次后复用同一个消息对象，保证每次请求的系统前缀字节一致
+     *
      * @return 项目上下文系统消息，如果无法获取则返回 null
      */
     public ChatMessage buildProjectContextMessage() {
-        try {
-            String cwd = System.getProperty("user.dir");
-            if (cwd == null || cwd.isEmpty()) {
-                return null;
-            }
+        String cwd = System.getProperty("user.dir");
+        if (cwd == null || cwd.isEmpty()) {
+            return null;
+        }
 
+        ChatMessage cached = projectContextMessage;
+        if (cached != null && cwd.equals(projectContextCwd)) {
+            return cached;
+        }
+
+        ChatMessage built = createProjectContextMessage(cwd);
+        if (built != null) {
+            projectContextMessage = built;
+            projectContextCwd = cwd;
+        }
+        return built;
+    }
+
+    private ChatMessage createProjectContextMessage(String cwd) {
+        if (appConfig != null && appConfig.getAi().isNativeToolCalling()) {
+            return createNativeToolsContextMessage(cwd);
+        }
+        try {
             StringBuilder context = new StringBuilder();
             context.append("## 📋 重要指令\n\n");
             context.append("⚠️ **你必须始终使用中文回答用户的所有问题！**\n");
@@ -292,6 +344,22 @@ public class ContextManager {
         }
     }
 
+    /**
+     * 🔥 原生 function calling 模式的系统提示词
+     * 工具的用法由随请求发送的工具定义描述，这里只保留语言、角色和工作目录，不再需要标记格式的说明和示例
+     */
+    private ChatMessage createNativeToolsContextMessage(String cwd) {
+        String context = "你是一位资深的编程助手，必须始终使用中文回答，代码注释也使用中文。\n\n"
+                + "工作目录: " + cwd + "\n"
+                + "路径可以是相对于工作目录的路径、绝对路径，或以 ~ 开头的用户主目录路径。\n\n"
+                + "需要读取文件、列出目录、执行命令或修改文件时，直接调用提供的工具；"
+                + "工具由系统执行并返回真实结果，绝对不要猜测或编造工具结果。"
+                + "创建文件时通过工具写入完整内容；修改已有文件时使用 edit_file，只发送需要修改的片段，不要重写整个文件。"
+                + "耗时较长的构建或测试（如 mvn verify）用 command_executor 的 background 参数在后台执行，再用 jobs 工具查看状态和输出。"
+                + "用户只是咨询时用简洁自然的文字回答，不要调用工具。";
+        return new ChatMessage("system", context);
+    }
+
     /**
      * 策略1：滑动窗口
      * 保留最近 N 轮对话
@@ -319,7 +387,7 @@ public class ContextManager {
         // 从最新消息开始倒序添加
         for (int i = fullHistory.size() - 1; i >= 0; i--) {
             ChatMessage msg = fullHistory.get(i);
-            int msgTokens = estimateTokens(msg.getContent());
+            int msgTokens = countTokens(msg);
 
             // 检查是否超过限制
             if (totalTokens + msgTokens > maxContextTokens) {
@@ -339,6 +407,46 @@ public class ContextManager {
         return result;
     }
 
+    /**
+     * 策略4：缓存友好
+     * 发送的历史从锚点消息开始，超出预算时一次性前移到只占一半预算的位置（且从用户消息开始），
+     * 之后若干轮内前缀保持不变，提供方的前缀缓存才能持续命中
+     */
+    private List<ChatMessage> applyCacheFriendlyLimit(List<ChatMessage> fullHistory) {
+        int start = 0;
+        if (cacheAnchorId != null) {
+            for (int i = 0; i < fullHistory.size(); i++) {
+                if (cacheAnchorId.equals(fullHistory.get(i).getId())) {
+                    start = i;
+                    break;
+                }
+            }
+        }
+
+        int totalTokens = 0;
+        for (int i = start; i < fullHistory.size(); i++) {
+            totalTokens += countTokens(fullHistory.get(i));
+        }
+
+        if (totalTokens > maxContextTokens) {
+            int target = maxContextTokens / 2;
+            int last = fullHistory.size() - 1;
+            while (start < last && (totalTokens > target || !"user".equals(fullHistory.get(start).getRole()))) {
+                totalTokens -= countTokens(fullHistory.get(start));
+                start++;
+            }
+        }
+        cacheAnchorId = fullHistory.get(start).getId();
+
+        List<ChatMessage> result = new ArrayList<>(fullHistory.subList(start, fullHistory.size()));
+        if (totalTokens > maxContextTokens && result.size() == 1) {
+            // 只剩一条消息仍然超限时截断它（截断结果只依赖内容，前缀依然稳定）
+            ChatMessage msg = result.get(0);
+            result.set(0, new ChatMessage(msg.getRole(), truncateToTokenLimit(msg.getContent(), maxContextTokens)));
+        }
+        return result;
+    }
+
     /**
      * 策略3：混合策略
      * 先应用滑动窗口，再应用 Token 控制
@@ -352,38 +460,41 @@ public class ContextManager {
     }
 
     /**
-     * 估算文本的 Token 数量
-     * 简单方法：中文 2 字符 ≈ 1 token，英文 4 字符 ≈ 1 token
+     * 统计消息的 Token 数量（按消息 ID 缓存，同一条消息只分词一次）
      *
-     * @param text 待估算的文本
-     * @return 估算的 token 数量
+     * @param message 聊天消息
+     * @return Token 数量
      */
-    private int estimateTokens(String text) {
-        if (text == null || text.isEmpty()) {
+    public int countTokens(ChatMessage message) {
+        if (message == null) {
             return 0;
         }
-
-        int chineseChars = 0;
-        int otherChars = 0;
-
-        for (char c : text.toCharArray()) {
-            if (isChinese(c)) {
-                chineseChars++;
-            } else {
-                otherChars++;
-            }
+        String id = message.getId();
+        if (id == null) {
+            return estimateTokens(message.getContent());
         }
 
-        // 中文：2 字符 ≈ 1 token
-        // 英文：4 字符 ≈ 1 token
-        return (chineseChars / 2) + (otherChars / 4);
+        Integer cached = tokenCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        int tokens = estimateTokens(message.getContent());
+        tokenCache.put(id, tokens);
+        return tokens;
     }
 
     /**
-     * 判断字符是否为中文
+     * 统计文本的 Token 数量
+     *
+     * @param text 待统计的文本
+     * @return Token 数量
      */
-    private boolean isChinese(char c) {
-        return c >= 0x4E00 && c <= 0x9FA5;
+    public int estimateTokens(String text) {
+        return tokenizer.countTokens(text);
+    }
+
+    public Tokenizer getTokenizer() {
+        return tokenizer;
     }
 
     /**
@@ -407,22 +518,24 @@ public class ContextManager {
      * 输出上下文统计信息
      */
     private void logContextStatistics(List<ChatMessage> fullHistory, List<ChatMessage> managedHistory) {
+        if (!log.isDebugEnabled() || fullHistory.size() == managedHistory.size()) {
+            return;
+        }
+
         int fullTokens = fullHistory.stream()
-                .mapToInt(msg -> estimateTokens(msg.getContent()))
+                .mapToInt(this::countTokens)
                 .sum();
 
         int managedTokens = managedHistory.stream()
-                .mapToInt(msg -> estimateTokens(msg.getContent()))
+                .mapToInt(this::countTokens)
                 .sum();
 
-        if (fullHistory.size() != managedHistory.size()) {
-            log.debug("📊 上下文管理统计:");
-            log.debug("  完整历史: {} 条消息 (~{} tokens)", fullHistory.size(), fullTokens);
-            log.debug("  发送历史: {} 条消息 (~{} tokens)", managedHistory.size(), managedTokens);
-            log.debug("  节省: {} tokens ({}%)",
-                    fullTokens - managedTokens,
-                    (fullTokens - managedTokens) * 100 / Math.max(fullTokens, 1));
-        }
+        log.debug("📊 上下文管理统计:");
+        log.debug("  完整历史: {} 条消息 ({} tokens)", fullHistory.size(), fullTokens);
+        log.debug("  发送历史: {} 条消息 ({} tokens)", managedHistory.size(), managedTokens);
+        log.debug("  节省: {} tokens ({}%)",
+                fullTokens - managedTokens,
+                (fullTokens - managedTokens) * 100 / Math.max(fullTokens, 1));
     }
 
     /**
@@ -0,0 +1,36 @@
+package com.thoughtcoding.service;
+
+/**
+ * 估算分词器
+ * 简单方法：中文 2 字符 ≈ 1 token，英文 4 字符 ≈ 1 token
+ */
+public class EstimatingTokenizer implements Tokenizer {
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        int chineseChars = 0;
+        int otherChars = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x4E00 && c <= 0x9FA5) {
+                chineseChars++;
+            } else {
+                otherChars++;
+            }
+        }
+
+        // 中文：2 字符 ≈ 1 token
+        // 英文：4 字符 ≈ 1 token
+        return (chineseChars / 2) + (otherChars / 4);
+    }
+
+    @Override
+    public String getName() {
+        return "estimate";
+    }
+}
@@ -4,65 +4,74 @@ import com.thoughtcoding.config.AppConfig;
 import com.thoughtcoding.model.ChatMessage;
 import com.thoughtcoding.model.ToolCall;
 import com.thoughtcoding.tools.ToolRegistry;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.StreamingChatLanguageModel;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.output.Response;
+import okhttp3.OkHttpClient;
+
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * 集成LangChain4j和DeepSeek API的AI服务实现
+ *
+ * 🔥 两种工具调用方式（ai.nativeToolCalling）：
+ * 1. 文本标记（默认）：系统提示词说明 ⏺ Bash(...) 等格式，ToolMarkerParser 从输出中解析
+ * 2. 原生 function calling：所有工具作为 ToolSpecification 随请求发送，
+ *    流式的工具调用片段由 langchain4j 拼接，完成时直接得到结构化的调用，不再需要长提示词和文本解析
+ *
+ * 🔥 多模型：ModelRouter 按任务类型选择模型，ModelClientPool 为每个模型懒加载并缓存一个客户端
  */
 public class LangChainService implements AIService {
     private final AppConfig appConfig;
+    private final ToolRegistry toolRegistry;
+    private final boolean nativeToolCalling;
     private final ContextManager contextManager;
+    private final PerformanceMonitor performanceMonitor;
     private Consumer<ChatMessage> messageHandler;
+    private Consumer<CharSequence> streamHandler;
     private Consumer<ToolCall> toolCallHandler;
-    private StreamingChatLanguageModel streamingChatModel;
+    private final ModelClientPool clientPool;
+    private final ModelRouter router;
+    // 当前正在生成的模型客户端，取消时使用
+    private volatile StreamingChatLanguageModel activeModel;
 
     // 用于跟踪生成状态
     private volatile boolean isGenerating = false;
     private volatile boolean shouldStop = false;
     private boolean hasTriggeredToolCall = false;
 
-    // 用于智能识别代码块意图
-    private String lastCodeBlock = null;
-    private String lastCodeFileName = null;
-    private static final int CONTEXT_THRESHOLD = 50; // 判断阈值: 代码块后文字少于50字符则触发工具调用
+    // 🔥 取消后等待回调到达的宽限期，超过后由主线程收尾
+    private static final long CANCEL_GRACE_MS = 2000;
 
-    public LangChainService(AppConfig appConfig, ToolRegistry toolRegistry, ContextManager contextManager) {
-        this.appConfig = appConfig;
-        this.contextManager = contextManager;
-        initializeChatModel();
-    }
+    // 🔥 上一次请求发送的消息序列，用于统计与本次请求相同的前缀（可命中提供方前缀缓存）
+    private List<ChatMessage> lastPromptMessages = List.of();
 
-    private void initializeChatModel() {
-        try {
-            AppConfig.ModelConfig modelConfig = appConfig.getModelConfig(appConfig.getDefaultModel());
-            if (modelConfig != null) {
-                this.streamingChatModel = createDeepSeekModel(modelConfig);
-            }
-        } catch (Exception e) {
-            System.err.println("初始化模型失败: " + e.getMessage());
-        }
-    }
+    // 🔥 工具定义按 ToolRegistry 版本缓存，工具列表不变时每次请求复用
+    private List<ToolSpecification> toolSpecifications = List.of();
+    private long toolSpecificationsVersion = -1;
 
-    private StreamingChatLanguageModel createDeepSeekModel(AppConfig.ModelConfig config) {
-        return OpenAiStreamingChatModel.builder()
-                .baseUrl(config.getBaseURL())
-                .apiKey(config.getApiKey())
-                .modelName(config.getName())
-                .temperature(config.getTemperature())
-                .maxTokens(config.getMaxTokens())
-                .logRequests(true)
-                .logResponses(true)
-                .build();
+    public LangChainService(AppConfig appConfig, ToolRegistry toolRegistry, ContextManager contextManager,
+                            PerformanceMonitor performanceMonitor) {
+        this.appConfig = appConfig;
+        this.toolRegistry = toolRegistry;
+        this.nativeToolCalling = toolRegistry != null && appConfig.getAi().isNativeToolCalling();
+        this.contextManager = contextManager;
+        this.performanceMonitor = performanceMonitor;
+        this.clientPool = new ModelClientPool(appConfig);
+        this.router = new ModelRouter(appConfig);
+        // 默认模型在启动时构建，配置错误尽早提示；其他模型第一次使用时再构建
+        clientPool.get(appConfig.getDefaultModel());
     }
 
     @Override
@@ -76,16 +85,26 @@ public class LangChainService implements AIService {
             throw new IllegalStateException("Message handler not set");
         }
 
-        if (streamingChatModel == null) {
-            throw new IllegalStateException("DeepSeek model not initialized. Please check your configuration.");
+        final String modelKey = router.route(ModelRouter.Task.CODING, modelName);
+        final StreamingChatLanguageModel model = clientPool.get(modelKey);
+        if (model == null) {
+            throw new IllegalStateException("Model '" + modelKey + "' not initialized. Please check your configuration.");
         }
 
+        activeModel = model;
+        final long startTime = System.currentTimeMillis();
         isGenerating = true;
         shouldStop = false;
         hasTriggeredToolCall = false;
 
-        final StringBuilder fullResponse = new StringBuilder();
+        // 🔥 增量解析工具标记：每个 token 只消费一次（原生模式下只累积文本）
+        final ToolMarkerParser markerParser = nativeToolCalling ? null : new ToolMarkerParser();
+        final StringBuilder responseText = new StringBuilder();
         final CompletableFuture<Void> completionFuture = new CompletableFuture<>();
+        // 🔥 回调线程与取消后的主线程只有一方负责收尾（写入历史、提交工具调用）
+        final AtomicBoolean finished = new AtomicBoolean();
+        // 🔥 onNext 写入解析器与主线程取消后读取部分响应互斥；主线程收尾后迟到的 token 直接丢弃
+        final Object streamLock = new Object();
 
         try {
             List<dev.langchain4j.data.message.ChatMessage> messages = prepareMessages(input, history);
@@ -93,188 +112,73 @@ public class LangChainService implements AIService {
             // 移除提示信息，保持输出简洁
             // System.out.println("🚀 Sending request to DeepSeek API...");
 
-            streamingChatModel.generate(messages, new StreamingResponseHandler<AiMessage>() {
-                private final StringBuilder codeBuffer = new StringBuilder();
-                private boolean confirmationDisplayed = false;
-                private boolean inCodeBlock = false;
-                private String detectedFileName = null;
-                private int codeBlockCount = 0;
-
+            StreamingResponseHandler<AiMessage> handler = new StreamingResponseHandler<AiMessage>() {
                 @Override
                 public void onNext(String token) {
-                    if (shouldStop || hasTriggeredToolCall) {
-                        return;
-                    }
-
-                    fullResponse.append(token);
-                    String currentText = fullResponse.toString();
-
-                    // 🔥 持续检测文件名
-                    if (detectedFileName == null) {
-                        detectedFileName = extractFileNameFromText(currentText);
-                    }
-
-                    // 🔥 检测代码块开始（```java 或 ```python 等）
-                    if (!inCodeBlock && token.contains("```")) {
-                        inCodeBlock = true;
-                        codeBlockCount++;
-
-                        // 检测文件名但不显示任何提示
-                        if (!confirmationDisplayed) {
-                            if (detectedFileName == null) {
-                                detectedFileName = extractFileNameFromText(currentText);
-                            }
-                            if (detectedFileName == null) {
-                                detectedFileName = "NewFile.java";
-                            }
-                            confirmationDisplayed = true;
+                    synchronized (streamLock) {
+                        if (finished.get() || shouldStop || hasTriggeredToolCall) {
+                            return;
                         }
 
-                        // ✅ 输出代码块开始标记
-                        messageHandler.accept(new ChatMessage("assistant", token));
-                        return;
-                    }
-
-                    // 🔥 检测代码块结束（```）
-                    if (inCodeBlock && token.contains("```")) {
-                        inCodeBlock = false;
-                        codeBlockCount++;
-
-                        // ✅ 先输出代码块结束标记
-                        messageHandler.accept(new ChatMessage("assistant", token));
-
-                        // ✅ 记录代码块信息,但不立即触发工具调用
-                        if (confirmationDisplayed && codeBlockCount >= 2) {
-                            String cleanCode = codeBuffer.toString();
-                            // 移除语言标记（如 "java"、"python"）
-                            cleanCode = cleanCode.replaceFirst("^\\s*(java|python|javascript|cpp|c|python3|js|ts)\\s*\n", "");
-
-                            lastCodeBlock = cleanCode.trim();
-                            lastCodeFileName = detectedFileName;
-
-                            // ❌ 移除这行: hasTriggeredToolCall = true;
-                            // 不再阻止后续 token 输出
+                        if (markerParser != null) {
+                            markerParser.accept(token);
+                        } else {
+                            responseText.append(token);
                         }
-
-                        return;
                     }
 
-                    // 🔥 在代码块内，输出所有内容（包括语言标记）
-                    if (inCodeBlock) {
-                        // ✅ 输出所有内容,包括语言标记
-                        codeBuffer.append(token);
-                        messageHandler.accept(new ChatMessage("assistant", token));
-                        return;
-                    }
-
-                    // 正常输出 AI 的描述文本
-                    messageHandler.accept(new ChatMessage("assistant", token));
-                }
-
-
-                private void triggerToolCallWithCode(String fileName, String code) {
-                    // 🔥 创建工具调用并触发
-                    java.util.Map<String, Object> params = new java.util.HashMap<>();
-                    params.put("path", fileName);
-                    params.put("content", code.trim());
-
-                    // 🔥 关键：使用 6 参数构造函数，最后一个参数标记为 true 表示流式触发
-                    ToolCall toolCall = new ToolCall("write_file", params, null, false, 0, true);
-                    //                                                            参数顺序：
-                    //                                                            toolName, params, result, success, executionTime, streamingTriggered
-
-                    // ✅ 在这里设置标志位,防止 detectAndTriggerToolCall() 重复触发
-                    hasTriggeredToolCall = true;
-
-                    // 立即触发工具调用处理器
-                    if (toolCallHandler != null) {
-                        toolCallHandler.accept(toolCall);
-                    }
+                    // ✅ 输出所有内容（包括代码块标记和语言标记）
+                    emitToken(token);
                 }
 
                 @Override
                 public void onComplete(Response<dev.langchain4j.data.message.AiMessage> response) {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
                     try {
-                        // ✅ 智能判断是否触发工具调用(基于代码块)
-                        if (lastCodeBlock != null && !lastCodeBlock.isEmpty()) {
-                            String fullText = fullResponse.toString();
-
-                            // 找到最后一个代码块结束位置
-                            int lastCodeBlockEndIndex = fullText.lastIndexOf("```");
-                            if (lastCodeBlockEndIndex > 0) {
-                                // ✅ 新增: 检查代码块前的上下文(前100字符)
-                                int lastCodeBlockStartIndex = fullText.lastIndexOf("```", lastCodeBlockEndIndex - 1);
-                                boolean isExplanation = false;
-
-                                if (lastCodeBlockStartIndex > 0) {
-                                    // 获取代码块前的文字(最多100字符)
-                                    int startPos = Math.max(0, lastCodeBlockStartIndex - 100);
-                                    String beforeCodeBlock = fullText.substring(startPos, lastCodeBlockStartIndex).trim();
-
-                                    // 检查是否包含讲解相关的关键词
-                                    String[] explainKeywords = {"讲解", "解释", "说明", "介绍", "演示", "展示", "分析", "理解"};
-                                    for (String keyword : explainKeywords) {
-                                        if (beforeCodeBlock.contains(keyword)) {
-                                            isExplanation = true;
-                                            break;
-                                        }
-                                    }
-                                }
-
-                                // ✅ 如果是讲解,不触发工具调用
-                                if (isExplanation) {
-                                    // 清理状态但不触发工具调用
-                                    lastCodeBlock = null;
-                                    lastCodeFileName = null;
-                                } else {
-                                    // 原有的 CONTEXT_THRESHOLD 逻辑
-                                    String afterCodeBlock = fullText.substring(lastCodeBlockEndIndex + 3).trim();
-                                    if (afterCodeBlock.length() < CONTEXT_THRESHOLD) {
-                                        triggerToolCallWithCode(lastCodeFileName, lastCodeBlock);
-                                    }
-                                }
-                            }
+                        recordModelUsage(modelKey, startTime, response);
+                        if (shouldStop) {
+                            // 停止请求与响应结束同时发生：按取消处理，不执行工具调用
+                            recordCancelledResponse(partialText(markerParser, responseText), history);
+                            return;
                         }
-
-                        detectAndTriggerToolCall(fullResponse.toString());
-
-                        if (shouldStop && !fullResponse.isEmpty()) {
-                            String cleanContent = removeToolCommandText(fullResponse.toString());
-                            ChatMessage truncatedMessage = new ChatMessage("assistant",
-                                cleanContent + "\n\n💡 [生成已被用户停止]");
-                            history.add(truncatedMessage);
+                        if (markerParser == null) {
+                            completeNativeResponse(response, responseText.toString(), history);
                             return;
                         }
+                        markerParser.finish();
+
+                        if (!markerParser.isEmpty()) {
+                            triggerToolCalls(markerParser.detectToolCalls());
 
-                        if (!fullResponse.isEmpty()) {
                             // 🔥 保存到历史记录前，清理掉工具调用命令文本
-                            String cleanContent = removeToolCommandText(fullResponse.toString());
+                            String cleanContent = markerParser.getCleanText();
                             if (!cleanContent.isEmpty()) {
                                 ChatMessage completeMessage = new ChatMessage("assistant", cleanContent);
                                 history.add(completeMessage);
                             }
                         }
 
-                        System.out.println();
+                        emitToken("\n");  // 与流式输出走同一通道，保证换行在最后一个 token 之后
                     } finally {
                         isGenerating = false;
                         shouldStop = false;
                         completionFuture.complete(null); // 🔥 通知主线程：流式响应已完成
-
-                        // ✅ 清理代码块状态
-                        lastCodeBlock = null;
-                        lastCodeFileName = null;
-                        codeBuffer.setLength(0);
-                        detectedFileName = null;
-                        confirmationDisplayed = false;
-                        codeBlockCount = 0;
-                        inCodeBlock = false;
                     }
                 }
 
                 @Override
                 public void onError(Throwable error) {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
                     try {
+                        if (shouldStop) {
+                            // 🔥 HTTP 流被主动取消，保留已生成的部分
+                            recordCancelledResponse(partialText(markerParser, responseText), history);
+                            return;
+                        }
                         System.err.println("❌ DeepSeek API error: " + error.getMessage());
 
                         ChatMessage errorMessage = new ChatMessage("assistant",
@@ -282,23 +186,48 @@ public class LangChainService implements AIService {
                         messageHandler.accept(errorMessage);
                         history.add(errorMessage);
                     } finally {
+                        boolean cancelled = shouldStop;
                         isGenerating = false;
                         shouldStop = false;
-                        completionFuture.completeExceptionally(error); // 🔥 通知主线程：发生错误
+                        if (cancelled) {
+                            completionFuture.complete(null);
+                        } else {
+                            completionFuture.completeExceptionally(error); // 🔥 通知主线程：发生错误
+                        }
                     }
                 }
-            });
-
-            // 🔥 等待流式响应完成（最多等待 5 分钟）
-            try {
-                completionFuture.get(5, TimeUnit.MINUTES);
-            } catch (java.util.concurrent.TimeoutException e) {
-                System.err.println("⚠️  流式响应超时");
-                completionFuture.cancel(true);
-            } catch (Exception e) {
-                System.err.println("⚠️  等待流式响应时发生错误: " + e.getMessage());
+            };
+
+            if (nativeToolCalling) {
+                List<ToolSpecification> specifications = currentToolSpecifications();
+                if (!specifications.isEmpty()) {
+                    model.generate(messages, specifications, handler);
+                } else {
+                    model.generate(messages, handler);
+                }
+            } else {
+                model.generate(messages, handler);
             }
 
+            // 🔥 等待流式响应完成；等待期间可以被 Ctrl-C / stop 取消
+            awaitCompletion(completionFuture, () -> {
+                String partial;
+                synchronized (streamLock) {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
+                    partial = partialText(markerParser, responseText);
+                }
+                recordCancelledResponse(partial, history);
+                isGenerating = false;
+                shouldStop = false;
+            }, () -> {
+                if (finished.compareAndSet(false, true)) {
+                    isGenerating = false;
+                    shouldStop = false;
+                }
+            });
+
         } catch (Exception e) {
             isGenerating = false;
             shouldStop = false;
@@ -314,416 +243,348 @@ public class LangChainService implements AIService {
         return history;
     }
 
-    private List<dev.langchain4j.data.message.ChatMessage> prepareMessages(
-            String input, List<ChatMessage> history) {
-        List<dev.langchain4j.data.message.ChatMessage> messages = new ArrayList<>();
-
-        if (contextManager != null) {
-            ChatMessage projectContext = contextManager.buildProjectContextMessage();
-            if (projectContext != null) {
-                messages.add(dev.langchain4j.data.message.SystemMessage.from(projectContext.getContent()));
-            }
+    /**
+     * 🔥 记录本次响应的 token 用量（总量和按模型的延迟、用量）
+     */
+    private void recordModelUsage(String modelKey, long startTime, Response<AiMessage> response) {
+        if (performanceMonitor == null) {
+            return;
         }
-
-        List<ChatMessage> managedHistory = history;
-        if (contextManager != null && history != null && !history.isEmpty()) {
-            managedHistory = contextManager.getContextForAI(history);
+        int tokens = 0;
+        if (response != null && response.tokenUsage() != null && response.tokenUsage().totalTokenCount() != null) {
+            tokens = response.tokenUsage().totalTokenCount();
+            performanceMonitor.recordTokens(tokens);
         }
+        performanceMonitor.recordModelCall(modelKey, System.currentTimeMillis() - startTime, tokens);
+    }
 
-        if (managedHistory != null && !managedHistory.isEmpty()) {
-            messages.addAll(convertToLangChainHistory(managedHistory));
+    /**
+     * 🔥 轻量任务（生成提交信息等）的一次性生成：路由到 ai.lightModel，不输出到终端，不写入历史
+     *
+     * @return 生成的文本；失败时返回 null
+     */
+    @Override
+    public String completeLight(String prompt) {
+        String modelKey = router.route(ModelRouter.Task.LIGHT, null);
+        StreamingChatLanguageModel model = clientPool.get(modelKey);
+        if (model == null) {
+            return null;
         }
 
-        messages.add(dev.langchain4j.data.message.UserMessage.from(input));
-
-        return messages;
-    }
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        model.generate(List.of(dev.langchain4j.data.message.UserMessage.from(prompt)), new StreamingResponseHandler<AiMessage>() {
+            private final StringBuilder text = new StringBuilder();
 
-    private List<dev.langchain4j.data.message.ChatMessage> convertToLangChainHistory(
-            List<ChatMessage> history) {
-        return history.stream()
-                .map(msg -> {
-                    if ("user".equals(msg.getRole())) {
-                        return dev.langchain4j.data.message.UserMessage.from(msg.getContent());
-                    } else if ("assistant".equals(msg.getRole())) {
-                        return dev.langchain4j.data.message.AiMessage.from(msg.getContent());
-                    } else {
-                        return dev.langchain4j.data.message.SystemMessage.from(msg.getContent());
-                    }
-                })
-                .collect(Collectors.toList());
-    }
+            @Override
+            public void onNext(String token) {
+                text.append(token);
+            }
 
-    @Override
-    public void setMessageHandler(Consumer<ChatMessage> handler) {
-        this.messageHandler = handler;
-    }
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                recordModelUsage(modelKey, startTime, response);
+                result.complete(text.toString());
+            }
 
-    @Override
-    public void setToolCallHandler(Consumer<ToolCall> handler) {
-        this.toolCallHandler = handler;
-    }
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
 
-    @Override
-    public boolean validateModel(String modelName) {
-        return appConfig.getModels().containsKey(modelName);
+        try {
+            int timeoutSeconds = appConfig.getModelConfig(modelKey).getTimeout();
+            return result.get(timeoutSeconds, TimeUnit.SECONDS).trim();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            System.err.println("⚠️  轻量任务生成失败 [" + modelKey + "]: " + e.getMessage());
+            return null;
+        }
     }
 
-    @Override
-    public List<String> getAvailableModels() {
-        return new ArrayList<>(appConfig.getModels().keySet());
+    /**
+     * 已经构建过客户端的模型（用于 /models 显示）
+     */
+    public java.util.Set<String> getLoadedModels() {
+        return clientPool.getBuiltModels();
     }
 
-    private boolean detectAndTriggerToolCall(String aiResponse) {
-        if (toolCallHandler == null || aiResponse == null || aiResponse.isEmpty()) {
-            return false;
+    /**
+     * 🔥 等待流式响应结束（最多 5 分钟）
+     * 每 100ms 检查一次停止请求：取消后回调通常立即到达，若宽限期内仍未到达，由主线程收尾并返回，
+     * 迟到的回调不会再修改历史记录
+     *
+     * @param onCancelled 取消后回调未到达时的收尾
+     * @param onTimeout   超时后的收尾
+     */
+    private void awaitCompletion(CompletableFuture<Void> completionFuture, Runnable onCancelled, Runnable onTimeout) {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+        long cancelDeadline = Long.MAX_VALUE;
+        while (true) {
+            try {
+                completionFuture.get(100, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                long now = System.currentTimeMillis();
+                if (shouldStop && cancelDeadline == Long.MAX_VALUE) {
+                    cancelDeadline = now + CANCEL_GRACE_MS;
+                }
+                if (now >= cancelDeadline) {
+                    onCancelled.run();
+                    return;
+                }
+                if (now >= deadline) {
+                    System.err.println("⚠️  流式响应超时");
+                    cancelHttpCalls();
+                    onTimeout.run();
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopCurrentGeneration();
+                onCancelled.run();
+                return;
+            } catch (Exception e) {
+                System.err.println("⚠️  等待流式响应时发生错误: " + e.getMessage());
+                return;
+            }
         }
+    }
 
-        if (hasTriggeredToolCall) {
-            return true;
+    private static String partialText(ToolMarkerParser markerParser, StringBuilder responseText) {
+        if (markerParser == null) {
+            return responseText.toString();
         }
+        markerParser.finish();
+        return markerParser.getCleanText();
+    }
 
-        // ✅ 新增: 检查响应中是否包含代码块
-        // 用于判断是否应该触发文件写入操作
-        boolean hasCodeBlock = aiResponse.contains("```");
-
-        String lowerResponse = aiResponse.toLowerCase();
-
-        // 🔥 优先检测简化格式（⏺ Read/Write/Bash/List）- 这些格式必须严格执行
-        // ⏺ Read(文件名)
-        if (aiResponse.contains("⏺ Read(") || lowerResponse.matches(".*⏺\\s*read\\s*\\(.*")) {
-            String filePath = extractFromSimplifiedFormat(aiResponse, "read");
-            if (filePath != null) {
-                triggerFileManagerRead(filePath);
-                hasTriggeredToolCall = true;
-                return true;
-            }
+    /**
+     * 🔥 被取消的响应：保留已生成的部分（不执行其中的工具调用），并记录到性能监控
+     */
+    private void recordCancelledResponse(String partial, List<ChatMessage> history) {
+        String content = partial.trim();
+        if (performanceMonitor != null) {
+            performanceMonitor.recordCancellation(contextManager != null ? contextManager.estimateTokens(content) : 0);
         }
-
-        // ⏺ List(目录)
-        if (aiResponse.contains("⏺ List(") || lowerResponse.matches(".*⏺\\s*list\\s*\\(.*")) {
-            String dirPath = extractFromSimplifiedFormat(aiResponse, "list");
-            if (dirPath != null) {
-                triggerFileManagerList(dirPath);
-                hasTriggeredToolCall = true;
-                return true;
-            }
+        if (!content.isEmpty()) {
+            history.add(new ChatMessage("assistant", content + "\n\n💡 [生成已被用户停止]"));
         }
+        emitToken("\n");
+    }
 
-        // ⏺ Bash(命令)
-        if (aiResponse.contains("⏺ Bash(") || lowerResponse.matches(".*⏺\\s*bash\\s*\\(.*")) {
-            String command = extractFromSimplifiedFormat(aiResponse, "bash");
-            if (command != null) {
-                triggerCommandExecutor(command);
-                hasTriggeredToolCall = true;
-                return true;
-            }
+    /**
+     * 🔥 原生模式的响应处理：文本已流式输出，这里记录历史并提交模型返回的结构化工具调用
+     */
+    private void completeNativeResponse(Response<AiMessage> response, String text, List<ChatMessage> history) {
+        String content = text.trim();
+        if (!content.isEmpty()) {
+            history.add(new ChatMessage("assistant", content));
         }
 
-        // ⏺ Write(文件名) - 注意：这个只是标记，实际内容在代码块中
-        if (aiResponse.contains("⏺ Write(") || lowerResponse.matches(".*⏺\\s*write\\s*\\(.*")) {
-            // ✅ 只有当响应中包含代码块时才触发文件写入
-            if (!hasCodeBlock) {
-                // 纯文字讲解中提到了 Write,但没有代码块,不触发
-                return false;
-            }
-
-            String fileName = extractFromSimplifiedFormat(aiResponse, "write");
-            String content = extractFileContent(aiResponse);
-            if (fileName != null && content != null) {
-                triggerWriteFile(fileName, content);
-                hasTriggeredToolCall = true;
-                return true;
+        AiMessage aiMessage = response != null ? response.content() : null;
+        if (aiMessage != null && aiMessage.hasToolExecutionRequests()) {
+            List<ToolCall> toolCalls = new ArrayList<>();
+            for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                toolCalls.add(ToolSpecificationConverter.toToolCall(request));
             }
+            triggerToolCalls(toolCalls);
         }
+        emitToken("\n");
+    }
 
-        // 🔥 检测完整格式
-        // 🔥 新增：检测 file_manager read 命令
-        if (lowerResponse.contains("file_manager read")) {
-            String filePath = extractQuotedPath(aiResponse, "file_manager read");
-            if (filePath != null) {
-                triggerFileManagerRead(filePath);
-                hasTriggeredToolCall = true;
-                return true;
-            }
+    /**
+     * 当前已注册工具的 ToolSpecification 列表，只在 ToolRegistry 变化后重新构建
+     */
+    private List<ToolSpecification> currentToolSpecifications() {
+        long version = toolRegistry.getVersion();
+        if (version != toolSpecificationsVersion) {
+            toolSpecifications = ToolSpecificationConverter.toSpecifications(toolRegistry.getAllTools());
+            toolSpecificationsVersion = version;
         }
+        return toolSpecifications;
+    }
 
-        // 🔥 新增：检测 file_manager list 命令
-        if (lowerResponse.contains("file_manager list")) {
-            String dirPath = extractQuotedPath(aiResponse, "file_manager list");
-            if (dirPath != null) {
-                triggerFileManagerList(dirPath);
-                hasTriggeredToolCall = true;
-                return true;
-            }
-        }
+    private List<dev.langchain4j.data.message.ChatMessage> prepareMessages(
+            String input, List<ChatMessage> history) {
+        // 🔥 系统提示词在前、历史在后，系统提示词对象复用以保证前缀字节一致
+        List<ChatMessage> promptMessages = new ArrayList<>();
 
-        // 🔥 新增：检测 command_executor 命令
-        if (lowerResponse.contains("command_executor")) {
-            String command = extractQuotedPath(aiResponse, "command_executor");
-            if (command != null) {
-                triggerCommandExecutor(command);
-                hasTriggeredToolCall = true;
-                return true;
+        if (contextManager != null) {
+            ChatMessage projectContext = contextManager.buildProjectContextMessage();
+            if (projectContext != null) {
+                promptMessages.add(projectContext);
             }
         }
 
-        // 🔥 提前检测：看到 write_f 就知道可能是 write_file，提前标记（但不触发）
-        if (lowerResponse.contains("write_f") && !hasTriggeredToolCall) {
-            // 继续积累，等待完整命令
+        List<ChatMessage> managedHistory = history;
+        if (contextManager != null && history != null && !history.isEmpty()) {
+            managedHistory = contextManager.getContextForAI(history);
         }
 
-        if (lowerResponse.contains("write_file")) {
-            String fileName = extractFileNameFromCommand(aiResponse);
-            String content = extractContentFromCommand(aiResponse);
-
-            if (fileName != null && content != null) {
-                triggerWriteFile(fileName, content);
-                hasTriggeredToolCall = true;
-                return true;
-            }
+        if (managedHistory != null && !managedHistory.isEmpty()) {
+            promptMessages.addAll(managedHistory);
         }
 
-        // 🔥 新增：检测代码块格式（优先，避免命令格式）
-        if (lowerResponse.contains("```java") || lowerResponse.contains("```python") ||
-            lowerResponse.contains("```javascript")) {
+        recordPromptCacheStats(promptMessages, input);
 
-            // 检查是否包含文件名提示
-            if (lowerResponse.contains("文件名") || lowerResponse.contains("filename") ||
-                lowerResponse.matches(".*\\w+\\.\\w+.*")) {
+        List<dev.langchain4j.data.message.ChatMessage> messages = new ArrayList<>(convertToLangChainHistory(promptMessages));
+        messages.add(dev.langchain4j.data.message.UserMessage.from(input));
 
-                String fileName = extractFileNameFromText(aiResponse);
-                String content = extractFileContent(aiResponse);
+        return messages;
+    }
 
-                if (fileName != null && content != null) {
-                    triggerWriteFile(fileName, content);
-                    hasTriggeredToolCall = true;
-                    return true;
-                }
-            }
+    /**
+     * 🔥 统计本次请求中与上一次请求相同的前缀 token（可缓存）和其余 token（不可缓存）
+     * 所用的 langchain4j 版本不返回提供方的缓存命中字段，因此按前缀是否字节一致来统计
+     */
+    private void recordPromptCacheStats(List<ChatMessage> promptMessages, String input) {
+        if (performanceMonitor == null || contextManager == null) {
+            return;
         }
 
-        if ((lowerResponse.contains("创建") || lowerResponse.contains("create")) &&
-            (lowerResponse.contains("文件") || lowerResponse.contains("file")) &&
-            lowerResponse.contains(".java")) {
-
-            String fileName = extractFileName(aiResponse);
-            String content = extractFileContent(aiResponse);
-
-            if (fileName != null && content != null) {
-                triggerWriteFile(fileName, content);
-                hasTriggeredToolCall = true;
-                return true;
-            }
+        int common = 0;
+        int limit = Math.min(promptMessages.size(), lastPromptMessages.size());
+        while (common < limit && samePromptMessage(promptMessages.get(common), lastPromptMessages.get(common))) {
+            common++;
         }
 
-        if ((lowerResponse.contains("已创建") || lowerResponse.contains("创建成功") ||
-             lowerResponse.contains("已成功创建")) &&
-            lowerResponse.contains(".java")) {
-
-            String fileName = extractFileName(aiResponse);
-            String content = extractCodeFromText(aiResponse);
-
-            if (fileName != null && content != null) {
-                triggerWriteFile(fileName, content);
-                hasTriggeredToolCall = true;
-                return true;
+        int cached = 0;
+        int uncached = contextManager.estimateTokens(input);
+        for (int i = 0; i < promptMessages.size(); i++) {
+            int tokens = contextManager.countTokens(promptMessages.get(i));
+            if (i < common) {
+                cached += tokens;
+            } else {
+                uncached += tokens;
             }
         }
 
-        return false;
+        lastPromptMessages = promptMessages;
+        performanceMonitor.recordPromptTokens(cached, uncached);
     }
 
-    private void triggerWriteFile(String fileName, String content) {
-        java.util.Map<String, Object> params = new java.util.HashMap<>();
-        params.put("path", fileName);
-        params.put("content", content);
-
-        // 不再显示中间状态信息，直接触发工具调用确认
-        ToolCall toolCall = new ToolCall("write_file", params, null, false, 0);
-        toolCallHandler.accept(toolCall);
+    private static boolean samePromptMessage(ChatMessage a, ChatMessage b) {
+        if (a == b || a.getId().equals(b.getId())) {
+            return true;
+        }
+        return a.getRole().equals(b.getRole()) && a.getContent().equals(b.getContent());
     }
 
-    private String extractFileNameFromCommand(String response) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("write_file\\s+\"([^\"]+)\"");
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+    private List<dev.langchain4j.data.message.ChatMessage> convertToLangChainHistory(
+            List<ChatMessage> history) {
+        return history.stream()
+                .map(msg -> {
+                    if ("user".equals(msg.getRole())) {
+                        return dev.langchain4j.data.message.UserMessage.from(msg.getContent());
+                    } else if ("assistant".equals(msg.getRole())) {
+                        return dev.langchain4j.data.message.AiMessage.from(msg.getContent());
+                    } else {
+                        return dev.langchain4j.data.message.SystemMessage.from(msg.getContent());
+                    }
+                })
+                .collect(Collectors.toList());
     }
 
-    private String extractContentFromCommand(String response) {
-        // 使用贪婪匹配，匹配到最后一个引号
-        // 支持转义的引号 \"
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            "write_file\\s+\"[^\"]+\"\\s+\"((?:[^\"\\\\]|\\\\.)*)\"");
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            String content = matcher.group(1);
-            // 处理转义字符
-            return content.replace("\\n", "\n")
-                         .replace("\\\"", "\"")
-                         .replace("\\\\", "\\")
-                         .replace("\\t", "    ");
-        }
-        return null;
+    @Override
+    public void setMessageHandler(Consumer<ChatMessage> handler) {
+        this.messageHandler = handler;
     }
 
-    private String extractFileName(String response) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("([\\w/]+\\.java)");
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+    @Override
+    public void setStreamHandler(Consumer<CharSequence> handler) {
+        this.streamHandler = handler;
     }
 
     /**
-     * 从文本中提取文件名（支持多种格式）
-     * 例如："文件名：HelloWorld.java" 或 "创建 HelloWorld.java"
+     * 🔥 有增量处理器时直接传递原始文本，不再为每个 token 创建 ChatMessage
      */
-    private String extractFileNameFromText(String response) {
-        // 优先匹配 "文件名：XXX" 或 "filename: XXX" 格式
-        java.util.regex.Pattern pattern1 = java.util.regex.Pattern.compile(
-            "(?:文件名|filename|file name)\\s*[:：]?\\s*([\\w/]+\\.\\w+)",
-            java.util.regex.Pattern.CASE_INSENSITIVE
-        );
-        java.util.regex.Matcher matcher1 = pattern1.matcher(response);
-        if (matcher1.find()) {
-            return matcher1.group(1);
-        }
-
-        // 其次匹配任何文件名格式
-        java.util.regex.Pattern pattern2 = java.util.regex.Pattern.compile("([\\w/]+\\.(?:java|py|js|ts|cpp|c|h))");
-        java.util.regex.Matcher matcher2 = pattern2.matcher(response);
-        if (matcher2.find()) {
-            return matcher2.group(1);
+    private void emitToken(CharSequence token) {
+        if (streamHandler != null) {
+            streamHandler.accept(token);
+        } else {
+            messageHandler.accept(new ChatMessage("assistant", token.toString()));
         }
-
-        return null;
     }
 
-    private String extractFileContent(String response) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("```(?:java)?\\s*\\n([\\s\\S]*?)\\n```");
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(1).trim();
-        }
-        return null;
+    @Override
+    public void setToolCallHandler(Consumer<ToolCall> handler) {
+        this.toolCallHandler = handler;
     }
 
-    private String extractCodeFromText(String response) {
-        String codeBlock = extractFileContent(response);
-        if (codeBlock != null) {
-            return codeBlock;
-        }
-
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            "(?:public\\s+)?class\\s+\\w+\\s*\\{[\\s\\S]*?\\n\\}");
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(0).trim();
-        }
-
-        return null;
+    @Override
+    public boolean validateModel(String modelName) {
+        return appConfig.getModels().containsKey(modelName);
     }
 
-    /**
-     * 🔥 从简化格式中提取参数
-     * 例如：⏺ Read(HelloWorld.java) -> "HelloWorld.java"
-     *       ⏺ Bash(ls -la) -> "ls -la"
-     */
-    private String extractFromSimplifiedFormat(String response, String command) {
-        // 匹配格式：⏺ Command(参数)
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            "⏺\\s*" + command + "\\s*\\(([^)]+)\\)",
-            java.util.regex.Pattern.CASE_INSENSITIVE
-        );
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(1).trim();
-        }
-        return null;
+    @Override
+    public List<String> getAvailableModels() {
+        return new ArrayList<>(appConfig.getModels().keySet());
     }
 
     /**
-     * 🔥 从完整格式中提取带引号的路径
-     * 例如：file_manager read "test.java" -> "test.java"
+     * 🔥 将解析出的工具调用按顺序交给处理器（每轮只提交一批）
      */
-    private String extractQuotedPath(String response, String command) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-            command + "\\s+\"([^\"]+)\"",
-            java.util.regex.Pattern.CASE_INSENSITIVE
-        );
-        java.util.regex.Matcher matcher = pattern.matcher(response);
-        if (matcher.find()) {
-            return matcher.group(1);
+    private void triggerToolCalls(List<ToolCall> toolCalls) {
+        if (toolCalls.isEmpty() || toolCallHandler == null || hasTriggeredToolCall) {
+            return;
+        }
+        hasTriggeredToolCall = true;
+        for (ToolCall toolCall : toolCalls) {
+            toolCallHandler.accept(toolCall);
         }
-        return null;
-    }
-
-    /**
-     * 🔥 触发文件读取工具调用
-     */
-    private void triggerFileManagerRead(String filePath) {
-        java.util.Map<String, Object> params = new java.util.HashMap<>();
-        params.put("command", "read");
-        params.put("path", filePath);
-
-        ToolCall toolCall = new ToolCall("file_manager", params, null, false, 0);
-        toolCallHandler.accept(toolCall);
     }
 
-    /**
-     * 🔥 触发目录列出工具调用
-     */
-    private void triggerFileManagerList(String dirPath) {
-        java.util.Map<String, Object> params = new java.util.HashMap<>();
-        params.put("command", "list");
-        params.put("path", dirPath);
-
-        ToolCall toolCall = new ToolCall("file_manager", params, null, false, 0);
-        toolCallHandler.accept(toolCall);
+    public boolean isGenerating() {
+        return isGenerating;
     }
 
     /**
-     * 🔥 触发命令执行工具调用
+     * 🔥 停止当前生成：停止输出并立即取消 HTTP 流，不再继续消耗 token（可在任意线程调用）
      */
-    private void triggerCommandExecutor(String command) {
-        java.util.Map<String, Object> params = new java.util.HashMap<>();
-        params.put("command", command);
-
-        ToolCall toolCall = new ToolCall("command_executor", params, null, false, 0);
-        toolCallHandler.accept(toolCall);
+    public void stopCurrentGeneration() {
+        if (isGenerating) {
+            shouldStop = true;
+            cancelHttpCalls();
+        }
     }
 
     /**
-     * 移除文本中的工具调用命令部分
-     * 例如: "好的，我来帮你创建。\n\nwrite_file \"test.java\" \"...\"\n"
-     * 返回: "好的，我来帮你创建。"
+     * langchain4j 0.29 的流式接口不返回请求句柄，这里取出 OpenAiStreamingChatModel 内部
+     * openai4j 客户端的 OkHttpClient 并取消其全部请求；每个模型实例有独立的客户端，不影响其他连接。
+     * 取不到客户端时（模型实现不同）只停止输出，由 shouldStop 丢弃后续 token
      */
-    private String removeToolCommandText(String text) {
-        if (text == null || text.isEmpty()) {
-            return text;
+    private void cancelHttpCalls() {
+        OkHttpClient httpClient = findHttpClient(activeModel);
+        if (httpClient != null) {
+            httpClient.dispatcher().cancelAll();
         }
-
-        // 移除 write_file 命令及其后续内容
-        String result = text.replaceAll("\\s*write_file\\s+\"[^\"]+\"[\\s\\S]*", "");
-
-        // 移除尾部的多余空白
-        return result.trim();
     }
 
-    public boolean isGenerating() {
-        return isGenerating;
+    static OkHttpClient findHttpClient(Object model) {
+        try {
+            Object client = readField(model, "client");
+            Object httpClient = client != null ? readField(client, "okHttpClient") : null;
+            return httpClient instanceof OkHttpClient ? (OkHttpClient) httpClient : null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
     }
 
-    public void stopCurrentGeneration() {
-        if (isGenerating) {
-            shouldStop = true;
-            System.out.println("⏸️  正在停止生成...");
+    private static Object readField(Object target, String name) throws ReflectiveOperationException {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(target);
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
         }
+        return null;
     }
 }
 
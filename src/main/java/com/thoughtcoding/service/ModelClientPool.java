@@ -0,0 +1,69 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.config.AppConfig;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按模型缓存的客户端池
+ *
+ * 每个 AppConfig.models 条目在第一次使用时构建一个 OpenAiStreamingChatModel 并缓存，
+ * 各模型有独立的 HTTP 客户端（连接池、超时），切换模型不需要重新建立连接
+ */
+public class ModelClientPool {
+    private final AppConfig appConfig;
+    private final ConcurrentHashMap<String, StreamingChatLanguageModel> clients = new ConcurrentHashMap<>();
+
+    public ModelClientPool(AppConfig appConfig) {
+        this.appConfig = appConfig;
+    }
+
+    /**
+     * @return 模型客户端；模型未配置或构建失败时返回 null
+     */
+    public StreamingChatLanguageModel get(String modelKey) {
+        if (modelKey == null) {
+            return null;
+        }
+        StreamingChatLanguageModel client = clients.get(modelKey);
+        if (client != null) {
+            return client;
+        }
+        AppConfig.ModelConfig config = appConfig.getModelConfig(modelKey);
+        if (config == null) {
+            return null;
+        }
+        try {
+            return clients.computeIfAbsent(modelKey, key -> create(config));
+        } catch (Exception e) {
+            System.err.println("初始化模型失败 [" + modelKey + "]: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 已经构建过客户端的模型
+     */
+    public Set<String> getBuiltModels() {
+        return new TreeSet<>(clients.keySet());
+    }
+
+    static StreamingChatLanguageModel create(AppConfig.ModelConfig config) {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(config.getBaseURL())
+                .apiKey(config.getApiKey())
+                .modelName(config.getName())
+                .temperature(config.getTemperature())
+                .topP(config.getTopP())
+                .maxTokens(config.getMaxTokens())
+                .timeout(Duration.ofSeconds(config.getTimeout()))
+                .logRequests(true)
+                .logResponses(true)
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.config.AppConfig;
+
+/**
+ * 模型路由：按任务类型选择模型
+ *
+ * 1. 编码任务（对话、工具调用、自主多步）使用指定的模型（-m），未指定或不存在时使用 defaultModel
+ * 2. 轻量任务（生成提交信息等）使用 ai.lightModel 配置的小模型，未配置时与编码任务相同
+ */
+public class ModelRouter {
+
+    public enum Task {
+        CODING,  // 需要强模型的编码请求
+        LIGHT    // 可以交给小而快的模型的请求
+    }
+
+    private final AppConfig appConfig;
+
+    public ModelRouter(AppConfig appConfig) {
+        this.appConfig = appConfig;
+    }
+
+    /**
+     * @param requestedModel 用户指定的模型键（可以为 null）
+     * @return AppConfig.models 中的模型键；没有可用模型时返回 defaultModel
+     */
+    public String route(Task task, String requestedModel) {
+        if (task == Task.LIGHT && isConfigured(appConfig.getAi().getLightModel())) {
+            return appConfig.getAi().getLightModel();
+        }
+        if (isConfigured(requestedModel)) {
+            return requestedModel;
+        }
+        return appConfig.getDefaultModel();
+    }
+
+    private boolean isConfigured(String modelKey) {
+        return modelKey != null && appConfig.getModelConfig(modelKey) != null;
+    }
+}
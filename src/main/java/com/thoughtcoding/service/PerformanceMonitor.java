@@ -2,21 +2,33 @@ package com.thoughtcoding.service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 性能监控器，跟踪请求数、令牌数、工具调用数和执行时间
+ * 以及提示词前缀缓存的命中情况（可缓存 / 不可缓存的 prompt token）、被用户取消的生成和各模型的延迟与用量
  */
 public class PerformanceMonitor {
     private Instant startTime;
     private final AtomicLong totalRequests;
     private final AtomicLong totalTokens;
     private final AtomicLong totalToolCalls;
+    private final AtomicLong cachedPromptTokens;
+    private final AtomicLong uncachedPromptTokens;
+    private final AtomicLong cancelledGenerations;
+    private final Map<String, ModelUsage> modelUsage = new ConcurrentHashMap<>();
+    private volatile long lastExecutionTimeMs;
 
     public PerformanceMonitor() {
         this.totalRequests = new AtomicLong(0);
         this.totalTokens = new AtomicLong(0);
         this.totalToolCalls = new AtomicLong(0);
+        this.cachedPromptTokens = new AtomicLong(0);
+        this.uncachedPromptTokens = new AtomicLong(0);
+        this.cancelledGenerations = new AtomicLong(0);
     }
 
     public void start() {
@@ -30,7 +42,16 @@ public class PerformanceMonitor {
         }
 
         Duration duration = Duration.between(startTime, Instant.now());
-        return new PerformanceData(duration.toMillis(), totalRequests.get(), totalTokens.get(), totalToolCalls.get());
+        lastExecutionTimeMs = duration.toMillis();
+        return snapshot();
+    }
+
+    /**
+     * 当前的累计数据，执行时间为最近一次输入的耗时（用于 /stats）
+     */
+    public PerformanceData snapshot() {
+        return new PerformanceData(lastExecutionTimeMs, totalRequests.get(), totalTokens.get(), totalToolCalls.get(),
+                cachedPromptTokens.get(), uncachedPromptTokens.get(), cancelledGenerations.get());
     }
 
     public void recordTokens(int tokens) {
@@ -41,10 +62,93 @@ public class PerformanceMonitor {
         totalToolCalls.incrementAndGet();
     }
 
+    /**
+     * 记录一次请求的 prompt token 构成
+     *
+     * @param cached   与上一次请求字节一致的前缀部分（可命中提供方的前缀缓存）
+     * @param uncached 前缀之后新增或变化的部分
+     */
+    public void recordPromptTokens(int cached, int uncached) {
+        cachedPromptTokens.addAndGet(cached);
+        uncachedPromptTokens.addAndGet(uncached);
+    }
+
+    /**
+     * 记录一次被用户取消的生成
+     *
+     * @param partialTokens 取消前已生成的 token（估算值，被取消的流不返回用量）
+     */
+    public void recordCancellation(int partialTokens) {
+        cancelledGenerations.incrementAndGet();
+        totalTokens.addAndGet(partialTokens);
+    }
+
+    public long getCancelledGenerations() {
+        return cancelledGenerations.get();
+    }
+
+    /**
+     * 记录一次模型调用
+     *
+     * @param latencyMs 从发出请求到响应结束的耗时
+     * @param tokens    本次调用的 token 用量（提供方未返回时为 0）
+     */
+    public void recordModelCall(String model, long latencyMs, int tokens) {
+        modelUsage.computeIfAbsent(model, key -> new ModelUsage()).record(latencyMs, tokens);
+    }
+
+    /**
+     * 各模型的调用统计，按模型名排序
+     */
+    public Map<String, ModelUsage> getModelUsage() {
+        return new TreeMap<>(modelUsage);
+    }
+
+    public long getCachedPromptTokens() {
+        return cachedPromptTokens.get();
+    }
+
+    public long getUncachedPromptTokens() {
+        return uncachedPromptTokens.get();
+    }
+
     public void reset() {
         totalRequests.set(0);
         totalTokens.set(0);
         totalToolCalls.set(0);
+        cachedPromptTokens.set(0);
+        uncachedPromptTokens.set(0);
+        cancelledGenerations.set(0);
+        lastExecutionTimeMs = 0;
+        modelUsage.clear();
+    }
+
+    /**
+     * 单个模型的调用次数、token 用量和累计延迟
+     */
+    public static class ModelUsage {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong tokens = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+
+        void record(long latencyMs, int tokenCount) {
+            requests.incrementAndGet();
+            tokens.addAndGet(tokenCount);
+            totalLatencyMs.addAndGet(latencyMs);
+        }
+
+        public long getRequests() { return requests.get(); }
+        public long getTokens() { return tokens.get(); }
+
+        public long getAverageLatencyMs() {
+            long count = requests.get();
+            return count == 0 ? 0 : totalLatencyMs.get() / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d tokens, avg %dms", getRequests(), getTokens(), getAverageLatencyMs());
+        }
     }
 
     public static class PerformanceData {
@@ -52,12 +156,29 @@ public class PerformanceMonitor {
         private final long totalRequests;
         private final long totalTokens;
         private final long totalToolCalls;
+        private final long cachedPromptTokens;
+        private final long uncachedPromptTokens;
+        private final long cancelledGenerations;
+        private SessionPersister.Stats sessionStats;  // 会话异步写入的队列深度和写入耗时，可以为 null
 
         public PerformanceData(long executionTimeMs, long totalRequests, long totalTokens, long totalToolCalls) {
+            this(executionTimeMs, totalRequests, totalTokens, totalToolCalls, 0, 0);
+        }
+
+        public PerformanceData(long executionTimeMs, long totalRequests, long totalTokens, long totalToolCalls,
+                               long cachedPromptTokens, long uncachedPromptTokens) {
+            this(executionTimeMs, totalRequests, totalTokens, totalToolCalls, cachedPromptTokens, uncachedPromptTokens, 0);
+        }
+
+        public PerformanceData(long executionTimeMs, long totalRequests, long totalTokens, long totalToolCalls,
+                               long cachedPromptTokens, long uncachedPromptTokens, long cancelledGenerations) {
             this.executionTimeMs = executionTimeMs;
             this.totalRequests = totalRequests;
             this.totalTokens = totalTokens;
             this.totalToolCalls = totalToolCalls;
+            this.cachedPromptTokens = cachedPromptTokens;
+            this.uncachedPromptTokens = uncachedPromptTokens;
+            this.cancelledGenerations = cancelledGenerations;
         }
 
         // Getters
@@ -65,11 +186,34 @@ public class PerformanceMonitor {
         public long getTotalRequests() { return totalRequests; }
         public long getTotalTokens() { return totalTokens; }
         public long getTotalToolCalls() { return totalToolCalls; }
+        public long getCachedPromptTokens() { return cachedPromptTokens; }
+        public long getUncachedPromptTokens() { return uncachedPromptTokens; }
+        public long getCancelledGenerations() { return cancelledGenerations; }
+        public SessionPersister.Stats getSessionStats() { return sessionStats; }
+
+        /**
+         * 附带会话写入统计的副本
+         */
+        public PerformanceData withSessionStats(SessionPersister.Stats sessionStats) {
+            PerformanceData copy = new PerformanceData(executionTimeMs, totalRequests, totalTokens, totalToolCalls,
+                    cachedPromptTokens, uncachedPromptTokens, cancelledGenerations);
+            copy.sessionStats = sessionStats;
+            return copy;
+        }
+
+        /**
+         * prompt token 中可命中前缀缓存的比例（0-100）
+         */
+        public long getPromptCacheHitPercent() {
+            long total = cachedPromptTokens + uncachedPromptTokens;
+            return total == 0 ? 0 : cachedPromptTokens * 100 / total;
+        }
 
         @Override
         public String toString() {
-            return String.format("Performance{time=%dms, requests=%d, tokens=%d, tools=%d}",
-                    executionTimeMs, totalRequests, totalTokens, totalToolCalls);
+            return String.format("Performance{time=%dms, requests=%d, tokens=%d, tools=%d, promptCache=%d/%d, cancelled=%d}",
+                    executionTimeMs, totalRequests, totalTokens, totalToolCalls,
+                    cachedPromptTokens, cachedPromptTokens + uncachedPromptTokens, cancelledGenerations);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.thoughtcoding.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 会话索引，保存每个会话的元数据，避免列出会话时逐个扫描会话文件
+ *
+ * 🔥 存储格式：sessions/index.bin，文件头（魔数 + 版本）之后是追加写入的二进制记录
+ * 1. PUT 记录：id、标题、创建时间、最后访问时间、消息数、字节数；同一 id 以最后一条为准
+ * 2. DELETE 记录：只有 id
+ * 启动时一次性读入内存，之后每次更新只追加一条记录；失效记录过多时重写整个文件
+ * 索引只是缓存，文件缺失或损坏时由 SessionService 扫描会话目录重建
+ */
+public class SessionIndex {
+
+    private static final int MAGIC = 0x54435349;  // "TCSI"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final int COMPACT_SLACK = 64;  // 允许的失效记录数下限，避免小索引频繁重写
+
+    /**
+     * 会话元数据（不可变），时间均为毫秒时间戳
+     */
+    public static final class Entry {
+        private final String sessionId;
+        private final String title;
+        private final long createdTime;
+        private final long lastAccessTime;
+        private final int messageCount;
+        private final long byteSize;
+
+        public Entry(String sessionId, String title, long createdTime, long lastAccessTime,
+                     int messageCount, long byteSize) {
+            this.sessionId = sessionId;
+            this.title = title;
+            this.createdTime = createdTime;
+            this.lastAccessTime = lastAccessTime;
+            this.messageCount = messageCount;
+            this.byteSize = byteSize;
+        }
+
+        public String getSessionId() { return sessionId; }
+        public String getTitle() { return title; }
+        public long getCreatedTime() { return createdTime; }
+        public long getLastAccessTime() { return lastAccessTime; }
+        public int getMessageCount() { return messageCount; }
+        public long getByteSize() { return byteSize; }
+    }
+
+    // 最近访问的排在前面，时间相同时按 id 排序保证稳定
+    private static final Comparator<Entry> LATEST_FIRST = Comparator
+            .comparingLong(Entry::getLastAccessTime).reversed()
+            .thenComparing(Entry::getSessionId);
+
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byLastAccess = new TreeSet<>(LATEST_FIRST);
+    private int recordCount;
+
+    public SessionIndex(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * 从磁盘读取索引
+     *
+     * @return 索引文件存在且文件头有效时返回 true；返回 false 时调用方应重建索引
+     */
+    public synchronized boolean load() {
+        entries.clear();
+        byLastAccess.clear();
+        recordCount = 0;
+
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+
+        try {
+            // 索引很小（每个会话约一百字节），一次读入后在内存中解析
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            int size = buffer.limit();
+            if (size < HEADER_SIZE) {
+                return false;
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return false;
+            }
+
+            int validEnd = buffer.position();
+            try {
+                while (buffer.hasRemaining()) {
+                    byte type = buffer.get();
+                    String sessionId = readString(buffer);
+                    if (type == RECORD_PUT) {
+                        String title = readString(buffer);
+                        long createdTime = buffer.getLong();
+                        long lastAccessTime = buffer.getLong();
+                        int messageCount = buffer.getInt();
+                        long byteSize = buffer.getLong();
+                        apply(new Entry(sessionId, title, createdTime, lastAccessTime, messageCount, byteSize));
+                    } else if (type == RECORD_DELETE) {
+                        applyDelete(sessionId);
+                    } else {
+                        break;
+                    }
+                    recordCount++;
+                    validEnd = buffer.position();
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // 写入过程中崩溃留下的不完整记录，丢弃
+            }
+
+            if (validEnd < size) {
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(validEnd);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 用给定的元数据整体替换索引（重建时使用）
+     */
+    public synchronized void rebuild(Collection<Entry> newEntries) {
+        entries.clear();
+        byLastAccess.clear();
+        newEntries.forEach(this::apply);
+        rewrite();
+    }
+
+    public synchronized void put(Entry entry) {
+        apply(entry);
+        append(encodePut(entry));
+        compactIfNeeded();
+    }
+
+    public synchronized void remove(String sessionId) {
+        if (applyDelete(sessionId)) {
+            append(encodeDelete(sessionId));
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized Entry get(String sessionId) {
+        return entries.get(sessionId);
+    }
+
+    /**
+     * 最近访问的会话，O(1)
+     */
+    public synchronized Entry latest() {
+        return byLastAccess.isEmpty() ? null : byLastAccess.first();
+    }
+
+    /**
+     * 按最近访问时间倒序列出所有会话
+     */
+    public synchronized List<Entry> list() {
+        return new ArrayList<>(byLastAccess);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void apply(Entry entry) {
+        Entry previous = entries.put(entry.getSessionId(), entry);
+        if (previous != null) {
+            byLastAccess.remove(previous);
+        }
+        byLastAccess.add(entry);
+    }
+
+    private boolean applyDelete(String sessionId) {
+        Entry previous = entries.remove(sessionId);
+        if (previous != null) {
+            byLastAccess.remove(previous);
+            return true;
+        }
+        return false;
+    }
+
+    private void compactIfNeeded() {
+        if (recordCount > entries.size() * 2 + COMPACT_SLACK) {
+            rewrite();
+        }
+    }
+
+    private void append(byte[] record) {
+        try {
+            if (!Files.exists(indexFile) || Files.size(indexFile) < HEADER_SIZE) {
+                rewrite();
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writeFully(channel, ByteBuffer.wrap(record));
+            }
+            recordCount++;
+        } catch (IOException e) {
+            // 索引只是缓存，写入失败不影响会话本身，下次启动会重建
+            System.err.println("Failed to update session index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 只写入当前有效的记录（临时文件 + 原子替换）
+     */
+    private void rewrite() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            for (Entry entry : entries.values()) {
+                out.write(encodePut(entry));
+            }
+            out.flush();
+
+            Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+                channel.force(false);
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordCount = entries.size();
+        } catch (IOException e) {
+            System.err.println("Failed to write session index: " + e.getMessage());
+        }
+    }
+
+    private static byte[] encodePut(Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_PUT);
+            writeString(out, entry.getSessionId());
+            writeString(out, entry.getTitle());
+            out.writeLong(entry.getCreatedTime());
+            out.writeLong(entry.getLastAccessTime());
+            out.writeInt(entry.getMessageCount());
+            out.writeLong(entry.getByteSize());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(String sessionId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_DELETE);
+            writeString(out, sessionId);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] data = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt string length: " + length);
+        }
+        byte[] data = new byte[length];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ChatMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话异步持久化（write-behind），把磁盘写入移出交互线程
+ *
+ * 🔥 工作方式：
+ * 1. submit() 只复制一份历史快照放入待写表，立即返回
+ * 2. 同一会话在写入前多次提交只保留最新快照，合并为一次写入
+ * 3. 后台守护线程按提交顺序调用 SessionService.saveSession
+ * 4. 队列满时提交方阻塞等待；关闭时（含 JVM 关闭钩子）先写完所有待写会话
+ */
+public class SessionPersister implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SessionPersister.class);
+
+    private static final int QUEUE_CAPACITY = 64;             // 最多同时等待写入的会话数
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;     // 关闭时等待写完的最长时间
+
+    private final SessionService sessionService;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<String, List<ChatMessage>> pending = new ConcurrentHashMap<>();
+    private final Thread worker;
+    private final Object idleLock = new Object();
+    private int outstanding;  // 已入队但尚未写完的会话数，受 idleLock 保护
+    private volatile boolean closed;
+
+    // 指标
+    private final AtomicLong submitCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+
+    public SessionPersister(SessionService sessionService) {
+        this.sessionService = sessionService;
+        // Java 17 没有虚拟线程，使用单个守护平台线程
+        this.worker = new Thread(this::runWorker, "session-persister");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 注册 JVM 关闭钩子，退出前写完所有待写会话
+     */
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "session-persister-shutdown"));
+    }
+
+    /**
+     * 提交一次保存，立即返回
+     */
+    public void submit(String sessionId, List<ChatMessage> messages) {
+        List<ChatMessage> snapshot = new ArrayList<>(messages);
+        submitCount.incrementAndGet();
+
+        if (closed) {
+            write(sessionId, snapshot);
+            return;
+        }
+
+        // 该会话已在队列中等待，替换为最新快照即可
+        if (pending.put(sessionId, snapshot) != null) {
+            coalescedCount.incrementAndGet();
+            return;
+        }
+
+        synchronized (idleLock) {
+            outstanding++;
+        }
+        try {
+            // 队列已满时阻塞等待，形成背压；仍由后台线程写入，保证同一会话的写入顺序
+            queue.put(sessionId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markDone();
+            List<ChatMessage> latest = pending.remove(sessionId);
+            if (latest != null) {
+                write(sessionId, latest);
+            }
+        }
+    }
+
+    /**
+     * 等待所有已提交的保存写入磁盘（读取会话前调用，保证读到最新内容）
+     *
+     * @return 在超时前写完返回 true
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (idleLock) {
+            while (outstanding > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    idleLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean flush() {
+        return flush(SHUTDOWN_TIMEOUT_MS);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!flush(SHUTDOWN_TIMEOUT_MS)) {
+            log.warn("Session persister did not drain within {} ms, {} sessions pending",
+                    SHUTDOWN_TIMEOUT_MS, pending.size());
+        }
+        worker.interrupt();
+    }
+
+    public Stats getStats() {
+        long flushes = flushCount.get();
+        return new Stats(pending.size(), submitCount.get(), coalescedCount.get(), flushes, failedCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastFlushNanos),
+                flushes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushNanos.get() / flushes),
+                TimeUnit.NANOSECONDS.toMillis(maxFlushNanos.get()));
+    }
+
+    private void runWorker() {
+        while (true) {
+            String sessionId;
+            try {
+                sessionId = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                List<ChatMessage> snapshot = pending.remove(sessionId);
+                if (snapshot != null) {
+                    write(sessionId, snapshot);
+                }
+            } finally {
+                markDone();
+            }
+        }
+    }
+
+    private void write(String sessionId, List<ChatMessage> snapshot) {
+        long start = System.nanoTime();
+        try {
+            sessionService.saveSession(sessionId, snapshot);
+            flushCount.incrementAndGet();
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            log.warn("Failed to save session {}: {}", sessionId, e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            lastFlushNanos = elapsed;
+            totalFlushNanos.addAndGet(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+            log.debug("Session {} flushed in {} ms, queue depth {}",
+                    sessionId, TimeUnit.NANOSECONDS.toMillis(elapsed), pending.size());
+        }
+    }
+
+    private void markDone() {
+        synchronized (idleLock) {
+            outstanding--;
+            if (outstanding == 0) {
+                idleLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 持久化指标快照
+     */
+    public static class Stats {
+        private final int queueDepth;
+        private final long submitCount;
+        private final long coalescedCount;
+        private final long flushCount;
+        private final long failedCount;
+        private final long lastFlushMs;
+        private final long avgFlushMs;
+        private final long maxFlushMs;
+
+        public Stats(int queueDepth, long submitCount, long coalescedCount, long flushCount, long failedCount,
+                     long lastFlushMs, long avgFlushMs, long maxFlushMs) {
+            this.queueDepth = queueDepth;
+            this.submitCount = submitCount;
+            this.coalescedCount = coalescedCount;
+            this.flushCount = flushCount;
+            this.failedCount = failedCount;
+            this.lastFlushMs = lastFlushMs;
+            this.avgFlushMs = avgFlushMs;
+            this.maxFlushMs = maxFlushMs;
+        }
+
+        // Getters
+        public int getQueueDepth() { return queueDepth; }
+        public long getSubmitCount() { return submitCount; }
+        public long getCoalescedCount() { return coalescedCount; }
+        public long getFlushCount() { return flushCount; }
+        public long getFailedCount() { return failedCount; }
+        public long getLastFlushMs() { return lastFlushMs; }
+        public long getAvgFlushMs() { return avgFlushMs; }
+        public long getMaxFlushMs() { return maxFlushMs; }
+
+        @Override
+        public String toString() {
+            return String.format("SessionPersister{queue=%d, submitted=%d, coalesced=%d, flushed=%d, failed=%d, " +
+                            "flushMs(last/avg/max)=%d/%d/%d}",
+                    queueDepth, submitCount, coalescedCount, flushCount, failedCount,
+                    lastFlushMs, avgFlushMs, maxFlushMs);
+        }
+    }
+}
@@ -1,29 +1,57 @@
 package com.thoughtcoding.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.thoughtcoding.model.ChatMessage;
 import com.thoughtcoding.model.SessionData;
 
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * 会话管理服务，负责创建、保存、加载和删除会话
  *
  * 支持自动保存
+ *
+ * 🔥 存储格式：每个会话由快照 sessions/{id}.json 和追加日志 sessions/{id}.jsonl 组成
+ * 1. 每轮只把新增消息追加到日志（每行一条 JSON，带递增序号），一次保存只 fsync 一次
+ * 2. 日志条目超过阈值、或历史被改写（如清空）时压缩为新快照，并删除日志
+ * 3. 加载时读取快照再重放日志中序号不小于快照 journalSeq 的条目
+ * 旧版本只有 .json 的会话直接作为快照读取，第一次压缩时自动迁移为新格式
+ *
+ * 🔥 会话元数据（标题、创建/访问时间、消息数、大小）保存在 SessionIndex 中，随保存增量更新，
+ * 列出会话和查找最近会话时不再扫描目录
  */
 public class SessionService {
 
     private static final String SESSIONS_DIR = "sessions";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final String JOURNAL_SUFFIX = ".jsonl";
+    private static final int COMPACT_THRESHOLD = 200;  // 日志条目超过该数量时压缩为快照
+    private static final String INDEX_FILE = "index.bin";
+    private static final String DEFAULT_TITLE = "Untitled Session";
+    private static final int MAX_TITLE_LENGTH = 50;
+
+    private final Path sessionsDir;
     private final Map<String, SessionData> activeSessions;
     private final ObjectMapper objectMapper;
+    private final ObjectWriter journalWriter;
+    private final Map<String, JournalState> journals = new ConcurrentHashMap<>();
+    private final SessionIndex sessionIndex;
 
     // 简化的 DTO 用于序列化
     private static class SessionDTO {
@@ -31,6 +59,7 @@ public class SessionService {
         public String title;
         public String createdTime;
         public String lastAccessTime;
+        public long journalSeq;  // 快照已包含的日志序号上限，加载时跳过更小的日志条目
         public List<MessageDTO> messages = new ArrayList<>();
     }
 
@@ -40,11 +69,39 @@ public class SessionService {
         public String timestamp;
     }
 
+    // 日志中的一行
+    private static class JournalEntry {
+        public long seq;
+        public String role;
+        public String content;
+        public String timestamp;
+    }
+
+    /**
+     * 已持久化的状态：内存中历史列表的前 persistedSize 条已经写入快照或日志
+     */
+    private static class JournalState {
+        int persistedSize;
+        String lastPersistedId;
+        long nextSeq;
+        long snapshotSeq;
+    }
+
     public SessionService() {
+        this(Paths.get(SESSIONS_DIR));
+    }
+
+    public SessionService(Path sessionsDir) {
+        this.sessionsDir = sessionsDir;
         this.activeSessions = new HashMap<>();
         this.objectMapper = new ObjectMapper();
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.journalWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
         ensureSessionsDirectory();
+        this.sessionIndex = new SessionIndex(sessionsDir.resolve(INDEX_FILE));
+        if (!sessionIndex.load()) {
+            rebuildIndex();
+        }
     }
 
     public String createNewSession() {
@@ -59,35 +116,36 @@ public class SessionService {
         return sessionId;
     }
 
-    public void saveSession(String sessionId, List<ChatMessage> messages) {
+    /**
+     * 保存会话：只追加上次保存之后新增的消息；历史被改写或日志过长时写入新快照
+     */
+    public synchronized void saveSession(String sessionId, List<ChatMessage> messages) {
         try {
-            SessionDTO sessionDTO = new SessionDTO();
-            sessionDTO.sessionId = sessionId;
-            sessionDTO.title = "Untitled Session";
-            sessionDTO.createdTime = Instant.now().toString();
-            sessionDTO.lastAccessTime = Instant.now().toString();
-
-            // 转换消息
-            sessionDTO.messages = messages.stream()
-                    .map(msg -> {
-                        MessageDTO dto = new MessageDTO();
-                        dto.role = msg.getRole();
-                        dto.content = msg.getContent();
-                        dto.timestamp = msg.getTimestamp() != null ? String.valueOf(msg.getTimestamp()) : Instant.now().toString();
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
-
-            // 保存到文件
-            File jsonFile = getSessionFilePath(sessionId).toFile();
-            objectMapper.writeValue(jsonFile, sessionDTO);
+            JournalState state = journals.get(sessionId);
+            if (state == null || !isAppendable(state, messages)) {
+                writeSnapshot(sessionId, messages, state);
+                return;
+            }
+
+            if (messages.size() == state.persistedSize) {
+                return;
+            }
 
+            long appendedBytes = appendToJournal(sessionId, messages, state);
+
+            if (state.nextSeq - state.snapshotSeq >= COMPACT_THRESHOLD) {
+                writeSnapshot(sessionId, messages, state);
+            } else {
+                SessionIndex.Entry entry = sessionIndex.get(sessionId);
+                long byteSize = entry != null ? entry.getByteSize() + appendedBytes : sessionFileSize(sessionId);
+                updateIndex(sessionId, messages, byteSize);
+            }
         } catch (Exception e) {
             throw new RuntimeException("Failed to save session to disk: " + e.getMessage(), e);
         }
     }
 
-    public List<ChatMessage> loadSession(String sessionId) {
+    public synchronized List<ChatMessage> loadSession(String sessionId) {
         try {
             // 首先检查内存中的会话
             SessionData session = activeSessions.get(sessionId);
@@ -95,100 +153,66 @@ public class SessionService {
                 return session.getMessages();
             }
 
-            // 从磁盘加载
-            File jsonFile = getSessionFilePath(sessionId).toFile();
+            List<ChatMessage> messages = readSessionFromDisk(sessionId);
 
-            if (!jsonFile.exists()) {
-                throw new RuntimeException("Session file not found: " + sessionId);
-            }
+            // 记录访问时间，--continue 据此找到最近使用的会话
+            SessionIndex.Entry entry = sessionIndex.get(sessionId);
+            sessionIndex.put(new SessionIndex.Entry(sessionId,
+                    entry != null ? entry.getTitle() : deriveTitle(messages),
+                    entry != null ? entry.getCreatedTime() : System.currentTimeMillis(),
+                    System.currentTimeMillis(), messages.size(),
+                    entry != null ? entry.getByteSize() : sessionFileSize(sessionId)));
 
-            // 使用 Map 解析 JSON，避免 SessionDTO
-            Map<String, Object> sessionData = objectMapper.readValue(jsonFile, Map.class);
-
-            // 获取 messages 数组
-            List<Map<String, Object>> messagesData = (List<Map<String, Object>>) sessionData.get("messages");
-
-            if (messagesData == null) {
-                return new ArrayList<>();
-            }
-
-            // 转换为 ChatMessage 列表 - 添加过滤
-            return messagesData.stream()
-                    .map(messageMap -> {
-                        String role = (String) messageMap.get("role");
-                        String content = (String) messageMap.get("content");
-
-                        // 🚨 关键修复：过滤空内容
-                        if (content == null || content.trim().isEmpty()) {
-                            return null;
-                        }
-
-                        ChatMessage msg = new ChatMessage(role, content, sessionId);
-
-                        // 设置非 final 字段
-                        Object timestamp = messageMap.get("timestamp");
-                        if (timestamp != null) {
-                            msg.setTimestamp(timestamp.toString());
-                        }
-
-                        return msg;
-                    })
-                    .filter(Objects::nonNull) // 过滤掉 null
-                    .collect(Collectors.toList());
+            return messages;
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to load session from disk: " + e.getMessage(), e);
         }
     }
 
-    public boolean deleteSession(String sessionId) {
+    public synchronized boolean deleteSession(String sessionId) {
         // 从内存中移除
         SessionData removed = activeSessions.remove(sessionId);
+        journals.remove(sessionId);
+        sessionIndex.remove(sessionId);
 
         // 从磁盘删除
         Path sessionFile = getSessionFilePath(sessionId);
         try {
-            return Files.deleteIfExists(sessionFile);
+            boolean snapshotDeleted = Files.deleteIfExists(sessionFile);
+            boolean journalDeleted = Files.deleteIfExists(getJournalFilePath(sessionId));
+            return snapshotDeleted || journalDeleted;
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete session: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 按最近访问时间倒序列出会话 ID
+     */
     public List<String> listSessions() {
-        Set<String> sessions = new HashSet<>();
+        List<String> sessions = listSessionEntries().stream()
+                .map(SessionIndex.Entry::getSessionId)
+                .collect(Collectors.toList());
 
-        // 添加内存中的会话
-        sessions.addAll(activeSessions.keySet());
+        // 添加尚未保存到磁盘的内存会话
+        activeSessions.keySet().stream()
+                .filter(id -> sessionIndex.get(id) == null)
+                .forEach(sessions::add);
 
-        // 添加磁盘上的会话
-        try {
-            Path sessionsDir = Paths.get(SESSIONS_DIR);
-            if (Files.exists(sessionsDir)) {
-                Files.list(sessionsDir)
-                        .filter(path -> path.toString().endsWith(".json"))
-                        .map(path -> {
-                            String fileName = path.getFileName().toString();
-                            return fileName.substring(0, fileName.length() - 5); // 去掉 .json 后缀
-                        })
-                        .forEach(sessions::add);
-            }
-        } catch (Exception e) {
-            // 忽略错误，继续执行
-            System.err.println("Error listing sessions: " + e.getMessage());
-        }
+        return sessions;
+    }
 
-        return new ArrayList<>(sessions);
+    /**
+     * 按最近访问时间倒序列出会话元数据，直接读取索引，不扫描会话文件
+     */
+    public List<SessionIndex.Entry> listSessionEntries() {
+        return sessionIndex.list();
     }
 
     public String getLatestSessionId() {
-        List<String> sessions = listSessions();
-        if (sessions.isEmpty()) {
-            return null;
-        }
-
-        // 简单的实现：返回最后一个会话ID
-        // 实际应该根据时间戳排序，这里先返回最后一个
-        return sessions.get(sessions.size() - 1);
+        SessionIndex.Entry latest = sessionIndex.latest();
+        return latest != null ? latest.getSessionId() : null;
     }
 
     public SessionData getSessionInfo(String sessionId) {
@@ -201,7 +225,6 @@ public class SessionService {
 
     private void ensureSessionsDirectory() {
         try {
-            Path sessionsDir = Paths.get(SESSIONS_DIR);
             if (!Files.exists(sessionsDir)) {
                 Files.createDirectories(sessionsDir);
             }
@@ -211,7 +234,404 @@ public class SessionService {
     }
 
     private Path getSessionFilePath(String sessionId) {
-        return Paths.get(SESSIONS_DIR, sessionId + ".json");
+        return sessionsDir.resolve(sessionId + SNAPSHOT_SUFFIX);
+    }
+
+    private Path getJournalFilePath(String sessionId) {
+        return sessionsDir.resolve(sessionId + JOURNAL_SUFFIX);
+    }
+
+    private String toSessionId(String fileName) {
+        if (fileName.endsWith(JOURNAL_SUFFIX)) {
+            return fileName.substring(0, fileName.length() - JOURNAL_SUFFIX.length());
+        }
+        if (fileName.endsWith(SNAPSHOT_SUFFIX)) {
+            return fileName.substring(0, fileName.length() - SNAPSHOT_SUFFIX.length());
+        }
+        return null;
+    }
+
+    /**
+     * 内存中的历史是否只是在已持久化部分之后追加了消息
+     */
+    private boolean isAppendable(JournalState state, List<ChatMessage> messages) {
+        if (messages.size() < state.persistedSize) {
+            return false;
+        }
+        if (state.persistedSize == 0) {
+            return true;
+        }
+        return messages.get(state.persistedSize - 1).getId().equals(state.lastPersistedId);
+    }
+
+    /**
+     * 把新增消息追加到日志，整批写入后只 fsync 一次
+     */
+    private long appendToJournal(String sessionId, List<ChatMessage> messages, JournalState state) throws Exception {
+        StringBuilder batch = new StringBuilder();
+        long seq = state.nextSeq;
+        for (int i = state.persistedSize; i < messages.size(); i++) {
+            ChatMessage msg = messages.get(i);
+            JournalEntry entry = new JournalEntry();
+            entry.seq = seq++;
+            entry.role = msg.getRole();
+            entry.content = msg.getContent();
+            entry.timestamp = msg.getTimestamp() != null ? String.valueOf(msg.getTimestamp()) : Instant.now().toString();
+            batch.append(journalWriter.writeValueAsString(entry)).append('\n');
+        }
+
+        byte[] data = batch.toString().getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(getJournalFilePath(sessionId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+
+        state.persistedSize = messages.size();
+        state.lastPersistedId = messages.get(messages.size() - 1).getId();
+        state.nextSeq = seq;
+        return data.length;
+    }
+
+    /**
+     * 压缩：把完整历史写成新快照（临时文件 + 原子替换），然后删除日志
+     */
+    private void writeSnapshot(String sessionId, List<ChatMessage> messages, JournalState state) throws Exception {
+        long journalSeq = state != null ? state.nextSeq : scanJournalNextSeq(sessionId);
+
+        // 创建时间以索引中的记录为准，重写快照时保持不变
+        SessionIndex.Entry entry = sessionIndex.get(sessionId);
+        long createdTime = entry != null ? entry.getCreatedTime() : System.currentTimeMillis();
+
+        SessionDTO sessionDTO = new SessionDTO();
+        sessionDTO.sessionId = sessionId;
+        sessionDTO.title = entry != null ? entry.getTitle() : deriveTitle(messages);
+        sessionDTO.createdTime = Instant.ofEpochMilli(createdTime).toString();
+        sessionDTO.lastAccessTime = Instant.now().toString();
+        sessionDTO.journalSeq = journalSeq;
+
+        // 转换消息
+        sessionDTO.messages = messages.stream()
+                .map(msg -> {
+                    MessageDTO dto = new MessageDTO();
+                    dto.role = msg.getRole();
+                    dto.content = msg.getContent();
+                    dto.timestamp = msg.getTimestamp() != null ? String.valueOf(msg.getTimestamp()) : Instant.now().toString();
+                    return dto;
+                })
+                .collect(Collectors.toList());
+
+        // 先写临时文件并 fsync，再原子替换，避免写到一半崩溃导致快照损坏
+        Path snapshot = getSessionFilePath(sessionId);
+        Path temp = sessionsDir.resolve(sessionId + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(sessionDTO));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // 快照已包含全部消息，日志可以删除（即使删除前崩溃，加载时也会按 journalSeq 跳过）
+        Files.deleteIfExists(getJournalFilePath(sessionId));
+
+        JournalState newState = state != null ? state : new JournalState();
+        newState.persistedSize = messages.size();
+        newState.lastPersistedId = messages.isEmpty() ? null : messages.get(messages.size() - 1).getId();
+        newState.nextSeq = journalSeq;
+        newState.snapshotSeq = journalSeq;
+        journals.put(sessionId, newState);
+
+        updateIndex(sessionId, messages, Files.size(snapshot));
+    }
+
+    /**
+     * 保存后更新索引：标题和创建时间沿用已有记录，其余字段取当前值
+     */
+    private void updateIndex(String sessionId, List<ChatMessage> messages, long byteSize) {
+        SessionIndex.Entry entry = sessionIndex.get(sessionId);
+        String title = entry != null && !DEFAULT_TITLE.equals(entry.getTitle()) ? entry.getTitle() : deriveTitle(messages);
+        long createdTime = entry != null ? entry.getCreatedTime() : System.currentTimeMillis();
+        sessionIndex.put(new SessionIndex.Entry(sessionId, title, createdTime,
+                System.currentTimeMillis(), messages.size(), byteSize));
+    }
+
+    /**
+     * 用第一条用户消息的首行作为会话标题
+     */
+    private String deriveTitle(List<ChatMessage> messages) {
+        for (ChatMessage msg : messages) {
+            if ("user".equals(msg.getRole()) && msg.getContent() != null && !msg.getContent().isBlank()) {
+                String firstLine = msg.getContent().strip().lines().findFirst().orElse("");
+                return firstLine.length() > MAX_TITLE_LENGTH
+                        ? firstLine.substring(0, MAX_TITLE_LENGTH) + "..."
+                        : firstLine;
+            }
+        }
+        return DEFAULT_TITLE;
+    }
+
+    private long sessionFileSize(String sessionId) {
+        long size = 0;
+        try {
+            Path snapshot = getSessionFilePath(sessionId);
+            Path journal = getJournalFilePath(sessionId);
+            if (Files.exists(snapshot)) {
+                size += Files.size(snapshot);
+            }
+            if (Files.exists(journal)) {
+                size += Files.size(journal);
+            }
+        } catch (Exception ignored) {
+            // 大小只用于展示
+        }
+        return size;
+    }
+
+    /**
+     * 索引缺失或损坏时扫描会话目录重建，只在升级或索引被删除后执行一次
+     */
+    private void rebuildIndex() {
+        Set<String> sessionIds = new HashSet<>();
+        try (var paths = Files.list(sessionsDir)) {
+            paths.map(path -> path.getFileName().toString())
+                    .map(this::toSessionId)
+                    .filter(Objects::nonNull)
+                    .forEach(sessionIds::add);
+        } catch (Exception e) {
+            System.err.println("Error listing sessions: " + e.getMessage());
+        }
+
+        List<SessionIndex.Entry> entries = new ArrayList<>();
+        for (String sessionId : sessionIds) {
+            try {
+                entries.add(scanSessionEntry(sessionId));
+            } catch (Exception e) {
+                System.err.println("Skipping unreadable session " + sessionId + ": " + e.getMessage());
+            }
+        }
+        sessionIndex.rebuild(entries);
+    }
+
+    private SessionIndex.Entry scanSessionEntry(String sessionId) throws Exception {
+        Path snapshot = getSessionFilePath(sessionId);
+        Path journal = getJournalFilePath(sessionId);
+
+        List<ChatMessage> messages = readSessionFromDisk(sessionId);
+        journals.remove(sessionId);  // 只为统计而读取，不保留持久化状态
+
+        long lastModified = 0;
+        String title = null;
+        Long createdTime = null;
+        if (Files.exists(snapshot)) {
+            lastModified = Files.getLastModifiedTime(snapshot).toMillis();
+            Map<String, Object> sessionData = objectMapper.readValue(snapshot.toFile(), Map.class);
+            title = (String) sessionData.get("title");
+            createdTime = parseTime(sessionData.get("createdTime"));
+        }
+        if (Files.exists(journal)) {
+            lastModified = Math.max(lastModified, Files.getLastModifiedTime(journal).toMillis());
+        }
+
+        if (title == null || DEFAULT_TITLE.equals(title)) {
+            title = deriveTitle(messages);
+        }
+        return new SessionIndex.Entry(sessionId, title,
+                createdTime != null ? createdTime : lastModified,
+                lastModified, messages.size(), sessionFileSize(sessionId));
+    }
+
+    private Long parseTime(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.toString()).toEpochMilli();
+        } catch (Exception e) {
+            try {
+                return java.time.LocalDateTime.parse(value.toString())
+                        .atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 读取快照并重放日志，同时记录该会话的持久化状态
+     */
+    private List<ChatMessage> readSessionFromDisk(String sessionId) throws Exception {
+        // 从磁盘加载
+        File jsonFile = getSessionFilePath(sessionId).toFile();
+        Path journalFile = getJournalFilePath(sessionId);
+
+        if (!jsonFile.exists() && !Files.exists(journalFile)) {
+            throw new RuntimeException("Session file not found: " + sessionId);
+        }
+
+        List<ChatMessage> messages = new ArrayList<>();
+        long snapshotSeq = 0;
+
+        if (jsonFile.exists()) {
+            // 使用 Map 解析 JSON，避免 SessionDTO
+            Map<String, Object> sessionData = objectMapper.readValue(jsonFile, Map.class);
+
+            Object journalSeq = sessionData.get("journalSeq");
+            if (journalSeq instanceof Number) {
+                snapshotSeq = ((Number) journalSeq).longValue();
+            }
+
+            // 获取 messages 数组
+            List<Map<String, Object>> messagesData = (List<Map<String, Object>>) sessionData.get("messages");
+            if (messagesData != null) {
+                messagesData.stream()
+                        .map(messageMap -> toChatMessage(messageMap, sessionId))
+                        .filter(Objects::nonNull) // 过滤掉 null
+                        .forEach(messages::add);
+            }
+        }
+
+        // 重放日志
+        long nextSeq = replayJournal(sessionId, snapshotSeq, messages);
+
+        JournalState state = new JournalState();
+        state.persistedSize = messages.size();
+        state.lastPersistedId = messages.isEmpty() ? null : messages.get(messages.size() - 1).getId();
+        state.nextSeq = nextSeq;
+        state.snapshotSeq = snapshotSeq;
+        journals.put(sessionId, state);
+
+        return messages;
+    }
+
+    /**
+     * 重放日志中序号不小于 snapshotSeq 的条目
+     *
+     * @return 下一条日志应使用的序号
+     */
+    private long replayJournal(String sessionId, long snapshotSeq, List<ChatMessage> messages) throws Exception {
+        Path journalFile = getJournalFilePath(sessionId);
+        if (!Files.exists(journalFile)) {
+            return snapshotSeq;
+        }
+
+        repairJournalTail(journalFile);
+
+        long nextSeq = snapshotSeq;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (Exception e) {
+                    // 损坏的行直接跳过
+                    continue;
+                }
+                if (entry.seq < snapshotSeq) {
+                    continue;
+                }
+                nextSeq = entry.seq + 1;
+
+                Map<String, Object> messageMap = new HashMap<>();
+                messageMap.put("role", entry.role);
+                messageMap.put("content", entry.content);
+                messageMap.put("timestamp", entry.timestamp);
+                ChatMessage msg = toChatMessage(messageMap, sessionId);
+                if (msg != null) {
+                    messages.add(msg);
+                }
+            }
+        }
+        return nextSeq;
+    }
+
+    /**
+     * 写入过程中崩溃可能留下不完整的最后一行，截断到最后一个换行符
+     */
+    private void repairJournalTail(Path journalFile) throws Exception {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, size - 1);
+            if (one.get(0) == '\n') {
+                return;
+            }
+
+            // 从尾部向前找最后一个换行符
+            long position = size - 1;
+            ByteBuffer chunk = ByteBuffer.allocate(4096);
+            while (position > 0) {
+                long start = Math.max(0, position - chunk.capacity());
+                chunk.clear();
+                chunk.limit((int) (position - start));
+                channel.read(chunk, start);
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        channel.truncate(start + i + 1);
+                        channel.force(false);
+                        return;
+                    }
+                }
+                position = start;
+            }
+            channel.truncate(0);
+        }
+    }
+
+    /**
+     * 状态未知时（本进程没有加载过该会话）从日志中找出最大序号
+     */
+    private long scanJournalNextSeq(String sessionId) throws Exception {
+        Path journalFile = getJournalFilePath(sessionId);
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+
+        long nextSeq = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    nextSeq = Math.max(nextSeq, objectMapper.readValue(line, JournalEntry.class).seq + 1);
+                } catch (Exception ignored) {
+                    // 不完整的行直接跳过
+                }
+            }
+        }
+        return nextSeq;
+    }
+
+    private ChatMessage toChatMessage(Map<String, Object> messageMap, String sessionId) {
+        String role = (String) messageMap.get("role");
+        String content = (String) messageMap.get("content");
+
+        // 🚨 关键修复：过滤空内容
+        if (content == null || content.trim().isEmpty()) {
+            return null;
+        }
+
+        ChatMessage msg = new ChatMessage(role, content, sessionId);
+
+        // 设置非 final 字段
+        Object timestamp = messageMap.get("timestamp");
+        if (timestamp != null) {
+            msg.setTimestamp(timestamp.toString());
+        }
+
+        return msg;
     }
 
     private void saveSessionToDisk(SessionData session) {
@@ -238,4 +658,4 @@ public class SessionService {
             throw new RuntimeException("Failed to load session from disk: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
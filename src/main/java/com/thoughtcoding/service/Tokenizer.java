@@ -0,0 +1,34 @@
+package com.thoughtcoding.service;
+
+/**
+ * 分词器接口，用于统计文本的 Token 数量
+ *
+ * 默认实现为 {@link BpeTokenizer}，加载失败时退回 {@link EstimatingTokenizer}
+ */
+public interface Tokenizer {
+
+    /**
+     * 统计文本的 Token 数量
+     *
+     * @param text 待统计的文本，null 或空串返回 0
+     * @return Token 数量
+     */
+    int countTokens(String text);
+
+    /**
+     * 分词器名称（用于日志和配置）
+     */
+    String getName();
+
+    /**
+     * 根据名称创建分词器
+     *
+     * @param name "bpe"（默认）或 "estimate"
+     */
+    static Tokenizer create(String name) {
+        if ("estimate".equalsIgnoreCase(name)) {
+            return new EstimatingTokenizer();
+        }
+        return new BpeTokenizer();
+    }
+}
@@ -0,0 +1,581 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ToolCall;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流式工具标记解析器
+ *
+ * 对 AI 流式输出的每个 token 只消费一次，以增量状态机的方式识别：
+ * 1. 简化格式：⏺ Read(...) / ⏺ List(...) / ⏺ Bash(...) / ⏺ Write(...)
+ * 2. 完整格式：file_manager read "..." / file_manager list "..." / command_executor "..." / write_file "..." "..."
+ * 3. ``` 围起来的代码块（语言标记、内容、前后文）
+ *
+ * 每个字符的处理代价为常数，行级别的正则只在一行结束时对该行执行一次，
+ * 因此整段响应的解析代价为 O(n)，不再随 token 数量平方增长。
+ *
+ * 同一轮响应中的多个读取/列出/命令标记会按出现顺序组成一批工具调用。
+ */
+public class ToolMarkerParser {
+
+    // 判断阈值: 代码块后文字少于50字符则触发工具调用
+    private static final int CONTEXT_THRESHOLD = 50;
+    // 代码块前用于判断"讲解"意图的窗口大小
+    private static final int EXPLAIN_WINDOW = 100;
+    // 防止未闭合的标记无限累积
+    private static final int MAX_ARGUMENT_LENGTH = 4096;
+
+    private static final String[] EXPLAIN_KEYWORDS = {"讲解", "解释", "说明", "介绍", "演示", "展示", "分析", "理解"};
+    private static final String[] QUOTED_COMMANDS = {"file_manager read", "file_manager list", "command_executor", "write_file"};
+
+    private static final Pattern FILE_NAME_LABEL = Pattern.compile(
+            "(?:文件名|filename|file name)\\s*[:：]?\\s*([\\w/]+\\.\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FILE_NAME_ANY = Pattern.compile("([\\w/]+\\.(?:java|py|js|ts|cpp|c|h))");
+    private static final Pattern JAVA_FILE_NAME = Pattern.compile("([\\w/]+\\.java)");
+    private static final Pattern FILE_LIKE = Pattern.compile("\\w+\\.\\w+");
+    private static final Pattern JAVA_CLASS = Pattern.compile("(?:public\\s+)?class\\s+\\w+\\s*\\{[\\s\\S]*?\\n\\}");
+
+    private enum MarkerState { IDLE, NAME, BEFORE_PAREN, ARGUMENT }
+
+    private enum QuoteState { IDLE, BEFORE_FIRST, FIRST, BEFORE_SECOND, SECOND, SECOND_ESCAPE }
+
+    /**
+     * 按出现顺序记录的工具标记
+     *
+     * @param kind           标记类型（read/list/bash/write 或完整格式命令）
+     * @param argument       标记参数
+     * @param codeBlockIndex 标记出现时已闭合的代码块数量，用于 ⏺ Write 关联后续代码块
+     */
+    private record Marker(String kind, String argument, int codeBlockIndex) {}
+
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder line = new StringBuilder();
+
+    // 代码块前文的滑动窗口（环形缓冲）
+    private final char[] window = new char[EXPLAIN_WINDOW];
+    private int windowPos = 0;
+    private int windowFill = 0;
+
+    // 代码块状态
+    private int backtickRun = 0;
+    private boolean inCodeBlock = false;
+    private boolean readingInfoString = false;
+    private boolean pendingExplanation = false;
+    private final StringBuilder codeInfo = new StringBuilder();
+    private final StringBuilder codeBody = new StringBuilder();
+    private final List<String> codeBlocks = new ArrayList<>();
+    private String lastCodeBlock = null;
+    private String lastCodeFileName = null;
+    private boolean lastCodeBlockExplained = false;
+    private boolean hasScriptCodeBlock = false;
+
+    // 最后一个 ``` 之后的文字（只统计 trim 后的长度）
+    private boolean afterFenceStarted = false;
+    private int afterFenceCount = 0;
+    private int afterFenceTrimmed = 0;
+
+    // ⏺ 简化格式
+    private MarkerState markerState = MarkerState.IDLE;
+    private final StringBuilder markerName = new StringBuilder();
+    private final StringBuilder markerArgument = new StringBuilder();
+    private final List<Marker> orderedMarkers = new ArrayList<>();
+
+    // 完整格式（带引号的参数）
+    private QuoteState quoteState = QuoteState.IDLE;
+    private String quotedCommand = null;
+    private int quotedCommandStart = -1;
+    private final StringBuilder firstQuoted = new StringBuilder();
+    private final StringBuilder secondQuoted = new StringBuilder();
+    private String writeCommandFileName = null;
+    private String writeCommandContent = null;
+    private int writeCommandStart = -1;
+
+    // 行级别的关键词与文件名
+    private String labeledFileName = null;
+    private String anyFileName = null;
+    private String javaFileName = null;
+    private boolean mentionsFileName = false;
+    private boolean mentionsCreate = false;
+    private boolean mentionsFile = false;
+    private boolean mentionsJava = false;
+    private boolean mentionsCreated = false;
+
+    private String finishedText = null;
+
+    /**
+     * 消费一个 token
+     */
+    public void accept(CharSequence token) {
+        if (token == null) {
+            return;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            consume(token.charAt(i));
+        }
+    }
+
+    /**
+     * 结束解析，返回完整响应文本
+     */
+    public String finish() {
+        if (finishedText == null) {
+            scanLine();
+            finishedText = text.toString();
+        }
+        return finishedText;
+    }
+
+    public boolean isEmpty() {
+        return text.length() == 0;
+    }
+
+    /**
+     * 选出本轮响应中应触发的工具调用
+     *
+     * 简化格式和完整格式的标记按出现顺序组成一批；其余写入类检测仍按原有优先级只取一个。
+     *
+     * @return 工具调用列表，没有检测到时返回空列表
+     */
+    public List<ToolCall> detectToolCalls() {
+        String fullText = finish();
+        String firstCodeBlock = codeBlocks.isEmpty() ? null : codeBlocks.get(0);
+
+        // ✅ 智能判断是否触发工具调用(基于代码块)
+        if (lastCodeBlock != null && !lastCodeBlock.isEmpty() && !lastCodeBlockExplained
+                && afterFenceTrimmed < CONTEXT_THRESHOLD) {
+            return List.of(writeFileCall(lastCodeFileName, lastCodeBlock, true));
+        }
+
+        // 🔥 简化格式（⏺ Read/List/Bash/Write）和完整格式按出现顺序批量触发
+        List<ToolCall> batch = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Marker marker : orderedMarkers) {
+            if (!seen.add(marker.kind() + "\u0000" + marker.argument())) {
+                continue;
+            }
+            ToolCall call = toToolCall(marker);
+            if (call != null) {
+                batch.add(call);
+            }
+        }
+        if (!batch.isEmpty()) {
+            return batch;
+        }
+
+        if (writeCommandFileName != null && writeCommandContent != null) {
+            return List.of(writeFileCall(writeCommandFileName, unescape(writeCommandContent), false));
+        }
+
+        // 🔥 代码块 + 文件名提示
+        if (hasScriptCodeBlock && mentionsFileName) {
+            String fileName = labeledFileName != null ? labeledFileName : anyFileName;
+            if (fileName != null && firstCodeBlock != null) {
+                return List.of(writeFileCall(fileName, firstCodeBlock, false));
+            }
+        }
+
+        if (mentionsCreate && mentionsFile && mentionsJava && javaFileName != null && firstCodeBlock != null) {
+            return List.of(writeFileCall(javaFileName, firstCodeBlock, false));
+        }
+
+        if (mentionsCreated && mentionsJava && javaFileName != null) {
+            String content = firstCodeBlock;
+            if (content == null) {
+                // 极少走到的兜底路径：没有代码块时从全文中找类定义
+                Matcher matcher = JAVA_CLASS.matcher(fullText);
+                content = matcher.find() ? matcher.group(0).trim() : null;
+            }
+            if (content != null) {
+                return List.of(writeFileCall(javaFileName, content, false));
+            }
+        }
+
+        return List.of();
+    }
+
+    private ToolCall toToolCall(Marker marker) {
+        switch (marker.kind()) {
+            case "read":
+            case "file_manager read":
+                return fileManagerCall("read", marker.argument());
+            case "list":
+            case "file_manager list":
+                return fileManagerCall("list", marker.argument());
+            case "bash":
+            case "command_executor":
+                return commandCall(marker.argument());
+            case "write":
+                // ⏺ Write 只是标记，内容取标记之后的第一个代码块，没有则退回第一个代码块
+                if (codeBlocks.isEmpty()) {
+                    return null;
+                }
+                int index = marker.codeBlockIndex() < codeBlocks.size() ? marker.codeBlockIndex() : 0;
+                return writeFileCall(marker.argument(), codeBlocks.get(index), false);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 移除文本中的 write_file 命令部分，用于保存到历史记录
+     */
+    public String getCleanText() {
+        String fullText = finish();
+        if (writeCommandStart >= 0) {
+            return fullText.substring(0, writeCommandStart).trim();
+        }
+        return fullText.trim();
+    }
+
+    private void consume(char c) {
+        text.append(c);
+        consumeMarker(c);
+        consumeQuoted(c);
+        consumeFence(c);
+        pushWindow(c);
+
+        if (c == '\n') {
+            scanLine();
+        } else {
+            line.append(c);
+        }
+    }
+
+    // ==================== 代码块 ====================
+
+    private void consumeFence(char c) {
+        if (c == '`') {
+            backtickRun++;
+            if (backtickRun == 3) {
+                backtickRun = 0;
+                onFence();
+            }
+            return;
+        }
+        backtickRun = 0;
+
+        trackAfterFence(c);
+
+        if (!inCodeBlock) {
+            return;
+        }
+        if (readingInfoString) {
+            if (c == '\n') {
+                readingInfoString = false;
+            } else {
+                codeInfo.append(c);
+            }
+        } else {
+            codeBody.append(c);
+        }
+    }
+
+    private void onFence() {
+        afterFenceStarted = false;
+        afterFenceCount = 0;
+        afterFenceTrimmed = 0;
+
+        if (!inCodeBlock) {
+            inCodeBlock = true;
+            readingInfoString = true;
+            codeInfo.setLength(0);
+            codeBody.setLength(0);
+            // 代码块前文是否包含讲解相关的关键词
+            pendingExplanation = windowContainsExplainKeyword();
+            // 代码块前一行可能还没换行，先扫描文件名
+            scanLine();
+            return;
+        }
+
+        inCodeBlock = false;
+        readingInfoString = false;
+        // 去掉结束标记前残留的反引号
+        int end = codeBody.length();
+        while (end > 0 && codeBody.charAt(end - 1) == '`') {
+            end--;
+        }
+        String code = codeBody.substring(0, end).trim();
+        String language = codeInfo.toString().trim().toLowerCase();
+
+        if (language.equals("java") || language.equals("python") || language.equals("javascript")) {
+            hasScriptCodeBlock = true;
+        }
+        codeBlocks.add(code);
+
+        lastCodeBlock = code;
+        lastCodeBlockExplained = pendingExplanation;
+        if (labeledFileName != null) {
+            lastCodeFileName = labeledFileName;
+        } else if (anyFileName != null) {
+            lastCodeFileName = anyFileName;
+        } else {
+            lastCodeFileName = "NewFile.java";
+        }
+    }
+
+    private void trackAfterFence(char c) {
+        boolean whitespace = Character.isWhitespace(c);
+        if (!afterFenceStarted) {
+            if (whitespace) {
+                return;
+            }
+            afterFenceStarted = true;
+        }
+        afterFenceCount++;
+        if (!whitespace) {
+            afterFenceTrimmed = afterFenceCount;
+        }
+    }
+
+    private void pushWindow(char c) {
+        window[windowPos] = c;
+        windowPos = (windowPos + 1) % EXPLAIN_WINDOW;
+        if (windowFill < EXPLAIN_WINDOW) {
+            windowFill++;
+        }
+    }
+
+    private boolean windowContainsExplainKeyword() {
+        StringBuilder recent = new StringBuilder(windowFill);
+        int start = (windowPos - windowFill + EXPLAIN_WINDOW) % EXPLAIN_WINDOW;
+        for (int i = 0; i < windowFill; i++) {
+            recent.append(window[(start + i) % EXPLAIN_WINDOW]);
+        }
+        for (String keyword : EXPLAIN_KEYWORDS) {
+            if (recent.indexOf(keyword) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== ⏺ 简化格式 ====================
+
+    private void consumeMarker(char c) {
+        if (c == '⏺') {
+            markerState = MarkerState.NAME;
+            markerName.setLength(0);
+            markerArgument.setLength(0);
+            return;
+        }
+
+        switch (markerState) {
+            case NAME:
+                if (Character.isLetter(c)) {
+                    markerName.append(c);
+                    if (markerName.length() > 8) {
+                        markerState = MarkerState.IDLE;
+                    }
+                } else if (Character.isWhitespace(c)) {
+                    if (markerName.length() > 0) {
+                        markerState = MarkerState.BEFORE_PAREN;
+                    }
+                } else if (c == '(' && markerName.length() > 0) {
+                    markerState = MarkerState.ARGUMENT;
+                } else {
+                    markerState = MarkerState.IDLE;
+                }
+                break;
+            case BEFORE_PAREN:
+                if (c == '(') {
+                    markerState = MarkerState.ARGUMENT;
+                } else if (!Character.isWhitespace(c)) {
+                    markerState = MarkerState.IDLE;
+                }
+                break;
+            case ARGUMENT:
+                if (c == ')') {
+                    markerState = MarkerState.IDLE;
+                    if (markerArgument.length() > 0) {
+                        orderedMarkers.add(new Marker(markerName.toString().toLowerCase(),
+                                markerArgument.toString().trim(), codeBlocks.size()));
+                    }
+                } else if (markerArgument.length() >= MAX_ARGUMENT_LENGTH) {
+                    markerState = MarkerState.IDLE;
+                } else {
+                    markerArgument.append(c);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // ==================== 完整格式 ====================
+
+    private void consumeQuoted(char c) {
+        switch (quoteState) {
+            case IDLE:
+                for (String command : QUOTED_COMMANDS) {
+                    if (endsWithIgnoreCase(line, c, command)) {
+                        quotedCommand = command;
+                        quotedCommandStart = text.length() - command.length();
+                        quoteState = QuoteState.BEFORE_FIRST;
+                        firstQuoted.setLength(0);
+                        secondQuoted.setLength(0);
+                        break;
+                    }
+                }
+                break;
+            case BEFORE_FIRST:
+                if (c == '"') {
+                    quoteState = QuoteState.FIRST;
+                } else if (!Character.isWhitespace(c)) {
+                    quoteState = QuoteState.IDLE;
+                }
+                break;
+            case FIRST:
+                if (c == '"') {
+                    onFirstQuotedComplete();
+                } else if (firstQuoted.length() >= MAX_ARGUMENT_LENGTH) {
+                    quoteState = QuoteState.IDLE;
+                } else {
+                    firstQuoted.append(c);
+                }
+                break;
+            case BEFORE_SECOND:
+                if (c == '"') {
+                    quoteState = QuoteState.SECOND;
+                } else if (!Character.isWhitespace(c)) {
+                    quoteState = QuoteState.IDLE;
+                }
+                break;
+            case SECOND:
+                if (c == '\\') {
+                    secondQuoted.append(c);
+                    quoteState = QuoteState.SECOND_ESCAPE;
+                } else if (c == '"') {
+                    if (writeCommandContent == null) {
+                        writeCommandContent = secondQuoted.toString();
+                    }
+                    quoteState = QuoteState.IDLE;
+                } else {
+                    secondQuoted.append(c);
+                }
+                break;
+            case SECOND_ESCAPE:
+                secondQuoted.append(c);
+                quoteState = QuoteState.SECOND;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onFirstQuotedComplete() {
+        if (firstQuoted.length() == 0) {
+            quoteState = QuoteState.IDLE;
+            return;
+        }
+        String value = firstQuoted.toString();
+        if (!"write_file".equals(quotedCommand)) {
+            orderedMarkers.add(new Marker(quotedCommand, value, codeBlocks.size()));
+            quoteState = QuoteState.IDLE;
+            return;
+        }
+
+        // write_file "文件名" "内容"：记录命令起点，用于从历史记录中移除命令文本
+        if (writeCommandStart < 0) {
+            writeCommandStart = quotedCommandStart;
+        }
+        if (writeCommandFileName == null) {
+            writeCommandFileName = value;
+            quoteState = QuoteState.BEFORE_SECOND;
+        } else {
+            quoteState = QuoteState.IDLE;
+        }
+    }
+
+    /**
+     * 判断 line + c 是否以指定命令结尾（忽略大小写）
+     */
+    private static boolean endsWithIgnoreCase(StringBuilder line, char last, String suffix) {
+        int n = suffix.length();
+        if (Character.toLowerCase(last) != suffix.charAt(n - 1) || line.length() < n - 1) {
+            return false;
+        }
+        int offset = line.length() - (n - 1);
+        for (int i = 0; i < n - 1; i++) {
+            if (Character.toLowerCase(line.charAt(offset + i)) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== 行级别扫描 ====================
+
+    /**
+     * 对刚结束的一行执行一次关键词与文件名检测
+     */
+    private void scanLine() {
+        if (line.length() == 0) {
+            return;
+        }
+        String current = line.toString();
+        line.setLength(0);
+        String lower = current.toLowerCase();
+
+        if (labeledFileName == null) {
+            Matcher matcher = FILE_NAME_LABEL.matcher(current);
+            if (matcher.find()) {
+                labeledFileName = matcher.group(1);
+            }
+        }
+        if (anyFileName == null) {
+            Matcher matcher = FILE_NAME_ANY.matcher(current);
+            if (matcher.find()) {
+                anyFileName = matcher.group(1);
+            }
+        }
+        if (javaFileName == null) {
+            Matcher matcher = JAVA_FILE_NAME.matcher(current);
+            if (matcher.find()) {
+                javaFileName = matcher.group(1);
+            }
+        }
+
+        mentionsFileName |= lower.contains("文件名") || lower.contains("filename") || FILE_LIKE.matcher(current).find();
+        mentionsCreate |= lower.contains("创建") || lower.contains("create");
+        mentionsFile |= lower.contains("文件") || lower.contains("file");
+        mentionsJava |= lower.contains(".java");
+        mentionsCreated |= lower.contains("已创建") || lower.contains("创建成功") || lower.contains("已成功创建");
+    }
+
+    // ==================== 工具调用构建 ====================
+
+    private static ToolCall fileManagerCall(String command, String path) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("command", command);
+        params.put("path", path);
+        return new ToolCall("file_manager", params, null, false, 0);
+    }
+
+    private static ToolCall commandCall(String command) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("command", command);
+        return new ToolCall("command_executor", params, null, false, 0);
+    }
+
+    private static ToolCall writeFileCall(String fileName, String content, boolean streamingTriggered) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("path", fileName);
+        params.put("content", content.trim());
+        return new ToolCall("write_file", params, null, false, 0, streamingTriggered);
+    }
+
+    private static String unescape(String content) {
+        return content.replace("\\n", "\n")
+                .replace("\\\"", "\"")
+                .replace("\\\\", "\\")
+                .replace("\\t", "    ");
+    }
+}
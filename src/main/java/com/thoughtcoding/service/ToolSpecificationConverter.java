@@ -0,0 +1,105 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ToolCall;
+import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.util.JsonUtils;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolParameters;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 原生 function calling 的转换工具
+ *
+ * 1. BaseTool → langchain4j ToolSpecification：参数取自 getInputSchema()（内置工具和 MCP 工具相同）
+ * 2. 模型返回的 ToolExecutionRequest → ToolCall：参数 JSON 解析为 Map，交给 AgentLoop 按原有流程确认和执行
+ */
+public final class ToolSpecificationConverter {
+    private static final Logger log = LoggerFactory.getLogger(ToolSpecificationConverter.class);
+
+    private ToolSpecificationConverter() {
+        // 工具类，防止实例化
+    }
+
+    public static List<ToolSpecification> toSpecifications(Collection<BaseTool> tools) {
+        List<ToolSpecification> specifications = new ArrayList<>(tools.size());
+        for (BaseTool tool : tools) {
+            specifications.add(toSpecification(tool));
+        }
+        return specifications;
+    }
+
+    public static ToolSpecification toSpecification(BaseTool tool) {
+        ToolSpecification.Builder builder = ToolSpecification.builder()
+                .name(tool.getName())
+                .description(tool.getDescription() != null ? tool.getDescription() : tool.getName());
+        ToolParameters parameters = toParameters(tool.getInputSchema());
+        if (parameters != null) {
+            builder.parameters(parameters);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 把 JSON Schema（Map 或 MCP 返回的任意对象）转换为 ToolParameters；没有参数定义时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    static ToolParameters toParameters(Object inputSchema) {
+        if (inputSchema == null) {
+            return null;
+        }
+        Map<String, Object> schema;
+        try {
+            schema = JsonUtils.getWireMapper().convertValue(inputSchema, Map.class);
+        } catch (IllegalArgumentException e) {
+            log.debug("无法解析工具参数定义: {}", e.getMessage());
+            return null;
+        }
+
+        Map<String, Map<String, Object>> properties = new LinkedHashMap<>();
+        if (schema.get("properties") instanceof Map) {
+            ((Map<String, Object>) schema.get("properties")).forEach((name, property) -> {
+                if (property instanceof Map) {
+                    properties.put(name, (Map<String, Object>) property);
+                }
+            });
+        }
+        List<String> required = new ArrayList<>();
+        if (schema.get("required") instanceof List) {
+            for (Object name : (List<Object>) schema.get("required")) {
+                required.add(String.valueOf(name));
+            }
+        }
+        return ToolParameters.builder()
+                .properties(properties)
+                .required(required)
+                .build();
+    }
+
+    /**
+     * 模型生成的参数不是合法 JSON 时，保留原文放在 input 字段，由工具返回格式错误让模型重试
+     */
+    public static ToolCall toToolCall(ToolExecutionRequest request) {
+        Map<String, Object> parameters;
+        String arguments = request.arguments();
+        if (arguments == null || arguments.isBlank()) {
+            parameters = new LinkedHashMap<>();
+        } else {
+            try {
+                parameters = new LinkedHashMap<>(JsonUtils.parseObject(arguments));
+            } catch (Exception e) {
+                log.debug("工具参数不是合法 JSON [{}]: {}", request.name(), e.getMessage());
+                parameters = new LinkedHashMap<>();
+                parameters.put("input", arguments);
+            }
+        }
+        return new ToolCall(request.name(), parameters, null, false, 0);
+    }
+}
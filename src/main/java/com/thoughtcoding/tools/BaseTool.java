@@ -2,6 +2,10 @@ package com.thoughtcoding.tools;
 
 import com.thoughtcoding.model.ToolResult;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 工具的抽象基类，定义了工具的基本属性和行为
  */
@@ -34,6 +38,34 @@ public abstract class BaseTool {
         return null; // 默认返回null，MCP工具可以重写
     }
 
+    /**
+     * 构造 JSON Schema 的 object 类型定义，properties 保持传入顺序
+     */
+    protected static Map<String, Object> objectSchema(Map<String, Object> properties, String... required) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", List.of(required));
+        return schema;
+    }
+
+    protected static Map<String, Object> stringProperty(String description, String... allowedValues) {
+        Map<String, Object> property = new LinkedHashMap<>();
+        property.put("type", "string");
+        property.put("description", description);
+        if (allowedValues.length > 0) {
+            property.put("enum", List.of(allowedValues));
+        }
+        return property;
+    }
+
+    protected static Map<String, Object> integerProperty(String description) {
+        Map<String, Object> property = new LinkedHashMap<>();
+        property.put("type", "integer");
+        property.put("description", description);
+        return property;
+    }
+
     protected ToolResult success(String output) {
         return ToolResult.success(output, 0);
     }
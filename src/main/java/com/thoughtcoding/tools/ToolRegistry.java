@@ -7,25 +7,66 @@ import com.thoughtcoding.tools.file.FileManagerTool;
 import com.thoughtcoding.tools.search.GrepSearchTool;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * 负责工具注册、发现和生命周期管理
  *
  * 工具系统的核心管理者，维护了所有可用工具的映射表，并提供统一的调用接口，
+ *
+ * 🔥 写时复制：MCP 服务器在后台线程注册/移除工具，AgentLoop 同时在查找和调度工具
+ * 1. 所有读取都访问一个不可变快照（按名称、按分类的索引），无锁且 O(1)
+ * 2. 写入串行执行，在副本上修改后整体替换快照；工具注册很少发生，复制成本可以忽略
+ * 3. replaceCategory 一次性替换某个 MCP 服务器（分类 MCP-<server>）的全部工具，
+ *    调度线程要么看到旧的工具集，要么看到新的，不会看到一半
+ * 4. 配置中的启用开关只在注册时求值一次，被禁用的工具不会进入快照
  */
 public class ToolRegistry implements ToolProvider {
-    private final Map<String, BaseTool> tools;
     private final AppConfig appConfig;
+    private volatile Snapshot snapshot = new Snapshot(new LinkedHashMap<>(), 0);
+
+    /**
+     * 不可变的工具索引
+     */
+    private static final class Snapshot {
+        final Map<String, BaseTool> byName;
+        final Map<String, List<BaseTool>> byCategory;
+        final long version;
+
+        Snapshot(LinkedHashMap<String, BaseTool> tools, long version) {
+            this.version = version;
+            this.byName = Collections.unmodifiableMap(tools);
+            Map<String, List<BaseTool>> categories = new HashMap<>();
+            for (BaseTool tool : tools.values()) {
+                categories.computeIfAbsent(categoryOf(tool), key -> new ArrayList<>()).add(tool);
+            }
+            categories.replaceAll((category, list) -> Collections.unmodifiableList(list));
+            this.byCategory = Collections.unmodifiableMap(categories);
+        }
+    }
 
     public ToolRegistry(AppConfig appConfig) {
-        this.tools = new HashMap<>();
         this.appConfig = appConfig;
     }
 
+    private static String categoryOf(BaseTool tool) {
+        String category = tool.getCategory();
+        return category != null ? category : "";
+    }
+
+    /**
+     * 在当前工具表的副本上修改，然后替换快照
+     */
+    private synchronized void update(Consumer<LinkedHashMap<String, BaseTool>> mutation) {
+        LinkedHashMap<String, BaseTool> tools = new LinkedHashMap<>(snapshot.byName);
+        mutation.accept(tools);
+        snapshot = new Snapshot(tools, snapshot.version + 1);
+    }
+
     @Override
     public void registerTool(BaseTool tool) {
         if (isToolEnabled(tool.getName())) {
-            tools.put(tool.getName(), tool);
+            update(tools -> tools.put(tool.getName(), tool));
         }
     }
 
@@ -34,6 +75,32 @@ public class ToolRegistry implements ToolProvider {
         registerTool(tool);
     }
 
+    // 🔥 移除工具（MCP 服务器断开或工具列表变化时使用）
+    public void unregister(String toolName) {
+        update(tools -> tools.remove(toolName));
+    }
+
+    /**
+     * 🔥 原子地用一组新工具替换某个分类下的全部工具（MCP 服务器连接、工具列表变化时使用）
+     */
+    public void replaceCategory(String category, Collection<? extends BaseTool> replacement) {
+        update(tools -> {
+            tools.values().removeIf(tool -> category.equals(categoryOf(tool)));
+            for (BaseTool tool : replacement) {
+                if (isToolEnabled(tool.getName())) {
+                    tools.put(tool.getName(), tool);
+                }
+            }
+        });
+    }
+
+    /**
+     * 🔥 原子地移除某个分类下的全部工具（MCP 服务器断开时使用）
+     */
+    public void unregisterCategory(String category) {
+        update(tools -> tools.values().removeIf(tool -> category.equals(categoryOf(tool))));
+    }
+
     // 为每种工具类型添加对应的 register 方法（保持向后兼容）
     public void register(FileManagerTool tool) {
         registerTool(tool);
@@ -53,24 +120,45 @@ public class ToolRegistry implements ToolProvider {
 
     @Override
     public BaseTool getTool(String toolName) {
-        return tools.get(toolName);
+        return snapshot.byName.get(toolName);
     }
 
     @Override
     public boolean isToolAvailable(String toolName) {
-        return tools.containsKey(toolName) && isToolEnabled(toolName);
+        return snapshot.byName.containsKey(toolName);
     }
 
     public List<BaseTool> getAllTools() {
-        return new ArrayList<>(tools.values());
+        return new ArrayList<>(snapshot.byName.values());
+    }
+
+    /**
+     * 某个分类（file、exec、mcp、MCP-<server>）下的工具，返回不可变列表
+     */
+    public List<BaseTool> getToolsByCategory(String category) {
+        return snapshot.byCategory.getOrDefault(category, Collections.emptyList());
     }
 
+    public Set<String> getCategories() {
+        return snapshot.byCategory.keySet();
+    }
+
+    /**
+     * 当前工具名称的不可变快照，不会随后续注册变化
+     */
     public Set<String> getAvailableToolNames() {
-        return tools.keySet();
+        return snapshot.byName.keySet();
+    }
+
+    /**
+     * 快照版本号，每次注册或移除后递增；调用方可以据此缓存由工具列表派生的数据
+     */
+    public long getVersion() {
+        return snapshot.version;
     }
 
     public boolean hasTools() {
-        return !tools.isEmpty();
+        return !snapshot.byName.isEmpty();
     }
 
     //内置工具直接实例化注册
@@ -82,8 +170,10 @@ public class ToolRegistry implements ToolProvider {
 
         switch (toolName) {
             case "file_manager":
+            case "edit_file":
                 return appConfig.getTools().getFileManager().isEnabled();
             case "command_executor":
+            case "jobs":
                 return appConfig.getTools().getCommandExec().isEnabled();
             case "code_executor":
                 return appConfig.getTools().getCodeExecutor().isEnabled();
@@ -93,4 +183,4 @@ public class ToolRegistry implements ToolProvider {
                 return true;
         }
     }
-}
\ No newline at end of file
+}
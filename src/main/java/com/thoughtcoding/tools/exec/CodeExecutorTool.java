@@ -3,6 +3,7 @@ package com.thoughtcoding.tools.exec;
 import com.thoughtcoding.config.AppConfig;
 import com.thoughtcoding.model.ToolResult;
 import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.util.JsonUtils;
 
 import javax.tools.JavaCompiler;
 import javax.tools.ToolProvider;
@@ -11,6 +12,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * 代码执行工具，支持多种编程语言的代码片段执行
@@ -29,14 +32,26 @@ public class CodeExecutorTool extends BaseTool {
 
         try {
             // 解析语言和代码
-            String[] parts = input.split(" ", 2);
-            if (parts.length < 2) {
-                return error("Invalid format. Use: <language> <code>", System.currentTimeMillis() - startTime);
+            String language;
+            String code;
+            if (input.trim().startsWith("{")) {
+                // 🔥 JSON 格式输入：{"language":"python","code":"..."}
+                Map<String, Object> params = JsonUtils.parseObject(input);
+                language = (String) params.get("language");
+                code = (String) params.get("code");
+                if (language == null || code == null) {
+                    return error("JSON格式错误: 需要 'language' 和 'code' 字段", System.currentTimeMillis() - startTime);
+                }
+                language = language.toLowerCase();
+            } else {
+                String[] parts = input.split(" ", 2);
+                if (parts.length < 2) {
+                    return error("Invalid format. Use: <language> <code>", System.currentTimeMillis() - startTime);
+                }
+                language = parts[0].toLowerCase();
+                code = parts[1];
             }
 
-            String language = parts[0].toLowerCase();
-            String code = parts[1];
-
             switch (language) {
                 case "java":
                     return executeJavaCode(code, startTime);
@@ -255,6 +270,14 @@ public class CodeExecutorTool extends BaseTool {
         return "exec";
     }
 
+    @Override
+    public Object getInputSchema() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("language", stringProperty("Language of the snippet", "java", "javascript", "python"));
+        properties.put("code", stringProperty("Source code to run"));
+        return objectSchema(properties, "language", "code");
+    }
+
     @Override
     public boolean isEnabled() {
         return appConfig != null && appConfig.getTools().getCommandExec().isEnabled();
@@ -3,23 +3,43 @@ package com.thoughtcoding.tools.exec;
 import com.thoughtcoding.config.AppConfig;
 import com.thoughtcoding.tools.BaseTool;
 import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.util.JsonUtils;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * 命令执行工具，允许执行预定义的系统命令
+ *
+ * 🔥 通过 ProcessRunner 执行：输出逐行交给 outputListener 实时显示，
+ * 按配置的 timeoutSeconds 结束超时命令的整个进程树，返回给模型的输出只保留开头和结尾各 outputBufferKb；
+ * background 为 true 时交给 JobManager 在后台执行，立即返回任务编号
  */
 public class CommandExecutorTool extends BaseTool {
     private final Set<String> allowedCommands;
     private final AppConfig appConfig;
+    private final Set<ProcessRunner> running = ConcurrentHashMap.newKeySet();
+    private final JobManager jobManager;
+    private volatile Consumer<String> outputListener;
 
     public CommandExecutorTool(AppConfig appConfig) {
+        this(appConfig, null);
+    }
+
+    /**
+     * @param jobManager 后台任务管理器；为 null 时不支持 background 参数
+     */
+    public CommandExecutorTool(AppConfig appConfig, JobManager jobManager) {
         super("command_executor", "Execute system commands safely");
         this.appConfig = appConfig;
+        this.jobManager = jobManager;
 
         if (appConfig.getTools().getCommandExec().getAllowedCommands() != null) {
             this.allowedCommands = new HashSet<>(Arrays.asList(appConfig.getTools().getCommandExec().getAllowedCommands()));
@@ -53,73 +73,216 @@ public class CommandExecutorTool extends BaseTool {
                 return error("No command provided", System.currentTimeMillis() - startTime);
             }
 
-            // 🔥 处理 JSON 格式的输入：{"command":"rm sessions/*"}
+            // 🔥 处理 JSON 格式的输入：{"command":"rm sessions/*", "background": true}
             String command = input;
+            boolean background = false;
             if (input.trim().startsWith("{")) {
                 try {
-                    // 使用简单的正则提取 command 字段的值
-                    java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\"command\"\\s*:\\s*\"([^\"]+)\"");
-                    java.util.regex.Matcher matcher = pattern.matcher(input);
-                    if (matcher.find()) {
-                        command = matcher.group(1);
+                    // 按 JSON 解析，命令中的引号和转义字符（function calling 生成的参数）可以正确还原
+                    Map<String, Object> params = JsonUtils.parseObject(input);
+                    Object value = params.get("command");
+                    if (value instanceof String) {
+                        command = (String) value;
                     }
+                    background = Boolean.TRUE.equals(params.get("background"));
                 } catch (Exception e) {
                     // 如果解析失败，使用原始输入
                     command = input;
                 }
             }
+            return run(command, background, startTime);
 
-            String[] commandParts = command.split("\\s+");
-            String baseCommand = commandParts[0].toLowerCase();
+        } catch (Exception e) {
+            return error("Command execution failed: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 🔥 按参数列表直接执行命令，不经过 shell：参数中的 $(...)、反引号、引号等原样传给程序
+     * （用于 commit message 等不可信文本）
+     */
+    public ToolResult execute(List<String> command) {
+        long startTime = System.currentTimeMillis();
 
-            // 安全检查
+        try {
+            if (command == null || command.isEmpty()) {
+                return error("No command provided", System.currentTimeMillis() - startTime);
+            }
+            String baseCommand = command.get(0).toLowerCase();
             if (!isCommandAllowed(baseCommand)) {
                 return error("Command not allowed: " + baseCommand + ". Allowed commands: " + allowedCommands,
                         System.currentTimeMillis() - startTime);
             }
 
-            // 🔥 执行命令 - 通过 shell 执行以支持通配符等特性
-            ProcessBuilder processBuilder;
-            String os = System.getProperty("os.name").toLowerCase();
-            if (os.contains("win")) {
-                // Windows 系统
-                processBuilder = new ProcessBuilder("cmd.exe", "/c", command);
-            } else {
-                // Unix/Linux/Mac 系统
-                processBuilder = new ProcessBuilder("sh", "-c", command);
-            }
-
-            // 🔥 设置工作目录为当前目录（作为默认路径）
-            // 但命令中可以使用绝对路径访问其他目录
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
             processBuilder.directory(new java.io.File(System.getProperty("user.dir")));
             processBuilder.redirectErrorStream(true);
+            return runForeground(processBuilder, startTime);
 
-            Process process = processBuilder.start();
+        } catch (Exception e) {
+            return error("Command execution failed: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        }
+    }
 
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
+    /**
+     * 🔥 在后台任务中执行命令，立即返回任务
+     *
+     * @throws IllegalArgumentException 命令不在允许列表中
+     * @throws IllegalStateException    没有配置后台任务管理器
+     */
+    public JobManager.Job startJob(String command) throws IOException {
+        String baseCommand = baseCommand(command);
+        if (!isCommandAllowed(baseCommand)) {
+            throw new IllegalArgumentException("Command not allowed: " + baseCommand);
+        }
+        if (jobManager == null) {
+            throw new IllegalStateException("Background jobs are not available");
+        }
+        AppConfig.ToolConfig config = appConfig.getTools().getCommandExec();
+        Integer jobTimeout = config.getJobTimeoutSeconds();
+        return jobManager.start(command, createProcessBuilder(command),
+                jobTimeout != null ? jobTimeout * 1000L : 0, bufferBytes());
+    }
 
-            // 等待进程完成
-            int exitCode = process.waitFor();
+    /**
+     * 安全检查后执行命令：前台执行等待结束，后台执行立即返回任务编号
+     */
+    private ToolResult run(String command, boolean background, long startTime) throws IOException {
+        String baseCommand = baseCommand(command);
 
-            String result = output.toString().trim();
-            if (exitCode != 0) {
-                return error("Command failed with exit code " + exitCode + ":\n" + result,
-                        System.currentTimeMillis() - startTime);
-            }
+        // 安全检查
+        if (!isCommandAllowed(baseCommand)) {
+            return error("Command not allowed: " + baseCommand + ". Allowed commands: " + allowedCommands,
+                    System.currentTimeMillis() - startTime);
+        }
+
+        if (background) {
+            JobManager.Job job = startJob(command);
+            return success("Started background job #" + job.getId() + " (check it with the jobs tool: "
+                    + "action status, id " + job.getId() + "): " + command, System.currentTimeMillis() - startTime);
+        }
+
+        return runForeground(createProcessBuilder(command), startTime);
+    }
+
+    /**
+     * 前台执行并等待结束，超时或取消时终止进程
+     */
+    private ToolResult runForeground(ProcessBuilder processBuilder, long startTime) throws IOException {
+        Integer timeoutSeconds = appConfig.getTools().getCommandExec().getTimeoutSeconds();
+        int bufferBytes = bufferBytes();
+        ProcessRunner runner = new ProcessRunner(timeoutSeconds != null ? timeoutSeconds * 1000L : 0,
+                bufferBytes, bufferBytes, outputListener);
+
+        ProcessRunner.Result result;
+        running.add(runner);
+        try {
+            result = runner.run(processBuilder);
+        } finally {
+            running.remove(runner);
+        }
 
-            return success(result.isEmpty() ? "Command executed successfully (no output)" : result,
+        String output = result.getOutput();
+        String summary = result.summary();
+        if (result.isTimedOut()) {
+            return error("Command timed out after " + timeoutSeconds + "s and was killed:\n"
+                    + withSummary(output, summary), System.currentTimeMillis() - startTime);
+        }
+        if (result.isCancelled()) {
+            return error("Command cancelled:\n" + withSummary(output, summary),
                     System.currentTimeMillis() - startTime);
+        }
+        if (result.getExitCode() != 0) {
+            return error("Command failed with exit code " + result.getExitCode() + ":\n"
+                    + withSummary(output, summary), System.currentTimeMillis() - startTime);
+        }
 
-        } catch (Exception e) {
-            return error("Command execution failed: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        return success(withSummary(output.isEmpty() ? "Command executed successfully (no output)" : output, summary),
+                System.currentTimeMillis() - startTime);
+    }
+
+    private static String baseCommand(String command) {
+        return command.trim().split("\\s+")[0].toLowerCase();
+    }
+
+    /**
+     * 🔥 通过 shell 执行以支持通配符等特性
+     */
+    private static ProcessBuilder createProcessBuilder(String command) {
+        ProcessBuilder processBuilder;
+        String os = System.getProperty("os.name").toLowerCase();
+        if (os.contains("win")) {
+            // Windows 系统
+            processBuilder = new ProcessBuilder("cmd.exe", "/c", command);
+        } else {
+            // Unix/Linux/Mac 系统
+            processBuilder = new ProcessBuilder("sh", "-c", command);
         }
+
+        // 🔥 设置工作目录为当前目录（作为默认路径）
+        // 但命令中可以使用绝对路径访问其他目录
+        processBuilder.directory(new java.io.File(System.getProperty("user.dir")));
+        processBuilder.redirectErrorStream(true);
+        return processBuilder;
+    }
+
+    private int bufferBytes() {
+        Integer kb = appConfig.getTools().getCommandExec().getOutputBufferKb();
+        return (kb != null ? kb : 32) * 1024;
+    }
+
+    /**
+     * 输出最后一行是执行摘要，已经实时显示过输出的界面只需要显示这一行
+     */
+    private static String withSummary(String output, String summary) {
+        return output.isEmpty() ? summary : output + "\n" + summary;
+    }
+
+    /**
+     * 设置实时输出监听器（在读取进程输出的线程中逐行调用）；为 null 时不实时显示
+     */
+    public void setOutputListener(Consumer<String> outputListener) {
+        this.outputListener = outputListener;
+    }
+
+    /**
+     * 输出是否已经实时显示过（结果只需显示摘要行）
+     */
+    public boolean isStreamingOutput() {
+        return outputListener != null;
+    }
+
+    /**
+     * 实时显示过输出后结果的简短形式：成功时只有摘要行，失败时为错误说明加摘要行
+     */
+    public static String brief(ToolResult result) {
+        String text = result.isSuccess() ? result.getOutput() : result.getError();
+        if (text == null) {
+            return "";
+        }
+        String summary = text.substring(text.lastIndexOf('\n') + 1);
+        if (result.isSuccess() || text.indexOf('\n') < 0) {
+            return summary;
+        }
+        return text.substring(0, text.indexOf('\n')) + " " + summary;
+    }
+
+    /**
+     * 🛑 结束所有正在执行的命令（整个进程树）
+     *
+     * @return 是否有命令被结束
+     */
+    public boolean cancelRunning() {
+        boolean any = false;
+        for (ProcessRunner runner : running) {
+            runner.cancel();
+            any = true;
+        }
+        return any;
+    }
+
+    public boolean isRunning() {
+        return !running.isEmpty();
     }
 
     private boolean isCommandAllowed(String command) {
@@ -135,6 +298,19 @@ public class CommandExecutorTool extends BaseTool {
         return "exec";
     }
 
+    @Override
+    public Object getInputSchema() {
+        Map<String, Object> background = new LinkedHashMap<>();
+        background.put("type", "boolean");
+        background.put("description", "Run as a background job and return its id immediately; "
+                + "use for long builds and test suites, then poll with the jobs tool");
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("command", stringProperty("Shell command to run in the working directory"));
+        properties.put("background", background);
+        return objectSchema(properties, "command");
+    }
+
     @Override
     public boolean isEnabled() {
         return appConfig != null && appConfig.getTools().getCommandExec().isEnabled();
@@ -0,0 +1,263 @@
+package com.thoughtcoding.tools.exec;
+
+import com.thoughtcoding.tools.file.MappedFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 后台任务管理器：长时间运行的命令（构建、测试套件）在后台线程中执行，不阻塞 REPL
+ *
+ * 🔥 设计要点：
+ * 1. 每个任务一个守护线程，通过 ProcessRunner 执行，超时和取消时结束整个进程树
+ * 2. 完整输出写入临时目录下的 spool 文件，内存中只保留 ProcessRunner 的开头/结尾缓冲
+ * 3. 查看输出时通过 MappedFileReader 从 spool 文件末尾读取，不把整个日志读入内存
+ * 4. 任务结束时通知 completionListener（界面提示），模型通过 jobs 工具轮询状态
+ * 5. 最多保留 MAX_FINISHED_JOBS 个已结束的任务，更早的任务连同 spool 文件一起删除；
+ *    退出时结束所有仍在运行的任务并删除 spool 文件
+ */
+public class JobManager {
+    private static final Logger log = LoggerFactory.getLogger(JobManager.class);
+    private static final int MAX_FINISHED_JOBS = 50;
+
+    private final Map<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final Path spoolDir;
+    private volatile Consumer<Job> completionListener;
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED, TIMED_OUT, KILLED
+    }
+
+    /**
+     * 一个后台任务
+     */
+    public static final class Job {
+        private final int id;
+        private final String command;
+        private final Path spool;
+        private final long startedAt = System.currentTimeMillis();
+        private final ProcessRunner runner;
+        private volatile ProcessRunner.Result result;
+        private volatile String failure;
+
+        Job(int id, String command, Path spool, ProcessRunner runner) {
+            this.id = id;
+            this.command = command;
+            this.spool = spool;
+            this.runner = runner;
+        }
+
+        public int getId() { return id; }
+        public String getCommand() { return command; }
+        public Path getSpool() { return spool; }
+        public ProcessRunner.Result getResult() { return result; }
+
+        public Status getStatus() {
+            ProcessRunner.Result finished = result;
+            if (failure != null) {
+                return Status.FAILED;
+            }
+            if (finished == null) {
+                return Status.RUNNING;
+            }
+            if (finished.isTimedOut()) {
+                return Status.TIMED_OUT;
+            }
+            if (finished.isCancelled()) {
+                return Status.KILLED;
+            }
+            return finished.getExitCode() == 0 ? Status.SUCCEEDED : Status.FAILED;
+        }
+
+        public boolean isRunning() {
+            return getStatus() == Status.RUNNING;
+        }
+
+        public long getElapsedMillis() {
+            ProcessRunner.Result finished = result;
+            return finished != null ? finished.getDurationMillis() : System.currentTimeMillis() - startedAt;
+        }
+
+        /**
+         * 单行描述，如 #3 RUNNING 2m13s  mvn verify
+         */
+        public String describe() {
+            StringBuilder line = new StringBuilder();
+            line.append("#").append(id).append(" ").append(getStatus())
+                    .append(" ").append(formatElapsed(getElapsedMillis()));
+            ProcessRunner.Result finished = result;
+            if (finished != null) {
+                line.append(" ").append(finished.summary());
+            } else if (failure != null) {
+                line.append(" [").append(failure).append("]");
+            }
+            return line.append("  ").append(command).toString();
+        }
+
+        /**
+         * spool 文件末尾的 lines 行输出（最多 maxBytes 字节）
+         */
+        public String tail(int lines, int maxBytes) {
+            try {
+                if (!Files.exists(spool)) {
+                    return "";
+                }
+                return MappedFileReader.tail(spool, lines, maxBytes).getText();
+            } catch (IOException e) {
+                return "(无法读取输出: " + e.getMessage() + ")";
+            }
+        }
+    }
+
+    public JobManager() {
+        this(Paths.get(System.getProperty("java.io.tmpdir"), "thoughtcoding-jobs"));
+    }
+
+    public JobManager(Path spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    /**
+     * 任务结束时的回调（在任务线程中调用）
+     */
+    public void setCompletionListener(Consumer<Job> completionListener) {
+        this.completionListener = completionListener;
+    }
+
+    /**
+     * 在后台启动命令，立即返回
+     *
+     * @param timeoutMillis 超时时间，小于等于 0 表示不限制
+     * @param bufferBytes   内存中保留的开头和结尾输出字节数
+     */
+    public Job start(String command, ProcessBuilder builder, long timeoutMillis, int bufferBytes) throws IOException {
+        Files.createDirectories(spoolDir);
+        int id = nextId.getAndIncrement();
+        Path spool = Files.createTempFile(spoolDir, "job-" + id + "-", ".log");
+        OutputStream out = Files.newOutputStream(spool);
+
+        ProcessRunner runner = new ProcessRunner(timeoutMillis, bufferBytes, bufferBytes, null);
+        runner.setSpool(out);
+        Job job = new Job(id, command, spool, runner);
+        jobs.put(id, job);
+
+        Thread thread = new Thread(() -> run(job, builder), "job-" + id);
+        thread.setDaemon(true);
+        thread.start();
+        evictFinished();
+        return job;
+    }
+
+    private void run(Job job, ProcessBuilder builder) {
+        try {
+            job.result = job.runner.run(builder);
+        } catch (IOException e) {
+            job.failure = e.getMessage();
+            log.warn("⚠️ 后台任务 #{} 启动失败: {}", job.id, e.getMessage());
+        }
+        Consumer<Job> listener = completionListener;
+        if (listener != null) {
+            try {
+                listener.accept(job);
+            } catch (RuntimeException e) {
+                log.debug("任务结束回调失败", e);
+            }
+        }
+    }
+
+    public Job get(int id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * 所有任务（按编号排序）
+     */
+    public List<Job> list() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public boolean hasRunningJobs() {
+        return jobs.values().stream().anyMatch(Job::isRunning);
+    }
+
+    /**
+     * 结束任务的整个进程树
+     *
+     * @return 任务存在且仍在运行
+     */
+    public boolean kill(int id) {
+        Job job = jobs.get(id);
+        if (job == null || !job.isRunning()) {
+            return false;
+        }
+        job.runner.cancel();
+        return true;
+    }
+
+    /**
+     * 结束所有运行中的任务并删除 spool 文件
+     */
+    public void shutdown() {
+        for (Job job : jobs.values()) {
+            if (job.isRunning()) {
+                job.runner.cancel();
+            }
+            deleteSpool(job);
+        }
+        jobs.clear();
+    }
+
+    /**
+     * 注册 JVM 关闭钩子，退出时不留下孤儿进程和临时文件
+     */
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "job-manager-shutdown"));
+    }
+
+    private void evictFinished() {
+        List<Job> finished = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (!job.isRunning()) {
+                finished.add(job);
+            }
+        }
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).id);
+            deleteSpool(finished.get(i));
+        }
+    }
+
+    private void deleteSpool(Job job) {
+        try {
+            Files.deleteIfExists(job.spool);
+        } catch (IOException e) {
+            log.debug("删除任务输出文件失败: {}", job.spool, e);
+        }
+    }
+
+    static String formatElapsed(long millis) {
+        long seconds = millis / 1000;
+        if (seconds < 60) {
+            return String.format("%.1fs", millis / 1000.0);
+        }
+        if (seconds < 3600) {
+            return (seconds / 60) + "m" + (seconds % 60) + "s";
+        }
+        return (seconds / 3600) + "h" + (seconds % 3600 / 60) + "m";
+    }
+}
@@ -0,0 +1,136 @@
+package com.thoughtcoding.tools.exec;
+
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.util.JsonUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 后台任务工具：查看 command_executor 以 background 方式启动的任务，读取输出末尾或结束任务
+ *
+ * 输入：{"action":"list"} / {"action":"status","id":3,"lines":40} / {"action":"kill","id":3}，
+ * 也接受纯文本形式 "status 3"
+ */
+public class JobsTool extends BaseTool {
+    private static final int DEFAULT_TAIL_LINES = 20;
+    private static final int MAX_TAIL_BYTES = 16 * 1024;
+
+    private final AppConfig appConfig;
+    private final JobManager jobManager;
+
+    public JobsTool(AppConfig appConfig, JobManager jobManager) {
+        super("jobs", "List background jobs, check a job's status and latest output, or kill it");
+        this.appConfig = appConfig;
+        this.jobManager = jobManager;
+    }
+
+    @Override
+    public ToolResult execute(String input) {
+        long startTime = System.currentTimeMillis();
+
+        String action = "list";
+        Integer id = null;
+        int lines = DEFAULT_TAIL_LINES;
+        try {
+            if (input != null && input.trim().startsWith("{")) {
+                Map<String, Object> params = JsonUtils.parseObject(input);
+                if (params.get("action") instanceof String) {
+                    action = (String) params.get("action");
+                }
+                if (params.get("id") instanceof Number) {
+                    id = ((Number) params.get("id")).intValue();
+                }
+                if (params.get("lines") instanceof Number) {
+                    lines = ((Number) params.get("lines")).intValue();
+                }
+            } else if (input != null && !input.isBlank()) {
+                String[] parts = input.trim().split("\\s+");
+                action = parts[0];
+                if (parts.length > 1) {
+                    id = Integer.parseInt(parts[1].replace("#", ""));
+                }
+            }
+        } catch (Exception e) {
+            return error("Invalid input: expected {\"action\":\"list|status|kill\",\"id\":N}",
+                    System.currentTimeMillis() - startTime);
+        }
+
+        switch (action.toLowerCase()) {
+            case "list":
+                List<JobManager.Job> jobs = jobManager.list();
+                if (jobs.isEmpty()) {
+                    return success("No background jobs", System.currentTimeMillis() - startTime);
+                }
+                StringBuilder list = new StringBuilder();
+                for (JobManager.Job job : jobs) {
+                    list.append(job.describe()).append("\n");
+                }
+                return success(list.toString().trim(), System.currentTimeMillis() - startTime);
+
+            case "status":
+            case "tail": {
+                JobManager.Job job = id != null ? jobManager.get(id) : null;
+                if (job == null) {
+                    return error("No such job: " + id, System.currentTimeMillis() - startTime);
+                }
+                String tail = job.tail(Math.max(1, lines), MAX_TAIL_BYTES);
+                return success(job.describe() + (tail.isEmpty() ? "\n(no output yet)" : "\n" + tail),
+                        System.currentTimeMillis() - startTime);
+            }
+
+            case "kill":
+                if (id == null || jobManager.get(id) == null) {
+                    return error("No such job: " + id, System.currentTimeMillis() - startTime);
+                }
+                if (!jobManager.kill(id)) {
+                    return error("Job #" + id + " is not running", System.currentTimeMillis() - startTime);
+                }
+                return success("Killed job #" + id, System.currentTimeMillis() - startTime);
+
+            default:
+                return error("Unknown action: " + action + ". Use list, status or kill",
+                        System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * list / status / tail 只读取状态，不需要确认；缺失或未知的 action（如解析失败的参数）按有副作用处理
+     */
+    public static boolean isReadOnlyAction(Object action) {
+        if (!(action instanceof String)) {
+            return false;
+        }
+        switch (((String) action).toLowerCase()) {
+            case "list":
+            case "status":
+            case "tail":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String getCategory() {
+        return "exec";
+    }
+
+    @Override
+    public Object getInputSchema() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("action", stringProperty("list all jobs, show one job's status and latest output, or kill it",
+                "list", "status", "kill"));
+        properties.put("id", integerProperty("Job id returned when the job was started"));
+        properties.put("lines", integerProperty("Number of output lines to show for status (default 20)"));
+        return objectSchema(properties, "action");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return appConfig != null && appConfig.getTools().getCommandExec().isEnabled();
+    }
+}
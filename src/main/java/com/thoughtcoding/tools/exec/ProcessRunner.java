@@ -0,0 +1,484 @@
+package com.thoughtcoding.tools.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 进程执行器：逐行流式转发输出，只保留有限的输出历史，并在超时或取消时结束整个进程树
+ *
+ * 🔥 实现要点：
+ * 1. 输出由专用的读取线程按块读取，调用线程只负责等待超时，不会被 tail -f 之类的命令卡住
+ * 2. 保留开头 headBytes 和结尾 tailBytes（环形缓冲区）的输出，中间部分只计数，任何输出量都不会撑爆内存
+ * 3. 每一行（超长行按 4KB 切分）交给 lineListener 实时显示；每秒最多转发 200 行，超出的行只汇总条数
+ * 4. 超时或取消时先发送 SIGTERM 给整个进程树，2 秒后仍未退出的进程强制结束
+ * 5. 结果包含退出码、耗时、输出总量、峰值输出速率和是否截断
+ * 6. 可选的 spool 流接收完整输出（后台任务写入临时文件，供之后查看）
+ *
+ * 每个实例只执行一次 run；cancel 可在任意线程调用
+ */
+public final class ProcessRunner {
+    private static final int READ_BUFFER = 8192;
+    private static final int MAX_LINE_BYTES = 4096;
+    private static final int MAX_STREAMED_LINES_PER_SECOND = 200;
+    private static final long KILL_GRACE_MS = 2000;
+    private static final long DRAIN_TIMEOUT_MS = 2000;
+
+    private final long timeoutMillis;
+    private final OutputBuffer buffer;
+    private final LineSplitter splitter;
+    private volatile Process process;
+    private volatile boolean cancelled;
+    private OutputStream spool;
+
+    /**
+     * @param timeoutMillis 超时时间，小于等于 0 表示不限制
+     * @param headBytes     保留的开头输出字节数
+     * @param tailBytes     保留的结尾输出字节数
+     * @param lineListener  逐行接收输出（在读取线程中调用），可以为 null
+     */
+    public ProcessRunner(long timeoutMillis, int headBytes, int tailBytes, Consumer<String> lineListener) {
+        this.timeoutMillis = timeoutMillis;
+        this.buffer = new OutputBuffer(headBytes, tailBytes);
+        this.splitter = lineListener != null ? new LineSplitter(lineListener) : null;
+    }
+
+    /**
+     * 完整输出额外写入 spool（在读取线程中写入，run 返回前关闭）；写入失败后不再写入
+     */
+    public void setSpool(OutputStream spool) {
+        this.spool = spool;
+    }
+
+    /**
+     * 执行结果
+     */
+    public static final class Result {
+        private final int exitCode;
+        private final long durationMillis;
+        private final long totalBytes;
+        private final long totalLines;
+        private final long peakBytesPerSecond;
+        private final long omittedBytes;
+        private final boolean timedOut;
+        private final boolean cancelled;
+        private final String output;
+
+        Result(int exitCode, long durationMillis, long totalBytes, long totalLines, long peakBytesPerSecond,
+               long omittedBytes, boolean timedOut, boolean cancelled, String output) {
+            this.exitCode = exitCode;
+            this.durationMillis = durationMillis;
+            this.totalBytes = totalBytes;
+            this.totalLines = totalLines;
+            this.peakBytesPerSecond = peakBytesPerSecond;
+            this.omittedBytes = omittedBytes;
+            this.timedOut = timedOut;
+            this.cancelled = cancelled;
+            this.output = output;
+        }
+
+        public int getExitCode() { return exitCode; }
+        public long getDurationMillis() { return durationMillis; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getTotalLines() { return totalLines; }
+        public long getPeakBytesPerSecond() { return peakBytesPerSecond; }
+        public long getOmittedBytes() { return omittedBytes; }
+        public boolean isTruncated() { return omittedBytes > 0; }
+        public boolean isTimedOut() { return timedOut; }
+        public boolean isCancelled() { return cancelled; }
+        public String getOutput() { return output; }
+
+        /**
+         * 摘要，如 [exit 0, 1.2s, 340 lines / 12.5 KB, peak 8.0 KB/s, 2.1 MB omitted]
+         */
+        public String summary() {
+            StringBuilder summary = new StringBuilder("[");
+            if (timedOut) {
+                summary.append("timed out");
+            } else if (cancelled) {
+                summary.append("cancelled");
+            } else {
+                summary.append("exit ").append(exitCode);
+            }
+            summary.append(", ").append(String.format("%.1fs", durationMillis / 1000.0))
+                    .append(", ").append(totalLines).append(totalLines == 1 ? " line / " : " lines / ")
+                    .append(formatBytes(totalBytes))
+                    .append(", peak ").append(formatBytes(peakBytesPerSecond)).append("/s");
+            if (omittedBytes > 0) {
+                summary.append(", ").append(formatBytes(omittedBytes)).append(" omitted");
+            }
+            return summary.append("]").toString();
+        }
+    }
+
+    /**
+     * 启动进程并等待结束（stderr 应通过 redirectErrorStream 合并到 stdout，保持两者的先后顺序）
+     *
+     * 调用线程被中断时同样结束进程树，返回的结果标记为已取消
+     */
+    public Result run(ProcessBuilder builder) throws IOException {
+        long start = System.currentTimeMillis();
+        Process started;
+        try {
+            started = builder.start();
+        } catch (IOException e) {
+            closeSpool();
+            throw e;
+        }
+        process = started;
+        started.getOutputStream().close();  // 不提供输入，等待 stdin 的命令立即读到 EOF
+
+        Thread reader = new Thread(() -> pump(started.getInputStream()), "process-output-" + started.pid());
+        reader.setDaemon(true);
+        reader.start();
+
+        boolean timedOut = false;
+        try {
+            if (cancelled) {
+                killTree(started);
+            }
+            if (timeoutMillis > 0) {
+                if (!started.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timedOut = !cancelled;
+                    killTree(started);
+                }
+            } else {
+                started.waitFor();
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            killTree(started);
+            Thread.currentThread().interrupt();
+        }
+
+        // 等待读取线程读完剩余输出；脱离进程树的子进程仍持有管道时不再等待
+        try {
+            reader.join(DRAIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int exitCode = started.isAlive() ? -1 : started.exitValue();
+        synchronized (buffer) {
+            if (splitter != null) {
+                splitter.finish();
+            }
+            closeSpool();
+            return new Result(exitCode, System.currentTimeMillis() - start, buffer.total, buffer.lines,
+                    buffer.peakBytesPerSecond(), buffer.omitted(), timedOut, cancelled, buffer.text());
+        }
+    }
+
+    /**
+     * 取消执行：结束整个进程树
+     */
+    public void cancel() {
+        cancelled = true;
+        Process running = process;
+        if (running != null && running.isAlive()) {
+            killTree(running);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void pump(InputStream input) {
+        byte[] chunk = new byte[READ_BUFFER];
+        try (input) {
+            int read;
+            while ((read = input.read(chunk)) >= 0) {
+                synchronized (buffer) {
+                    buffer.write(chunk, 0, read);
+                    if (splitter != null) {
+                        splitter.write(chunk, read);
+                    }
+                    writeSpool(chunk, read);
+                }
+            }
+        } catch (IOException e) {
+            // 进程被结束或流被关闭，已读取的输出保留
+        }
+    }
+
+    private void writeSpool(byte[] chunk, int length) {
+        if (spool == null) {
+            return;
+        }
+        try {
+            spool.write(chunk, 0, length);
+            spool.flush();
+        } catch (IOException e) {
+            closeSpool();
+        }
+    }
+
+    private void closeSpool() {
+        try {
+            if (spool != null) {
+                spool.close();
+            }
+        } catch (IOException e) {
+            // 忽略
+        } finally {
+            spool = null;
+        }
+    }
+
+    /**
+     * 结束进程及其所有子孙进程：先正常终止，超过宽限时间后强制结束
+     */
+    static void killTree(Process root) {
+        // 先收集子孙进程，父进程退出后它们会被收养，无法再通过父进程找到
+        List<ProcessHandle> descendants = root.descendants().collect(Collectors.toList());
+        root.destroy();
+        descendants.forEach(ProcessHandle::destroy);
+
+        long deadline = System.currentTimeMillis() + KILL_GRACE_MS;
+        try {
+            root.waitFor(KILL_GRACE_MS, TimeUnit.MILLISECONDS);
+            for (ProcessHandle handle : descendants) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    handle.onExit().get(remaining, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        if (root.isAlive()) {
+            root.destroyForcibly();
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private static String decode(byte[] bytes, int offset, int length) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(ByteBuffer.wrap(bytes, offset, length))
+                    .toString();
+        } catch (IOException e) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 输出历史：开头 headBytes 字节 + 结尾 tailBytes 字节的环形缓冲区，另外统计总量、行数和每秒输出量
+     */
+    static final class OutputBuffer {
+        private final byte[] head;
+        private final byte[] tail;
+        private int headLength;
+        private long tailWritten;
+        private long total;
+        private long lines;
+        private long bucketStart = System.currentTimeMillis();
+        private long bucketBytes;
+        private long peak;
+
+        OutputBuffer(int headBytes, int tailBytes) {
+            this.head = new byte[Math.max(0, headBytes)];
+            this.tail = new byte[Math.max(0, tailBytes)];
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            total += length;
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] == '\n') {
+                    lines++;
+                }
+            }
+            recordRate(length);
+
+            int toHead = Math.min(length, head.length - headLength);
+            System.arraycopy(bytes, offset, head, headLength, toHead);
+            headLength += toHead;
+            offset += toHead;
+            length -= toHead;
+            if (length == 0 || tail.length == 0) {
+                tailWritten += length;
+                return;
+            }
+
+            // 超过环形缓冲区大小时只需要最后 tail.length 字节
+            int skip = Math.max(0, length - tail.length);
+            tailWritten += skip;
+            offset += skip;
+            length -= skip;
+            int position = (int) (tailWritten % tail.length);
+            int first = Math.min(length, tail.length - position);
+            System.arraycopy(bytes, offset, tail, position, first);
+            System.arraycopy(bytes, offset + first, tail, 0, length - first);
+            tailWritten += length;
+        }
+
+        private void recordRate(int length) {
+            long now = System.currentTimeMillis();
+            if (now - bucketStart >= 1000) {
+                peak = Math.max(peak, bucketBytes);
+                bucketStart = now;
+                bucketBytes = 0;
+            }
+            bucketBytes += length;
+        }
+
+        long peakBytesPerSecond() {
+            return Math.max(peak, bucketBytes);
+        }
+
+        private int tailLength() {
+            return (int) Math.min(tailWritten, tail.length);
+        }
+
+        /**
+         * 未保留的中间部分字节数（不含为对齐行边界丢弃的字节）
+         */
+        long omitted() {
+            return total - headLength - tailLength();
+        }
+
+        /**
+         * 保留的输出；有省略时开头和结尾都截到完整的行，中间插入省略标记
+         */
+        String text() {
+            int tailLength = tailLength();
+            byte[] ordered = new byte[tailLength];
+            int position = (int) (tailWritten % Math.max(1, tail.length));
+            if (tailWritten > tail.length) {
+                System.arraycopy(tail, position, ordered, 0, tail.length - position);
+                System.arraycopy(tail, 0, ordered, tail.length - position, position);
+            } else {
+                System.arraycopy(tail, 0, ordered, 0, tailLength);
+            }
+
+            long omitted = omitted();
+            if (omitted == 0) {
+                byte[] all = new byte[headLength + tailLength];
+                System.arraycopy(head, 0, all, 0, headLength);
+                System.arraycopy(ordered, 0, all, headLength, tailLength);
+                return decode(all, 0, all.length).strip();
+            }
+
+            int headEnd = headLength;
+            while (headEnd > 0 && head[headEnd - 1] != '\n') {
+                headEnd--;
+            }
+            int tailStart = 0;
+            while (tailStart < tailLength && ordered[tailStart] != '\n') {
+                tailStart++;
+            }
+            tailStart = Math.min(tailLength, tailStart + 1);
+            long dropped = omitted + (headLength - headEnd) + tailStart;
+
+            StringBuilder text = new StringBuilder();
+            text.append(decode(head, 0, headEnd));
+            text.append("… [").append(formatBytes(dropped)).append(" of output omitted] …\n");
+            text.append(decode(ordered, tailStart, tailLength - tailStart));
+            return text.toString().strip();
+        }
+    }
+
+    /**
+     * 按行拆分输出交给监听器；超长行按 MAX_LINE_BYTES 切分，每秒最多转发 MAX_STREAMED_LINES_PER_SECOND 行
+     */
+    private static final class LineSplitter {
+        private final Consumer<String> listener;
+        private final byte[] pending = new byte[MAX_LINE_BYTES];
+        private int pendingLength;
+        private long windowStart = System.currentTimeMillis();
+        private int windowLines;
+        private long suppressed;
+        private boolean finished;
+
+        LineSplitter(Consumer<String> listener) {
+            this.listener = listener;
+        }
+
+        void write(byte[] bytes, int length) {
+            if (finished) {
+                return;  // 结果已返回，脱离进程树的子进程的后续输出不再显示
+            }
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    emit();
+                } else {
+                    if (pendingLength == pending.length) {
+                        emit();
+                    }
+                    pending[pendingLength++] = b;
+                }
+            }
+        }
+
+        void finish() {
+            if (pendingLength > 0) {
+                emit();
+            }
+            reportSuppressed();
+            finished = true;
+        }
+
+        private void emit() {
+            int length = pendingLength;
+            if (length > 0 && pending[length - 1] == '\r') {
+                length--;
+            }
+            pendingLength = 0;
+
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= 1000) {
+                reportSuppressed();
+                windowStart = now;
+                windowLines = 0;
+            }
+            if (windowLines >= MAX_STREAMED_LINES_PER_SECOND) {
+                suppressed++;
+                return;
+            }
+            windowLines++;
+            deliver(decode(pending, 0, length));
+        }
+
+        private void reportSuppressed() {
+            if (suppressed > 0) {
+                deliver("… (" + suppressed + " lines not shown)");
+                suppressed = 0;
+            }
+        }
+
+        private void deliver(String line) {
+            try {
+                listener.accept(line);
+            } catch (RuntimeException e) {
+                // 显示失败不影响命令执行
+            }
+        }
+    }
+}
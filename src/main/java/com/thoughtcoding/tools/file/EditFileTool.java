@@ -0,0 +1,278 @@
+package com.thoughtcoding.tools.file;
+
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.tools.search.SearchIndex;
+import com.thoughtcoding.util.JsonUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件编辑工具：按查找/替换或 unified diff 修改已有文件，只需要发送修改的部分
+ *
+ * 🔥 写入流程：
+ * 1. 读取原文并计算 SHA-256；调用方给出 expectedHash 时必须一致（防止基于过期内容修改）
+ * 2. 所有修改块相对原文定位，任何一个失败则不修改文件
+ * 3. 修改结果流式写入同目录的临时文件并刷盘
+ * 4. 替换前再次校验原文件的哈希，期间被其他进程修改则放弃
+ * 5. ATOMIC_MOVE 替换原文件（保留权限），输出新内容的哈希，供下一次编辑使用
+ */
+public class EditFileTool extends BaseTool {
+    private final AppConfig appConfig;
+    private final long maxFileSize;
+
+    public EditFileTool(AppConfig appConfig) {
+        super("edit_file", "Edit an existing file by search/replace edits or unified diff hunks, "
+                + "sending only the changed parts instead of rewriting the whole file");
+        this.appConfig = appConfig;
+        this.maxFileSize = appConfig.getTools().getFileManager().getMaxFileSize();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ToolResult execute(String input) {
+        long startTime = System.currentTimeMillis();
+
+        Map<String, Object> params;
+        try {
+            params = JsonUtils.parseObject(input);
+        } catch (Exception e) {
+            return error("JSON格式错误: 需要 'path' 以及 'edits' 或 'diff' 字段", System.currentTimeMillis() - startTime);
+        }
+
+        String filePath = params.get("path") instanceof String ? (String) params.get("path") : null;
+        if (filePath == null || filePath.isBlank()) {
+            return error("Missing 'path'", System.currentTimeMillis() - startTime);
+        }
+
+        try {
+            Path path = Paths.get(expandUserHome(filePath)).toAbsolutePath();
+            if (!Files.isRegularFile(path)) {
+                return error("File not found: " + filePath + ". Use file_manager write to create new files",
+                        System.currentTimeMillis() - startTime);
+            }
+            if (Files.size(path) > maxFileSize) {
+                return error("File too large: " + Files.size(path) + " bytes (max: " + maxFileSize + ")",
+                        System.currentTimeMillis() - startTime);
+            }
+
+            byte[] original = Files.readAllBytes(path);
+            String originalHash = sha256(original);
+            Object expectedHash = params.get("expectedHash");
+            if (expectedHash instanceof String && !((String) expectedHash).isBlank()
+                    && !originalHash.equalsIgnoreCase(((String) expectedHash).trim())) {
+                return error("File has changed since it was read (sha256 " + originalHash
+                        + "). Read it again before editing", System.currentTimeMillis() - startTime);
+            }
+
+            String content;
+            try {
+                content = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(ByteBuffer.wrap(original))
+                        .toString();
+            } catch (CharacterCodingException e) {
+                return error("File is not UTF-8 text: " + filePath, System.currentTimeMillis() - startTime);
+            }
+
+            TextPatch patch;
+            if (params.get("diff") instanceof String) {
+                patch = TextPatch.unifiedDiff(content, (String) params.get("diff"));
+            } else {
+                List<String> oldTexts = new ArrayList<>();
+                List<String> newTexts = new ArrayList<>();
+                List<Boolean> replaceAll = new ArrayList<>();
+                if (params.get("edits") instanceof List) {
+                    for (Object item : (List<Object>) params.get("edits")) {
+                        if (!(item instanceof Map)) {
+                            return error("Each edit must be an object with oldText and newText",
+                                    System.currentTimeMillis() - startTime);
+                        }
+                        Map<String, Object> edit = (Map<String, Object>) item;
+                        oldTexts.add(stringValue(edit.get("oldText")));
+                        newTexts.add(stringValue(edit.get("newText")));
+                        replaceAll.add(Boolean.TRUE.equals(edit.get("replaceAll")));
+                    }
+                } else if (params.containsKey("oldText")) {
+                    oldTexts.add(stringValue(params.get("oldText")));
+                    newTexts.add(stringValue(params.get("newText")));
+                    replaceAll.add(Boolean.TRUE.equals(params.get("replaceAll")));
+                }
+                if (oldTexts.isEmpty()) {
+                    return error("Provide 'edits' (search/replace) or 'diff' (unified diff hunks)",
+                            System.currentTimeMillis() - startTime);
+                }
+                patch = TextPatch.searchReplace(content, oldTexts, newTexts, replaceAll);
+            }
+
+            String newHash = writeAtomically(path, content, patch, originalHash);
+            SearchIndex.invalidate(path);  // 🔥 不等文件监听事件，紧接着的 grep_search 就能搜到新内容
+            return success(String.format("Edited %s: %d change(s), +%d -%d lines%nsha256: %s",
+                            filePath, patch.size(), patch.getAddedLines(), patch.getRemovedLines(), newHash),
+                    System.currentTimeMillis() - startTime);
+
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return error(e.getMessage(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            return error("Failed to edit file: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 流式写入临时文件，校验原文件未被修改后原子替换
+     *
+     * @return 新内容的 SHA-256
+     */
+    private String writeAtomically(Path path, String content, TextPatch patch, String originalHash) throws IOException {
+        Path temp = Files.createTempFile(path.getParent(), "." + path.getFileName(), ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Writer writer = Channels.newWriter(new DigestChannel(channel, digest),
+                        StandardCharsets.UTF_8.newEncoder(), 64 * 1024);
+                patch.writeTo(content, writer);
+                writer.flush();
+                channel.force(true);
+            }
+
+            PosixFileAttributeView posix = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+            if (posix != null) {
+                Files.setPosixFilePermissions(temp, posix.readAttributes().permissions());
+            }
+
+            // 写入期间文件被其他进程修改：放弃，避免覆盖别人的修改
+            if (!originalHash.equals(sha256(Files.readAllBytes(path)))) {
+                throw new IllegalStateException("File was modified by another process during the edit; no changes written");
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return toHex(digest.digest());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 写入时同时计算摘要，避免写完后再读一遍
+     */
+    private static final class DigestChannel implements java.nio.channels.WritableByteChannel {
+        private final FileChannel channel;
+        private final MessageDigest digest;
+
+        DigestChannel(FileChannel channel, MessageDigest digest) {
+            this.channel = channel;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            ByteBuffer copy = source.duplicate();
+            int written = channel.write(source);
+            copy.limit(copy.position() + written);
+            digest.update(copy);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // 由外层关闭 FileChannel
+        }
+    }
+
+    static String sha256(byte[] bytes) {
+        return toHex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private String expandUserHome(String path) {
+        if (path.equals("~")) {
+            return System.getProperty("user.home");
+        }
+        if (path.startsWith("~/")) {
+            return System.getProperty("user.home") + path.substring(1);
+        }
+        return path;
+    }
+
+    @Override
+    public String getCategory() {
+        return "file";
+    }
+
+    @Override
+    public Object getInputSchema() {
+        Map<String, Object> editProperties = new LinkedHashMap<>();
+        editProperties.put("oldText", stringProperty("Exact text to replace, including indentation; must be unique unless replaceAll"));
+        editProperties.put("newText", stringProperty("Replacement text"));
+        Map<String, Object> replaceAll = new LinkedHashMap<>();
+        replaceAll.put("type", "boolean");
+        replaceAll.put("description", "Replace every occurrence of oldText");
+        editProperties.put("replaceAll", replaceAll);
+
+        Map<String, Object> edits = new LinkedHashMap<>();
+        edits.put("type", "array");
+        edits.put("description", "Search/replace edits, all located against the original file");
+        edits.put("items", objectSchema(editProperties, "oldText", "newText"));
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("path", stringProperty("File to edit, relative to the working directory or starting with ~"));
+        properties.put("edits", edits);
+        properties.put("diff", stringProperty("Unified diff hunks (@@ -a,b +c,d @@) to apply instead of edits"));
+        properties.put("expectedHash", stringProperty("Optional sha256 of the content the edits are based on"));
+        return objectSchema(properties, "path");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return appConfig.getTools().getFileManager().isEnabled();
+    }
+}
@@ -3,18 +3,27 @@ package com.thoughtcoding.tools.file;
 import com.thoughtcoding.config.AppConfig;
 import com.thoughtcoding.tools.BaseTool;
 import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.tools.search.SearchIndex;
+import com.thoughtcoding.util.JsonUtils;
 
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 文件管理工具，支持基本的文件读写和目录操作
+ *
+ * 🔥 read 支持按范围读取（startLine/endLine、offset/length、head、tail），
+ * 由 MappedFileReader 内存映射读取，不受 maxFileSize 限制，每次最多返回 256KB
  */
 public class FileManagerTool extends BaseTool {
+    private static final int MAX_SLICE_BYTES = 256 * 1024;
+
     private final long maxFileSize;
     private final AppConfig appConfig;
 
@@ -34,11 +43,11 @@ public class FileManagerTool extends BaseTool {
             String action;
             String path;
             String content = null;
+            Map<String, Object> params = Map.of();
 
             // 🔥 支持 JSON 格式输入
             if (input.trim().startsWith("{")) {
-                com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                java.util.Map<String, Object> params = mapper.readValue(input, java.util.Map.class);
+                params = JsonUtils.parseObject(input);
 
                 action = (String) params.get("command");
                 if (action == null) action = (String) params.get("action");
@@ -61,6 +70,9 @@ public class FileManagerTool extends BaseTool {
 
             switch (action) {
                 case "read":
+                    if (isRangeRead(params)) {
+                        return readRange(path, params, startTime);
+                    }
                     return readFile(path, startTime);
                 case "write":
                     if (content == null) {
@@ -91,6 +103,7 @@ public class FileManagerTool extends BaseTool {
             Path path = Paths.get(expandedPath).toAbsolutePath();
             Files.createDirectories(path.getParent());
             Files.writeString(path, content);
+            SearchIndex.invalidate(path);
             return success("File written: " + filePath + " (" + content.length() + " bytes)",
                     System.currentTimeMillis() - startTime);
         } catch (IOException e) {
@@ -112,7 +125,8 @@ public class FileManagerTool extends BaseTool {
             }
 
             if (Files.size(path) > maxFileSize) {
-                return error("File too large: " + Files.size(path) + " bytes (max: " + maxFileSize + ")",
+                return error("File too large: " + Files.size(path) + " bytes (max: " + maxFileSize + "). "
+                                + "Read part of it with startLine/endLine, head, tail or offset/length",
                         System.currentTimeMillis() - startTime);
             }
 
@@ -124,6 +138,58 @@ public class FileManagerTool extends BaseTool {
         }
     }
 
+    private static boolean isRangeRead(Map<String, Object> params) {
+        return params.containsKey("startLine") || params.containsKey("endLine") || params.containsKey("head")
+                || params.containsKey("tail") || params.containsKey("offset") || params.containsKey("length");
+    }
+
+    /**
+     * 🔥 按行范围、字节范围、头部或尾部读取文件的一部分，输出开头附带片段位置，方便继续翻页
+     */
+    private ToolResult readRange(String filePath, Map<String, Object> params, long startTime) {
+        try {
+            Path path = Paths.get(expandUserHome(filePath)).toAbsolutePath();
+
+            if (!Files.exists(path)) {
+                return error("File not found: " + filePath, System.currentTimeMillis() - startTime);
+            }
+            if (Files.isDirectory(path)) {
+                return error("Path is a directory, not a file: " + filePath, System.currentTimeMillis() - startTime);
+            }
+
+            MappedFileReader.Slice slice;
+            if (params.containsKey("tail")) {
+                slice = MappedFileReader.tail(path, longParam(params, "tail", 0), MAX_SLICE_BYTES);
+            } else if (params.containsKey("head")) {
+                slice = MappedFileReader.head(path, longParam(params, "head", 0), MAX_SLICE_BYTES);
+            } else if (params.containsKey("offset") || params.containsKey("length")) {
+                slice = MappedFileReader.readBytes(path, longParam(params, "offset", 0),
+                        longParam(params, "length", MAX_SLICE_BYTES), MAX_SLICE_BYTES);
+            } else {
+                long startLine = longParam(params, "startLine", 1);
+                slice = MappedFileReader.readLines(path, startLine,
+                        longParam(params, "endLine", Long.MAX_VALUE), MAX_SLICE_BYTES);
+            }
+            return success(slice.describe() + "\n" + slice.getText(), System.currentTimeMillis() - startTime);
+
+        } catch (NumberFormatException e) {
+            return error("Invalid range parameter: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            return error("Failed to read file: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private static long longParam(Map<String, Object> params, String name, long defaultValue) {
+        Object value = params.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String && !((String) value).isBlank()) {
+            return Long.parseLong(((String) value).trim());
+        }
+        return defaultValue;
+    }
+
     private ToolResult writeFile(String input, long startTime) {
         try {
             // 输入格式: "path content" 或 JSON格式
@@ -142,6 +208,7 @@ public class FileManagerTool extends BaseTool {
             Files.createDirectories(path.getParent());
 
             Files.writeString(path, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            SearchIndex.invalidate(path);
 
             return success("File written successfully: " + path, System.currentTimeMillis() - startTime);
 
@@ -207,9 +274,11 @@ public class FileManagerTool extends BaseTool {
             // 🔥 如果是目录，递归删除
             if (Files.isDirectory(path)) {
                 deleteDirectoryRecursively(path);
+                SearchIndex.invalidate(path);
                 return success("Directory deleted: " + filePath, System.currentTimeMillis() - startTime);
             } else {
                 Files.delete(path);
+                SearchIndex.invalidate(path);
                 return success("File deleted: " + filePath, System.currentTimeMillis() - startTime);
             }
 
@@ -265,6 +334,22 @@ public class FileManagerTool extends BaseTool {
         return "file";
     }
 
+    @Override
+    public Object getInputSchema() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("command", stringProperty("File operation",
+                "read", "write", "list", "create", "delete", "info"));
+        properties.put("path", stringProperty("File or directory path, relative to the working directory or starting with ~"));
+        properties.put("content", stringProperty("Full file content, required for write"));
+        properties.put("startLine", integerProperty("read: first line to return (1-based)"));
+        properties.put("endLine", integerProperty("read: last line to return (inclusive)"));
+        properties.put("head", integerProperty("read: return only the first N lines"));
+        properties.put("tail", integerProperty("read: return only the last N lines"));
+        properties.put("offset", integerProperty("read: byte offset to start from"));
+        properties.put("length", integerProperty("read: number of bytes to return"));
+        return objectSchema(properties, "command", "path");
+    }
+
     @Override
     public boolean isEnabled() {
         return appConfig.getTools().getFileManager().isEnabled();
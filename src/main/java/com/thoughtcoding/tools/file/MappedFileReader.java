@@ -0,0 +1,315 @@
+package com.thoughtcoding.tools.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按行范围、字节范围、头部、尾部读取文件的一部分，不把整个文件读入堆内存
+ *
+ * 🔥 实现要点：
+ * 1. 通过 FileChannel.map 按窗口（64MB）映射文件扫描换行，只把请求的片段解码为字符串
+ * 2. 行偏移索引每 1024 行记录一个检查点，2GB 的日志也只需要几十 KB；
+ *    按 (路径, 大小, 修改时间) 缓存，文件变化后自动重建
+ * 3. 定位第 N 行时先跳到最近的检查点，再向后扫描不超过 1023 行
+ * 4. tail 从文件末尾向前扫描，不需要索引
+ * 5. 每次返回的内容不超过 maxBytes，超出时在行边界截断并标记
+ */
+public final class MappedFileReader {
+    static final int CHECKPOINT_INTERVAL = 1024;
+    private static final long WINDOW = 64L << 20;
+    private static final int CACHE_SIZE = 32;
+
+    private static final Map<Path, LineIndex> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private MappedFileReader() {
+        // 工具类，防止实例化
+    }
+
+    /**
+     * 读取到的片段
+     */
+    public static final class Slice {
+        private final String text;
+        private final long firstLine;   // 1 起始；未知时为 -1
+        private final long lastLine;
+        private final long totalLines;  // 未知时为 -1
+        private final long startOffset;
+        private final long endOffset;
+        private final long fileSize;
+        private final boolean truncated;
+
+        Slice(String text, long firstLine, long lastLine, long totalLines,
+              long startOffset, long endOffset, long fileSize, boolean truncated) {
+            this.text = text;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+            this.totalLines = totalLines;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.fileSize = fileSize;
+            this.truncated = truncated;
+        }
+
+        public String getText() { return text; }
+        public long getFirstLine() { return firstLine; }
+        public long getLastLine() { return lastLine; }
+        public long getTotalLines() { return totalLines; }
+        public long getStartOffset() { return startOffset; }
+        public long getEndOffset() { return endOffset; }
+        public long getFileSize() { return fileSize; }
+        public boolean isTruncated() { return truncated; }
+
+        /**
+         * 片段描述，如 [lines 50000-50200 of 2000000, bytes 1024-4096 of 2147483648]
+         */
+        public String describe() {
+            StringBuilder header = new StringBuilder("[");
+            if (firstLine > 0) {
+                header.append("lines ").append(firstLine).append("-").append(lastLine);
+                if (totalLines >= 0) {
+                    header.append(" of ").append(totalLines);
+                }
+                header.append(", ");
+            }
+            header.append("bytes ").append(startOffset).append("-").append(endOffset)
+                    .append(" of ").append(fileSize);
+            if (truncated) {
+                header.append(", truncated");
+            }
+            return header.append("]").toString();
+        }
+    }
+
+    /**
+     * 行偏移索引：checkpoints[i] 是第 i * CHECKPOINT_INTERVAL 行（0 起始）的起始偏移
+     */
+    private static final class LineIndex {
+        final long size;
+        final long modified;
+        final long lineCount;
+        final long[] checkpoints;
+
+        LineIndex(long size, long modified, long lineCount, long[] checkpoints) {
+            this.size = size;
+            this.modified = modified;
+            this.lineCount = lineCount;
+            this.checkpoints = checkpoints;
+        }
+    }
+
+    /**
+     * 读取第 startLine 到 endLine 行（1 起始，包含两端）
+     */
+    public static Slice readLines(Path file, long startLine, long endLine, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LineIndex index = lineIndex(file, channel);
+            long first = Math.max(1, startLine);
+            long last = Math.min(endLine, index.lineCount);
+            if (first > last) {
+                return new Slice("", first, first - 1, index.lineCount, index.size, index.size, index.size, false);
+            }
+
+            // 跳到最近的检查点，再向后扫描剩余的行
+            long line = first - 1;
+            long checkpoint = line / CHECKPOINT_INTERVAL;
+            long start = skipLines(channel, index.checkpoints[(int) checkpoint],
+                    line - checkpoint * CHECKPOINT_INTERVAL, index.size)[0];
+            return sliceLines(channel, start, first, last - first + 1, index.lineCount, index.size, maxBytes);
+        }
+    }
+
+    /**
+     * 读取开头的 lines 行
+     */
+    public static Slice head(Path file, long lines, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return sliceLines(channel, 0, 1, Math.max(0, lines), -1, channel.size(), maxBytes);
+        }
+    }
+
+    /**
+     * 读取末尾的 lines 行
+     */
+    public static Slice tail(Path file, long lines, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // 文件以换行结束时，最后的换行不算一个空行
+            long position = size > 0 && byteAt(channel, size - 1) == '\n' ? size - 1 : size;
+            long lowest = Math.max(0, size - maxBytes);
+            long start = -1;
+            long found = 0;
+
+            while (start < 0 && lines > 0 && position > lowest) {
+                long windowStart = Math.max(lowest, position - WINDOW);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, position - windowStart);
+                for (int i = (int) (position - windowStart) - 1; i >= 0; i--) {
+                    if (window.get(i) == '\n' && ++found == lines) {
+                        start = windowStart + i + 1;
+                        break;
+                    }
+                }
+                position = windowStart;
+            }
+
+            boolean truncated = false;
+            if (lines <= 0) {
+                start = size;
+            } else if (start < 0) {
+                truncated = lowest > 0;
+                // 超出 maxBytes 时从下一个完整行开始；最后一行本身超过 maxBytes 时保留它的末尾部分
+                if (truncated && byteAt(channel, lowest - 1) != '\n') {
+                    long next = skipLines(channel, lowest, 1, size)[0];
+                    start = next >= size - 1 ? lowest : next;
+                } else {
+                    start = lowest;
+                }
+            }
+
+            String text = decode(channel, start, size);
+            if (text.endsWith("\n")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            return new Slice(text, -1, -1, -1, start, size, size, truncated);
+        }
+    }
+
+    /**
+     * 读取 [offset, offset + length) 字节
+     */
+    public static Slice readBytes(Path file, long offset, long length, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = Math.max(0, Math.min(offset, size));
+            long requestedEnd = Math.min(size, start + Math.max(0, length));
+            long end = Math.min(requestedEnd, start + maxBytes);
+            return new Slice(decode(channel, start, end), -1, -1, -1, start, end, size, end < requestedEnd);
+        }
+    }
+
+    private static Slice sliceLines(FileChannel channel, long start, long firstLine, long lineCount,
+                                    long totalLines, long size, int maxBytes) throws IOException {
+        long limit = Math.min(size, start + maxBytes);
+        long[] skipped = skipLines(channel, start, lineCount, limit);
+        long end = skipped[0];
+        long read = skipped[1];
+        boolean truncated = false;
+        if (read < lineCount) {
+            if (limit == size) {
+                if (end < size) {
+                    end = size;  // 最后一行没有换行结尾
+                    read++;
+                }
+            } else {
+                truncated = true;
+                if (read == 0) {
+                    // 单行超过 maxBytes：返回该行的前 maxBytes 字节
+                    end = limit;
+                    read = 1;
+                }
+            }
+        }
+        String text = decode(channel, start, end);
+        if (text.endsWith("\n")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return new Slice(text, firstLine, firstLine + read - 1, totalLines, start, end, size, truncated);
+    }
+
+    /**
+     * 从 from 开始向后跳过 count 个换行，不超过 limit
+     *
+     * @return {最后一个跳过的换行之后的位置（没有换行时为 from）, 实际跳过的换行数}
+     */
+    private static long[] skipLines(FileChannel channel, long from, long count, long limit) throws IOException {
+        long position = from;
+        long lineEnd = from;
+        long skipped = 0;
+        while (skipped < count && position < limit) {
+            long length = Math.min(WINDOW, limit - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length && skipped < count; i++) {
+                if (window.get(i) == '\n') {
+                    skipped++;
+                    lineEnd = position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return new long[]{lineEnd, skipped};
+    }
+
+    private static LineIndex lineIndex(Path file, FileChannel channel) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = channel.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        Path key = file.toAbsolutePath().normalize();
+
+        LineIndex cached = CACHE.get(key);
+        if (cached != null && cached.size == size && cached.modified == modified) {
+            return cached;
+        }
+
+        long[] checkpoints = new long[16];
+        int checkpointCount = 1;  // 第 0 行从偏移 0 开始
+        long lines = 0;
+        for (long position = 0; position < size; position += WINDOW) {
+            long length = Math.min(WINDOW, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (window.get(i) == '\n') {
+                    lines++;
+                    if (lines % CHECKPOINT_INTERVAL == 0) {
+                        if (checkpointCount == checkpoints.length) {
+                            checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                        }
+                        checkpoints[checkpointCount++] = position + i + 1;
+                    }
+                }
+            }
+        }
+        // 最后一行没有换行结尾时也算一行
+        if (size > 0 && byteAt(channel, size - 1) != '\n') {
+            lines++;
+        }
+
+        LineIndex index = new LineIndex(size, modified, lines, Arrays.copyOf(checkpoints, checkpointCount));
+        CACHE.put(key, index);
+        return index;
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    private static String decode(FileChannel channel, long start, long end) throws IOException {
+        if (end <= start) {
+            return "";
+        }
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(region)
+                .toString();
+    }
+}
@@ -0,0 +1,340 @@
+package com.thoughtcoding.tools.file;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * edit_file 的补丁计算：把查找/替换或 unified diff 的修改块转换为原文中的替换区间
+ *
+ * 所有修改块都相对于原文定位，互不重叠，最后按位置顺序一次写出；
+ * 因此多个修改块的结果与顺序无关，定位失败时整个调用不修改文件。
+ */
+public final class TextPatch {
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private final List<Replacement> replacements = new ArrayList<>();
+    private int addedLines;
+    private int removedLines;
+
+    /**
+     * 原文 [start, end) 替换为 text
+     */
+    public static final class Replacement {
+        final int start;
+        final int end;
+        final String text;
+        final String label;
+
+        Replacement(int start, int end, String text, String label) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.label = label;
+        }
+    }
+
+    private TextPatch() {
+    }
+
+    public int size() {
+        return replacements.size();
+    }
+
+    public int getAddedLines() {
+        return addedLines;
+    }
+
+    public int getRemovedLines() {
+        return removedLines;
+    }
+
+    /**
+     * 查找/替换：oldText 必须在原文中出现且只出现一次（replaceAll 时替换全部）
+     *
+     * @throws IllegalArgumentException 无法定位或与其他修改重叠
+     */
+    public static TextPatch searchReplace(String content, List<String> oldTexts, List<String> newTexts,
+                                          List<Boolean> replaceAll) {
+        TextPatch patch = new TextPatch();
+        String lineSeparator = lineSeparator(content);
+        for (int i = 0; i < oldTexts.size(); i++) {
+            String label = "edit #" + (i + 1);
+            String oldText = oldTexts.get(i);
+            String newText = newTexts.get(i) != null ? newTexts.get(i) : "";
+            if (oldText == null || oldText.isEmpty()) {
+                throw new IllegalArgumentException(label + ": oldText must not be empty");
+            }
+
+            List<Integer> positions = occurrences(content, oldText);
+            if (positions.isEmpty() && "\r\n".equals(lineSeparator) && !oldText.contains("\r\n")) {
+                // 模型输出的是 \n，文件使用 \r\n：两边都转换后再查找
+                oldText = oldText.replace("\n", "\r\n");
+                newText = newText.replace("\r\n", "\n").replace("\n", "\r\n");
+                positions = occurrences(content, oldText);
+            }
+            if (positions.isEmpty()) {
+                throw new IllegalArgumentException(label + ": oldText not found. It must match the file exactly, "
+                        + "including whitespace and indentation");
+            }
+            if (positions.size() > 1 && !Boolean.TRUE.equals(replaceAll.get(i))) {
+                List<Integer> lines = new ArrayList<>();
+                for (int position : positions) {
+                    lines.add(lineNumber(content, position));
+                }
+                throw new IllegalArgumentException(label + ": oldText matches " + positions.size()
+                        + " locations (lines " + lines + "). Include more surrounding context or set replaceAll");
+            }
+            for (int position : positions) {
+                patch.add(new Replacement(position, position + oldText.length(), newText, label));
+            }
+            patch.removedLines += countLines(oldText) * positions.size();
+            patch.addedLines += countLines(newText) * positions.size();
+        }
+        patch.sortAndCheckOverlap();
+        return patch;
+    }
+
+    /**
+     * 应用 unified diff（只含一个文件的 @@ 修改块，---/+++ 等文件头会被忽略）
+     *
+     * 修改块优先在头部给出的行号处匹配，行号不准时在全文中寻找最近的匹配位置
+     *
+     * @throws IllegalArgumentException 格式错误或修改块与文件内容不符
+     */
+    public static TextPatch unifiedDiff(String content, String diff) {
+        List<int[]> headers = new ArrayList<>();
+        List<List<String>> oldBlocks = new ArrayList<>();
+        List<List<String>> newBlocks = new ArrayList<>();
+
+        String[] diffLines = diff.split("\r?\n", -1);
+        int added = 0;
+        int removed = 0;
+        List<String> oldLines = null;
+        List<String> newLines = null;
+        for (int i = 0; i < diffLines.length; i++) {
+            String line = diffLines[i];
+            Matcher header = HUNK_HEADER.matcher(line);
+            if (header.find()) {
+                oldLines = new ArrayList<>();
+                newLines = new ArrayList<>();
+                headers.add(new int[]{Integer.parseInt(header.group(1)),
+                        header.group(2) != null ? Integer.parseInt(header.group(2)) : 1});
+                oldBlocks.add(oldLines);
+                newBlocks.add(newLines);
+                continue;
+            }
+            boolean fileHeader = line.startsWith("diff ") || line.startsWith("index ")
+                    || (line.startsWith("--- ") && i + 1 < diffLines.length && diffLines[i + 1].startsWith("+++ "))
+                    || (line.startsWith("+++ ") && i > 0 && diffLines[i - 1].startsWith("--- "));
+            if (oldLines == null || fileHeader) {
+                continue;
+            }
+            if (line.startsWith("+")) {
+                newLines.add(line.substring(1));
+                added++;
+            } else if (line.startsWith("-")) {
+                oldLines.add(line.substring(1));
+                removed++;
+            } else if (line.startsWith(" ")) {
+                oldLines.add(line.substring(1));
+                newLines.add(line.substring(1));
+            } else if (line.isEmpty() && i < diffLines.length - 1) {
+                // 部分工具会去掉空上下文行的前导空格
+                oldLines.add("");
+                newLines.add("");
+            }
+            // "\ No newline at end of file" 等其他行忽略
+        }
+        if (headers.isEmpty()) {
+            throw new IllegalArgumentException("diff contains no @@ hunks");
+        }
+
+        TextPatch patch = new TextPatch();
+        patch.addedLines = added;
+        patch.removedLines = removed;
+        String lineSeparator = lineSeparator(content);
+        int[] offsets = lineOffsets(content);
+        List<String> fileLines = new ArrayList<>(offsets.length - 1);
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            fileLines.add(stripLineEnd(content.substring(offsets[i], offsets[i + 1])));
+        }
+
+        int minimum = 0;  // 修改块按顺序出现，不能早于上一个修改块的结尾
+        for (int h = 0; h < headers.size(); h++) {
+            String label = "hunk #" + (h + 1) + " (@@ -" + headers.get(h)[0] + "," + headers.get(h)[1] + ")";
+            List<String> before = oldBlocks.get(h);
+            List<String> after = newBlocks.get(h);
+
+            int expected = before.isEmpty() ? headers.get(h)[0] : headers.get(h)[0] - 1;
+            int position = locate(fileLines, before, Math.max(expected, minimum), minimum);
+            if (position < 0) {
+                throw new IllegalArgumentException(label + " does not match the file content");
+            }
+
+            int start = offsets[position];
+            int end = offsets[position + before.size()];
+            StringBuilder text = new StringBuilder();
+            for (String line : after) {
+                text.append(line).append(lineSeparator);
+            }
+            boolean lastLineUnterminated = !content.isEmpty() && !content.endsWith("\n");
+            if (end == content.length() && lastLineUnterminated && text.length() > 0) {
+                if (before.isEmpty()) {
+                    // 在没有换行结尾的最后一行之后插入
+                    text.insert(0, lineSeparator).setLength(text.length() - lineSeparator.length());
+                } else {
+                    text.setLength(text.length() - lineSeparator.length());
+                }
+            }
+            patch.add(new Replacement(start, end, text.toString(), label));
+            minimum = position + before.size();
+        }
+        patch.sortAndCheckOverlap();
+        return patch;
+    }
+
+    /**
+     * 按位置顺序写出修改后的内容：未修改的部分原样复制
+     */
+    public void writeTo(String content, Writer out) throws IOException {
+        int position = 0;
+        for (Replacement replacement : replacements) {
+            out.write(content, position, replacement.start - position);
+            out.write(replacement.text);
+            position = replacement.end;
+        }
+        out.write(content, position, content.length() - position);
+    }
+
+    public String apply(String content) {
+        StringWriter writer = new StringWriter(content.length() + 256);
+        try {
+            writeTo(content, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    private void add(Replacement replacement) {
+        replacements.add(replacement);
+    }
+
+    private void sortAndCheckOverlap() {
+        replacements.sort(Comparator.comparingInt(r -> r.start));
+        for (int i = 1; i < replacements.size(); i++) {
+            Replacement previous = replacements.get(i - 1);
+            Replacement current = replacements.get(i);
+            if (current.start < previous.end) {
+                throw new IllegalArgumentException(current.label + " overlaps " + previous.label);
+            }
+        }
+    }
+
+    /**
+     * 在 fileLines 中查找 block，从 expected 开始向两侧扩展，返回最近的匹配位置；找不到时返回 -1
+     */
+    private static int locate(List<String> fileLines, List<String> block, int expected, int minimum) {
+        int last = fileLines.size() - block.size();
+        if (block.isEmpty()) {
+            return Math.min(Math.max(expected, minimum), fileLines.size());
+        }
+        for (int distance = 0; ; distance++) {
+            int below = expected - distance;
+            int above = expected + distance;
+            if (below < minimum && above > last) {
+                return -1;
+            }
+            if (above >= minimum && above <= last && matchesAt(fileLines, block, above)) {
+                return above;
+            }
+            if (distance > 0 && below >= minimum && below <= last && matchesAt(fileLines, block, below)) {
+                return below;
+            }
+        }
+    }
+
+    private static boolean matchesAt(List<String> fileLines, List<String> block, int position) {
+        for (int i = 0; i < block.size(); i++) {
+            if (!fileLines.get(position + i).equals(stripLineEnd(block.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 每行的起始偏移，最后一个元素为内容长度；没有换行结尾的最后一行也算一行
+     */
+    private static int[] lineOffsets(String content) {
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+        if (offsets.get(offsets.size() - 1) != content.length()) {
+            offsets.add(content.length());
+        }
+        int[] result = new int[offsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.get(i);
+        }
+        return result;
+    }
+
+    private static String stripLineEnd(String line) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+
+    private static String lineSeparator(String content) {
+        return content.contains("\r\n") ? "\r\n" : "\n";
+    }
+
+    private static List<Integer> occurrences(String content, String text) {
+        List<Integer> positions = new ArrayList<>();
+        int index = content.indexOf(text);
+        while (index >= 0) {
+            positions.add(index);
+            index = content.indexOf(text, index + text.length());
+        }
+        return positions;
+    }
+
+    private static int lineNumber(String content, int position) {
+        int line = 1;
+        for (int i = 0; i < position; i++) {
+            if (content.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    private static int countLines(String text) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' && i < text.length() - 1) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
@@ -3,24 +3,31 @@ package com.thoughtcoding.tools.search;
 import com.thoughtcoding.config.AppConfig;
 import com.thoughtcoding.tools.BaseTool;
 import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.util.JsonUtils;
 
-import java.io.IOException;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.Map;
 
 /**
  * Grep 搜索工具，支持在文件和目录中搜索文本模式
+ *
+ * 搜索由 SearchEngine 完成：并行遍历、遵守 .gitignore、跳过二进制文件，达到 maxResults 后提前结束。
+ * tools.search.useIndex 开启时先用 SearchIndex 缩小候选文件范围
  */
 public class GrepSearchTool extends BaseTool {
 
     private final AppConfig appConfig;
+    private final SearchIndex searchIndex;
+
     public GrepSearchTool(AppConfig appConfig) {
         super("grep_search", "Search for text patterns in files using grep-like functionality");
         this.appConfig = appConfig;
+        // 🔥 启用索引时在后台为工作目录所在的仓库构建三元组索引
+        this.searchIndex = appConfig != null && appConfig.getTools().getSearch().isUseIndex()
+                ? SearchIndex.open(Paths.get("").toAbsolutePath(), maxFileSize())
+                : null;
     }
 
     @Override
@@ -28,74 +35,76 @@ public class GrepSearchTool extends BaseTool {
         long startTime = System.currentTimeMillis();
 
         try {
-            String[] parts = input.split(" ", 2);
-            if (parts.length < 2) {
-                return error("Invalid format. Use: <pattern> <path>", System.currentTimeMillis() - startTime);
+            String pattern;
+            String searchPath;
+            int maxResults = defaultMaxResults();
+            if (input.trim().startsWith("{")) {
+                // 🔥 JSON 格式输入：{"pattern":"TODO","path":"src"}，path 缺省为当前目录
+                Map<String, Object> params = JsonUtils.parseObject(input);
+                pattern = (String) params.get("pattern");
+                searchPath = params.get("path") instanceof String ? (String) params.get("path") : ".";
+                if (params.get("maxResults") instanceof Number) {
+                    maxResults = ((Number) params.get("maxResults")).intValue();
+                }
+                if (pattern == null) {
+                    return error("JSON格式错误: 需要 'pattern' 字段", System.currentTimeMillis() - startTime);
+                }
+            } else {
+                String[] parts = input.split(" ", 2);
+                if (parts.length < 2) {
+                    return error("Invalid format. Use: <pattern> <path>", System.currentTimeMillis() - startTime);
+                }
+                pattern = parts[0];
+                searchPath = parts[1];
             }
 
-            String pattern = parts[0];
-            String searchPath = parts[1];
-
             Path path = Paths.get(searchPath).toAbsolutePath();
 
             if (!Files.exists(path)) {
                 return error("Path not found: " + path, System.currentTimeMillis() - startTime);
             }
 
-            List<String> results = new ArrayList<>();
-
-            if (Files.isDirectory(path)) {
-                // 递归搜索目录
-                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        if (Files.isRegularFile(file) && !Files.isHidden(file)) {
-                            searchInFile(file, pattern, results);
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-            } else {
-                // 搜索单个文件
-                searchInFile(path, pattern, results);
+            SearchEngine engine = new SearchEngine(pattern, maxResults, maxFileSize());
+            SearchEngine.Result result = null;
+            if (searchIndex != null && Files.isDirectory(path)) {
+                // 索引只给出可能包含字面量的候选文件，匹配仍由引擎逐行验证
+                List<Path> candidates = searchIndex.candidates(engine.getRequiredLiteral(), path.normalize());
+                if (candidates != null) {
+                    result = engine.search(candidates);
+                }
+            }
+            if (result == null) {
+                result = engine.search(path);
             }
 
-            if (results.isEmpty()) {
+            if (result.getMatches().isEmpty()) {
                 return success("No matches found for pattern: " + pattern, System.currentTimeMillis() - startTime);
             }
 
-            String result = String.join("\n", results);
-            return success("Found " + results.size() + " matches:\n" + result, System.currentTimeMillis() - startTime);
+            StringBuilder output = new StringBuilder();
+            output.append("Found ").append(result.getMatches().size()).append(" matches");
+            if (result.isTruncated()) {
+                output.append(" (stopped at limit ").append(maxResults).append(")");
+            }
+            output.append(":");
+            for (SearchEngine.Match match : result.getMatches()) {
+                output.append("\n").append(match);
+            }
+            return success(output.toString(), System.currentTimeMillis() - startTime);
 
         } catch (Exception e) {
             return error("Search failed: " + e.getMessage(), System.currentTimeMillis() - startTime);
         }
     }
 
-    private void searchInFile(Path file, String pattern, List<String> results) {
-        try {
-            Pattern regex;
-            try {
-                regex = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-            } catch (PatternSyntaxException e) {
-                // 如果正则表达式无效，使用普通文本搜索
-                regex = Pattern.compile(Pattern.quote(pattern), Pattern.CASE_INSENSITIVE);
-            }
+    private int defaultMaxResults() {
+        Integer configured = appConfig != null ? appConfig.getTools().getSearch().getMaxResults() : null;
+        return configured != null && configured > 0 ? configured : 200;
+    }
 
-            List<String> lines = Files.readAllLines(file);
-            for (int i = 0; i < lines.size(); i++) {
-                if (regex.matcher(lines.get(i)).find()) {
-                    results.add(String.format("%s:%d: %s", file, i + 1, lines.get(i).trim()));
-                }
-            }
-        } catch (IOException e) {
-            results.add(String.format("%s: ERROR - %s", file, e.getMessage()));
-        }
+    private long maxFileSize() {
+        Long configured = appConfig != null ? appConfig.getTools().getSearch().getMaxFileSize() : null;
+        return configured != null && configured > 0 ? configured : Long.MAX_VALUE;
     }
 
     @Override
@@ -103,6 +112,15 @@ public class GrepSearchTool extends BaseTool {
         return "exec";
     }
 
+    @Override
+    public Object getInputSchema() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("pattern", stringProperty("Regular expression to search for"));
+        properties.put("path", stringProperty("File or directory to search, defaults to the working directory"));
+        properties.put("maxResults", integerProperty("Maximum number of matching lines to return"));
+        return objectSchema(properties, "pattern");
+    }
+
     @Override
     public boolean isEnabled() {
         return appConfig != null && appConfig.getTools().getCommandExec().isEnabled();
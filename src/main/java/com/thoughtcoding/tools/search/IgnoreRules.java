@@ -0,0 +1,214 @@
+package com.thoughtcoding.tools.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * .gitignore / .ignore 规则
+ *
+ * 每个目录一个实例，指向上级目录的规则；判断时先看本目录的规则（最后匹配的一条生效），
+ * 没有匹配再交给上级，与 git 的优先级一致。支持注释、! 取反、结尾 / 只匹配目录、
+ * 开头或中间的 / 表示相对规则文件所在目录，以及 *、?、**、[abc]
+ */
+public final class IgnoreRules {
+    private static final String[] IGNORE_FILES = {".gitignore", ".ignore"};
+
+    private final IgnoreRules parent;
+    private final Path baseDir;
+    private final List<Rule> rules;
+
+    private static final class Rule {
+        final Pattern pattern;
+        final boolean negated;
+        final boolean directoryOnly;
+        final boolean matchName;  // 不含 /：匹配任意层级的文件名
+
+        Rule(Pattern pattern, boolean negated, boolean directoryOnly, boolean matchName) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.matchName = matchName;
+        }
+    }
+
+    private IgnoreRules(IgnoreRules parent, Path baseDir, List<Rule> rules) {
+        this.parent = parent;
+        this.baseDir = baseDir;
+        this.rules = rules;
+    }
+
+    public static IgnoreRules empty() {
+        return new IgnoreRules(null, null, List.of());
+    }
+
+    /**
+     * 搜索根目录的规则：从所在的 git 仓库根目录（包括 .git/info/exclude）一直加载到 root
+     */
+    public static IgnoreRules forRoot(Path root) {
+        Deque<Path> chain = new ArrayDeque<>();
+        Path repoRoot = null;
+        for (Path dir = root; dir != null; dir = dir.getParent()) {
+            chain.push(dir);
+            if (Files.exists(dir.resolve(".git"))) {
+                repoRoot = dir;
+                break;
+            }
+        }
+        if (repoRoot == null) {
+            // 不在 git 仓库中：只加载根目录自身的规则
+            return empty().child(root);
+        }
+
+        IgnoreRules rules = new IgnoreRules(null, repoRoot,
+                parseFile(repoRoot.resolve(".git").resolve("info").resolve("exclude")));
+        for (Path dir : chain) {
+            rules = rules.child(dir);
+        }
+        return rules;
+    }
+
+    /**
+     * 子目录的规则；子目录没有规则文件时直接返回当前实例
+     */
+    public IgnoreRules child(Path dir) {
+        List<Rule> childRules = new ArrayList<>();
+        for (String name : IGNORE_FILES) {
+            childRules.addAll(parseFile(dir.resolve(name)));
+        }
+        return childRules.isEmpty() ? this : new IgnoreRules(this, dir, childRules);
+    }
+
+    public boolean isIgnored(Path path, boolean directory) {
+        for (IgnoreRules level = this; level != null; level = level.parent) {
+            Boolean result = level.match(path, directory);
+            if (result != null) {
+                return result;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 本级规则的结论；没有规则匹配时返回 null
+     */
+    private Boolean match(Path path, boolean directory) {
+        if (rules.isEmpty() || !path.startsWith(baseDir)) {
+            return null;
+        }
+        String relative = baseDir.relativize(path).toString().replace('\\', '/');
+        Path fileName = path.getFileName();
+        String name = fileName != null ? fileName.toString() : relative;
+
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            Rule rule = rules.get(i);
+            if (rule.directoryOnly && !directory) {
+                continue;
+            }
+            if (rule.pattern.matcher(rule.matchName ? name : relative).matches()) {
+                return !rule.negated;
+            }
+        }
+        return null;
+    }
+
+    private static List<Rule> parseFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try {
+            return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    static List<Rule> parse(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            String pattern = line.strip();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                continue;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            } else if (pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            while (pattern.endsWith("/")) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            boolean matchName = pattern.indexOf('/') < 0;
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            rules.add(new Rule(Pattern.compile(globToRegex(pattern)), negated, directoryOnly, matchName));
+        }
+        return rules;
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int length = glob.length();
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < length && glob.charAt(i + 1) == '*') {
+                        boolean leading = i == 0 || glob.charAt(i - 1) == '/';
+                        boolean slashFollows = i + 2 < length && glob.charAt(i + 2) == '/';
+                        if (leading && slashFollows) {
+                            regex.append("(?:.*/)?");  // **/ 匹配零个或多个目录
+                            i += 2;
+                        } else {
+                            regex.append(".*");
+                            i++;
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 2);
+                    if (end < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    String body = glob.substring(i + 1, end);
+                    if (body.startsWith("!")) {
+                        body = "^" + body.substring(1);
+                    }
+                    regex.append('[').append(body.replace("\\", "\\\\")).append(']');
+                    i = end;
+                    break;
+                case '\\':
+                    if (i + 1 < length) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    break;
+                default:
+                    if ("\\.^$|+(){}".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+            }
+        }
+        // 目录规则同时匹配目录下的所有内容（a/b 匹配 a/b/c），遍历时被忽略的目录不会进入，这里只是保险
+        regex.append("(?:/.*)?");
+        return regex.toString();
+    }
+}
@@ -0,0 +1,546 @@
+package com.thoughtcoding.tools.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 代码搜索引擎（grep_search 的实现）
+ *
+ * 🔥 性能要点：
+ * 1. 正则只编译一次，所有文件共用（Matcher 每个文件一个）
+ * 2. 目录遍历在 ForkJoinPool 上并行，每个子目录一个任务
+ * 3. 遵守 .gitignore / .ignore，跳过隐藏文件、.git、target、node_modules
+ * 4. 前 8KB 含 NUL 字节的文件视为二进制跳过
+ * 5. 大文件用内存映射读取；先在字节上做字面量预过滤，不包含必需字面量的文件不解码、不跑正则
+ * 6. 达到 maxResults 后所有任务提前结束
+ */
+public class SearchEngine {
+    private static final Set<String> EXCLUDED_DIRS = Set.of(".git", "target", "node_modules");
+    private static final int BINARY_CHECK_BYTES = 8192;
+    private static final long MMAP_THRESHOLD = 64 * 1024;
+
+    // 工作线程是守护线程，不阻止程序退出
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 一条匹配
+     */
+    public static final class Match {
+        private final Path file;
+        private final int line;
+        private final String text;
+
+        public Match(Path file, int line, String text) {
+            this.file = file;
+            this.line = line;
+            this.text = text;
+        }
+
+        public Path getFile() { return file; }
+        public int getLine() { return line; }
+        public String getText() { return text; }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%d: %s", file, line, text.trim());
+        }
+    }
+
+    /**
+     * 搜索结果
+     */
+    public static final class Result {
+        private final List<Match> matches;
+        private final boolean truncated;
+        private final long filesSearched;
+
+        Result(List<Match> matches, boolean truncated, long filesSearched) {
+            this.matches = matches;
+            this.truncated = truncated;
+            this.filesSearched = filesSearched;
+        }
+
+        public List<Match> getMatches() { return matches; }
+        public boolean isTruncated() { return truncated; }
+        public long getFilesSearched() { return filesSearched; }
+    }
+
+    /**
+     * 遍历回调（在 ForkJoinPool 工作线程中并发调用）
+     */
+    public interface Visitor {
+        default void directory(Path dir) {
+        }
+
+        void file(Path file, BasicFileAttributes attrs);
+    }
+
+    private final Pattern pattern;
+    private final String requiredLiteral;
+    private final byte[] literal;  // 小写 ASCII 字面量预过滤；为 null 时不做预过滤
+    private final int maxResults;
+    private final long maxFileSize;
+
+    /**
+     * @param regex 正则表达式；不是合法正则时按普通文本搜索
+     */
+    public SearchEngine(String regex, int maxResults, long maxFileSize) {
+        Pattern compiled;
+        String required;
+        try {
+            compiled = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+            required = requiredLiteral(regex);
+        } catch (java.util.regex.PatternSyntaxException e) {
+            compiled = Pattern.compile(Pattern.quote(regex), Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+            required = regex;
+        }
+        this.pattern = compiled;
+        this.requiredLiteral = required;
+        this.literal = toAsciiLowerCase(required);
+        this.maxResults = Math.max(1, maxResults);
+        this.maxFileSize = maxFileSize;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 每个匹配都必须包含的字面量（大小写不敏感）；无法确定时为 null
+     */
+    public String getRequiredLiteral() {
+        return requiredLiteral;
+    }
+
+    /**
+     * 搜索单个文件或整个目录
+     */
+    public Result search(Path root) {
+        Search search = new Search();
+        if (Files.isDirectory(root)) {
+            walk(root, maxFileSize, () -> search.stopped, (file, attrs) -> search.searchFile(file));
+        } else {
+            search.searchFile(root);
+        }
+        return search.result();
+    }
+
+    /**
+     * 只搜索给定的候选文件（由索引等方式预先筛选）
+     */
+    public Result search(List<Path> files) {
+        Search search = new Search();
+        POOL.submit(() -> files.parallelStream().forEach(search::searchFile)).join();
+        return search.result();
+    }
+
+    /**
+     * 单次搜索的共享状态
+     */
+    private final class Search {
+        final ConcurrentLinkedQueue<List<Match>> found = new ConcurrentLinkedQueue<>();
+        final AtomicInteger matchCount = new AtomicInteger();
+        final AtomicLong filesSearched = new AtomicLong();
+        volatile boolean stopped;
+
+        void searchFile(Path file) {
+            if (stopped) {
+                return;
+            }
+            try {
+                List<Match> matches = scan(file, this);
+                if (!matches.isEmpty()) {
+                    found.add(matches);
+                }
+            } catch (IOException | RuntimeException e) {
+                // 无法读取的文件（权限、被删除）直接跳过
+            }
+        }
+
+        Result result() {
+            List<Match> all = new ArrayList<>();
+            found.forEach(all::addAll);
+            // 并行搜索的顺序不确定，按文件和行号排序后输出
+            all.sort(Comparator.comparing((Match m) -> m.file.toString()).thenComparingInt(m -> m.line));
+            boolean truncated = all.size() > maxResults || stopped;
+            if (all.size() > maxResults) {
+                all = new ArrayList<>(all.subList(0, maxResults));
+            }
+            return new Result(all, truncated, filesSearched.get());
+        }
+    }
+
+    /**
+     * 并行遍历 root 下需要搜索的文件：遵守忽略规则，跳过隐藏文件、排除的目录、空文件和超过 maxFileSize 的文件
+     */
+    public static void walk(Path root, long maxFileSize, BooleanSupplier stopped, Visitor visitor) {
+        POOL.invoke(new DirectoryTask(root, IgnoreRules.forRoot(root), maxFileSize, stopped, visitor));
+    }
+
+    /**
+     * 遍历时会被跳过的名称（隐藏文件和目录、.git、target、node_modules）
+     */
+    public static boolean isExcludedName(String name, boolean directory) {
+        return name.startsWith(".") || (directory && EXCLUDED_DIRS.contains(name));
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final IgnoreRules rules;
+        private final long maxFileSize;
+        private final BooleanSupplier stopped;
+        private final Visitor visitor;
+
+        DirectoryTask(Path dir, IgnoreRules rules, long maxFileSize, BooleanSupplier stopped, Visitor visitor) {
+            this.dir = dir;
+            this.rules = rules;
+            this.maxFileSize = maxFileSize;
+            this.stopped = stopped;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            visitor.directory(dir);
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    if (stopped.getAsBoolean()) {
+                        break;
+                    }
+                    String name = entry.getFileName().toString();
+                    if (name.startsWith(".")) {
+                        continue;  // 隐藏文件和目录（包括 .git）
+                    }
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        if (!isExcludedName(name, true) && !rules.isIgnored(entry, true)) {
+                            DirectoryTask task = new DirectoryTask(entry, rules.child(entry), maxFileSize, stopped, visitor);
+                            task.fork();
+                            subtasks.add(task);
+                        }
+                    } else if (attrs.isRegularFile() && attrs.size() > 0 && attrs.size() <= maxFileSize
+                            && !rules.isIgnored(entry, false)) {
+                        visitor.file(entry, attrs);
+                    }
+                }
+            } catch (IOException e) {
+                // 无法读取的目录直接跳过
+            }
+            for (DirectoryTask task : subtasks) {
+                task.join();
+            }
+        }
+    }
+
+    private List<Match> scan(Path file, Search search) throws IOException {
+        ByteBuffer bytes = readFile(file, maxFileSize);
+        if (bytes == null || isBinary(bytes)) {
+            return List.of();
+        }
+        search.filesSearched.incrementAndGet();
+        if (literal != null && !containsIgnoreCase(bytes, literal)) {
+            return List.of();
+        }
+
+        CharBuffer text = decode(bytes);
+        List<Match> matches = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        Matcher lineMatcher = pattern.matcher("");
+        int lineNumber = 1;
+        int counted = 0;  // 已经统计过换行的位置
+        int from = 0;
+        int length = text.length();
+
+        while (from < length && !search.stopped && matcher.find(from)) {
+            int start = lineStart(text, matcher.start());
+            int end = lineEnd(text, Math.max(matcher.start(), matcher.end() - 1));
+            if (end > lineEnd(text, start)) {
+                // 匹配跨越了多行（如 \s 匹配到换行），按行重新验证，与逐行 grep 的语义一致
+                end = lineEnd(text, start);
+                if (!lineMatcher.reset(text.subSequence(start, end)).find()) {
+                    from = end + 1;
+                    continue;
+                }
+            }
+
+            for (int i = counted; i < start; i++) {
+                if (text.charAt(i) == '\n') {
+                    lineNumber++;
+                }
+            }
+            counted = start;
+
+            if (search.matchCount.incrementAndGet() > maxResults) {
+                search.stopped = true;
+                break;
+            }
+            matches.add(new Match(file, lineNumber, stripCarriageReturn(text.subSequence(start, end))));
+            from = end + 1;
+        }
+        return matches;
+    }
+
+    /**
+     * 读取文件内容：大文件内存映射，小文件读入堆内存；空文件或超过 maxFileSize 时返回 null
+     */
+    static ByteBuffer readFile(Path file, long maxFileSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > maxFileSize) {
+                return null;
+            }
+            if (size >= MMAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    static boolean isBinary(ByteBuffer bytes) {
+        int limit = Math.min(bytes.limit(), BINARY_CHECK_BYTES);
+        for (int i = 0; i < limit; i++) {
+            if (bytes.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean containsIgnoreCase(ByteBuffer bytes, byte[] needle) {
+        int last = bytes.limit() - needle.length;
+        byte first = needle[0];
+        for (int i = 0; i <= last; i++) {
+            if (toLower(bytes.get(i)) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < needle.length && toLower(bytes.get(i + j)) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private static CharBuffer decode(ByteBuffer bytes) throws CharacterCodingException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return decoder.decode(bytes.duplicate());
+    }
+
+    private static int lineStart(CharSequence text, int position) {
+        int i = position;
+        while (i > 0 && text.charAt(i - 1) != '\n') {
+            i--;
+        }
+        return i;
+    }
+
+    private static int lineEnd(CharSequence text, int position) {
+        int i = position;
+        while (i < text.length() && text.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static String stripCarriageReturn(CharSequence line) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return line.subSequence(0, end).toString();
+    }
+
+    private static byte[] toAsciiLowerCase(String literal) {
+        if (literal == null || literal.isEmpty()) {
+            return null;
+        }
+        byte[] bytes = new byte[literal.length()];
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c > 127) {
+                return null;  // 非 ASCII 的大小写折叠与字节不一一对应，不做预过滤
+            }
+            bytes[i] = toLower((byte) c);
+        }
+        return bytes;
+    }
+
+    /**
+     * 从正则中提取每个匹配都必须包含的最长字面量；无法确定时返回 null
+     *
+     * 只考虑最外层（不在分组内）的普通字符；含 | 的正则不提取。
+     * 后面跟 ? * { 的字符是可选的，不计入字面量
+     */
+    static String requiredLiteral(String regex) {
+        if (regex.indexOf('|') >= 0 || regex.contains("\\Q")) {
+            return null;
+        }
+        String best = "";
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            Character literalChar = null;
+            int next = i + 1;
+
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(i + 1);
+                if (!Character.isLetterOrDigit(escaped)) {
+                    literalChar = escaped;  // \. \( 等转义的元字符
+                    next = i + 2;
+                } else {
+                    // \d \x41 \cA \k<name> 等：连同参数一起跳过，并结束当前字面量
+                    next = escapeEnd(regex, i);
+                }
+            } else if (c == '[') {
+                // 字符类：跳到对应的 ]，[a[bc]]、[a-z&&[^e]] 这样的嵌套类按层数匹配
+                int j = i + 1;
+                if (j < regex.length() && regex.charAt(j) == '^') {
+                    j++;
+                }
+                if (j < regex.length() && regex.charAt(j) == ']') {
+                    j++;
+                }
+                int classDepth = 1;
+                while (j < regex.length()) {
+                    char ch = regex.charAt(j);
+                    if (ch == '\\') {
+                        j += 2;
+                        continue;
+                    }
+                    if (ch == '[') {
+                        classDepth++;
+                    } else if (ch == ']' && --classDepth == 0) {
+                        break;
+                    }
+                    j++;
+                }
+                next = j + 1;
+            } else if (c == '{') {
+                // 量词 {n,m}：整体跳过
+                int close = regex.indexOf('}', i);
+                next = close < 0 ? regex.length() : close + 1;
+            } else if (c == '(') {
+                if (i + 2 < regex.length() && regex.charAt(i + 1) == '?'
+                        && (Character.isLetter(regex.charAt(i + 2)) || regex.charAt(i + 2) == '-')) {
+                    // (?x) (?u) (?i:...) 等内联标志会改变后面字符的含义（空白、注释、大小写），不提取
+                    return null;
+                }
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (".^$+*?{}".indexOf(c) < 0) {
+                literalChar = c;
+            }
+
+            char following = next < regex.length() ? regex.charAt(next) : 0;
+            boolean optional = following == '?' || following == '*' || following == '{';
+            if (literalChar != null && depth == 0 && !optional) {
+                current.append(literalChar);
+                if (following == '+') {
+                    // 至少出现一次，但后面的字符不再与它相邻
+                    best = longer(best, current);
+                    current.setLength(0);
+                }
+            } else {
+                best = longer(best, current);
+                current.setLength(0);
+            }
+            i = next;
+        }
+        best = longer(best, current);
+        return best.isEmpty() ? null : best;
+    }
+
+    /**
+     * 以字母或数字开头的转义（regex.charAt(start) 为反斜杠）的结束位置，x、u、0、c、k、p、N 和反向引用连同参数一起计算
+     */
+    static int escapeEnd(String regex, int start) {
+        int length = regex.length();
+        char escaped = regex.charAt(start + 1);
+        int i = start + 2;
+        switch (escaped) {
+            case 'x':
+                if (i < length && regex.charAt(i) == '{') {
+                    return closing(regex, i, '}');
+                }
+                return Math.min(length, i + 2);
+            case 'u':
+                return Math.min(length, i + 4);
+            case '0':
+                for (int n = 0; n < 3 && i < length && regex.charAt(i) >= '0' && regex.charAt(i) <= '7'; n++) {
+                    i++;
+                }
+                return i;
+            case 'c':
+                return Math.min(length, i + 1);
+            case 'k':
+                return i < length && regex.charAt(i) == '<' ? closing(regex, i, '>') : i;
+            case 'p':
+            case 'P':
+            case 'N':
+                if (i < length && regex.charAt(i) == '{') {
+                    return closing(regex, i, '}');
+                }
+                return Math.min(length, i + 1);
+            default:
+                if (escaped >= '1' && escaped <= '9') {
+                    // 反向引用 \12：后续数字也属于引用编号
+                    while (i < length && Character.isDigit(regex.charAt(i))) {
+                        i++;
+                    }
+                }
+                return i;
+        }
+    }
+
+    private static int closing(String regex, int open, char close) {
+        int end = regex.indexOf(close, open);
+        return end < 0 ? regex.length() : end + 1;
+    }
+
+    private static String longer(String best, CharSequence candidate) {
+        return candidate.length() > best.length() ? candidate.toString() : best;
+    }
+}
@@ -0,0 +1,439 @@
+package com.thoughtcoding.tools.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 工作目录的磁盘三元组索引，grep_search 用它缩小候选文件范围
+ *
+ * 🔥 生命周期：
+ * 1. 后台线程加载 ~/.thoughtcoding/search-index/ 下按仓库根目录命名的索引文件，
+ *    再按文件大小和修改时间增量刷新（只重新读取变化的文件），有变化时写回磁盘
+ * 2. 刷新时为遍历到的目录注册 WatchService，之后的变化只记录为脏路径，下次查询前增量更新
+ * 3. 事件溢出或无法监听（如 inotify 数量上限）时，下次查询前按修改时间全量刷新
+ * 4. 索引构建完成前查询返回 null，调用方退回线性扫描
+ * 5. 监听事件是异步到达的（Linux 上有延迟，macOS 上约 10 秒轮询一次），写文件的工具写入后立即调用
+ *    invalidate，紧接着的 grep_search 不会用到旧的三元组
+ * 6. 增量更新后延迟 SAVE_DELAY_MS 写回磁盘（合并多次更新），退出时写回尚未保存的更新
+ */
+public class SearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+    private static final Map<Path, SearchIndex> OPEN = new ConcurrentHashMap<>();
+    private static final long SAVE_DELAY_MS = 30_000;
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-save");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicBoolean SHUTDOWN_HOOK = new AtomicBoolean();
+
+    private final Path root;
+    private final Path cacheFile;
+    private final long maxFileSize;
+    private final boolean watchChanges;
+    private final boolean autoSave;
+    private TrigramIndex index = new TrigramIndex();
+
+    private final Set<Path> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<Path> invalidated = ConcurrentHashMap.newKeySet();  // 工具写入的文件：即使大小和修改时间没变也重新读取
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private volatile boolean unsaved;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private volatile boolean watching;
+    private volatile boolean needsFullRefresh;
+    private volatile boolean ready;
+
+    private SearchIndex(Path root, Path cacheFile, long maxFileSize, boolean watchChanges, boolean autoSave) {
+        this.root = root;
+        this.cacheFile = cacheFile;
+        this.maxFileSize = maxFileSize;
+        this.watchChanges = watchChanges;
+        this.autoSave = autoSave;
+    }
+
+    /**
+     * 打开（必要时在后台构建）目录所在仓库的索引；同一个仓库只有一个实例
+     */
+    public static SearchIndex open(Path directory, long maxFileSize) {
+        Path root = repositoryRoot(directory.toAbsolutePath().normalize());
+        return OPEN.computeIfAbsent(root, key -> {
+            Path cacheFile = Paths.get(System.getProperty("user.home"), ".thoughtcoding", "search-index",
+                    cacheName(key) + ".idx");
+            SearchIndex searchIndex = new SearchIndex(key, cacheFile, maxFileSize, true, true);
+            installShutdownHook();
+            searchIndex.start();
+            return searchIndex;
+        });
+    }
+
+    /**
+     * 用指定缓存文件打开索引并在当前线程构建，不监听变化（测试使用）
+     */
+    static SearchIndex openBlocking(Path root, Path cacheFile, long maxFileSize) {
+        return openBlocking(root, cacheFile, maxFileSize, false);
+    }
+
+    /**
+     * @param watchChanges 注册 WatchService，但不启动读取事件的线程，变化只能通过 invalidate 进入索引（测试使用）
+     */
+    static SearchIndex openBlocking(Path root, Path cacheFile, long maxFileSize, boolean watchChanges) {
+        SearchIndex searchIndex = new SearchIndex(root, cacheFile, maxFileSize, watchChanges, false);
+        searchIndex.build();
+        return searchIndex;
+    }
+
+    /**
+     * 🔥 写文件的工具（edit_file、file_manager）写入或删除文件后调用：把路径标记为脏，下次查询前重新读取
+     * 路径不在任何已打开的索引中时什么也不做
+     */
+    public static void invalidate(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        for (SearchIndex searchIndex : OPEN.values()) {
+            if (normalized.startsWith(searchIndex.root)) {
+                searchIndex.markDirty(normalized);
+            }
+        }
+    }
+
+    void markDirty(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        invalidated.add(normalized);
+        dirty.add(normalized);
+    }
+
+    private static Path repositoryRoot(Path directory) {
+        for (Path dir = directory; dir != null; dir = dir.getParent()) {
+            if (Files.exists(dir.resolve(".git"))) {
+                return dir;
+            }
+        }
+        return directory;
+    }
+
+    private static String cacheName(Path root) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(root.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(root.toString().hashCode());
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void start() {
+        Thread builder = new Thread(() -> {
+            build();
+            if (watching) {
+                watchLoop();
+            }
+        }, "search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private static void installShutdownHook() {
+        if (SHUTDOWN_HOOK.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> OPEN.values().forEach(SearchIndex::flush),
+                    "search-index-shutdown"));
+        }
+    }
+
+    private void build() {
+        long startTime = System.currentTimeMillis();
+        load();
+        if (watchChanges) {
+            try {
+                watchService = root.getFileSystem().newWatchService();
+                watching = true;
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("无法监听文件变化，查询前将按修改时间刷新: {}", e.getMessage());
+            }
+        }
+        synchronized (this) {
+            refresh();
+        }
+        flush();
+        ready = true;
+        log.info("✅ 搜索索引就绪: {} ({} 个文件, {}ms)", root, index.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 可能包含字面量的文件
+     *
+     * @param under 搜索的目录
+     * @return 候选文件；索引未就绪、字面量无法使用索引或目录不在索引范围内时返回 null
+     */
+    public List<Path> candidates(String literal, Path under) {
+        if (!ready || !covers(under)) {
+            return null;
+        }
+        List<String> relativePaths;
+        synchronized (this) {
+            applyPendingChanges();
+            relativePaths = index.candidates(literal);
+        }
+        scheduleSave();
+        if (relativePaths == null) {
+            return null;
+        }
+        List<Path> files = new ArrayList<>(relativePaths.size());
+        for (String relative : relativePaths) {
+            Path file = root.resolve(relative);
+            if (file.startsWith(under)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 目录是否完全在索引范围内：位于根目录下，且路径上没有被跳过或忽略的目录
+     * （直接搜索 .github、target 等目录时它们的内容不在索引中）
+     */
+    private boolean covers(Path directory) {
+        if (!directory.startsWith(root)) {
+            return false;
+        }
+        for (Path dir = directory; !dir.equals(root); dir = dir.getParent()) {
+            if (SearchEngine.isExcludedName(dir.getFileName().toString(), true)
+                    || IgnoreRules.forRoot(dir.getParent()).isIgnored(dir, true)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按修改时间和大小全量刷新：重新读取变化的文件，移除已删除的文件，并为所有目录注册监听
+     */
+    private void refresh() {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        SearchEngine.walk(root, maxFileSize, () -> false, new SearchEngine.Visitor() {
+            @Override
+            public void directory(Path dir) {
+                watch(dir);
+            }
+
+            @Override
+            public void file(Path file, BasicFileAttributes attrs) {
+                String relative = root.relativize(file).toString();
+                seen.add(relative);
+                if (!index.isCurrent(relative, attrs.size(), attrs.lastModifiedTime().toMillis())) {
+                    indexFile(file, relative, attrs);
+                }
+            }
+        });
+        int before = index.size();
+        index.retainAll(seen);
+        if (index.size() != before) {
+            unsaved = true;
+        }
+        dirty.clear();
+        invalidated.clear();
+    }
+
+    private void indexFile(Path file, String relative, BasicFileAttributes attrs) {
+        try {
+            ByteBuffer content = SearchEngine.readFile(file, maxFileSize);
+            // 二进制文件不会被搜索到，记录为没有三元组，避免每次刷新都重新读取
+            int[] trigrams = content == null || SearchEngine.isBinary(content)
+                    ? new int[0] : TrigramIndex.trigrams(content);
+            index.put(relative, attrs.size(), attrs.lastModifiedTime().toMillis(), trigrams);
+        } catch (IOException e) {
+            index.remove(relative);
+        }
+        unsaved = true;
+    }
+
+    /**
+     * 应用监听到的变化；调用方持有锁
+     */
+    private void applyPendingChanges() {
+        if (needsFullRefresh || !watching) {
+            needsFullRefresh = false;
+            refresh();
+            return;
+        }
+        for (Iterator<Path> iterator = dirty.iterator(); iterator.hasNext(); ) {
+            Path path = iterator.next();
+            iterator.remove();
+            boolean forced = invalidated.remove(path);
+            String relative = root.relativize(path).toString();
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                // 工具写入的路径可能位于 target/、node_modules/ 或被忽略的目录中，祖先目录也要检查
+                boolean included = covers(path.getParent())
+                        && !SearchEngine.isExcludedName(path.getFileName().toString(), attrs.isDirectory())
+                        && !IgnoreRules.forRoot(path.getParent()).isIgnored(path, attrs.isDirectory());
+                if (!included) {
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    // 新建或移入的目录：遍历其中的文件并注册监听
+                    SearchEngine.walk(path, maxFileSize, () -> false, new SearchEngine.Visitor() {
+                        @Override
+                        public void directory(Path dir) {
+                            watch(dir);
+                        }
+
+                        @Override
+                        public void file(Path file, BasicFileAttributes fileAttrs) {
+                            indexFile(file, root.relativize(file).toString(), fileAttrs);
+                        }
+                    });
+                } else if (attrs.isRegularFile() && attrs.size() > 0 && attrs.size() <= maxFileSize) {
+                    // 同一毫秒内写入且大小不变时修改时间无法区分，工具写入的文件总是重新读取
+                    if (forced || !index.isCurrent(relative, attrs.size(), attrs.lastModifiedTime().toMillis())) {
+                        indexFile(path, relative, attrs);
+                    }
+                } else {
+                    index.remove(relative);
+                    unsaved = true;
+                }
+            } catch (IOException e) {
+                // 已删除：可能是文件，也可能是目录
+                index.remove(relative);
+                index.removeUnder(relative);
+                unsaved = true;
+            }
+        }
+    }
+
+    private void watch(Path dir) {
+        if (!watching) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+        } catch (IOException e) {
+            log.warn("⚠️  无法监听目录变化（{}），搜索前将按修改时间刷新索引", e.getMessage());
+            watching = false;
+        }
+    }
+
+    private void watchLoop() {
+        while (watching) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    needsFullRefresh = true;
+                } else if (dir != null) {
+                    dirty.add(dir.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (!root.toString().equals(in.readUTF())) {
+                return;
+            }
+            index = TrigramIndex.read(in);
+        } catch (IOException e) {
+            log.debug("搜索索引损坏，重新构建: {}", e.getMessage());
+            index = new TrigramIndex();
+        }
+    }
+
+    /**
+     * 有未保存的更新时延迟写回磁盘，期间的多次更新合并为一次写入
+     */
+    private void scheduleSave() {
+        if (!unsaved || !autoSave || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        SAVER.schedule(() -> {
+            saveScheduled.set(false);
+            flush();
+        }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 有未保存的更新时写回磁盘：持锁序列化到内存，再在锁外写文件，不阻塞查询
+     */
+    void flush() {
+        if (!unsaved) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            synchronized (this) {
+                unsaved = false;
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeUTF(root.toString());
+                index.write(out);
+                out.flush();
+            }
+            synchronized (cacheFile) {
+                Files.createDirectories(cacheFile.getParent());
+                Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    bytes.writeTo(out);
+                }
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            unsaved = true;
+            log.debug("保存搜索索引失败: {}", e.getMessage());
+        }
+    }
+}
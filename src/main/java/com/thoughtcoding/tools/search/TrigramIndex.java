@@ -0,0 +1,357 @@
+package com.thoughtcoding.tools.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 三元组（trigram）倒排索引：每个 3 字节序列（ASCII 小写化）对应包含它的文件列表
+ *
+ * 🔥 查询时取字面量的全部三元组，对倒排列表求交集得到候选文件，再由 SearchEngine 验证匹配。
+ * 1. 倒排列表按文件 ID 递增，用差值 + varint 编码，内存和磁盘上都很紧凑
+ * 2. 文件变化时旧 ID 标记删除、新内容追加新 ID，列表保持有序；删除过多时压缩重排 ID
+ * 3. 过大或三元组过多的文件不建索引，查询时总是作为候选
+ *
+ * 线程安全：所有方法同步
+ */
+public class TrigramIndex {
+    private static final int MAGIC = 0x54524731;  // "TRG1"
+    static final long MAX_INDEXED_SIZE = 1024 * 1024;
+    static final int MAX_TRIGRAMS = 20000;
+
+    // 文件路径（相对根目录）→ 条目
+    private final Map<String, FileEntry> files = new HashMap<>();
+    // 文件 ID → 路径；已删除的 ID 为 null
+    private final List<String> paths = new ArrayList<>();
+    private final Map<Integer, PostingList> postings = new HashMap<>();
+    private final Set<String> unindexed = new HashSet<>();
+    private int deleted;
+
+    private static final class FileEntry {
+        final int id;
+        final long size;
+        final long modified;
+
+        FileEntry(int id, long size, long modified) {
+            this.id = id;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * 差值 + varint 编码的有序文件 ID 列表
+     */
+    private static final class PostingList {
+        byte[] data = new byte[8];
+        int length;
+        int last = -1;
+        int count;
+
+        void add(int id) {
+            int delta = id - last;
+            last = id;
+            count++;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+        }
+
+        int[] decode() {
+            int[] ids = new int[count];
+            int id = -1;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                id += delta;
+                ids[i] = id;
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * 文件内容的三元组（排序去重）；文件过大或三元组过多时返回 null，表示不建索引
+     */
+    public static int[] trigrams(ByteBuffer content) {
+        int length = content.limit();
+        if (length > MAX_INDEXED_SIZE) {
+            return null;
+        }
+        if (length < 3) {
+            return new int[0];
+        }
+        int[] all = new int[length - 2];
+        int key = (lower(content.get(0)) << 8) | lower(content.get(1));
+        for (int i = 2; i < length; i++) {
+            key = ((key << 8) | lower(content.get(i))) & 0xFFFFFF;
+            all[i - 2] = key;
+        }
+        Arrays.sort(all);
+        int unique = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[unique++] = all[i];
+            }
+        }
+        return unique > MAX_TRIGRAMS ? null : Arrays.copyOf(all, unique);
+    }
+
+    private static int lower(byte b) {
+        return (b >= 'A' && b <= 'Z' ? b + 32 : b) & 0xFF;
+    }
+
+    /**
+     * 索引中的文件是否与磁盘上的大小和修改时间一致
+     */
+    public synchronized boolean isCurrent(String path, long size, long modified) {
+        FileEntry entry = files.get(path);
+        return entry != null && entry.size == size && entry.modified == modified;
+    }
+
+    /**
+     * 添加或替换一个文件
+     *
+     * @param trigrams trigrams() 的结果；为 null 时文件不建索引，查询时总是作为候选
+     */
+    public synchronized void put(String path, long size, long modified, int[] trigrams) {
+        remove(path);
+        int id = paths.size();
+        paths.add(path);
+        files.put(path, new FileEntry(id, size, modified));
+        if (trigrams == null) {
+            unindexed.add(path);
+            return;
+        }
+        for (int trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> new PostingList()).add(id);
+        }
+    }
+
+    public synchronized void remove(String path) {
+        FileEntry entry = files.remove(path);
+        if (entry == null) {
+            return;
+        }
+        paths.set(entry.id, null);
+        unindexed.remove(path);
+        deleted++;
+        if (deleted > 64 && deleted > paths.size() / 4) {
+            compact();
+        }
+    }
+
+    /**
+     * 移除某个目录（相对路径前缀）下的全部文件
+     */
+    public synchronized void removeUnder(String directory) {
+        String prefix = directory.endsWith("/") || directory.endsWith("\\") ? directory : directory + java.io.File.separator;
+        for (String path : new ArrayList<>(files.keySet())) {
+            if (path.startsWith(prefix)) {
+                remove(path);
+            }
+        }
+    }
+
+    /**
+     * 只保留给定的文件，其余移除（全量刷新后清理已删除的文件）
+     */
+    public synchronized void retainAll(Collection<String> existing) {
+        Set<String> keep = existing instanceof Set ? (Set<String>) existing : new HashSet<>(existing);
+        for (String path : new ArrayList<>(files.keySet())) {
+            if (!keep.contains(path)) {
+                remove(path);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    /**
+     * 可能包含字面量的文件（大小写不敏感）
+     *
+     * @return 候选文件的相对路径；字面量不足 3 个字符或含非 ASCII 字符时返回 null，表示索引无法缩小范围
+     */
+    public synchronized List<String> candidates(String literal) {
+        if (literal == null || literal.length() < 3) {
+            return null;
+        }
+        int[] keys = new int[literal.length() - 2];
+        for (int i = 0; i < literal.length(); i++) {
+            if (literal.charAt(i) > 127) {
+                return null;
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (lower((byte) literal.charAt(i)) << 16)
+                    | (lower((byte) literal.charAt(i + 1)) << 8)
+                    | lower((byte) literal.charAt(i + 2));
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        boolean missing = false;
+        for (int key : Arrays.stream(keys).distinct().toArray()) {
+            PostingList list = postings.get(key);
+            if (list == null) {
+                missing = true;
+                break;
+            }
+            lists.add(list);
+        }
+
+        List<String> result = new ArrayList<>(unindexed);
+        if (missing) {
+            return result;
+        }
+        // 从最短的列表开始求交集
+        lists.sort((a, b) -> Integer.compare(a.count, b.count));
+        int[] ids = lists.get(0).decode();
+        int size = ids.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = intersect(ids, size, lists.get(i).decode());
+        }
+        for (int i = 0; i < size; i++) {
+            String path = paths.get(ids[i]);
+            if (path != null) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把 a[0..size) 与 b 的交集写回 a，返回交集大小
+     */
+    private static int intersect(int[] a, int size, int[] b) {
+        int i = 0;
+        int j = 0;
+        int out = 0;
+        while (i < size && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                a[out++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 去掉已删除的 ID，重新编号并重建倒排列表
+     */
+    private void compact() {
+        int[] remap = new int[paths.size()];
+        List<String> compacted = new ArrayList<>(files.size());
+        for (int id = 0; id < paths.size(); id++) {
+            String path = paths.get(id);
+            if (path == null) {
+                remap[id] = -1;
+            } else {
+                remap[id] = compacted.size();
+                compacted.add(path);
+                FileEntry entry = files.get(path);
+                files.put(path, new FileEntry(remap[id], entry.size, entry.modified));
+            }
+        }
+
+        Map<Integer, PostingList> rebuilt = new HashMap<>(postings.size());
+        postings.forEach((key, list) -> {
+            PostingList remapped = new PostingList();
+            for (int id : list.decode()) {
+                if (remap[id] >= 0) {
+                    remapped.add(remap[id]);
+                }
+            }
+            if (remapped.count > 0) {
+                rebuilt.put(key, remapped);
+            }
+        });
+
+        paths.clear();
+        paths.addAll(compacted);
+        postings.clear();
+        postings.putAll(rebuilt);
+        deleted = 0;
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        if (deleted > 0) {
+            compact();
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(paths.size());
+        for (String path : paths) {
+            FileEntry entry = files.get(path);
+            out.writeUTF(path);
+            out.writeLong(entry.size);
+            out.writeLong(entry.modified);
+            out.writeBoolean(unindexed.contains(path));
+        }
+        out.writeInt(postings.size());
+        for (Map.Entry<Integer, PostingList> entry : postings.entrySet()) {
+            PostingList list = entry.getValue();
+            out.writeInt(entry.getKey());
+            out.writeInt(list.count);
+            out.writeInt(list.last);
+            out.writeInt(list.length);
+            out.write(list.data, 0, list.length);
+        }
+    }
+
+    public static TrigramIndex read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是三元组索引文件");
+        }
+        TrigramIndex index = new TrigramIndex();
+        int fileCount = in.readInt();
+        for (int id = 0; id < fileCount; id++) {
+            String path = in.readUTF();
+            long size = in.readLong();
+            long modified = in.readLong();
+            index.paths.add(path);
+            index.files.put(path, new FileEntry(id, size, modified));
+            if (in.readBoolean()) {
+                index.unindexed.add(path);
+            }
+        }
+        int postingCount = in.readInt();
+        for (int i = 0; i < postingCount; i++) {
+            PostingList list = new PostingList();
+            int key = in.readInt();
+            list.count = in.readInt();
+            list.last = in.readInt();
+            list.length = in.readInt();
+            list.data = new byte[Math.max(8, list.length)];
+            in.readFully(list.data, 0, list.length);
+            index.postings.put(key, list);
+        }
+        return index;
+    }
+}
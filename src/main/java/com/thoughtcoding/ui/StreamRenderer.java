@@ -0,0 +1,140 @@
+package com.thoughtcoding.ui;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 流式输出渲染器：网络回调线程只把 token 放入无锁队列，专用渲染线程按帧合并后一次写出并刷新
+ *
+ * 🔥 设计要点：
+ * 1. append 不加锁、不做 I/O，终端再慢也不会反压 HTTP 流
+ * 2. 渲染线程每帧（默认 16ms）最多写出并刷新一次，一帧内到达的 token 合并为一次写入
+ * 3. 队列为空时渲染线程挂起，由下一个 token 唤醒，空闲时不占用 CPU
+ * 4. flush 等待已提交的内容全部写出，其他输出（工具确认、状态信息）之前调用以保证顺序；
+ *    渲染线程 1 秒内没有写完时，由调用线程直接写出剩余内容（与渲染线程共用 sinkLock，不会交错）
+ */
+public class StreamRenderer implements AutoCloseable {
+    public static final long DEFAULT_FRAME_MILLIS = 16;
+    private static final long FLUSH_TIMEOUT_MS = 1000;
+
+    private final ConcurrentLinkedQueue<CharSequence> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final Consumer<CharSequence> sink;
+    private final long frameNanos;
+    private final Thread renderThread;
+    private final Object sinkLock = new Object();  // 取出队列内容并写出的过程互斥，保证帧的顺序
+    private volatile long rendered;
+    private volatile boolean idle;
+    private volatile boolean flushRequested;
+    private volatile boolean running = true;
+
+    /**
+     * @param sink 写出一帧内容（在渲染线程中调用，负责写入和刷新终端）
+     */
+    public StreamRenderer(Consumer<CharSequence> sink, long frameMillis) {
+        this.sink = sink;
+        this.frameNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, frameMillis));
+        this.renderThread = new Thread(this::renderLoop, "stream-render");
+        this.renderThread.setDaemon(true);
+        this.renderThread.start();
+    }
+
+    /**
+     * 提交一段增量文本（可在任意线程调用，不阻塞）
+     */
+    public void append(CharSequence delta) {
+        if (delta == null || delta.length() == 0 || !running) {
+            return;
+        }
+        queue.offer(delta);
+        submitted.incrementAndGet();
+        if (idle) {
+            LockSupport.unpark(renderThread);
+        }
+    }
+
+    /**
+     * 等待已提交的内容全部写出；没有待写内容时立即返回
+     * 渲染线程 1 秒内没有写完（或已停止）时，在调用线程中写出剩余内容
+     */
+    public void flush() {
+        long target = submitted.get();
+        if (rendered >= target || Thread.currentThread() == renderThread) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+        while (rendered < target && renderThread.isAlive() && System.nanoTime() < deadline) {
+            flushRequested = true;
+            LockSupport.unpark(renderThread);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        if (rendered < target) {
+            drain(new StringBuilder(256));
+        }
+    }
+
+    /**
+     * 取出队列中的全部内容作为一帧写出；渲染线程正在写的帧会先完成
+     */
+    private void drain(StringBuilder frame) {
+        synchronized (sinkLock) {
+            long count = 0;
+            CharSequence delta;
+            while ((delta = queue.poll()) != null) {
+                frame.append(delta);
+                count++;
+            }
+            if (count == 0) {
+                return;
+            }
+            try {
+                sink.accept(frame);
+            } catch (RuntimeException e) {
+                // 终端写入失败不影响后续帧
+            }
+            frame.setLength(0);
+            rendered += count;
+        }
+    }
+
+    private void renderLoop() {
+        StringBuilder frame = new StringBuilder(256);
+        long lastFrame = System.nanoTime() - frameNanos;
+
+        while (running || !queue.isEmpty()) {
+            if (queue.isEmpty()) {
+                idle = true;
+                // 设置 idle 后再检查一次，避免错过 append 的唤醒
+                if (queue.isEmpty() && running && !flushRequested) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                flushRequested = false;
+                continue;
+            }
+
+            // 距离上一帧不足一个帧间隔时等待，期间到达的 token 合并到同一帧
+            long wait = lastFrame + frameNanos - System.nanoTime();
+            if (wait > 0 && running && !flushRequested) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            drain(frame);
+            lastFrame = System.nanoTime();
+        }
+    }
+
+    /**
+     * 写出剩余内容后停止渲染线程
+     */
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(renderThread);
+    }
+}
@@ -3,6 +3,7 @@ package com.thoughtcoding.ui;
 import com.thoughtcoding.model.ChatMessage;
 import com.thoughtcoding.model.ToolCall;
 import com.thoughtcoding.service.PerformanceMonitor;
+import com.thoughtcoding.service.SessionIndex;
 
 import com.thoughtcoding.ui.component.*;
 import org.jline.terminal.Terminal;
@@ -27,6 +28,7 @@ public class ThoughtCodingUI {
     private final StatusBar statusBar;
     private final ProgressIndicator progressIndicator;
     private final InputHandler inputHandler;
+    private final StreamRenderer streamRenderer;
 
     public Terminal getTerminal() {
         return terminal;
@@ -62,6 +64,7 @@ public class ThoughtCodingUI {
                     terminal,
                     new StringsCompleter("exit", "quit", "clear", "help", "new", "save", "list")
             );//输入处理器
+            this.streamRenderer = new StreamRenderer(this::writeStreamFrame, StreamRenderer.DEFAULT_FRAME_MILLIS);//流式输出渲染器
 
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize terminal", e);
@@ -223,7 +226,35 @@ public class ThoughtCodingUI {
         chatRenderer.renderUserMessage(message);
     }
 
+    /**
+     * 🔥 流式输出的增量文本：只入队，由渲染线程按帧合并写出（可在网络回调线程调用）
+     */
+    public void appendAIStream(CharSequence delta) {
+        streamRenderer.append(delta);
+    }
+
+    /**
+     * 等待已提交的流式输出全部写到终端，其他输出之前调用以保证顺序
+     */
+    public void flushAIStream() {
+        streamRenderer.flush();
+    }
+
+    private void writeStreamFrame(CharSequence frame) {
+        // 流式输出使用亮青色显示（与系统信息颜色一致）
+        terminal.writer().append(AnsiColors.BRIGHT_CYAN).append(frame).append(AnsiColors.RESET);
+        terminal.writer().flush();
+    }
+
+    /**
+     * 🔥 Ctrl-C 处理：读取输入时由 LineReader 处理，等待 AI 响应或执行工具时交给该处理器
+     */
+    public void setInterruptHandler(Runnable handler) {
+        terminal.handle(Terminal.Signal.INT, signal -> handler.run());
+    }
+
     public void displayAIMessage(ChatMessage message) {
+        streamRenderer.flush();
         if (message.isAssistantMessage()) {
             String content = message.getContent();
             // 流式输出每个token，使用亮青色显示（与系统信息颜色一致）
@@ -244,23 +275,48 @@ public class ThoughtCodingUI {
         toolDisplay.displayClaudeStyleToolCall(toolName, target, result);
     }
 
+    public void displayToolProgress(String toolName, String progress) {
+        toolDisplay.displayToolProgress(toolName, progress);
+    }
+
+    /**
+     * 🔥 实时显示命令的一行输出（来自读取进程输出的线程）
+     * 经流式渲染器按帧合并写出，大量输出不会逐行刷新终端
+     */
+    public void displayToolOutput(String line) {
+        streamRenderer.append(AnsiColors.BRIGHT_BLACK + "  │ " + line + AnsiColors.RESET + "\n");
+    }
+
+    /**
+     * 🔥 显示来自后台线程的通知（后台任务结束等）
+     * 用户正在输入时打印在提示符上方并重绘输入行，不打断正在输入的内容
+     */
+    public void displayNotice(String notice) {
+        streamRenderer.flush();
+        lineReader.printAbove(AnsiColors.BRIGHT_YELLOW + notice + AnsiColors.RESET);
+    }
+
     public void displayInfo(String info) {
+        streamRenderer.flush();
         statusBar.showInfo(info);
     }
 
     public void displayError(String error) {
+        streamRenderer.flush();
         statusBar.showError(error);
     }
 
     public void displaySuccess(String message) {
+        streamRenderer.flush();
         statusBar.showSuccess(message);
     }
 
     public void displayWarning(String warning) {
+        streamRenderer.flush();
         statusBar.showWarning(warning);
     }
 
-    public void displaySessionList(java.util.List<String> sessions) {
+    public void displaySessionList(List<SessionIndex.Entry> sessions) {
         chatRenderer.renderSessionList(sessions);
     }
 
@@ -281,6 +337,7 @@ public class ThoughtCodingUI {
     }
 
     public String readInput(String prompt) {
+        streamRenderer.flush();
         return inputHandler.readInput(prompt);
     }
 
@@ -299,6 +356,7 @@ public class ThoughtCodingUI {
     }
 
     public void close() {
+        streamRenderer.close();
         try {
             if (terminal != null) {
                 terminal.close();
@@ -1,11 +1,14 @@
 package com.thoughtcoding.ui.component;
 
 import com.thoughtcoding.model.ChatMessage;
+import com.thoughtcoding.service.SessionIndex;
 import com.thoughtcoding.ui.AnsiColors;
 import org.jline.terminal.Terminal;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
@@ -39,7 +42,7 @@ public class ChatRenderer {
         terminal.writer().flush();
     }
 
-    public void renderSessionList(List<String> sessions) {
+    public void renderSessionList(List<SessionIndex.Entry> sessions) {
         if (sessions.isEmpty()) {
             terminal.writer().println(AnsiColors.YELLOW + "No sessions found." + AnsiColors.RESET);
             return;
@@ -48,14 +51,19 @@ public class ChatRenderer {
         terminal.writer().println(AnsiColors.BRIGHT_CYAN + "📚 Session List:" + AnsiColors.RESET);
         terminal.writer().println(AnsiColors.BRIGHT_BLACK + "========================" + AnsiColors.RESET);
 
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
         for (int i = 0; i < sessions.size(); i++) {
-            String sessionId = sessions.get(i);
+            SessionIndex.Entry session = sessions.get(i);
+            String sessionId = session.getSessionId();
             String shortId = sessionId.length() > 8 ? sessionId.substring(0, 8) + "..." : sessionId;
+            String lastAccess = LocalDateTime.ofInstant(Instant.ofEpochMilli(session.getLastAccessTime()),
+                    ZoneId.systemDefault()).format(dateFormatter);
 
-            String line = String.format("%s%d. %s%s %s(%s)%s",
+            String line = String.format("%s%d. %s%s %s%s %s(%s, %d messages, %s)%s",
                     AnsiColors.BRIGHT_WHITE, i + 1,
                     AnsiColors.BRIGHT_GREEN, "🟢",
-                    AnsiColors.BRIGHT_BLACK, shortId, AnsiColors.RESET);
+                    AnsiColors.BRIGHT_WHITE, session.getTitle(),
+                    AnsiColors.BRIGHT_BLACK, shortId, session.getMessageCount(), lastAccess, AnsiColors.RESET);
 
             terminal.writer().println(line);
         }
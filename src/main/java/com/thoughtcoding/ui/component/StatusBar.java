@@ -1,6 +1,7 @@
 package com.thoughtcoding.ui.component;
 
 import com.thoughtcoding.service.PerformanceMonitor;
+import com.thoughtcoding.service.SessionPersister;
 import com.thoughtcoding.ui.AnsiColors;
 import org.jline.terminal.Terminal;
 
@@ -57,15 +58,29 @@ public class StatusBar {
 
     public void showPerformanceInfo(PerformanceMonitor.PerformanceData data) {
         String timestamp = LocalDateTime.now().format(timeFormatter);
-        String message = String.format("%s[%s] 📊 Performance: %dms, %d tokens, %d tools%s",
+        String cancelled = data.getCancelledGenerations() > 0
+                ? String.format(", %d cancelled", data.getCancelledGenerations()) : "";
+        String message = String.format("%s[%s] 📊 Performance: %dms, %d tokens, %d tools, prompt cache %d%%%s%s%s",
                 AnsiColors.BRIGHT_BLACK, timestamp,
                 data.getExecutionTimeMs(), data.getTotalTokens(), data.getTotalToolCalls(),
-                AnsiColors.RESET);
+                data.getPromptCacheHitPercent(), cancelled, formatSessionStats(data.getSessionStats()), AnsiColors.RESET);
 
         terminal.writer().println(message);
         terminal.writer().flush();
     }
 
+    /**
+     * 会话写入：队列中等待写入的会话数和写入耗时（平均/最大）
+     */
+    static String formatSessionStats(SessionPersister.Stats stats) {
+        if (stats == null) {
+            return "";
+        }
+        String failed = stats.getFailedCount() > 0 ? String.format(", %d failed", stats.getFailedCount()) : "";
+        return String.format(", session writes: queue %d, flush avg %dms/max %dms%s",
+                stats.getQueueDepth(), stats.getAvgFlushMs(), stats.getMaxFlushMs(), failed);
+    }
+
     public void showSessionInfo(String sessionId, int messageCount) {
         String shortId = sessionId.length() > 8 ? sessionId.substring(0, 8) + "..." : sessionId;
         String message = String.format("%s💬 Session: %s (%d messages)%s",
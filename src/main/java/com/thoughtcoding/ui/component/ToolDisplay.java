@@ -38,6 +38,19 @@ public class ToolDisplay {
         terminal.writer().flush();
     }
 
+    /**
+     * 🔥 显示长时间运行的工具的进度（可能来自后台线程）
+     * 格式：  ⎿ server/tool: 3/10 正在处理
+     */
+    public void displayToolProgress(String toolName, String progress) {
+        String message = String.format("%s  ⎿ %s: %s%s",
+                AnsiColors.BRIGHT_BLACK, toolName, progress, AnsiColors.RESET);
+        synchronized (terminal) {
+            terminal.writer().println(message);
+            terminal.writer().flush();
+        }
+    }
+
     /**
      * 显示 Claude Code 风格的工具调用
      * 格式：⏺ Write(HelloWorld.java)
@@ -1,7 +1,10 @@
 package com.thoughtcoding.util;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -9,18 +12,29 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * JSON处理工具类，基于Jackson库
+ *
+ * 🔥 ObjectMapper 创建成本高（内部缓存序列化器），配置完成后线程安全，全局共享：
+ * - mapper：格式化输出，用于配置和文件
+ * - wireMapper：单行输出、忽略未知字段，用于 MCP 协议消息和工具参数等热路径
  */
 public class JsonUtils {
     private static final ObjectMapper mapper;
+    private static final ObjectMapper wireMapper;
+    private static final ObjectReader mapReader;
 
     static {
         mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+        wireMapper = new ObjectMapper();
+        wireMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapReader = wireMapper.readerFor(new TypeReference<Map<String, Object>>() {});
     }
 
     private JsonUtils() {
@@ -118,10 +132,24 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * 🔥 解析 JSON 对象为 Map（工具参数解析），复用预先构建的 ObjectReader
+     */
+    public static Map<String, Object> parseObject(String json) throws JsonProcessingException {
+        return mapReader.readValue(json);
+    }
+
     /**
      * 获取ObjectMapper实例（用于高级操作）
      */
     public static ObjectMapper getMapper() {
         return mapper;
     }
+
+    /**
+     * 获取单行输出的共享 ObjectMapper（用于协议消息，不可修改其配置）
+     */
+    public static ObjectMapper getWireMapper() {
+        return wireMapper;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.thoughtcoding.core;
+
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.model.ChatMessage;
+import com.thoughtcoding.model.ToolCall;
+import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.service.AIService;
+import com.thoughtcoding.service.ContextManager;
+import com.thoughtcoding.service.PerformanceMonitor;
+import com.thoughtcoding.service.SessionService;
+import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.tools.ToolRegistry;
+import com.thoughtcoding.ui.ThoughtCodingUI;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AgentLoop 测试
+ * 用脚本化的 AIService 代替模型，测试自主模式的步数、token、时间三项预算和"不再调用工具"的结束条件，
+ * 以及一批工具调用中只读调用并发执行、结果按调用顺序记录
+ */
+public class AgentLoopTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AppConfig appConfig;
+    private ScriptedAIService aiService;
+    private final AtomicInteger toolRuns = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        appConfig = new AppConfig();
+        appConfig.getAi().setAutoProcessToolResults(true);
+        aiService = new ScriptedAIService();
+    }
+
+    @Test
+    public void testStopsWhenModelStopsCallingTools() {
+        aiService.toolCallTurns = 2;
+        newLoop().processInput("fix the bug");
+
+        // 第 1、2 轮调用工具，第 3 轮只给出总结
+        assertEquals(3, aiService.calls);
+        assertEquals(2, toolRuns.get());
+    }
+
+    @Test
+    public void testStepBudget() {
+        appConfig.getAi().setMaxAgentSteps(3);
+        aiService.toolCallTurns = Integer.MAX_VALUE;
+        newLoop().processInput("fix the bug");
+
+        assertEquals(3, aiService.calls);
+        assertEquals(3, toolRuns.get());
+    }
+
+    @Test
+    public void testTokenBudgetCountsFirstResponse() {
+        appConfig.getAi().setMaxAgentTokens(500);
+        aiService.toolCallTurns = Integer.MAX_VALUE;
+        aiService.firstReply = "word ".repeat(2000);
+        newLoop().processInput("fix the bug");
+
+        // 第一轮响应已经超出 token 预算，不再继续
+        assertEquals(1, aiService.calls);
+        assertEquals(1, toolRuns.get());
+    }
+
+    @Test
+    public void testTimeBudgetCountsFirstResponse() {
+        appConfig.getAi().setMaxAgentSeconds(1);
+        aiService.toolCallTurns = Integer.MAX_VALUE;
+        aiService.firstDelayMillis = 1100;
+        newLoop().processInput("fix the bug");
+
+        // 第一轮流式响应已经用完时间预算，不再继续
+        assertEquals(1, aiService.calls);
+        assertEquals(1, toolRuns.get());
+    }
+
+    @Test
+    public void testReadOnlyCallsRunInParallelAndAreRecordedInOrder() {
+        appConfig.getAi().setAutoProcessToolResults(false);
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch secondFinished = new CountDownLatch(1);
+        CountDownLatch fourthFinished = new CountDownLatch(1);
+
+        // 每组连续的只读调用中，先发起的调用等后发起的调用结束，即按相反顺序完成
+        List<BaseTool> tools = List.of(
+                recordingTool("read_first", events, secondFinished, null),
+                recordingTool("read_second", events, null, secondFinished),
+                recordingTool("write_middle", events, null, null),
+                recordingTool("read_third", events, fourthFinished, null),
+                recordingTool("read_fourth", events, null, fourthFinished));
+        for (BaseTool tool : tools) {
+            aiService.batch.add(new ToolCall(tool.getName(), Map.of(), null, false, 0));
+        }
+        AgentLoop loop = newLoop(tools);
+        loop.processInput("look around");
+
+        // 只读调用在执行器线程中并发执行，写入调用在当前线程中执行
+        assertTrue(events.indexOf("end read_second") < events.indexOf("end read_first"), events.toString());
+        assertTrue(events.indexOf("end read_fourth") < events.indexOf("end read_third"), events.toString());
+        assertTrue(events.contains("thread read_first tool-exec"), events.toString());
+        assertTrue(events.contains("thread write_middle " + Thread.currentThread().getName()), events.toString());
+
+        // 写入调用把批次分成两组：前一组全部结束后才开始，后一组在它结束后才开始
+        assertTrue(events.indexOf("start write_middle") > events.indexOf("end read_first"), events.toString());
+        assertTrue(events.indexOf("start read_third") > events.indexOf("end write_middle"), events.toString());
+
+        // 结果按调用顺序写入历史
+        List<String> recorded = new ArrayList<>();
+        for (ChatMessage message : loop.getHistory()) {
+            if ("system".equals(message.getRole()) && message.getContent().startsWith("Tool '")) {
+                recorded.add(message.getContent().substring(6, message.getContent().indexOf('\'', 6)));
+            }
+        }
+        assertEquals(List.of("read_first", "read_second", "write_middle", "read_third", "read_fourth"), recorded);
+    }
+
+    /**
+     * 记录开始、所在线程和结束的工具；MCP 分类下以 read 开头的工具视为只读
+     *
+     * @param awaits   结束前等待的信号，可以为 null
+     * @param finished 结束后发出的信号，可以为 null
+     */
+    private static BaseTool recordingTool(String name, List<String> events, CountDownLatch awaits,
+                                          CountDownLatch finished) {
+        return new BaseTool(name, "Recording tool") {
+            @Override
+            public ToolResult execute(String input) {
+                events.add("start " + name);
+                events.add("thread " + name + " " + Thread.currentThread().getName().replaceAll("-\\d+$", ""));
+                if (awaits != null) {
+                    await(awaits);
+                }
+                events.add("end " + name);
+                if (finished != null) {
+                    finished.countDown();
+                }
+                return success("result of " + name);
+            }
+
+            @Override
+            public String getCategory() {
+                return "MCP-fake";
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "只读调用应并发执行");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AgentLoop newLoop() {
+        return newLoop(List.of());
+    }
+
+    private AgentLoop newLoop(List<BaseTool> extraTools) {
+        ToolRegistry toolRegistry = new ToolRegistry(appConfig);
+        extraTools.forEach(toolRegistry::register);
+        toolRegistry.register(new BaseTool("stub_tool", "Stub tool") {
+            @Override
+            public ToolResult execute(String input) {
+                toolRuns.incrementAndGet();
+                return success("ok");
+            }
+
+            @Override
+            public String getCategory() {
+                return "test";
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+        });
+
+        ThoughtCodingContext context = new ThoughtCodingContext.Builder()
+                .appConfig(appConfig)
+                .aiService(aiService)
+                .sessionService(new SessionService(tempDir.resolve("sessions")))
+                .toolRegistry(toolRegistry)
+                .ui(new ThoughtCodingUI())
+                .performanceMonitor(new PerformanceMonitor())
+                .contextManager(new ContextManager(appConfig))
+                .build();
+        AgentLoop loop = new AgentLoop(context, "test-session", null);
+        loop.setAutoApprove(true);
+        return loop;
+    }
+
+    /**
+     * 脚本化的模型：每轮追加一条助手消息，前 toolCallTurns 轮各请求一次 stub_tool
+     */
+    private static class ScriptedAIService implements AIService {
+        final List<ToolCall> batch = new ArrayList<>();  // 不为空时第一轮请求这一批工具
+        int toolCallTurns;
+        String firstReply = "calling tool";
+        long firstDelayMillis;
+        int calls;
+        private Consumer<ToolCall> toolCallHandler;
+
+        @Override
+        public List<ChatMessage> streamingChat(String input, List<ChatMessage> history, String modelName) {
+            calls++;
+            if (calls == 1 && firstDelayMillis > 0) {
+                try {
+                    Thread.sleep(firstDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            history.add(new ChatMessage("assistant", calls == 1 ? firstReply : "step " + calls));
+            if (calls == 1 && !batch.isEmpty()) {
+                batch.forEach(toolCallHandler);
+            } else if (calls <= toolCallTurns) {
+                toolCallHandler.accept(new ToolCall("stub_tool", Map.of("step", calls), null, false, 0));
+            }
+            return history;
+        }
+
+        @Override
+        public List<ChatMessage> chat(String input, List<ChatMessage> history, String modelName) {
+            return streamingChat(input, history, modelName);
+        }
+
+        @Override
+        public void setMessageHandler(Consumer<ChatMessage> handler) {
+        }
+
+        @Override
+        public void setToolCallHandler(Consumer<ToolCall> handler) {
+            this.toolCallHandler = handler;
+        }
+
+        @Override
+        public boolean validateModel(String modelName) {
+            return true;
+        }
+
+        @Override
+        public List<String> getAvailableModels() {
+            return List.of();
+        }
+    }
+}
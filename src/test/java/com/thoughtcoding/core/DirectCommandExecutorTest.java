@@ -1,7 +1,19 @@
 package com.thoughtcoding.core;
 
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.tools.exec.CommandExecutorTool;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -71,5 +83,40 @@ public class DirectCommandExecutorTest {
             System.out.println("  • " + cmd);
         }
     }
-}
 
+    @Test
+    public void testCleanGeneratedCommitMessage() {
+        // 轻量模型的回复只取第一行，去掉引号和代码块标记
+        assertEquals("Add retry to fetch", DirectCommandExecutor.cleanCommitMessage("\"Add retry to fetch\"\nMore text"));
+        assertEquals("Fix 'null' check", DirectCommandExecutor.cleanCommitMessage("```\nFix \"null\" check\n```"));
+        assertNull(DirectCommandExecutor.cleanCommitMessage("  \n``\n"));
+        assertNull(DirectCommandExecutor.cleanCommitMessage(null));
+        assertTrue(DirectCommandExecutor.commitMessagePrompt("M a.txt").endsWith("M a.txt"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void testCommitMessageIsNotInterpretedByShell(@TempDir Path repo) throws Exception {
+        // 模型生成的 message 中的 $(...) 和反引号必须原样提交，不能被 shell 执行
+        Path marker = repo.resolve("pwned");
+        String message = "$(touch " + marker + ") `touch " + marker + "` \\ done";
+        List<String> commit = DirectCommandExecutor.gitCommit(message);
+        assertEquals(message, commit.get(commit.size() - 1));
+
+        CommandExecutorTool executor = new CommandExecutorTool(new AppConfig());
+        assertTrue(executor.execute(List.of("git", "init", "-q", repo.toString())).isSuccess());
+
+        List<String> command = new ArrayList<>(List.of("git", "-C", repo.toString(),
+                "-c", "user.name=test", "-c", "user.email=test@example.com"));
+        command.addAll(commit.subList(1, commit.size()));
+        command.add("--allow-empty");
+        ToolResult result = executor.execute(command);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertFalse(Files.exists(marker), "commit message 被 shell 执行了");
+        ToolResult log = executor.execute(List.of("git", "-C", repo.toString(), "log", "-1", "--format=%s"));
+        assertTrue(log.getOutput().contains(message), log.getOutput());
+        assertEquals("git commit -m \"$(touch x)\"", DirectCommandExecutor.displayCommand(
+                DirectCommandExecutor.gitCommit("$(touch x)")));
+    }
+}
@@ -0,0 +1,151 @@
+package com.thoughtcoding.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtcoding.mcp.model.MCPProgress;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCPClient 传输层测试
+ * 用管道模拟 MCP 服务器，测试按请求 ID 分发的乱序响应和服务器通知
+ */
+public class MCPClientTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testConcurrentCallsAreMatchedById() throws Exception {
+        PipedOutputStream clientOut = new PipedOutputStream();
+        PipedInputStream serverIn = new PipedInputStream(clientOut, 65536);
+        PipedOutputStream serverOut = new PipedOutputStream();
+        PipedInputStream clientIn = new PipedInputStream(serverOut, 65536);
+
+        Thread server = new Thread(() -> runFakeServer(serverIn, serverOut), "fake-mcp-server");
+        server.setDaemon(true);
+        server.start();
+
+        MCPClient client = new MCPClient("fake");
+        List<String> notifications = new CopyOnWriteArrayList<>();
+        client.addNotificationListener((method, params) -> notifications.add(method));
+
+        assertTrue(client.start(clientIn, clientOut), "初始化应成功");
+        assertEquals(1, client.getAvailableTools().size());
+
+        CompletableFuture<Object> first = client.callToolAsync("echo", Map.of("text", "a"));
+        CompletableFuture<Object> second = client.callToolAsync("echo", Map.of("text", "b"));
+
+        // 服务器按相反顺序应答，结果仍应对应各自的请求
+        assertEquals("b", second.get(5, TimeUnit.SECONDS));
+        assertEquals("a", first.get(5, TimeUnit.SECONDS));
+        assertTrue(notifications.contains("notifications/progress"), "服务器通知应分发给监听器");
+
+        serverOut.close();
+    }
+
+    @Test
+    public void testProgressIsRoutedToCallerByToken() throws Exception {
+        PipedOutputStream clientOut = new PipedOutputStream();
+        PipedInputStream serverIn = new PipedInputStream(clientOut, 65536);
+        PipedOutputStream serverOut = new PipedOutputStream();
+        PipedInputStream clientIn = new PipedInputStream(serverOut, 65536);
+
+        Thread server = new Thread(() -> runFakeServer(serverIn, serverOut), "fake-mcp-server");
+        server.setDaemon(true);
+        server.start();
+
+        MCPClient client = new MCPClient("fake");
+        assertTrue(client.start(clientIn, clientOut), "初始化应成功");
+
+        List<MCPProgress> firstProgress = new CopyOnWriteArrayList<>();
+        List<MCPProgress> secondProgress = new CopyOnWriteArrayList<>();
+        CompletableFuture<Object> first = client.callToolAsync("echo", Map.of("text", "a"), 5000, firstProgress::add);
+        CompletableFuture<Object> second = client.callToolAsync("echo", Map.of("text", "b"), 5000, secondProgress::add);
+
+        assertEquals("a", first.get(5, TimeUnit.SECONDS));
+        assertEquals("b", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, firstProgress.size());
+        assertEquals(1, secondProgress.size());
+        assertEquals("1/2 a", firstProgress.get(0).toString(), "进度应交给发起该调用的监听器");
+        assertEquals("1/2 b", secondProgress.get(0).toString());
+
+        serverOut.close();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void testExitedServerFailsWithoutFixedDelay() {
+        MCPClient client = new MCPClient("exits");
+        long start = System.currentTimeMillis();
+
+        assertFalse(client.connect("false", List.of(), 10000));
+        assertTrue(System.currentTimeMillis() - start < 2000, "进程退出后应立即返回，而不是等待固定时间或超时");
+        assertFalse(client.isConnected());
+    }
+
+    /**
+     * 模拟服务器：收齐两个 tools/call 后倒序应答，并在应答前发送一条进度通知；
+     * 请求携带 progressToken 时再按 token 为每个调用发送一条进度
+     */
+    private static void runFakeServer(InputStream in, OutputStream out) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            List<JsonNode> calls = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode request = MAPPER.readTree(line);
+                String method = request.path("method").asText();
+                JsonNode id = request.get("id");
+                switch (method) {
+                    case "initialize":
+                        reply(writer, id, "{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{}}");
+                        break;
+                    case "tools/list":
+                        reply(writer, id, "{\"tools\":[{\"name\":\"echo\",\"description\":\"Echo text\"}]}");
+                        break;
+                    case "tools/call":
+                        calls.add(request);
+                        if (calls.size() == 2) {
+                            writer.write("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\",\"params\":{}}\n");
+                            for (JsonNode call : calls) {
+                                JsonNode token = call.path("params").path("_meta").get("progressToken");
+                                if (token != null) {
+                                    String text = call.path("params").path("arguments").path("text").asText();
+                                    writer.write("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\",\"params\":"
+                                            + "{\"progressToken\":" + MAPPER.writeValueAsString(token)
+                                            + ",\"progress\":1,\"total\":2,\"message\":\"" + text + "\"}}\n");
+                                }
+                            }
+                            for (int i = calls.size() - 1; i >= 0; i--) {
+                                JsonNode call = calls.get(i);
+                                String text = call.path("params").path("arguments").path("text").asText();
+                                reply(writer, call.get("id"), "{\"content\":\"" + text + "\"}");
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            // 管道关闭
+        }
+    }
+
+    private static void reply(Writer writer, JsonNode id, String result) throws IOException {
+        writer.write("{\"jsonrpc\":\"2.0\",\"id\":" + MAPPER.writeValueAsString(id) + ",\"result\":" + result + "}\n");
+        writer.flush();
+    }
+}
@@ -0,0 +1,67 @@
+package com.thoughtcoding.mcp;
+
+import com.thoughtcoding.mcp.model.MCPRequest;
+import com.thoughtcoding.mcp.model.MCPResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCPMessageCodec 测试
+ * 测试流式解码响应、通知和服务器请求，以及请求编码为单行
+ */
+public class MCPMessageCodecTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDecodeResponseWithResultBeforeId() throws Exception {
+        String line = "{\"result\":{\"content\":[{\"type\":\"text\",\"text\":\"ok\"}],"
+                + "\"structuredContent\":{\"a\":[1,2,3]}},\"jsonrpc\":\"2.0\",\"id\":\"7\",\"extra\":{\"x\":1}}";
+
+        MCPMessageCodec.Message message = MCPMessageCodec.decode(line);
+        assertNotNull(message);
+        assertFalse(message.isNotification());
+        assertFalse(message.isRequest());
+
+        MCPResponse response = message.toResponse();
+        assertEquals("7", response.getId());
+        assertNull(response.getError());
+        List<Map<String, Object>> content =
+                (List<Map<String, Object>>) ((Map<String, Object>) response.getResult()).get("content");
+        assertEquals("ok", content.get(0).get("text"));
+    }
+
+    @Test
+    public void testDecodeNotificationRequestAndError() throws Exception {
+        MCPMessageCodec.Message notification = MCPMessageCodec.decode(
+                "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\",\"params\":{\"n\":1}}");
+        assertTrue(notification.isNotification());
+        assertEquals(1, notification.getParams().get("n").asInt());
+
+        MCPMessageCodec.Message request = MCPMessageCodec.decode("{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"ping\"}");
+        assertTrue(request.isRequest());
+        assertTrue(request.getId().isNumber(), "应答时需要保留原始 ID 类型");
+
+        MCPResponse error = MCPMessageCodec.decode(
+                "{\"jsonrpc\":\"2.0\",\"id\":\"9\",\"error\":{\"code\":-32601,\"message\":\"nope\",\"data\":null}}")
+                .toResponse();
+        assertEquals(-32601, error.getError().getCode());
+        assertNull(error.getResult());
+
+        assertNull(MCPMessageCodec.decode("[1,2]"));
+        assertThrows(Exception.class, () -> MCPMessageCodec.decode("npm WARN something"));
+    }
+
+    @Test
+    public void testEncodeRequestIsSingleLine() throws Exception {
+        MCPRequest request = new MCPRequest("tools/call", Map.of("name", "echo", "arguments", Map.of("text", "a\nb")));
+        request.setId("1");
+
+        String json = MCPMessageCodec.encode(request);
+        assertFalse(json.contains("\n"), "协议消息必须是单行");
+        assertTrue(json.contains("\"method\":\"tools/call\""));
+    }
+}
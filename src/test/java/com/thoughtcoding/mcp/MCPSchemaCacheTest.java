@@ -0,0 +1,56 @@
+package com.thoughtcoding.mcp;
+
+import com.thoughtcoding.mcp.model.MCPTool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCPSchemaCache 测试
+ * 测试缓存持久化、按命令/参数/版本区分以及失效
+ */
+public class MCPSchemaCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static MCPTool tool(String name) throws Exception {
+        return new com.fasterxml.jackson.databind.ObjectMapper()
+                .readValue("{\"name\":\"" + name + "\",\"description\":\"d\",\"inputSchema\":{\"type\":\"object\"}}",
+                        MCPTool.class);
+    }
+
+    @Test
+    public void testCacheSurvivesRestartAndInvalidates() throws Exception {
+        Path file = tempDir.resolve("cache.json");
+        List<String> args = List.of("-y", "@modelcontextprotocol/server-memory");
+
+        MCPSchemaCache cache = new MCPSchemaCache(file);
+        assertNull(cache.get("npx", args));
+        cache.put("memory", "npx", args, "0.6.0", List.of(tool("create_entities"), tool("read_graph")));
+
+        MCPSchemaCache reopened = new MCPSchemaCache(file);
+        List<MCPTool> tools = reopened.get("npx", args);
+        assertNotNull(tools, "重启后应命中缓存");
+        assertEquals(2, tools.size());
+        assertEquals("create_entities", tools.get(0).getName());
+        assertNull(reopened.get("npx", List.of("-y", "@modelcontextprotocol/server-memory", "--other")));
+
+        reopened.invalidate("npx", args);
+        assertNull(new MCPSchemaCache(file).get("npx", args), "失效后不应再命中");
+    }
+
+    @Test
+    public void testPinnedPackageVersionIsPartOfKey() {
+        MCPSchemaCache cache = new MCPSchemaCache(tempDir.resolve("cache.json"));
+
+        assertEquals("1.2.0", cache.resolvePackageVersion(List.of("-y", "@scope/server@1.2.0")));
+        assertEquals("2.0.0", cache.resolvePackageVersion(List.of("mcp-server@2.0.0", "--port", "1")));
+        assertEquals("unpinned", cache.resolvePackageVersion(List.of("-y", "@scope/server-not-installed")));
+        assertNotEquals(cache.cacheKey("npx", List.of("pkg@1.0.0")), cache.cacheKey("npx", List.of("pkg@1.0.1")));
+    }
+}
@@ -0,0 +1,205 @@
+package com.thoughtcoding.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.mcp.transport.StreamMCPTransport;
+import com.thoughtcoding.tools.BaseTool;
+import com.thoughtcoding.tools.ToolRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCPService 进程池监督测试
+ * 用管道模拟 MCP 服务器（与 MCPClientTest 相同的方式），测试崩溃后退避重启、超过重启次数后停止、
+ * 空闲回收后下次调用重新启动，以及有调用在途时不做 ping
+ */
+public class MCPServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private MCPService service;
+    private final AtomicInteger starts = new AtomicInteger();
+    private final CountDownLatch callReceived = new CountDownLatch(1);
+    private final CountDownLatch releaseCall = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        releaseCall.countDown();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testBackoffDoublesUpToLimit() {
+        assertEquals(1, MCPService.backoffSeconds(1));
+        assertEquals(2, MCPService.backoffSeconds(2));
+        assertEquals(4, MCPService.backoffSeconds(3));
+        assertEquals(60, MCPService.backoffSeconds(7));
+        assertEquals(60, MCPService.backoffSeconds(100));
+    }
+
+    @Test
+    public void testCrashingServerIsRestartedUntilMaxRestarts() throws Exception {
+        service = newService(300);  // 握手完成 300ms 后退出
+        service.configurePool(0, 0, 1);
+
+        List<BaseTool> tools = service.connectToServer("fake", "fake-server", List.of(), 5);
+        assertEquals(1, tools.size());
+        assertTrue(tools.get(0).isEnabled());
+        // 第一次退出：1s 后重启；重启后再次退出：连续失败 2 次 > maxRestarts，停止重启
+        waitFor(() -> status().getState() == MCPServerStatus.State.FAILED, 10_000);
+
+        assertEquals(2, starts.get());
+        assertEquals(1, status().getRestartCount());
+        assertEquals(2, status().getConsecutiveFailures());
+        assertTrue(service.getConnectedServers().isEmpty());
+        assertFalse(tools.get(0).isEnabled(), "FAILED 的服务器的工具应显示为不可用");
+        assertEquals(0, service.pendingSupervisorTasks(), "FAILED 后不再安排重启");
+    }
+
+    @Test
+    public void testIdleServerIsReapedAndRespawnedOnNextCall() throws Exception {
+        service = newService(-1);
+        service.configurePool(0, 1, 5);
+        service.connectToServer("fake", "fake-server", List.of(), 5);
+        assertEquals(MCPServerStatus.State.RUNNING, status().getState());
+
+        // 时钟前进到空闲阈值之后，直接执行一次监督
+        service.superviseServers();
+        assertEquals(MCPServerStatus.State.RUNNING, status().getState(), "未超过空闲时间不应回收");
+        long lastUsed = status().getLastUsed();
+        service.setClock(() -> lastUsed + 1001);
+        service.superviseServers();
+        assertEquals(MCPServerStatus.State.IDLE, status().getState());
+        assertTrue(service.getConnectedServers().isEmpty());
+
+        // 工具仍然注册着，调用时透明地重新启动服务器
+        assertEquals("hi", service.callTool("fake", "echo", Map.of("text", "hi")));
+        assertEquals(2, starts.get());
+        assertEquals(MCPServerStatus.State.RUNNING, status().getState());
+        assertEquals(List.of("fake"), service.getConnectedServers());
+    }
+
+    @Test
+    public void testBusyServerIsNotPinged() throws Exception {
+        service = newService(-1);
+        service.configurePool(0, 0, 5);
+        service.connectToServer("fake", "fake-server", List.of(), 5);
+
+        CompletableFuture<Object> call = CompletableFuture.supplyAsync(
+                () -> service.callTool("fake", "echo", Map.of("text", "wait")));
+        assertTrue(callReceived.await(5, TimeUnit.SECONDS));
+
+        // 服务器在处理长调用，无法应答 ping；健康检查应跳过它而不是当作崩溃
+        long start = System.currentTimeMillis();
+        service.superviseServers();
+        assertTrue(System.currentTimeMillis() - start < 1000, "有调用在途时不应等待 ping");
+        assertEquals(MCPServerStatus.State.RUNNING, status().getState());
+
+        releaseCall.countDown();
+        assertEquals("wait", call.get(5, TimeUnit.SECONDS));
+        assertEquals(1, starts.get());
+        assertEquals(0, status().getConsecutiveFailures());
+    }
+
+    private MCPService newService(long exitAfterMs) {
+        MCPService mcpService = new MCPService(new ToolRegistry(new AppConfig()),
+                new MCPSchemaCache(tempDir.resolve("cache.json")));
+        mcpService.setTransportFactory("fake", () -> {
+            starts.incrementAndGet();
+            try {
+                PipedOutputStream clientOut = new PipedOutputStream();
+                PipedInputStream serverIn = new PipedInputStream(clientOut, 65536);
+                PipedOutputStream serverOut = new PipedOutputStream();
+                PipedInputStream clientIn = new PipedInputStream(serverOut, 65536);
+                Thread server = new Thread(() -> runFakeServer(serverIn, serverOut, exitAfterMs), "fake-mcp-server");
+                server.setDaemon(true);
+                server.start();
+                return new StreamMCPTransport("fake", clientIn, clientOut);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return mcpService;
+    }
+
+    private MCPServerStatus status() {
+        return service.getServerStatuses().stream()
+                .filter(status -> status.getServerName().equals("fake"))
+                .findFirst().orElseThrow();
+    }
+
+    private static void waitFor(BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * 模拟服务器：应答 initialize、tools/list、ping 和 echo 调用；text 为 "wait" 的调用等到 releaseCall 才应答
+     * （单线程处理，期间不应答 ping）；exitAfterMs 不小于 0 时在返回工具列表后延迟退出
+     */
+    private void runFakeServer(InputStream in, OutputStream out, long exitAfterMs) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode request = MAPPER.readTree(line);
+                JsonNode id = request.get("id");
+                switch (request.path("method").asText()) {
+                    case "initialize":
+                        reply(writer, id, "{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{}}");
+                        break;
+                    case "tools/list":
+                        reply(writer, id, "{\"tools\":[{\"name\":\"echo\",\"description\":\"Echo text\"}]}");
+                        if (exitAfterMs >= 0) {
+                            Thread.sleep(exitAfterMs);
+                            return;
+                        }
+                        break;
+                    case "ping":
+                        reply(writer, id, "{}");
+                        break;
+                    case "tools/call":
+                        String text = request.path("params").path("arguments").path("text").asText();
+                        if (text.equals("wait")) {
+                            callReceived.countDown();
+                            releaseCall.await();
+                        }
+                        reply(writer, id, "{\"content\":\"" + text + "\"}");
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // 管道关闭
+        }
+    }
+
+    private static void reply(Writer writer, JsonNode id, String result) throws IOException {
+        writer.write("{\"jsonrpc\":\"2.0\",\"id\":" + MAPPER.writeValueAsString(id) + ",\"result\":" + result + "}\n");
+        writer.flush();
+    }
+}
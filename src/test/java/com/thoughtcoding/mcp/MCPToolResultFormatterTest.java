@@ -0,0 +1,38 @@
+package com.thoughtcoding.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCPToolResultFormatter 测试
+ * 测试 content 列表转文本以及超出上限时截断
+ */
+public class MCPToolResultFormatterTest {
+
+    @Test
+    public void testContentItemsAreFlattened() {
+        Object content = List.of(
+                Map.of("type", "text", "text", "first"),
+                Map.of("type", "image", "mimeType", "image/png", "data", "AAAA"),
+                Map.of("type", "resource", "resource", Map.of("uri", "file:///a.txt", "text", "inline")));
+
+        assertEquals("first\n[image: image/png, 3 bytes]\ninline", MCPToolResultFormatter.format(content, 0));
+        assertNull(MCPToolResultFormatter.format(null, 100));
+    }
+
+    @Test
+    public void testLargeResultIsTruncated() {
+        Object content = List.of(
+                Map.of("type", "text", "text", "x".repeat(80)),
+                Map.of("type", "text", "text", "y".repeat(80)));
+
+        String text = MCPToolResultFormatter.format(content, 100);
+        assertTrue(text.startsWith("x".repeat(80) + "\n" + "y".repeat(19)));
+        assertFalse(text.contains("y".repeat(20)));
+        assertTrue(text.contains("共 161 个字符"), text);
+    }
+}
@@ -0,0 +1,182 @@
+package com.thoughtcoding.mcp.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.thoughtcoding.mcp.MCPClient;
+import com.thoughtcoding.mcp.model.MCPProgress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HttpMCPTransport 测试
+ * 用进程内的 HTTP 服务器模拟 Streamable HTTP MCP 服务器，测试会话头、SSE 响应中的进度和 HTTP 错误
+ */
+public class HttpMCPTransportTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SESSION_ID = "session-1";
+
+    private HttpServer server;
+    private final List<String> requestLog = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/mcp", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testSessionProgressAndErrors() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/mcp";
+        HttpMCPTransport transport = new HttpMCPTransport("remote", url, Map.of("Authorization", "Bearer t"));
+        MCPClient client = new MCPClient("remote");
+
+        assertTrue(client.connect(transport, 5000), "初始化应成功");
+        assertEquals(SESSION_ID, transport.getSessionId());
+        assertEquals(1, client.getAvailableTools().size());
+
+        List<MCPProgress> progress = new CopyOnWriteArrayList<>();
+        Object content = client.callTool("echo", Map.of("text", "hi"), 5000, progress::add);
+        assertEquals("hi", content);
+        assertEquals(1, progress.size(), "SSE 流中的进度通知应交给调用方");
+        assertEquals("1/2 working", progress.get(0).toString());
+
+        long start = System.currentTimeMillis();
+        IOException error = assertThrows(IOException.class,
+                () -> client.callTool("boom", Map.of(), 10000, null));
+        assertTrue(error.getMessage().contains("HTTP 500"), error.getMessage());
+        assertTrue(System.currentTimeMillis() - start < 5000, "HTTP 错误应立即失败，而不是等待超时");
+
+        client.disconnect();
+        assertFalse(client.isConnected());
+
+        // 除 initialize 外的请求都应带上会话头和自定义请求头，断开时 DELETE 结束会话
+        assertTrue(requestLog.contains("POST initialize session=null auth=Bearer t"));
+        assertTrue(requestLog.contains("POST tools/call session=" + SESSION_ID + " auth=Bearer t"));
+        waitFor(() -> requestLog.contains("DELETE session=" + SESSION_ID));
+    }
+
+    @Test
+    public void testExpiredSessionClosesTransport() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/mcp";
+        HttpMCPTransport transport = new HttpMCPTransport("remote", url, Map.of());
+        MCPClient client = new MCPClient("remote");
+        assertTrue(client.connect(transport, 5000));
+
+        // 404 表示会话已过期：请求立即失败，连接关闭，由监督线程重连并重新 initialize
+        IOException error = assertThrows(IOException.class,
+                () -> client.callTool("expired", Map.of(), 10000, null));
+        assertTrue(error.getMessage().contains("HTTP 404"), error.getMessage());
+        waitFor(() -> !transport.isOpen() && !client.isConnected());
+        assertNull(transport.getSessionId());
+        assertTrue(requestLog.stream().noneMatch(entry -> entry.startsWith("DELETE")), "已过期的会话不需要 DELETE");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String session = exchange.getRequestHeaders().getFirst("Mcp-Session-Id");
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        String method = exchange.getRequestMethod();
+
+        if ("GET".equals(method)) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        if ("DELETE".equals(method)) {
+            requestLog.add("DELETE session=" + session);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+
+        JsonNode message = MAPPER.readTree(exchange.getRequestBody());
+        String rpcMethod = message.path("method").asText();
+        requestLog.add("POST " + rpcMethod + " session=" + session + " auth=" + auth);
+        JsonNode id = message.get("id");
+
+        if (id == null || id.isNull() || rpcMethod.isEmpty()) {
+            exchange.sendResponseHeaders(202, -1);  // 通知
+            exchange.close();
+            return;
+        }
+
+        switch (rpcMethod) {
+            case "initialize":
+                exchange.getResponseHeaders().add("Mcp-Session-Id", SESSION_ID);
+                sendJson(exchange, reply(id, "{\"protocolVersion\":\"2025-03-26\",\"capabilities\":{},"
+                        + "\"serverInfo\":{\"name\":\"stub\",\"version\":\"1.0.0\"}}"));
+                break;
+            case "tools/list":
+                sendJson(exchange, reply(id, "{\"tools\":[{\"name\":\"echo\",\"description\":\"Echo text\"}]}"));
+                break;
+            case "tools/call":
+                if ("boom".equals(message.path("params").path("name").asText())) {
+                    exchange.sendResponseHeaders(500, -1);
+                    exchange.close();
+                    return;
+                }
+                if ("expired".equals(message.path("params").path("name").asText())) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                String token = message.path("params").path("_meta").path("progressToken").asText();
+                String text = message.path("params").path("arguments").path("text").asText();
+                exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write((": keep-alive\n\n"
+                            + "event: message\ndata: {\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\","
+                            + "\"params\":{\"progressToken\":\"" + token + "\",\"progress\":1,\"total\":2,"
+                            + "\"message\":\"working\"}}\n\n"
+                            + "event: message\ndata: " + reply(id, "{\"content\":\"" + text + "\"}") + "\n\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                break;
+            default:
+                sendJson(exchange, reply(id, "{}"));
+        }
+    }
+
+    private static String reply(JsonNode id, String result) throws IOException {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + MAPPER.writeValueAsString(id) + ",\"result\":" + result + "}";
+    }
+
+    private static void sendJson(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,76 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ContextManager Token 统计测试
+ * 测试 BPE 分词、按消息 ID 的缓存和缓存友好的截断策略
+ */
+public class ContextManagerTest {
+
+    @Test
+    public void testBpeTokenizerCountsExactly() {
+        Tokenizer tokenizer = new BpeTokenizer();
+
+        assertEquals(0, tokenizer.countTokens(""));
+        assertEquals(2, tokenizer.countTokens("hello world"), "cl100k_base 中 hello world 为 2 个 token");
+        assertTrue(tokenizer.countTokens("你好，世界") > 0);
+    }
+
+    @Test
+    public void testMessageTokensAreMemoised() {
+        AtomicInteger calls = new AtomicInteger();
+        Tokenizer counting = new Tokenizer() {
+            @Override
+            public int countTokens(String text) {
+                calls.incrementAndGet();
+                return text.length();
+            }
+
+            @Override
+            public String getName() {
+                return "counting";
+            }
+        };
+        ContextManager manager = new ContextManager(new AppConfig(), counting);
+        ChatMessage message = new ChatMessage("user", "abcdef");
+
+        assertEquals(6, manager.countTokens(message));
+        assertEquals(6, manager.countTokens(message));
+        assertEquals(1, calls.get(), "同一条消息只应分词一次");
+    }
+
+    @Test
+    public void testCacheFriendlyPrefixStaysStable() {
+        ContextManager manager = new ContextManager(new AppConfig(), new EstimatingTokenizer());
+        manager.setStrategy(ContextManager.Strategy.CACHE_FRIENDLY);
+        manager.setMaxContextTokens(100);
+
+        List<ChatMessage> history = new ArrayList<>();
+        String first = null;
+        int anchorMoves = 0;
+        for (int turn = 0; turn < 20; turn++) {
+            history.add(new ChatMessage("user", "question " + turn + " " + "x".repeat(40)));
+            history.add(new ChatMessage("assistant", "answer " + turn + " " + "y".repeat(40)));
+
+            List<ChatMessage> context = manager.getContextForAI(history);
+            assertEquals("user", context.get(0).getRole(), "截断后应从用户消息开始");
+            if (!context.get(0).getId().equals(first)) {
+                first = context.get(0).getId();
+                anchorMoves++;
+            }
+        }
+
+        assertTrue(anchorMoves < 10, "前缀应按块前移，而不是每轮都变化: " + anchorMoves);
+        assertSame(manager.buildProjectContextMessage(), manager.buildProjectContextMessage(),
+            "系统提示词应复用同一个对象");
+    }
+}
@@ -0,0 +1,25 @@
+package com.thoughtcoding.service;
+
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LangChainService 测试
+ * 取消生成依赖 OpenAiStreamingChatModel 内部的 OkHttpClient，升级 langchain4j 后这里会提示需要调整
+ */
+public class LangChainServiceTest {
+
+    @Test
+    public void testHttpClientIsReachableForCancellation() {
+        OpenAiStreamingChatModel model = OpenAiStreamingChatModel.builder()
+                .baseUrl("http://127.0.0.1:1/v1")
+                .apiKey("test")
+                .modelName("test-model")
+                .build();
+
+        assertNotNull(LangChainService.findHttpClient(model));
+        assertNull(LangChainService.findHttpClient(new Object()));
+    }
+}
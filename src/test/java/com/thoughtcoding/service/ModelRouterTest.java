@@ -0,0 +1,76 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.config.AppConfig;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ModelRouter / ModelClientPool 测试：按任务选择模型、lightModel 未配置时回退、每个模型复用一个客户端
+ */
+public class ModelRouterTest {
+
+    @Test
+    public void testRoutesByTask() {
+        AppConfig appConfig = config("big", "small");
+        appConfig.getAi().setLightModel("small");
+        ModelRouter router = new ModelRouter(appConfig);
+
+        assertEquals("big", router.route(ModelRouter.Task.CODING, null));
+        assertEquals("small", router.route(ModelRouter.Task.CODING, "small"));
+        assertEquals("big", router.route(ModelRouter.Task.CODING, "missing"));
+        // 轻量任务总是使用 lightModel，不受 -m 影响
+        assertEquals("small", router.route(ModelRouter.Task.LIGHT, null));
+        assertEquals("small", router.route(ModelRouter.Task.LIGHT, "big"));
+    }
+
+    @Test
+    public void testLightFallsBackWhenLightModelUnset() {
+        AppConfig appConfig = config("big", "small");
+        ModelRouter router = new ModelRouter(appConfig);
+        assertEquals("big", router.route(ModelRouter.Task.LIGHT, null));
+        assertEquals("small", router.route(ModelRouter.Task.LIGHT, "small"));
+
+        // 配置了不存在的 lightModel 也回退
+        appConfig.getAi().setLightModel("missing");
+        assertEquals("big", router.route(ModelRouter.Task.LIGHT, null));
+    }
+
+    @Test
+    public void testClientPoolReusesClientPerModel() {
+        ModelClientPool pool = new ModelClientPool(config("big", "small"));
+
+        StreamingChatLanguageModel big = pool.get("big");
+        assertNotNull(big);
+        assertSame(big, pool.get("big"));
+        assertNotSame(big, pool.get("small"));
+        assertNull(pool.get("missing"));
+        assertNull(pool.get(null));
+        assertEquals(Set.of("big", "small"), pool.getBuiltModels());
+    }
+
+    private static AppConfig config(String defaultModel, String... otherModels) {
+        Map<String, AppConfig.ModelConfig> models = new LinkedHashMap<>();
+        models.put(defaultModel, model(defaultModel));
+        for (String key : otherModels) {
+            models.put(key, model(key));
+        }
+        AppConfig appConfig = new AppConfig();
+        appConfig.setModels(models);
+        appConfig.setDefaultModel(defaultModel);
+        return appConfig;
+    }
+
+    private static AppConfig.ModelConfig model(String name) {
+        AppConfig.ModelConfig model = new AppConfig.ModelConfig();
+        model.setName(name);
+        model.setBaseURL("http://127.0.0.1:1/v1");
+        model.setApiKey("test");
+        return model;
+    }
+}
@@ -0,0 +1,61 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SessionPersister 异步写入测试
+ * 测试合并提交、flush 后读取最新内容以及关闭时写完待写会话
+ */
+public class SessionPersisterTest {
+
+    @TempDir
+    Path sessionsDir;
+
+    @Test
+    public void testSubmitsAreCoalescedAndFlushed() {
+        SessionService service = new SessionService(sessionsDir);
+        SessionPersister persister = new SessionPersister(service);
+        List<ChatMessage> history = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            history.add(new ChatMessage(i % 2 == 0 ? "user" : "assistant", "message " + i));
+            persister.submit("s1", history);
+        }
+
+        assertTrue(persister.flush(5000), "flush 应在超时前完成");
+        SessionPersister.Stats stats = persister.getStats();
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(20, stats.getSubmitCount());
+        assertEquals(20, stats.getFlushCount() + stats.getCoalescedCount(), "每次提交要么被写入要么被合并");
+        assertEquals(0, stats.getFailedCount());
+
+        List<ChatMessage> loaded = new SessionService(sessionsDir).loadSession("s1");
+        assertEquals(20, loaded.size());
+        assertEquals("message 19", loaded.get(19).getContent());
+        persister.close();
+    }
+
+    @Test
+    public void testCloseDrainsPendingSaves() {
+        SessionService service = new SessionService(sessionsDir);
+        SessionPersister persister = new SessionPersister(service);
+        List<ChatMessage> history = new ArrayList<>();
+        history.add(new ChatMessage("user", "hello"));
+        persister.submit("s2", history);
+        history.add(new ChatMessage("assistant", "hi"));  // 提交后修改历史不影响已提交的快照
+        persister.submit("s3", history);
+
+        persister.close();
+
+        SessionService reopened = new SessionService(sessionsDir);
+        assertEquals(1, reopened.loadSession("s2").size());
+        assertEquals(2, reopened.loadSession("s3").size());
+    }
+}
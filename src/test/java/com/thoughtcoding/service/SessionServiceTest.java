@@ -0,0 +1,137 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SessionService 持久化测试
+ * 测试追加日志、快照压缩、旧格式迁移和崩溃后的日志修复
+ */
+public class SessionServiceTest {
+
+    @TempDir
+    Path sessionsDir;
+
+    @Test
+    public void testAppendOnlyJournalRoundTrip() throws Exception {
+        SessionService service = new SessionService(sessionsDir);
+        List<ChatMessage> history = new ArrayList<>();
+        history.add(new ChatMessage("user", "你好"));
+        service.saveSession("s1", history);  // 首次保存写入快照
+
+        history.add(new ChatMessage("assistant", "你好！"));
+        history.add(new ChatMessage("user", "再见"));
+        service.saveSession("s1", history);  // 之后只追加日志
+
+        assertEquals(2, Files.readAllLines(sessionsDir.resolve("s1.jsonl")).size(), "日志只应包含新增的消息");
+
+        List<ChatMessage> loaded = new SessionService(sessionsDir).loadSession("s1");
+        assertEquals(3, loaded.size());
+        assertEquals("再见", loaded.get(2).getContent());
+    }
+
+    @Test
+    public void testRewrittenHistoryCompactsToSnapshot() throws Exception {
+        SessionService service = new SessionService(sessionsDir);
+        List<ChatMessage> history = new ArrayList<>();
+        history.add(new ChatMessage("user", "a"));
+        service.saveSession("s2", history);
+        history.add(new ChatMessage("assistant", "b"));
+        service.saveSession("s2", history);
+
+        // 清空历史后再保存：应重写快照并删除日志
+        history.clear();
+        history.add(new ChatMessage("user", "c"));
+        service.saveSession("s2", history);
+
+        assertFalse(Files.exists(sessionsDir.resolve("s2.jsonl")));
+        List<ChatMessage> loaded = new SessionService(sessionsDir).loadSession("s2");
+        assertEquals(1, loaded.size());
+        assertEquals("c", loaded.get(0).getContent());
+    }
+
+    @Test
+    public void testLegacySessionAndTruncatedJournalTail() throws Exception {
+        // 旧版本格式：只有 .json，没有 journalSeq
+        Files.writeString(sessionsDir.resolve("s3.json"),
+            "{\"sessionId\":\"s3\",\"messages\":[{\"role\":\"user\",\"content\":\"old\",\"timestamp\":\"t\"}]}");
+
+        SessionService service = new SessionService(sessionsDir);
+        List<ChatMessage> history = new ArrayList<>(service.loadSession("s3"));
+        history.add(new ChatMessage("assistant", "new"));
+        service.saveSession("s3", history);
+
+        // 模拟写入一半时崩溃
+        Files.write(sessionsDir.resolve("s3.jsonl"), "{\"seq\":5,\"role\":\"us".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        SessionService reloaded = new SessionService(sessionsDir);
+        List<ChatMessage> loaded = new ArrayList<>(reloaded.loadSession("s3"));
+        assertEquals(2, loaded.size(), "不完整的日志行应被忽略");
+        assertEquals("new", loaded.get(1).getContent());
+
+        // 修复后继续追加仍然可以正确读取
+        loaded.add(new ChatMessage("user", "more"));
+        reloaded.saveSession("s3", loaded);
+        assertEquals(3, new SessionService(sessionsDir).loadSession("s3").size());
+        assertTrue(new SessionService(sessionsDir).listSessions().contains("s3"));
+    }
+
+    @Test
+    public void testIndexTracksLatestSessionAndKeepsCreatedTime() throws Exception {
+        SessionService service = new SessionService(sessionsDir);
+        List<ChatMessage> first = new ArrayList<>();
+        first.add(new ChatMessage("user", "第一个会话"));
+        service.saveSession("a", first);
+        long createdTime = service.listSessionEntries().get(0).getCreatedTime();
+
+        Thread.sleep(5);
+        List<ChatMessage> second = new ArrayList<>();
+        second.add(new ChatMessage("user", "第二个会话"));
+        service.saveSession("b", second);
+        assertEquals("b", service.getLatestSessionId());
+
+        Thread.sleep(5);
+        first.clear();
+        first.add(new ChatMessage("user", "改写后的历史"));
+        service.saveSession("a", first);  // 历史被改写，重新写快照
+
+        SessionService reopened = new SessionService(sessionsDir);
+        assertEquals("a", reopened.getLatestSessionId(), "最近保存的会话应排在最前");
+        assertEquals(List.of("a", "b"), reopened.listSessions());
+
+        SessionIndex.Entry entry = reopened.listSessionEntries().get(0);
+        assertEquals(createdTime, entry.getCreatedTime(), "重写快照不应改变创建时间");
+        assertEquals("第一个会话", entry.getTitle());
+        assertEquals(1, entry.getMessageCount());
+    }
+
+    @Test
+    public void testMissingIndexIsRebuiltFromSessionFiles() throws Exception {
+        SessionService service = new SessionService(sessionsDir);
+        List<ChatMessage> history = new ArrayList<>();
+        history.add(new ChatMessage("user", "hello"));
+        service.saveSession("s4", history);
+        history.add(new ChatMessage("assistant", "hi"));
+        service.saveSession("s4", history);
+
+        Files.delete(sessionsDir.resolve("index.bin"));
+
+        SessionService reopened = new SessionService(sessionsDir);
+        assertEquals("s4", reopened.getLatestSessionId());
+        SessionIndex.Entry entry = reopened.listSessionEntries().get(0);
+        assertEquals(2, entry.getMessageCount());
+        assertEquals("hello", entry.getTitle());
+        assertTrue(Files.exists(sessionsDir.resolve("index.bin")));
+    }
+}
@@ -0,0 +1,84 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ToolCall;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolMarkerParser 功能测试
+ * 测试跨 token 的工具标记识别、代码块意图判断和历史文本清理
+ */
+public class ToolMarkerParserTest {
+
+    private static ToolMarkerParser feed(String... tokens) {
+        ToolMarkerParser parser = new ToolMarkerParser();
+        for (String token : tokens) {
+            parser.accept(token);
+        }
+        return parser;
+    }
+
+    @Test
+    public void testSimplifiedMarkerSplitAcrossTokens() {
+        ToolMarkerParser parser = feed("我先看一下文件。\n⏺ Re", "ad(src/Main", ".java)\n");
+
+        ToolCall call = parser.detectToolCalls().get(0);
+        assertNotNull(call, "应识别出 ⏺ Read 标记");
+        assertEquals("file_manager", call.getToolName());
+        assertEquals("read", call.getParameters().get("command"));
+        assertEquals("src/Main.java", call.getParameters().get("path"));
+    }
+
+    @Test
+    public void testMultipleMarkersKeepOrder() {
+        ToolMarkerParser parser = feed("⏺ Read(a.java)\n⏺ Bash(ls -la)\n", "file_manager read \"b.java\"\n",
+            "⏺ Read(a.java)\n");
+
+        List<ToolCall> calls = parser.detectToolCalls();
+        assertEquals(3, calls.size(), "重复的标记应只触发一次");
+        assertEquals("a.java", calls.get(0).getParameters().get("path"));
+        assertEquals("command_executor", calls.get(1).getToolName());
+        assertEquals("b.java", calls.get(2).getParameters().get("path"));
+    }
+
+    @Test
+    public void testQuotedCommand() {
+        ToolMarkerParser parser = feed("执行：command_exec", "utor \"mvn ", "test\"");
+
+        ToolCall call = parser.detectToolCalls().get(0);
+        assertEquals("command_executor", call.getToolName());
+        assertEquals("mvn test", call.getParameters().get("command"));
+    }
+
+    @Test
+    public void testCodeBlockTriggersWrite() {
+        ToolMarkerParser parser = feed("文件名：Hello.java\n", "``", "`java\npublic class Hello {}\n", "```\n完成");
+
+        ToolCall call = parser.detectToolCalls().get(0);
+        assertNotNull(call, "代码块后文字很少时应触发写入");
+        assertEquals("write_file", call.getToolName());
+        assertTrue(call.isStreamingTriggered());
+        assertEquals("Hello.java", call.getParameters().get("path"));
+        assertEquals("public class Hello {}", call.getParameters().get("content"));
+    }
+
+    @Test
+    public void testExplanationDoesNotTrigger() {
+        ToolMarkerParser parser = feed("下面解释一下这个写法：\n```\nint a = 1;\n```\n");
+
+        assertTrue(parser.detectToolCalls().isEmpty(), "讲解性质的代码块不应触发工具调用");
+    }
+
+    @Test
+    public void testWriteFileCommandRemovedFromHistory() {
+        ToolMarkerParser parser = feed("好的，我来帮你创建。\n\nwrite_file \"a.txt\" \"line1\\nline2\"\n");
+
+        ToolCall call = parser.detectToolCalls().get(0);
+        assertEquals("write_file", call.getToolName());
+        assertEquals("line1\nline2", call.getParameters().get("content"));
+        assertEquals("好的，我来帮你创建。", parser.getCleanText());
+    }
+}
@@ -0,0 +1,72 @@
+package com.thoughtcoding.service;
+
+import com.thoughtcoding.model.ToolCall;
+import com.thoughtcoding.model.ToolResult;
+import com.thoughtcoding.tools.BaseTool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolSpecificationConverter 测试
+ * 测试 MCP 风格的 inputSchema 转换为工具定义，以及模型返回的工具调用转换为 ToolCall
+ */
+public class ToolSpecificationConverterTest {
+
+    private static BaseTool tool(Object inputSchema) {
+        return new BaseTool("read_file", "Read a file") {
+            @Override
+            public ToolResult execute(String input) {
+                return success(input);
+            }
+
+            @Override
+            public String getCategory() {
+                return "MCP-fs";
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public Object getInputSchema() {
+                return inputSchema;
+            }
+        };
+    }
+
+    @Test
+    public void testSchemaIsConverted() {
+        Map<String, Object> schema = Map.of(
+                "type", "object",
+                "properties", Map.of("path", Map.of("type", "string", "description", "File path")),
+                "required", List.of("path"));
+
+        ToolSpecification specification = ToolSpecificationConverter.toSpecification(tool(schema));
+        assertEquals("read_file", specification.name());
+        assertEquals("Read a file", specification.description());
+        assertEquals("string", specification.parameters().properties().get("path").get("type"));
+        assertEquals(List.of("path"), specification.parameters().required());
+
+        assertNull(ToolSpecificationConverter.toSpecification(tool(null)).parameters());
+    }
+
+    @Test
+    public void testToolCallArguments() {
+        ToolCall call = ToolSpecificationConverter.toToolCall(ToolExecutionRequest.builder()
+                .id("call_1").name("command_executor").arguments("{\"command\":\"grep \\\"a b\\\" src\"}").build());
+        assertEquals("command_executor", call.getToolName());
+        assertEquals("grep \"a b\" src", call.getParameters().get("command"));
+
+        ToolCall broken = ToolSpecificationConverter.toToolCall(ToolExecutionRequest.builder()
+                .id("call_2").name("command_executor").arguments("{\"command\":").build());
+        assertEquals("{\"command\":", broken.getParameters().get("input"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.thoughtcoding.tools;
+
+import com.thoughtcoding.model.ToolResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolRegistry 测试：分类索引、按服务器原子替换、名称快照
+ */
+public class ToolRegistryTest {
+
+    private static BaseTool tool(String name, String category) {
+        return new BaseTool(name, name) {
+            @Override
+            public ToolResult execute(String input) {
+                return success(input);
+            }
+
+            @Override
+            public String getCategory() {
+                return category;
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void testReplaceCategory() {
+        ToolRegistry registry = new ToolRegistry(null);
+        registry.register(tool("file_manager", "file"));
+        registry.replaceCategory("MCP-fs", List.of(tool("read", "MCP-fs"), tool("write", "MCP-fs")));
+
+        Set<String> before = registry.getAvailableToolNames();
+        assertEquals(Set.of("file_manager", "read", "write"), before);
+        assertEquals(2, registry.getToolsByCategory("MCP-fs").size());
+
+        // 服务器工具列表变化：write 被移除，list 被加入，其他分类不受影响
+        registry.replaceCategory("MCP-fs", List.of(tool("read", "MCP-fs"), tool("list", "MCP-fs")));
+        assertEquals(Set.of("file_manager", "read", "list"), registry.getAvailableToolNames());
+        assertNull(registry.getTool("write"));
+        assertEquals(1, registry.getToolsByCategory("file").size());
+
+        // 之前取得的名称集合是快照，不会随注册变化，也不能被修改
+        assertEquals(Set.of("file_manager", "read", "write"), before);
+        assertThrows(UnsupportedOperationException.class, () -> before.add("x"));
+
+        registry.unregisterCategory("MCP-fs");
+        assertEquals(Set.of("file_manager"), registry.getAvailableToolNames());
+        assertTrue(registry.getToolsByCategory("MCP-fs").isEmpty());
+        assertEquals(Set.of("file"), registry.getCategories());
+    }
+}
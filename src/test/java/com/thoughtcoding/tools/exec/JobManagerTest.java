@@ -0,0 +1,75 @@
+package com.thoughtcoding.tools.exec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JobManager 测试：后台执行、输出写入 spool 文件、结束任务和清理
+ */
+@DisabledOnOs(OS.WINDOWS)
+public class JobManagerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testJobRunsInBackgroundAndSpoolsOutput() throws Exception {
+        JobManager manager = new JobManager(dir);
+        CountDownLatch finished = new CountDownLatch(1);
+        manager.setCompletionListener(job -> finished.countDown());
+
+        JobManager.Job job = manager.start("seq", new ProcessBuilder("sh", "-c", "seq 1 5000; exit 2")
+                .redirectErrorStream(true), 10_000, 64);
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        assertEquals(JobManager.Status.FAILED, job.getStatus());
+        assertEquals(2, job.getResult().getExitCode());
+        assertTrue(job.getResult().isTruncated());
+        // spool 文件保存完整输出，内存中只有开头和结尾
+        assertEquals(5000, Files.readAllLines(job.getSpool()).size());
+        assertEquals("4999\n5000", job.tail(2, 1024));
+        assertTrue(job.describe().startsWith("#1 FAILED "), job.describe());
+
+        manager.shutdown();
+        assertFalse(Files.exists(job.getSpool()));
+        assertTrue(manager.list().isEmpty());
+    }
+
+    @Test
+    public void testKillEndsRunningJob() throws Exception {
+        JobManager manager = new JobManager(dir);
+        CountDownLatch finished = new CountDownLatch(1);
+        manager.setCompletionListener(job -> finished.countDown());
+
+        JobManager.Job job = manager.start("sleep", new ProcessBuilder("sh", "-c", "echo waiting; sleep 30")
+                .redirectErrorStream(true), 0, 1024);
+        assertTrue(job.isRunning());
+        assertTrue(manager.hasRunningJobs());
+
+        assertTrue(manager.kill(job.getId()));
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(JobManager.Status.KILLED, job.getStatus());
+        assertFalse(manager.kill(job.getId()));
+        manager.shutdown();
+    }
+
+    @Test
+    public void testOnlyListStatusAndTailAreReadOnly() {
+        assertTrue(JobsTool.isReadOnlyAction("list"));
+        assertTrue(JobsTool.isReadOnlyAction("Status"));
+        assertTrue(JobsTool.isReadOnlyAction("tail"));
+        assertFalse(JobsTool.isReadOnlyAction("kill"));
+        // 解析失败的参数（如 {"input":"kill 3"}）没有 action，不能当作只读并行执行
+        assertFalse(JobsTool.isReadOnlyAction(null));
+        assertFalse(JobsTool.isReadOnlyAction("restart"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.thoughtcoding.tools.exec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProcessRunner 测试：开头/结尾输出缓冲、逐行转发、超时结束进程树
+ */
+public class ProcessRunnerTest {
+
+    @Test
+    public void testOutputBufferKeepsHeadAndTail() {
+        ProcessRunner.OutputBuffer buffer = new ProcessRunner.OutputBuffer(16, 24);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            byte[] line = ("line " + i + "\n").getBytes(StandardCharsets.UTF_8);
+            buffer.write(line, 0, line.length);
+            expected.append("line ").append(i).append("\n");
+        }
+
+        String text = buffer.text();
+        assertTrue(text.startsWith("line 1\nline 2\n… ["), text);
+        assertTrue(text.endsWith("\nline 99\nline 100"), text);
+        assertEquals(expected.length() - 40, buffer.omitted());
+
+        // 未超出缓冲区时原样保留
+        ProcessRunner.OutputBuffer small = new ProcessRunner.OutputBuffer(16, 16);
+        byte[] bytes = "a\nb\nc\n".getBytes(StandardCharsets.UTF_8);
+        small.write(bytes, 0, bytes.length);
+        assertEquals("a\nb\nc", small.text());
+        assertEquals(0, small.omitted());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void testStreamsLinesAndReportsExitCode() throws IOException {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        ProcessRunner runner = new ProcessRunner(10_000, 1024, 1024, lines::add);
+        ProcessRunner.Result result = runner.run(new ProcessBuilder("sh", "-c", "echo one; echo two >&2; exit 3")
+                .redirectErrorStream(true));
+
+        assertEquals(List.of("one", "two"), lines);
+        assertEquals(3, result.getExitCode());
+        assertEquals("one\ntwo", result.getOutput());
+        assertEquals(2, result.getTotalLines());
+        assertFalse(result.isTimedOut());
+        assertTrue(result.summary().startsWith("[exit 3, "), result.summary());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void testTimeoutKillsProcessTree() throws IOException {
+        ProcessRunner runner = new ProcessRunner(500, 1024, 1024, null);
+        long start = System.currentTimeMillis();
+        ProcessRunner.Result result = runner.run(new ProcessBuilder("sh", "-c", "echo started; sleep 30 & sleep 30; wait")
+                .redirectErrorStream(true));
+
+        assertTrue(result.isTimedOut());
+        assertEquals("started", result.getOutput());
+        assertTrue(System.currentTimeMillis() - start < 10_000, "后台子进程不应阻塞返回");
+        assertTrue(result.summary().startsWith("[timed out, "), result.summary());
+    }
+}
@@ -0,0 +1,98 @@
+package com.thoughtcoding.tools.file;
+
+import com.thoughtcoding.config.AppConfig;
+import com.thoughtcoding.model.ToolResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TextPatch / EditFileTool 测试：查找替换、unified diff、哈希校验和失败时不修改文件
+ */
+public class EditFileToolTest {
+
+    private static final String SOURCE = "class A {\n    int a = 1;\n    int b = 2;\n\n    void run() {\n        a++;\n    }\n}\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSearchReplace() {
+        TextPatch patch = TextPatch.searchReplace(SOURCE,
+                List.of("int a = 1;", "        a++;\n"),
+                List.of("int a = 10;", "        a += 2;\n        b--;\n"),
+                List.of(false, false));
+        assertEquals(SOURCE.replace("int a = 1;", "int a = 10;").replace("        a++;\n", "        a += 2;\n        b--;\n"),
+                patch.apply(SOURCE));
+        assertEquals(2, patch.size());
+
+        IllegalArgumentException ambiguous = assertThrows(IllegalArgumentException.class,
+                () -> TextPatch.searchReplace(SOURCE, List.of("int"), List.of("long"), List.of(false)));
+        assertTrue(ambiguous.getMessage().contains("lines [2, 3]"), ambiguous.getMessage());
+        assertEquals(SOURCE.replace("int", "long"),
+                TextPatch.searchReplace(SOURCE, List.of("int"), List.of("long"), List.of(true)).apply(SOURCE));
+
+        // 文件使用 \r\n 时按 \n 书写的修改也能定位
+        String crlf = SOURCE.replace("\n", "\r\n");
+        assertEquals(crlf.replace("int b = 2;\r\n", "int b = 3;\r\n    int c;\r\n"),
+                TextPatch.searchReplace(crlf, List.of("int b = 2;\n"), List.of("int b = 3;\n    int c;\n"),
+                        List.of(false)).apply(crlf));
+    }
+
+    @Test
+    public void testUnifiedDiff() {
+        String diff = "--- a/A.java\n+++ b/A.java\n"
+                + "@@ -1,3 +1,3 @@\n class A {\n-    int a = 1;\n+    int a = 5;\n     int b = 2;\n"
+                // 行号不准（实际在第 5 行），在附近找到匹配
+                + "@@ -7,3 +7,4 @@\n     void run() {\n         a++;\n+        b++;\n     }\n";
+        TextPatch patch = TextPatch.unifiedDiff(SOURCE, diff);
+        assertEquals(SOURCE.replace("int a = 1;", "int a = 5;").replace("a++;\n", "a++;\n        b++;\n"),
+                patch.apply(SOURCE));
+        assertEquals(2, patch.getAddedLines());
+        assertEquals(1, patch.getRemovedLines());
+
+        // 在没有换行结尾的文件末尾追加
+        assertEquals("a\nb\nc", TextPatch.unifiedDiff("a\nb", "@@ -2,0 +3,1 @@\n+c\n").apply("a\nb"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> TextPatch.unifiedDiff(SOURCE, "@@ -1,1 +1,1 @@\n-class B {\n+class C {\n"));
+    }
+
+    @Test
+    public void testToolWritesAtomicallyAndChecksHash() throws IOException {
+        Path file = Files.writeString(dir.resolve("A.java"), SOURCE);
+        EditFileTool tool = new EditFileTool(new AppConfig());
+        String path = file.toString().replace("\\", "\\\\");
+
+        ToolResult stale = tool.execute("{\"path\":\"" + path + "\",\"expectedHash\":\"abc\","
+                + "\"edits\":[{\"oldText\":\"int a = 1;\",\"newText\":\"int a = 2;\"}]}");
+        assertFalse(stale.isSuccess());
+        assertEquals(SOURCE, Files.readString(file));
+
+        // 一个修改块失败时其他修改块也不生效
+        ToolResult partial = tool.execute("{\"path\":\"" + path + "\",\"edits\":["
+                + "{\"oldText\":\"int a = 1;\",\"newText\":\"int a = 2;\"},"
+                + "{\"oldText\":\"missing\",\"newText\":\"x\"}]}");
+        assertFalse(partial.isSuccess());
+        assertTrue(partial.getError().contains("edit #2"), partial.getError());
+        assertEquals(SOURCE, Files.readString(file));
+
+        String hash = EditFileTool.sha256(SOURCE.getBytes(StandardCharsets.UTF_8));
+        ToolResult result = tool.execute("{\"path\":\"" + path + "\",\"expectedHash\":\"" + hash + "\","
+                + "\"edits\":[{\"oldText\":\"int a = 1;\",\"newText\":\"int a = 2;\"}]}");
+        assertTrue(result.isSuccess(), result.getError());
+        String updated = Files.readString(file);
+        assertEquals(SOURCE.replace("int a = 1;", "int a = 2;"), updated);
+        assertTrue(result.getOutput().endsWith("sha256: " + EditFileTool.sha256(updated.getBytes(StandardCharsets.UTF_8))));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "临时文件应被移走或删除");
+        }
+    }
+}
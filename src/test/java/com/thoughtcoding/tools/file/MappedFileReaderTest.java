@@ -0,0 +1,96 @@
+package com.thoughtcoding.tools.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MappedFileReader 测试：跨检查点的行范围、头尾读取、字节范围、截断和索引失效
+ */
+public class MappedFileReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLineRanges() throws IOException {
+        Path file = writeLines("log.txt", 5000, true);
+
+        MappedFileReader.Slice slice = MappedFileReader.readLines(file, 2047, 2050, 1 << 20);
+        assertEquals("line 2047\nline 2048\nline 2049\nline 2050", slice.getText());
+        assertEquals(2047, slice.getFirstLine());
+        assertEquals(2050, slice.getLastLine());
+        assertEquals(5000, slice.getTotalLines());
+        assertFalse(slice.isTruncated());
+
+        // 超出末尾时截到最后一行
+        slice = MappedFileReader.readLines(file, 4999, 6000, 1 << 20);
+        assertEquals("line 4999\nline 5000", slice.getText());
+        assertEquals("[lines 4999-5000 of 5000, bytes " + slice.getStartOffset() + "-" + Files.size(file)
+                + " of " + Files.size(file) + "]", slice.describe());
+
+        // 超过 maxBytes 时在行边界截断
+        slice = MappedFileReader.readLines(file, 1, 100, 25);
+        assertEquals("line 1\nline 2\nline 3", slice.getText());
+        assertEquals(3, slice.getLastLine());
+        assertTrue(slice.isTruncated());
+    }
+
+    @Test
+    public void testHeadTailAndBytes() throws IOException {
+        Path file = writeLines("a.txt", 10, false);
+
+        assertEquals("line 1\nline 2", MappedFileReader.head(file, 2, 1024).getText());
+        assertEquals("line 9\nline 10", MappedFileReader.tail(file, 2, 1024).getText());
+        assertEquals(String.join("\n", lines(10)), MappedFileReader.tail(file, 100, 1024).getText());
+        assertEquals("line 10", MappedFileReader.readLines(file, 10, 10, 1024).getText());
+        assertEquals(10, MappedFileReader.readLines(file, 1, 1, 1024).getTotalLines());
+
+        MappedFileReader.Slice tail = MappedFileReader.tail(file, 100, 16);
+        assertEquals("line 9\nline 10", tail.getText());
+        assertTrue(tail.isTruncated());
+
+        // 最后一行比 maxBytes 还长：返回它的末尾部分，而不是空文本
+        Path longLine = dir.resolve("long.txt");
+        Files.writeString(longLine, "short\n" + "x".repeat(40) + "y\n");
+        MappedFileReader.Slice longTail = MappedFileReader.tail(longLine, 1, 16);
+        assertEquals("x".repeat(14) + "y", longTail.getText());
+        assertTrue(longTail.isTruncated());
+
+        MappedFileReader.Slice bytes = MappedFileReader.readBytes(file, 7, 6, 1024);
+        assertEquals("line 2", bytes.getText());
+        assertFalse(bytes.isTruncated());
+        assertTrue(MappedFileReader.readBytes(file, 0, 100, 10).isTruncated());
+    }
+
+    @Test
+    public void testIndexRebuiltWhenFileChanges() throws IOException {
+        Path file = writeLines("b.txt", 3000, true);
+        assertEquals(3000, MappedFileReader.readLines(file, 1, 1, 1024).getTotalLines());
+
+        Files.writeString(file, "only\nthree\nlines\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        MappedFileReader.Slice slice = MappedFileReader.readLines(file, 2, 3, 1024);
+        assertEquals(3, slice.getTotalLines());
+        assertEquals("three\nlines", slice.getText());
+    }
+
+    private Path writeLines(String name, int count, boolean trailingNewline) throws IOException {
+        String content = String.join("\n", lines(count)) + (trailingNewline ? "\n" : "");
+        return Files.writeString(dir.resolve(name), content);
+    }
+
+    private static String[] lines(int count) {
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = "line " + (i + 1);
+        }
+        return lines;
+    }
+}
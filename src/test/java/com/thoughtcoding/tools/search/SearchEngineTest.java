@@ -0,0 +1,125 @@
+package com.thoughtcoding.tools.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SearchEngine 测试：忽略规则、二进制文件、字面量预过滤和结果上限
+ */
+public class SearchEngineTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testIgnoreRulesAndBinaryFiles() throws IOException {
+        Files.createDirectories(root.resolve(".git"));
+        write(".gitignore", "*.log\nbuild/\n!keep.log\n");
+        write("src/Main.java", "class Main {\n    // TODO: fix\n}\n");
+        write("src/sub/.ignore", "generated.txt\n");
+        write("src/sub/generated.txt", "TODO generated\n");
+        write("src/sub/notes.txt", "nothing\r\ntodo: windows line\r\n");
+        write("app.log", "TODO in log\n");
+        write("keep.log", "TODO kept\n");
+        write("build/out.txt", "TODO build\n");
+        write("target/classes/A.txt", "TODO target\n");
+        write("node_modules/x/index.js", "TODO module\n");
+        write(".hidden/secret.txt", "TODO hidden\n");
+        Files.write(root.resolve("data.bin"), new byte[]{'T', 'O', 'D', 'O', 0, 1, 2});
+
+        SearchEngine.Result result = new SearchEngine("todo", 100, Long.MAX_VALUE).search(root);
+
+        List<String> found = result.getMatches().stream()
+                .map(m -> root.relativize(m.getFile()).toString().replace('\\', '/') + ":" + m.getLine() + ":" + m.getText())
+                .collect(Collectors.toList());
+        assertEquals(List.of(
+                "keep.log:1:TODO kept",
+                "src/Main.java:2:    // TODO: fix",
+                "src/sub/notes.txt:2:todo: windows line"), found);
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    public void testMaxResultsStopsEarly() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            write("f" + i + ".txt", "match 1\nother\nmatch 2\n");
+        }
+
+        SearchEngine.Result result = new SearchEngine("match \\d", 5, Long.MAX_VALUE).search(root);
+
+        assertEquals(5, result.getMatches().size());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    public void testRegexSemantics() throws IOException {
+        write("a.txt", "foo\nbar\nfoo bar\n");
+
+        // 跨行的匹配不算，与逐行 grep 一致
+        SearchEngine.Result result = new SearchEngine("foo\\s+bar", 10, Long.MAX_VALUE).search(root.resolve("a.txt"));
+        assertEquals(1, result.getMatches().size());
+        assertEquals(3, result.getMatches().get(0).getLine());
+
+        // ^ 匹配每一行的开头；非法正则按普通文本搜索
+        assertEquals(2, new SearchEngine("^foo", 10, Long.MAX_VALUE).search(root).getMatches().size());
+        assertEquals(0, new SearchEngine("foo(", 10, Long.MAX_VALUE).search(root).getMatches().size());
+    }
+
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals("TODO", SearchEngine.requiredLiteral("TODO"));
+        assertEquals("class ", SearchEngine.requiredLiteral("class \\w+"));
+        assertEquals(".getName(", SearchEngine.requiredLiteral("\\.getName\\(\\)?"));
+        assertEquals("foo", SearchEngine.requiredLiteral("(bar)?foo"));
+        assertEquals("Li", SearchEngine.requiredLiteral("Lis?t{2}"));
+        assertNull(SearchEngine.requiredLiteral("foo|bar"));
+        assertNull(SearchEngine.requiredLiteral("\\d+"));
+
+        // 带参数的转义：参数不是字面量，且转义结束当前字面量
+        assertEquals("BC", SearchEngine.requiredLiteral("\\x41BC"));
+        assertEquals("Z", SearchEngine.requiredLiteral("\\x{41}Z"));
+        assertEquals("BCD", SearchEngine.requiredLiteral("\\u0041BCD"));
+        assertEquals("xyz", SearchEngine.requiredLiteral("\\cAxyz"));
+        assertEquals("89x", SearchEngine.requiredLiteral("\\012389x"));
+        assertEquals("ab", SearchEngine.requiredLiteral("(?<n>q)\\k<n>ab"));
+        assertEquals("ok", SearchEngine.requiredLiteral("\\p{Lu}ok"));
+        assertEquals("ok", SearchEngine.requiredLiteral("\\pLok"));
+        assertEquals("abc", SearchEngine.requiredLiteral("(a)\\1abc"));
+
+        // 嵌套字符类整体跳过；内联标志改变后续字符的含义，不提取
+        assertEquals("xyz", SearchEngine.requiredLiteral("[a[bc]]xyz"));
+        assertEquals("ok", SearchEngine.requiredLiteral("[a-z&&[^e]]ok"));
+        assertNull(SearchEngine.requiredLiteral("(?x) foo bar"));
+        assertNull(SearchEngine.requiredLiteral("(?u)straße"));
+        assertNull(SearchEngine.requiredLiteral("ab(?i:c)d"));
+    }
+
+    @Test
+    public void testNestedClassAndCommentsModeStillMatch() throws IOException {
+        write("a.txt", "xx bxyz yy\nfoobar\n");
+        assertEquals(1, new SearchEngine("[a[bc]]xyz", 10, 1 << 20).search(root).getMatches().size());
+        assertEquals(1, new SearchEngine("(?x) foo bar", 10, 1 << 20).search(root).getMatches().size());
+    }
+
+    @Test
+    public void testEscapedCodePointsStillMatch() throws IOException {
+        write("a.txt", "xx ABC yy\n");
+        assertEquals(1, new SearchEngine("\\x41BC", 10, 1 << 20).search(root).getMatches().size());
+        assertEquals(1, new SearchEngine("\\u0041BC", 10, 1 << 20).search(root).getMatches().size());
+        assertEquals(1, new SearchEngine("\\0101BC", 10, 1 << 20).search(root).getMatches().size());
+    }
+
+    private void write(String relative, String content) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
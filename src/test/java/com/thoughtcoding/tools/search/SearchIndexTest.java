@@ -0,0 +1,152 @@
+package com.thoughtcoding.tools.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TrigramIndex / SearchIndex 测试：候选文件、增量更新、压缩和持久化
+ */
+public class SearchIndexTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testCandidatesAndCompaction() throws IOException {
+        TrigramIndex index = new TrigramIndex();
+        index.put("a.java", 1, 1, trigrams("class UserService {}"));
+        index.put("b.java", 1, 1, trigrams("userservice impl"));
+        index.put("c.java", 1, 1, trigrams("class Order {}"));
+        index.put("big.bin", 1, 1, null);
+
+        assertEquals(Set.of("a.java", "b.java", "big.bin"), Set.copyOf(index.candidates("UserServ")));
+        assertEquals(Set.of("big.bin"), Set.copyOf(index.candidates("missing")));
+        assertNull(index.candidates("ab"), "少于 3 个字符时索引无法缩小范围");
+
+        // 文件内容变化：旧 ID 标记删除，新内容追加
+        index.put("a.java", 2, 2, trigrams("class Account {}"));
+        assertEquals(Set.of("b.java", "big.bin"), Set.copyOf(index.candidates("userservice")));
+        assertTrue(index.isCurrent("a.java", 2, 2));
+        assertFalse(index.isCurrent("a.java", 1, 1));
+
+        // 大量更新触发压缩后结果不变
+        for (int i = 0; i < 200; i++) {
+            index.put("c.java", i, i, trigrams("class Order" + i));
+        }
+        assertEquals(Set.of("c.java", "big.bin"), Set.copyOf(index.candidates("order199")));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        TrigramIndex loaded = TrigramIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(4, loaded.size());
+        assertEquals(Set.of("a.java", "big.bin"), Set.copyOf(loaded.candidates("account")));
+        assertTrue(loaded.isCurrent("c.java", 199, 199));
+    }
+
+    @Test
+    public void testIncrementalRefreshAndPersistence() throws IOException {
+        Path repo = Files.createDirectories(root.resolve("repo"));
+        Path cache = root.resolve("cache.idx");
+        Files.createDirectories(repo.resolve(".git"));
+        write(repo, ".gitignore", "out/\n");
+        write(repo, "src/A.java", "class Alpha {}\n");
+        write(repo, "src/B.java", "class Beta {}\n");
+        write(repo, "out/C.java", "class Alpha copy {}\n");
+
+        SearchIndex index = SearchIndex.openBlocking(repo, cache, Long.MAX_VALUE);
+        assertTrue(index.isReady());
+        assertEquals(List.of("src/A.java"), relative(repo, index.candidates("alpha", repo)));
+        assertNull(index.candidates("alpha", repo.resolve("out")), "忽略的目录不在索引中，应退回线性扫描");
+
+        // 未监听变化时，查询前按修改时间刷新
+        write(repo, "src/B.java", "class Beta extends Alpha {}\n");
+        Files.delete(repo.resolve("src/A.java"));
+        assertEquals(List.of("src/B.java"), relative(repo, index.candidates("alpha", repo)));
+
+        // 重新打开时从磁盘加载
+        SearchIndex reopened = SearchIndex.openBlocking(repo, cache, Long.MAX_VALUE);
+        assertEquals(List.of("src/B.java"), relative(repo, reopened.candidates("alpha", repo.resolve("src"))));
+
+        SearchEngine.Result result = new SearchEngine("extends alpha", 10, Long.MAX_VALUE)
+                .search(reopened.candidates("extends alpha", repo));
+        assertEquals(1, result.getMatches().size());
+    }
+
+    @Test
+    public void testInvalidatedFileIsReindexedAndPersisted() throws IOException {
+        Path repo = Files.createDirectories(root.resolve("repo"));
+        Path cache = root.resolve("cache.idx");
+        Files.createDirectories(repo.resolve(".git"));
+        write(repo, "src/A.java", "class Alpha {}\n");
+        Path file = repo.resolve("src/A.java");
+
+        // 注册监听但不读取事件：模拟事件尚未到达
+        SearchIndex index = SearchIndex.openBlocking(repo, cache, Long.MAX_VALUE, true);
+        assertEquals(List.of("src/A.java"), relative(repo, index.candidates("alpha", repo)));
+
+        // 大小和修改时间都不变的写入（同一毫秒内的编辑）
+        FileTime modified = Files.getLastModifiedTime(file);
+        write(repo, "src/A.java", "class Gamma {}\n");
+        Files.setLastModifiedTime(file, modified);
+
+        index.markDirty(file);
+        assertEquals(List.of("src/A.java"), relative(repo, index.candidates("gamma", repo)));
+        assertEquals(List.of(), relative(repo, index.candidates("alpha", repo)));
+
+        // 增量更新写回磁盘后，重新打开时使用新的三元组
+        index.flush();
+        SearchIndex reopened = SearchIndex.openBlocking(repo, cache, Long.MAX_VALUE);
+        assertEquals(List.of("src/A.java"), relative(repo, reopened.candidates("gamma", repo)));
+    }
+
+    @Test
+    public void testInvalidatedFilesUnderExcludedDirectoriesAreNotIndexed() throws IOException {
+        Path repo = Files.createDirectories(root.resolve("repo"));
+        Files.createDirectories(repo.resolve(".git"));
+        write(repo, ".gitignore", "build/\n");
+        write(repo, "src/A.java", "class Alpha {}\n");
+        SearchIndex index = SearchIndex.openBlocking(repo, root.resolve("cache.idx"), Long.MAX_VALUE, true);
+
+        // 工具写入被排除目录深处的文件：文件名本身和直接父目录都不会被忽略
+        for (String relative : List.of("target/classes/B.java", "node_modules/lib/b.js",
+                ".cache/deep/b.txt", "build/gen/B.java")) {
+            write(repo, relative, "class AlphaCopy {}\n");
+            index.markDirty(repo.resolve(relative));
+        }
+
+        assertEquals(List.of("src/A.java"), relative(repo, index.candidates("alpha", repo)));
+    }
+
+    private static int[] trigrams(String text) {
+        return TrigramIndex.trigrams(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> relative(Path repo, List<Path> files) {
+        return files.stream()
+                .map(file -> repo.relativize(file).toString().replace('\\', '/'))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static void write(Path repo, String relative, String content) throws IOException {
+        Path file = repo.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
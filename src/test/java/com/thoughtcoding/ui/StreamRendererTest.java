@@ -0,0 +1,62 @@
+package com.thoughtcoding.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamRenderer 测试：token 按顺序写出，同一帧内的 token 合并为一次写入
+ */
+public class StreamRendererTest {
+
+    @Test
+    public void testTokensAreCoalescedInOrder() {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        StreamRenderer renderer = new StreamRenderer(frame -> frames.add(frame.toString()), 50);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            renderer.append("t" + i + " ");
+            expected.append("t").append(i).append(' ');
+        }
+        renderer.flush();
+
+        assertEquals(expected.toString(), String.join("", frames), "flush 返回时所有 token 应已按顺序写出");
+        assertTrue(frames.size() < 100, "token 应按帧合并，实际写出 " + frames.size() + " 次");
+
+        renderer.append("tail");
+        renderer.close();
+        assertEquals("tail", frames.get(frames.size() - 1));
+    }
+
+    @Test
+    public void testFlushWritesQueuedTokensWhenRenderThreadIsSlow() throws Exception {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        CountDownLatch firstFrame = new CountDownLatch(1);
+        StreamRenderer renderer = new StreamRenderer(frame -> {
+            frames.add(frame.toString());
+            if (firstFrame.getCount() > 0) {
+                firstFrame.countDown();
+                try {
+                    Thread.sleep(1500);  // 终端写入很慢，超过 flush 的等待时间
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 1);
+
+        renderer.append("a");
+        assertTrue(firstFrame.await(5, TimeUnit.SECONDS));
+        renderer.append("b");
+        renderer.append("c");
+        renderer.flush();
+
+        assertEquals("abc", String.join("", frames), "flush 返回时排队的 token 应已写出");
+        renderer.close();
+    }
+}
@@ -0,0 +1,30 @@
+package com.thoughtcoding.ui.component;
+
+import com.thoughtcoding.service.PerformanceMonitor;
+import com.thoughtcoding.service.SessionPersister;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StatusBar 测试：性能统计行中的会话写入队列深度和写入耗时
+ */
+public class StatusBarTest {
+
+    @Test
+    public void testSessionStatsInPerformanceLine() {
+        SessionPersister.Stats stats = new SessionPersister.Stats(2, 10, 3, 7, 0, 4, 5, 12);
+        assertEquals(", session writes: queue 2, flush avg 5ms/max 12ms", StatusBar.formatSessionStats(stats));
+        assertEquals(", session writes: queue 0, flush avg 5ms/max 12ms, 1 failed",
+                StatusBar.formatSessionStats(new SessionPersister.Stats(0, 10, 3, 7, 1, 4, 5, 12)));
+        assertEquals("", StatusBar.formatSessionStats(null));
+
+        PerformanceMonitor monitor = new PerformanceMonitor();
+        monitor.recordTokens(42);
+        PerformanceMonitor.PerformanceData data = monitor.snapshot();
+        PerformanceMonitor.PerformanceData withStats = data.withSessionStats(stats);
+        assertNull(data.getSessionStats());
+        assertSame(stats, withStats.getSessionStats());
+        assertEquals(42, withStats.getTotalTokens());
+    }
+}